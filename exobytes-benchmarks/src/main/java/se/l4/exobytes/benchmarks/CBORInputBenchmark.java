@@ -0,0 +1,184 @@
+package se.l4.exobytes.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import se.l4.exobytes.AnnotationSerialization;
+import se.l4.exobytes.Expose;
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.Serializers;
+import se.l4.exobytes.streaming.StreamingFormat;
+import se.l4.exobytes.streaming.StreamingInput;
+import se.l4.exobytes.streaming.StreamingOutput;
+
+/**
+ * Benchmark for reading a larger CBOR document, both from a plain byte
+ * stream and from a stream where every call to {@code read()} is expensive.
+ */
+@Fork(value=1, warmups=1)
+@Warmup(time=1, timeUnit=TimeUnit.SECONDS)
+@Measurement(time=1, timeUnit=TimeUnit.SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(1)
+public class CBORInputBenchmark
+{
+	@Benchmark
+	public Document exobytes(DataState state)
+		throws IOException
+	{
+		ByteArrayInputStream stream = new ByteArrayInputStream(state.data);
+		try(StreamingInput in = StreamingFormat.CBOR.createInput(stream))
+		{
+			return in.readObject(state.serializer);
+		}
+	}
+
+	@Benchmark
+	public Document exobytesGzip(DataState state)
+		throws IOException
+	{
+		GZIPInputStream stream = new GZIPInputStream(new ByteArrayInputStream(state.compressed));
+		try(StreamingInput in = StreamingFormat.CBOR.createInput(stream))
+		{
+			return in.readObject(state.serializer);
+		}
+	}
+
+	@Benchmark
+	public Document jackson(DataState state)
+		throws IOException
+	{
+		ByteArrayInputStream stream = new ByteArrayInputStream(state.data);
+		return state.mapper.readValue(stream, Document.class);
+	}
+
+	@Benchmark
+	public Document jacksonGzip(DataState state)
+		throws IOException
+	{
+		GZIPInputStream stream = new GZIPInputStream(new ByteArrayInputStream(state.compressed));
+		return state.mapper.readValue(stream, Document.class);
+	}
+
+	public static void main(String[] args)
+		throws Exception
+	{
+		Options opt = new OptionsBuilder()
+			.include(CBORInputBenchmark.class.getSimpleName())
+			.build();
+
+		new Runner(opt).run();
+	}
+
+	@AnnotationSerialization
+	public static class Document
+	{
+		@Expose
+		@JsonProperty
+		public String title;
+
+		@Expose
+		@JsonProperty
+		public List<Entry> entries;
+	}
+
+	@AnnotationSerialization
+	public static class Entry
+	{
+		@Expose
+		@JsonProperty
+		public long id;
+
+		@Expose
+		@JsonProperty
+		public String name;
+
+		@Expose
+		@JsonProperty
+		public String description;
+
+		@Expose
+		@JsonProperty
+		public double score;
+
+		@Expose
+		@JsonProperty
+		public boolean active;
+	}
+
+	@State(Scope.Benchmark)
+	public static class DataState
+	{
+		public Serializer<Document> serializer;
+		public ObjectMapper mapper;
+
+		public byte[] data;
+		public byte[] compressed;
+
+		@Setup(Level.Trial)
+		public void setUp()
+			throws Throwable
+		{
+			serializer = Serializers.create()
+				.build()
+				.get(Document.class);
+
+			mapper = new ObjectMapper(new CBORFactory());
+
+			Document document = new Document();
+			document.title = "Benchmark document";
+			document.entries = new ArrayList<>();
+			for(int i=0; i<200; i++)
+			{
+				Entry entry = new Entry();
+				entry.id = 1_000_000l + i;
+				entry.name = "entry-" + i;
+				entry.description = "Description of entry " + i + ", with a bit of text and some non-ASCII: åäö ☃";
+				entry.score = i * 1.25;
+				entry.active = i % 2 == 0;
+				document.entries.add(entry);
+			}
+
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			try(StreamingOutput out = StreamingFormat.CBOR.createOutput(baos))
+			{
+				out.writeObject(serializer, document);
+			}
+			data = baos.toByteArray();
+
+			ByteArrayOutputStream compressedStream = new ByteArrayOutputStream();
+			try(GZIPOutputStream out = new GZIPOutputStream(compressedStream))
+			{
+				out.write(data);
+			}
+			compressed = compressedStream.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package se.l4.exobytes.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import se.l4.exobytes.AnnotationSerialization;
+import se.l4.exobytes.Expose;
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.Serializers;
+import se.l4.exobytes.streaming.StreamingFormat;
+import se.l4.exobytes.streaming.StreamingInput;
+import se.l4.exobytes.streaming.StreamingOutput;
+
+/**
+ * Benchmark for reading immutable types that can not be streamed, both
+ * with several constructors and a single constructor taking everything.
+ */
+@Fork(value=1, warmups=1)
+@Warmup(time=1, timeUnit=TimeUnit.SECONDS)
+@Measurement(time=1, timeUnit=TimeUnit.SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConstructorBenchmark
+{
+	@Benchmark
+	public Object readCBOR(ExobytesState state)
+		throws IOException
+	{
+		try(StreamingInput in = StreamingFormat.CBOR.createInput(state.data, 0, state.data.length))
+		{
+			return in.readObject(state.serializer);
+		}
+	}
+
+	@Benchmark
+	public Object readCBORAllArgs(ExobytesState state)
+		throws IOException
+	{
+		try(StreamingInput in = StreamingFormat.CBOR.createInput(state.allArgsData, 0, state.allArgsData.length))
+		{
+			return in.readObject(state.allArgsSerializer);
+		}
+	}
+
+	public static void main(String[] args)
+		throws Exception
+	{
+		Options opt = new OptionsBuilder()
+			.include(ConstructorBenchmark.class.getSimpleName())
+			.build();
+
+		new Runner(opt).run();
+	}
+
+	@AnnotationSerialization
+	public static class ImmutableObject
+	{
+		@Expose
+		private final String name;
+		@Expose
+		private final int count;
+		@Expose
+		private final long timestamp;
+		@Expose
+		private final double score;
+		@Expose
+		private final boolean active;
+
+		public ImmutableObject(
+			@Expose("name") String name,
+			@Expose("count") int count,
+			@Expose("timestamp") long timestamp,
+			@Expose("score") double score,
+			@Expose("active") boolean active
+		)
+		{
+			this.name = name;
+			this.count = count;
+			this.timestamp = timestamp;
+			this.score = score;
+			this.active = active;
+		}
+
+		public ImmutableObject(
+			@Expose("name") String name,
+			@Expose("count") int count
+		)
+		{
+			this(name, count, 0, 0, false);
+		}
+	}
+
+	@AnnotationSerialization
+	public static class AllArgsObject
+	{
+		@Expose
+		private final String name;
+		@Expose
+		private final int count;
+		@Expose
+		private final long timestamp;
+		@Expose
+		private final double score;
+		@Expose
+		private final boolean active;
+
+		public AllArgsObject(
+			@Expose("name") String name,
+			@Expose("count") int count,
+			@Expose("timestamp") long timestamp,
+			@Expose("score") double score,
+			@Expose("active") boolean active
+		)
+		{
+			this.name = name;
+			this.count = count;
+			this.timestamp = timestamp;
+			this.score = score;
+			this.active = active;
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class ExobytesState
+	{
+		public Serializer<ImmutableObject> serializer;
+		public byte[] data;
+
+		public Serializer<AllArgsObject> allArgsSerializer;
+		public byte[] allArgsData;
+
+		@Setup(Level.Trial)
+		public void setUp()
+			throws Throwable
+		{
+			serializer = Serializers.create()
+				.build()
+				.get(ImmutableObject.class);
+
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			try(StreamingOutput out = StreamingFormat.CBOR.createOutput(stream))
+			{
+				out.writeObject(serializer, new ImmutableObject("Test Name", 2020, 1593085293000l, 0.85, true));
+			}
+
+			data = stream.toByteArray();
+
+			allArgsSerializer = Serializers.create()
+				.build()
+				.get(AllArgsObject.class);
+
+			stream = new ByteArrayOutputStream();
+			try(StreamingOutput out = StreamingFormat.CBOR.createOutput(stream))
+			{
+				out.writeObject(allArgsSerializer, new AllArgsObject("Test Name", 2020, 1593085293000l, 0.85, true));
+			}
+
+			allArgsData = stream.toByteArray();
+		}
+	}
+}
@@ -72,6 +72,16 @@ public class DeserializationComparisonBenchmark
 		}
 	}
 
+	@Benchmark
+	public void exobytesCBORBytes(ExobytesState state)
+		throws IOException
+	{
+		try(StreamingInput in = StreamingFormat.CBOR.createInput(CBOR, 0, CBOR.length))
+		{
+			in.readObject(state.serializer);
+		}
+	}
+
 	@Benchmark
 	public void exobytesJSON(ExobytesState state)
 		throws IOException
@@ -83,6 +93,27 @@ public class DeserializationComparisonBenchmark
 		}
 	}
 
+	@Benchmark
+	public void exobytesGeneratedCBORBytes(ExobytesGeneratedState state)
+		throws IOException
+	{
+		try(StreamingInput in = StreamingFormat.CBOR.createInput(CBOR, 0, CBOR.length))
+		{
+			in.readObject(state.serializer);
+		}
+	}
+
+	@Benchmark
+	public void exobytesGeneratedJSON(ExobytesGeneratedState state)
+		throws IOException
+	{
+		ByteArrayInputStream stream = new ByteArrayInputStream(JSON_BINARY);
+		try(StreamingInput in = StreamingFormat.JSON.createInput(stream))
+		{
+			in.readObject(state.serializer);
+		}
+	}
+
 	@Benchmark
 	public void jacksonCBOR(JacksonCBORState state)
 		throws IOException
@@ -155,6 +186,22 @@ public class DeserializationComparisonBenchmark
 		}
 	}
 
+	@State(Scope.Benchmark)
+	public static class ExobytesGeneratedState
+	{
+		public Serializer<ObjectA> serializer;
+
+		@Setup(Level.Trial)
+		public void setUp()
+			throws Throwable
+		{
+			serializer = Serializers.create()
+				.withGeneratedSerializers()
+				.build()
+				.get(ObjectA.class);
+		}
+	}
+
 	@State(Scope.Benchmark)
 	public static class JacksonCBORState
 	{
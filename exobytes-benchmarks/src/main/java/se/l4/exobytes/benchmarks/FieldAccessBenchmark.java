@@ -1,5 +1,7 @@
 package se.l4.exobytes.benchmarks;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
@@ -8,6 +10,7 @@ import java.lang.reflect.Field;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -15,6 +18,17 @@ import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+import se.l4.exobytes.Expose;
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.Serializers;
+import se.l4.exobytes.internal.TypeEncounterImpl;
+import se.l4.exobytes.internal.reflection.ReflectionSerializer;
+import se.l4.exobytes.streaming.StreamingFormat;
+import se.l4.exobytes.streaming.StreamingInput;
+import se.l4.exobytes.streaming.StreamingOutput;
+import se.l4.ylem.types.mapping.OutputDeduplicator;
+import se.l4.ylem.types.reflect.Types;
+
 @Fork(value=1, warmups=1)
 public class FieldAccessBenchmark
 {
@@ -60,11 +74,48 @@ public class FieldAccessBenchmark
 		state.getter.invoke(new TestClass());
 	}
 
+	@Benchmark
+	public void serialize(SerializerState state)
+		throws IOException
+	{
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try(StreamingOutput out = StreamingFormat.CBOR.createOutput(stream))
+		{
+			out.writeObject(state.serializer, state.instance);
+		}
+	}
+
+	@Benchmark
+	public Object deserialize(SerializerState state)
+		throws IOException
+	{
+		try(StreamingInput in = StreamingFormat.CBOR.createInput(state.data, 0, state.data.length))
+		{
+			return in.readObject(state.serializer);
+		}
+	}
+
 	public static class TestClass
 	{
 		public String name;
 	}
 
+	public static class TestObject
+	{
+		@Expose
+		private String name;
+		@Expose
+		private int count;
+		@Expose
+		private long timestamp;
+		@Expose
+		private double score;
+		@Expose
+		private boolean active;
+		@Expose
+		private String description;
+	}
+
 	@State(Scope.Benchmark)
 	public static class CurrentState
 	{
@@ -89,6 +140,49 @@ public class FieldAccessBenchmark
 		}
 	}
 
+	@State(Scope.Benchmark)
+	public static class SerializerState
+	{
+		/**
+		 * How fields are accessed, {@code field} for reflection and
+		 * {@code generated} for generated bytecode.
+		 */
+		@Param({ "field", "generated" })
+		public String access;
+
+		public Serializer<TestObject> serializer;
+		public TestObject instance;
+		public byte[] data;
+
+		@Setup(Level.Trial)
+		public void setUp()
+			throws Throwable
+		{
+			ReflectionSerializer<TestObject> resolver = new ReflectionSerializer<>("generated".equals(access));
+
+			Serializers serializers = Serializers.create().build();
+			serializer = resolver
+				.find(new TypeEncounterImpl(serializers, OutputDeduplicator.none(), Types.reference(TestObject.class)))
+				.get();
+
+			instance = new TestObject();
+			instance.name = "Test Name";
+			instance.count = 2020;
+			instance.timestamp = 1593085293000l;
+			instance.score = 0.85;
+			instance.active = true;
+			instance.description = "A longer description of the test object";
+
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			try(StreamingOutput out = StreamingFormat.CBOR.createOutput(stream))
+			{
+				out.writeObject(serializer, instance);
+			}
+
+			data = stream.toByteArray();
+		}
+	}
+
 	public static void main(String[] args)
 		throws Exception
 	{
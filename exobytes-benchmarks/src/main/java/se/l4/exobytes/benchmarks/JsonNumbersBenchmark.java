@@ -0,0 +1,142 @@
+package se.l4.exobytes.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.Serializers;
+import se.l4.exobytes.streaming.StreamingFormat;
+import se.l4.exobytes.streaming.StreamingInput;
+import se.l4.exobytes.streaming.StreamingOutput;
+
+/**
+ * Benchmark for reading and writing arrays of numbers as JSON, such as time
+ * series.
+ */
+@Fork(value=1, warmups=1)
+@Warmup(time=1, timeUnit=TimeUnit.SECONDS)
+@Measurement(time=1, timeUnit=TimeUnit.SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(1)
+public class JsonNumbersBenchmark
+{
+	@Benchmark
+	public long[] longs(DataState state)
+		throws IOException
+	{
+		try(StreamingInput in = StreamingFormat.JSON.createInput(state.longs, 0, state.longs.length))
+		{
+			return in.readObject(state.longSerializer);
+		}
+	}
+
+	@Benchmark
+	public double[] doubles(DataState state)
+		throws IOException
+	{
+		try(StreamingInput in = StreamingFormat.JSON.createInput(state.doubles, 0, state.doubles.length))
+		{
+			return in.readObject(state.doubleSerializer);
+		}
+	}
+
+	@Benchmark
+	public int writeLongs(DataState state)
+		throws IOException
+	{
+		state.stream.reset();
+		try(StreamingOutput out = StreamingFormat.JSON.createOutput(state.stream))
+		{
+			out.writeObject(state.longSerializer, state.longValues);
+		}
+
+		return state.stream.size();
+	}
+
+	@Benchmark
+	public int writeDoubles(DataState state)
+		throws IOException
+	{
+		state.stream.reset();
+		try(StreamingOutput out = StreamingFormat.JSON.createOutput(state.stream))
+		{
+			out.writeObject(state.doubleSerializer, state.doubleValues);
+		}
+
+		return state.stream.size();
+	}
+
+	public static void main(String[] args)
+		throws Exception
+	{
+		Options opt = new OptionsBuilder()
+			.include(JsonNumbersBenchmark.class.getSimpleName())
+			.build();
+
+		new Runner(opt).run();
+	}
+
+	@State(Scope.Benchmark)
+	public static class DataState
+	{
+		public Serializer<long[]> longSerializer;
+		public Serializer<double[]> doubleSerializer;
+
+		public byte[] longs;
+		public byte[] doubles;
+
+		public long[] longValues;
+		public double[] doubleValues;
+
+		public ByteArrayOutputStream stream;
+
+		@Setup(Level.Trial)
+		public void setUp()
+			throws Throwable
+		{
+			Serializers serializers = Serializers.create().build();
+			longSerializer = serializers.get(long[].class);
+			doubleSerializer = serializers.get(double[].class);
+
+			Random random = new Random(42);
+			longValues = new long[1000];
+			doubleValues = new double[1000];
+			StringJoiner longJoiner = new StringJoiner(",", "[", "]");
+			StringJoiner doubleJoiner = new StringJoiner(",", "[", "]");
+			for(int i=0; i<1000; i++)
+			{
+				longValues[i] = 1_600_000_000_000l + random.nextInt(1_000_000);
+				doubleValues[i] = random.nextDouble() * 1000;
+
+				longJoiner.add(Long.toString(longValues[i]));
+				doubleJoiner.add(Double.toString(doubleValues[i]));
+			}
+
+			longs = longJoiner.toString().getBytes(StandardCharsets.UTF_8);
+			doubles = doubleJoiner.toString().getBytes(StandardCharsets.UTF_8);
+
+			stream = new ByteArrayOutputStream(32768);
+		}
+	}
+}
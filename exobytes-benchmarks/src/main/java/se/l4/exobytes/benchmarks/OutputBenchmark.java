@@ -0,0 +1,138 @@
+package se.l4.exobytes.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.Serializers;
+import se.l4.exobytes.benchmarks.CBORInputBenchmark.Document;
+import se.l4.exobytes.benchmarks.CBORInputBenchmark.Entry;
+import se.l4.exobytes.streaming.StreamingFormat;
+import se.l4.exobytes.streaming.StreamingOutput;
+
+/**
+ * Benchmark for writing a document of a few kilobytes into a reused stream.
+ * Run with {@code -prof gc} to see the memory allocated per message.
+ */
+@Fork(value=1, warmups=1)
+@Warmup(time=1, timeUnit=TimeUnit.SECONDS)
+@Measurement(time=1, timeUnit=TimeUnit.SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(1)
+public class OutputBenchmark
+{
+	@Benchmark
+	public int exobytesCBOR(DataState state)
+		throws IOException
+	{
+		state.stream.reset();
+		try(StreamingOutput out = StreamingFormat.CBOR.createOutput(state.stream))
+		{
+			out.writeObject(state.serializer, state.document);
+		}
+
+		return state.stream.size();
+	}
+
+	@Benchmark
+	public int exobytesJSON(DataState state)
+		throws IOException
+	{
+		state.stream.reset();
+		try(StreamingOutput out = StreamingFormat.JSON.createOutput(state.stream))
+		{
+			out.writeObject(state.serializer, state.document);
+		}
+
+		return state.stream.size();
+	}
+
+	@Benchmark
+	public int jacksonCBOR(DataState state)
+		throws IOException
+	{
+		state.stream.reset();
+		state.cborMapper.writeValue(state.stream, state.document);
+		return state.stream.size();
+	}
+
+	@Benchmark
+	public int jacksonJSON(DataState state)
+		throws IOException
+	{
+		state.stream.reset();
+		state.jsonMapper.writeValue(state.stream, state.document);
+		return state.stream.size();
+	}
+
+	public static void main(String[] args)
+		throws Exception
+	{
+		Options opt = new OptionsBuilder()
+			.include(OutputBenchmark.class.getSimpleName())
+			.build();
+
+		new Runner(opt).run();
+	}
+
+	@State(Scope.Thread)
+	public static class DataState
+	{
+		public Serializer<Document> serializer;
+		public ObjectMapper cborMapper;
+		public ObjectMapper jsonMapper;
+
+		public Document document;
+		public ByteArrayOutputStream stream;
+
+		@Setup(Level.Trial)
+		public void setUp()
+			throws Throwable
+		{
+			serializer = Serializers.create()
+				.build()
+				.get(Document.class);
+
+			cborMapper = new ObjectMapper(new CBORFactory());
+			jsonMapper = new ObjectMapper();
+
+			document = new Document();
+			document.title = "Benchmark document";
+			document.entries = new ArrayList<>();
+			for(int i=0; i<40; i++)
+			{
+				Entry entry = new Entry();
+				entry.id = 1_000_000l + i;
+				entry.name = "entry-" + i;
+				entry.description = "Description of entry " + i + ", with a bit of text and some non-ASCII: åäö ☃";
+				entry.score = i * 1.25;
+				entry.active = i % 2 == 0;
+				document.entries.add(entry);
+			}
+
+			stream = new ByteArrayOutputStream(16384);
+		}
+	}
+}
@@ -82,6 +82,28 @@ public class SerializationComparisonBenchmark
 		}
 	}
 
+	@Benchmark
+	public void exobytesGeneratedCBOR(ExobytesGeneratedState state)
+		throws IOException
+	{
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try(StreamingOutput out = StreamingFormat.CBOR.createOutput(stream))
+		{
+			out.writeObject(state.serializer, instance());
+		}
+	}
+
+	@Benchmark
+	public void exobytesGeneratedJSON(ExobytesGeneratedState state)
+		throws IOException
+	{
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try(StreamingOutput out = StreamingFormat.JSON.createOutput(stream))
+		{
+			out.writeObject(state.serializer, instance());
+		}
+	}
+
 	@Benchmark
 	public void jacksonCBOR(JacksonCBORState state)
 		throws IOException
@@ -154,6 +176,22 @@ public class SerializationComparisonBenchmark
 		}
 	}
 
+	@State(Scope.Benchmark)
+	public static class ExobytesGeneratedState
+	{
+		public Serializer<ObjectA> serializer;
+
+		@Setup(Level.Trial)
+		public void setUp()
+			throws Throwable
+		{
+			serializer = Serializers.create()
+				.withGeneratedSerializers()
+				.build()
+				.get(ObjectA.class);
+		}
+	}
+
 	@State(Scope.Benchmark)
 	public static class JacksonCBORState
 	{
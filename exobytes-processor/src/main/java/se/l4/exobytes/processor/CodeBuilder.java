@@ -0,0 +1,99 @@
+package se.l4.exobytes.processor;
+
+/**
+ * Builder for generated source code, keeps track of the indentation of
+ * blocks.
+ */
+final class CodeBuilder
+{
+	private final StringBuilder builder;
+	private int indent;
+
+	CodeBuilder()
+	{
+		builder = new StringBuilder();
+	}
+
+	/**
+	 * Add a line of code at the current indentation.
+	 *
+	 * @param code
+	 * @return
+	 */
+	CodeBuilder line(String code)
+	{
+		if(! code.isEmpty())
+		{
+			for(int i=0; i<indent; i++)
+			{
+				builder.append('\t');
+			}
+
+			builder.append(code);
+		}
+
+		builder.append('\n');
+		return this;
+	}
+
+	/**
+	 * Add an empty line.
+	 *
+	 * @return
+	 */
+	CodeBuilder line()
+	{
+		return line("");
+	}
+
+	/**
+	 * Open a block, increasing the indentation.
+	 *
+	 * @return
+	 */
+	CodeBuilder open()
+	{
+		line("{");
+		indent++;
+		return this;
+	}
+
+	/**
+	 * Close a block, decreasing the indentation.
+	 *
+	 * @return
+	 */
+	CodeBuilder close()
+	{
+		indent--;
+		return line("}");
+	}
+
+	/**
+	 * Increase the indentation without opening a block.
+	 *
+	 * @return
+	 */
+	CodeBuilder indent()
+	{
+		indent++;
+		return this;
+	}
+
+	/**
+	 * Decrease the indentation without closing a block.
+	 *
+	 * @return
+	 */
+	CodeBuilder outdent()
+	{
+		indent--;
+		return this;
+	}
+
+	@Override
+	public String toString()
+	{
+		return builder.toString();
+	}
+}
@@ -0,0 +1,56 @@
+package se.l4.exobytes.processor;
+
+import java.util.List;
+
+/**
+ * Writes the source code of a {@code SerializersModule} that registers
+ * generated serializers.
+ */
+class ModuleWriter
+{
+	/**
+	 * Write a module with the given name that registers the given types.
+	 *
+	 * @param packageName
+	 * @param name
+	 * @param types
+	 * @return
+	 */
+	String write(String packageName, String name, List<SerializedType> types)
+	{
+		CodeBuilder code = new CodeBuilder();
+		if(! packageName.isEmpty())
+		{
+			code.line("package " + packageName + ";")
+				.line();
+		}
+
+		code.line("import javax.annotation.processing.Generated;")
+			.line()
+			.line("import se.l4.exobytes.Serializers;")
+			.line("import se.l4.exobytes.SerializersModule;")
+			.line()
+			.line("/**")
+			.line(" * Module that registers serializers generated from annotations.")
+			.line(" */")
+			.line("@Generated(\"" + SerializerProcessor.class.getName() + "\")")
+			.line("public final class " + name)
+			.indent()
+			.line("implements SerializersModule")
+			.outdent()
+			.open()
+			.line("@Override")
+			.line("public void activate(Serializers serializers)")
+			.open();
+
+		for(SerializedType type : types)
+		{
+			code.line(type.getQualifiedSerializerName() + ".register(serializers);");
+		}
+
+		code.close()
+			.close();
+
+		return code.toString();
+	}
+}
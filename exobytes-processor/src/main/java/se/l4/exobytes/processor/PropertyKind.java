@@ -0,0 +1,69 @@
+package se.l4.exobytes.processor;
+
+/**
+ * How a property is read and written by a generated serializer. Primitives
+ * and strings are read and written directly, everything else is delegated
+ * to a serializer.
+ */
+enum PropertyKind
+{
+	BOOLEAN("Boolean", "false"),
+	BYTE("Byte", "(byte) 0"),
+	SHORT("Short", "(short) 0"),
+	CHAR("Char", "(char) 0"),
+	INT("Int", "0"),
+	LONG("Long", "0l"),
+	FLOAT("Float", "0f"),
+	DOUBLE("Double", "0.0"),
+	STRING("String", "null"),
+	OBJECT(null, "null");
+
+	private final String suffix;
+	private final String defaultValue;
+
+	PropertyKind(String suffix, String defaultValue)
+	{
+		this.suffix = suffix;
+		this.defaultValue = defaultValue;
+	}
+
+	/**
+	 * Get if this kind is read and written directly on the input and output.
+	 *
+	 * @return
+	 */
+	boolean isDirect()
+	{
+		return suffix != null;
+	}
+
+	/**
+	 * Get the name of the method used to read a value of this kind.
+	 *
+	 * @return
+	 */
+	String getReadMethod()
+	{
+		return "read" + suffix;
+	}
+
+	/**
+	 * Get the name of the method used to write a value of this kind.
+	 *
+	 * @return
+	 */
+	String getWriteMethod()
+	{
+		return "write" + suffix;
+	}
+
+	/**
+	 * Get the source code for the default value of this kind.
+	 *
+	 * @return
+	 */
+	String getDefaultValue()
+	{
+		return defaultValue;
+	}
+}
@@ -0,0 +1,134 @@
+package se.l4.exobytes.processor;
+
+/**
+ * Property of a {@link SerializedType}, represents a field annotated with
+ * {@code Expose}.
+ */
+final class SerializedProperty
+{
+	private final String name;
+	private final String fieldName;
+	private final String typeName;
+	private final String erasedTypeName;
+	private final PropertyKind kind;
+	private final boolean skipIfDefault;
+	private final boolean accessible;
+	private final String typeReference;
+	private final String use;
+
+	SerializedProperty(
+		String name,
+		String fieldName,
+		String typeName,
+		String erasedTypeName,
+		PropertyKind kind,
+		boolean skipIfDefault,
+		boolean accessible,
+		String typeReference,
+		String use
+	)
+	{
+		this.name = name;
+		this.fieldName = fieldName;
+		this.typeName = typeName;
+		this.erasedTypeName = erasedTypeName;
+		this.kind = kind;
+		this.skipIfDefault = skipIfDefault;
+		this.accessible = accessible;
+		this.typeReference = typeReference;
+		this.use = use;
+	}
+
+	/**
+	 * Get the name the property is serialized as.
+	 *
+	 * @return
+	 */
+	String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Get the name of the field.
+	 *
+	 * @return
+	 */
+	String getFieldName()
+	{
+		return fieldName;
+	}
+
+	/**
+	 * Get the type of the field as source code.
+	 *
+	 * @return
+	 */
+	String getTypeName()
+	{
+		return typeName;
+	}
+
+	/**
+	 * Get the erased type of the field as source code.
+	 *
+	 * @return
+	 */
+	String getErasedTypeName()
+	{
+		return erasedTypeName;
+	}
+
+	/**
+	 * Get how this property is read and written.
+	 *
+	 * @return
+	 */
+	PropertyKind getKind()
+	{
+		return kind;
+	}
+
+	/**
+	 * Get if the property should be skipped when it has its default value.
+	 *
+	 * @return
+	 */
+	boolean isSkipIfDefault()
+	{
+		return skipIfDefault;
+	}
+
+	/**
+	 * Get if the field can be accessed directly from the package of the
+	 * type, if not a {@code VarHandle} is used.
+	 *
+	 * @return
+	 */
+	boolean isAccessible()
+	{
+		return accessible;
+	}
+
+	/**
+	 * Get source code that creates a {@code TypeRef} for the field, or
+	 * {@code null} if the type has to be looked up from the field at runtime.
+	 *
+	 * @return
+	 */
+	String getTypeReference()
+	{
+		return typeReference;
+	}
+
+	/**
+	 * Get the name of the serializer or resolver from {@code Use}, or
+	 * {@code null} if the serializer should be resolved from the type.
+	 *
+	 * @return
+	 */
+	String getUse()
+	{
+		return use;
+	}
+}
@@ -0,0 +1,135 @@
+package se.l4.exobytes.processor;
+
+import java.util.List;
+
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Type annotated with {@code AnnotationSerialization} that a serializer
+ * will be generated for.
+ */
+final class SerializedType
+{
+	private final TypeElement element;
+	private final String packageName;
+	private final String typeName;
+	private final String serializerName;
+	private final List<SerializedProperty> properties;
+	private final List<SerializedProperty> constructorArguments;
+	private final String namespace;
+	private final String name;
+
+	SerializedType(
+		TypeElement element,
+		String packageName,
+		String typeName,
+		String serializerName,
+		List<SerializedProperty> properties,
+		List<SerializedProperty> constructorArguments,
+		String namespace,
+		String name
+	)
+	{
+		this.element = element;
+		this.packageName = packageName;
+		this.typeName = typeName;
+		this.serializerName = serializerName;
+		this.properties = properties;
+		this.constructorArguments = constructorArguments;
+		this.namespace = namespace;
+		this.name = name;
+	}
+
+	/**
+	 * Get the element this type was read from.
+	 *
+	 * @return
+	 */
+	TypeElement getElement()
+	{
+		return element;
+	}
+
+	/**
+	 * Get the package of the type, empty for the unnamed package.
+	 *
+	 * @return
+	 */
+	String getPackageName()
+	{
+		return packageName;
+	}
+
+	/**
+	 * Get the canonical name of the type.
+	 *
+	 * @return
+	 */
+	String getTypeName()
+	{
+		return typeName;
+	}
+
+	/**
+	 * Get the simple name of the generated serializer.
+	 *
+	 * @return
+	 */
+	String getSerializerName()
+	{
+		return serializerName;
+	}
+
+	/**
+	 * Get the fully qualified name of the generated serializer.
+	 *
+	 * @return
+	 */
+	String getQualifiedSerializerName()
+	{
+		return packageName.isEmpty() ? serializerName : packageName + '.' + serializerName;
+	}
+
+	/**
+	 * Get the properties of the type, in declaration order.
+	 *
+	 * @return
+	 */
+	List<SerializedProperty> getProperties()
+	{
+		return properties;
+	}
+
+	/**
+	 * Get the properties passed to the constructor, in the order of its
+	 * parameters. If {@code null} instances are created using the no-argument
+	 * constructor and properties are set on the instance.
+	 *
+	 * @return
+	 */
+	List<SerializedProperty> getConstructorArguments()
+	{
+		return constructorArguments;
+	}
+
+	/**
+	 * Get the namespace from {@code Named}.
+	 *
+	 * @return
+	 */
+	String getNamespace()
+	{
+		return namespace;
+	}
+
+	/**
+	 * Get the name from {@code Named}, or {@code null} if the type is not
+	 * named.
+	 *
+	 * @return
+	 */
+	String getName()
+	{
+		return name;
+	}
+}
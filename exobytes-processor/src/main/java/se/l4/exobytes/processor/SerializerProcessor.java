@@ -0,0 +1,316 @@
+package se.l4.exobytes.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor that generates serializers for types annotated with
+ * {@code AnnotationSerialization}. The generated serializers read and write
+ * fields directly instead of using reflection, and follow the same rules as
+ * the reflection based serializer for {@code Expose}, {@code Factory},
+ * {@code Named}, {@code SkipDefaultValue} and {@code Use}.
+ *
+ * <p>
+ * A serializer named {@code Type_Serializer} is generated in the package of
+ * every supported type, together with a {@code SerializersModule} that
+ * registers them. The module is listed in
+ * {@code META-INF/services/se.l4.exobytes.SerializersModule} so that it is
+ * activated when {@code Serializers} are built with default serializers.
+ * Modules already listed in that file, such as ones copied from the
+ * resources of the project, are kept.
+ * Types that can not be handled, such as generic types or types that need
+ * constructor injection, are skipped with a note and use reflection at
+ * runtime.
+ *
+ * <p>
+ * The module is generated in the package of the first type and named
+ * {@code GeneratedSerializersModule}. If several compilations, such as main
+ * and test sources, generate into the same package the name should be set
+ * using the option {@code exobytes.module}, such as
+ * {@code -Aexobytes.module=com.example.ExampleSerializersModule}.
+ *
+ * <p>
+ * When the code using generated serializers is a named module it needs to
+ * provide the generated module via
+ * {@code provides se.l4.exobytes.SerializersModule with ...} in its
+ * {@code module-info.java}.
+ */
+@SupportedAnnotationTypes(TypeReader.ANNOTATION_SERIALIZATION)
+@SupportedOptions(SerializerProcessor.MODULE_OPTION)
+public class SerializerProcessor
+	extends AbstractProcessor
+{
+	/**
+	 * Option used to set the fully qualified name of the generated module.
+	 */
+	public static final String MODULE_OPTION = "exobytes.module";
+
+	private static final String DEFAULT_MODULE = "GeneratedSerializersModule";
+	private static final String SERVICE_FILE = "META-INF/services/se.l4.exobytes.SerializersModule";
+
+	private final List<SerializedType> pending;
+	private final List<String> modules;
+
+	private TypeReader reader;
+	private SerializerWriter serializerWriter;
+	private ModuleWriter moduleWriter;
+
+	private Filer filer;
+	private Messager messager;
+
+	public SerializerProcessor()
+	{
+		pending = new ArrayList<>();
+		modules = new ArrayList<>();
+	}
+
+	@Override
+	public synchronized void init(ProcessingEnvironment processingEnv)
+	{
+		super.init(processingEnv);
+
+		reader = new TypeReader(processingEnv);
+		serializerWriter = new SerializerWriter(processingEnv.getElementUtils());
+		moduleWriter = new ModuleWriter();
+
+		filer = processingEnv.getFiler();
+		messager = processingEnv.getMessager();
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+	{
+		if(roundEnv.processingOver())
+		{
+			writeServiceFile();
+			return false;
+		}
+
+		boolean found = false;
+		for(TypeElement annotation : annotations)
+		{
+			for(Element element : roundEnv.getElementsAnnotatedWith(annotation))
+			{
+				if(! (element instanceof TypeElement))
+				{
+					// Fields may also be annotated
+					continue;
+				}
+
+				found = true;
+				generateSerializer((TypeElement) element);
+			}
+		}
+
+		if(! found && ! pending.isEmpty())
+		{
+			/*
+			 * Modules are written once a round does not find any new types,
+			 * so that types from generated sources are also included.
+			 */
+			generateModule();
+		}
+
+		return false;
+	}
+
+	private void generateSerializer(TypeElement element)
+	{
+		SerializedType type;
+		try
+		{
+			type = reader.read(element);
+		}
+		catch(UnsupportedTypeException e)
+		{
+			messager.printMessage(
+				Diagnostic.Kind.NOTE,
+				"Serializer for " + element.getQualifiedName() + " will use reflection; " + e.getMessage(),
+				element
+			);
+			return;
+		}
+
+		try
+		{
+			JavaFileObject file = filer.createSourceFile(type.getQualifiedSerializerName(), element);
+			try(Writer writer = file.openWriter())
+			{
+				writer.write(serializerWriter.write(type));
+			}
+
+			pending.add(type);
+		}
+		catch(IOException e)
+		{
+			messager.printMessage(
+				Diagnostic.Kind.ERROR,
+				"Could not write serializer for " + element.getQualifiedName() + "; " + e.getMessage(),
+				element
+			);
+		}
+	}
+
+	private void generateModule()
+	{
+		String qualifiedName = processingEnv.getOptions().get(MODULE_OPTION);
+		if(qualifiedName == null)
+		{
+			qualifiedName = defaultModuleName();
+		}
+
+		if(! modules.isEmpty())
+		{
+			// Module generated in an earlier round, use a unique name
+			qualifiedName += modules.size() + 1;
+		}
+
+		int idx = qualifiedName.lastIndexOf('.');
+		String packageName = idx < 0 ? "" : qualifiedName.substring(0, idx);
+		String name = qualifiedName.substring(idx + 1);
+
+		Element[] originating = new Element[pending.size()];
+		for(int i=0, n=pending.size(); i<n; i++)
+		{
+			originating[i] = pending.get(i).getElement();
+		}
+
+		try
+		{
+			JavaFileObject file = filer.createSourceFile(qualifiedName, originating);
+			try(Writer writer = file.openWriter())
+			{
+				writer.write(moduleWriter.write(packageName, name, pending));
+			}
+
+			modules.add(qualifiedName);
+			pending.clear();
+		}
+		catch(IOException e)
+		{
+			messager.printMessage(
+				Diagnostic.Kind.ERROR,
+				"Could not write module " + qualifiedName + "; " + e.getMessage()
+			);
+		}
+	}
+
+	private String defaultModuleName()
+	{
+		String packageName = pending.get(0).getPackageName();
+		for(SerializedType type : pending)
+		{
+			if(type.getPackageName().isEmpty())
+			{
+				// Types in the unnamed package can only be used from it
+				return DEFAULT_MODULE;
+			}
+		}
+
+		return packageName.isEmpty() ? DEFAULT_MODULE : packageName + '.' + DEFAULT_MODULE;
+	}
+
+	private void writeServiceFile()
+	{
+		if(! pending.isEmpty())
+		{
+			generateModule();
+		}
+
+		if(modules.isEmpty())
+		{
+			return;
+		}
+
+		Set<String> entries = readServiceFile();
+		entries.addAll(modules);
+
+		try
+		{
+			FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			try(Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8))
+			{
+				for(String module : entries)
+				{
+					writer.write(module);
+					writer.write('\n');
+				}
+			}
+		}
+		catch(IOException e)
+		{
+			messager.printMessage(
+				Diagnostic.Kind.ERROR,
+				"Could not write " + SERVICE_FILE + "; " + e.getMessage()
+			);
+		}
+	}
+
+	/**
+	 * Read the modules listed in a service file that already exists in the
+	 * output, such as one copied from the resources of the project.
+	 *
+	 * @return
+	 */
+	private Set<String> readServiceFile()
+	{
+		Set<String> entries = new LinkedHashSet<>();
+		try
+		{
+			FileObject file = filer.getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			try(BufferedReader reader = new BufferedReader(new InputStreamReader(file.openInputStream(), StandardCharsets.UTF_8)))
+			{
+				String line;
+				while((line = reader.readLine()) != null)
+				{
+					int comment = line.indexOf('#');
+					if(comment >= 0)
+					{
+						line = line.substring(0, comment);
+					}
+
+					line = line.trim();
+					if(! line.isEmpty())
+					{
+						entries.add(line);
+					}
+				}
+			}
+		}
+		catch(IOException e)
+		{
+			// No existing service file
+		}
+
+		return entries;
+	}
+}
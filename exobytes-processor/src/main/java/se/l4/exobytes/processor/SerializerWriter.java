@@ -0,0 +1,408 @@
+package se.l4.exobytes.processor;
+
+import java.util.List;
+
+import javax.lang.model.util.Elements;
+
+/**
+ * Writes the source code of a serializer for a {@link SerializedType}.
+ */
+class SerializerWriter
+{
+	private final Elements elements;
+
+	SerializerWriter(Elements elements)
+	{
+		this.elements = elements;
+	}
+
+	/**
+	 * Write the serializer for the given type.
+	 *
+	 * @param type
+	 * @return
+	 */
+	String write(SerializedType type)
+	{
+		List<SerializedProperty> properties = type.getProperties();
+		boolean hasHandles = false;
+		boolean hasReferences = false;
+		boolean hasSerializers = false;
+		for(SerializedProperty property : properties)
+		{
+			hasHandles |= ! property.isAccessible();
+			hasSerializers |= ! property.getKind().isDirect();
+			hasReferences |= ! property.getKind().isDirect() && property.getTypeReference() != null;
+		}
+
+		CodeBuilder code = new CodeBuilder();
+		if(! type.getPackageName().isEmpty())
+		{
+			code.line("package " + type.getPackageName() + ";")
+				.line();
+		}
+
+		code.line("import java.io.IOException;");
+		if(hasHandles)
+		{
+			code.line("import java.lang.invoke.MethodHandles;")
+				.line("import java.lang.invoke.VarHandle;");
+		}
+
+		code.line("import java.util.Optional;")
+			.line()
+			.line("import javax.annotation.processing.Generated;")
+			.line();
+
+		if(type.getName() != null)
+		{
+			code.line("import se.l4.exobytes.QualifiedName;");
+		}
+
+		code.line("import se.l4.exobytes.Serializer;")
+			.line("import se.l4.exobytes.Serializers;")
+			.line("import se.l4.exobytes.TypeEncounter;")
+			.line("import se.l4.exobytes.streaming.KeyTable;")
+			.line("import se.l4.exobytes.streaming.StreamingInput;")
+			.line("import se.l4.exobytes.streaming.StreamingOutput;")
+			.line("import se.l4.exobytes.streaming.Token;");
+
+		if(hasReferences)
+		{
+			code.line("import se.l4.ylem.types.reflect.Types;");
+		}
+
+		String typeName = type.getTypeName();
+		String serializerName = type.getSerializerName();
+
+		code.line()
+			.line("/**")
+			.line(" * {@link Serializer} generated from the annotations of")
+			.line(" * {@link " + typeName + "}.")
+			.line(" */")
+			.line("@Generated(" + literal(SerializerProcessor.class.getName()) + ")")
+			.line("public final class " + serializerName)
+			.indent()
+			.line("implements Serializer<" + typeName + ">")
+			.outdent()
+			.open();
+
+		// Static state, key table, name and handles for private fields
+		code.line("private static final KeyTable KEYS = KeyTable.of(")
+			.indent();
+		for(int i=0, n=properties.size(); i<n; i++)
+		{
+			code.line(literal(properties.get(i).getName()) + (i < n - 1 ? "," : ""));
+		}
+		code.outdent()
+			.line(");");
+
+		if(type.getName() != null)
+		{
+			code.line()
+				.line("private static final QualifiedName NAME = new QualifiedName("
+					+ literal(type.getNamespace()) + ", " + literal(type.getName()) + ");");
+		}
+
+		if(hasHandles)
+		{
+			code.line();
+			for(int i=0, n=properties.size(); i<n; i++)
+			{
+				if(! properties.get(i).isAccessible())
+				{
+					code.line("private static final VarHandle " + handle(i) + ";");
+				}
+			}
+
+			code.line()
+				.line("static")
+				.open()
+				.line("try")
+				.open()
+				.line("MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(" + typeName + ".class, MethodHandles.lookup());");
+			for(int i=0, n=properties.size(); i<n; i++)
+			{
+				SerializedProperty property = properties.get(i);
+				if(! property.isAccessible())
+				{
+					code.line(handle(i) + " = lookup.findVarHandle(" + typeName + ".class, "
+						+ literal(property.getFieldName()) + ", " + property.getErasedTypeName() + ".class);");
+				}
+			}
+			code.close()
+				.line("catch(ReflectiveOperationException e)")
+				.open()
+				.line("throw new ExceptionInInitializerError(e);")
+				.close()
+				.close();
+		}
+
+		// Serializers for properties that are not read directly
+		if(hasSerializers)
+		{
+			code.line();
+			for(int i=0, n=properties.size(); i<n; i++)
+			{
+				SerializedProperty property = properties.get(i);
+				if(! property.getKind().isDirect())
+				{
+					code.line("private final Serializer<" + property.getTypeName() + "> " + serializer(i) + ";");
+				}
+			}
+		}
+
+		code.line();
+		if(hasSerializers)
+		{
+			code.line("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })");
+		}
+
+		code.line("private " + serializerName + "(TypeEncounter encounter)")
+			.open();
+		for(int i=0, n=properties.size(); i<n; i++)
+		{
+			SerializedProperty property = properties.get(i);
+			if(property.getKind().isDirect())
+			{
+				continue;
+			}
+
+			String reference = property.getTypeReference();
+			if(reference == null)
+			{
+				// Type has hints or can not be expressed, use the type of the field
+				reference = "encounter.getType().getDeclaredField("
+					+ literal(property.getFieldName()) + ").get().getType()";
+			}
+
+			if(property.getUse() == null)
+			{
+				code.line(serializer(i) + " = encounter.get(" + reference + ");");
+			}
+			else
+			{
+				code.line(serializer(i) + " = encounter.get((Class) " + property.getUse() + ".class, " + reference + ");");
+			}
+		}
+		code.close();
+
+		// Registration of the serializer
+		code.line()
+			.line("/**")
+			.line(" * Register this serializer for {@link " + typeName + "}.")
+			.line(" *")
+			.line(" * @param serializers")
+			.line(" */")
+			.line("public static void register(Serializers serializers)")
+			.open()
+			.line("serializers.register(" + typeName + ".class, " + serializerName + "::find);")
+			.close()
+			.line()
+			.line("private static Optional<" + serializerName + "> find(TypeEncounter encounter)")
+			.open()
+			.line("if(encounter.getType().getErasedType() != " + typeName + ".class)")
+			.open()
+			.line("// Sub-classes are not handled by this serializer")
+			.line("return Optional.empty();")
+			.close()
+			.line()
+			.line("return Optional.of(new " + serializerName + "(encounter));")
+			.close();
+
+		if(type.getName() != null)
+		{
+			code.line()
+				.line("@Override")
+				.line("public Optional<QualifiedName> getName()")
+				.open()
+				.line("return Optional.of(NAME);")
+				.close();
+		}
+
+		writeRead(type, code);
+		writeWrite(type, code);
+
+		code.close();
+		return code.toString();
+	}
+
+	private void writeRead(SerializedType type, CodeBuilder code)
+	{
+		List<SerializedProperty> properties = type.getProperties();
+		List<SerializedProperty> arguments = type.getConstructorArguments();
+		String typeName = type.getTypeName();
+
+		code.line()
+			.line("@Override")
+			.line("public " + typeName + " read(StreamingInput in)")
+			.indent()
+			.line("throws IOException")
+			.outdent()
+			.open()
+			.line("in.next(Token.OBJECT_START);")
+			.line();
+
+		if(arguments == null)
+		{
+			code.line(typeName + " instance = new " + typeName + "();");
+		}
+		else
+		{
+			for(int i=0, n=properties.size(); i<n; i++)
+			{
+				SerializedProperty property = properties.get(i);
+				code.line(property.getTypeName() + " " + value(i) + " = " + property.getKind().getDefaultValue() + ";");
+			}
+		}
+
+		code.line()
+			.line("while(in.next() != Token.OBJECT_END)")
+			.open()
+			.line("in.current(Token.VALUE);")
+			.line("switch(in.readKey(KEYS))")
+			.open();
+
+		for(int i=0, n=properties.size(); i<n; i++)
+		{
+			SerializedProperty property = properties.get(i);
+			String read = property.getKind().isDirect()
+				? "in.next() == Token.NULL ? " + property.getKind().getDefaultValue() + " : in." + property.getKind().getReadMethod() + "()"
+				: "in.readObject(" + serializer(i) + ")";
+
+			code.line("case " + i + ":")
+				.indent();
+
+			if(arguments != null)
+			{
+				code.line(value(i) + " = " + read + ";");
+			}
+			else if(property.isAccessible())
+			{
+				code.line("instance." + property.getFieldName() + " = " + read + ";");
+			}
+			else
+			{
+				code.line(handle(i) + ".set(instance, " + read + ");");
+			}
+
+			code.line("break;")
+				.outdent();
+		}
+
+		code.line("default:")
+			.indent()
+			.line("// No such property, skip the entire value")
+			.line("in.skipNext();")
+			.outdent()
+			.close()
+			.close()
+			.line();
+
+		if(arguments == null)
+		{
+			code.line("return instance;");
+		}
+		else
+		{
+			StringBuilder builder = new StringBuilder("return new ")
+				.append(typeName)
+				.append('(');
+			for(int i=0, n=arguments.size(); i<n; i++)
+			{
+				if(i > 0) builder.append(", ");
+				builder.append(value(properties.indexOf(arguments.get(i))));
+			}
+			code.line(builder.append(");").toString());
+		}
+
+		code.close();
+	}
+
+	private void writeWrite(SerializedType type, CodeBuilder code)
+	{
+		List<SerializedProperty> properties = type.getProperties();
+
+		code.line()
+			.line("@Override")
+			.line("public void write(" + type.getTypeName() + " object, StreamingOutput out)")
+			.indent()
+			.line("throws IOException")
+			.outdent()
+			.open()
+			.line("out.writeObjectStart();");
+
+		for(int i=0, n=properties.size(); i<n; i++)
+		{
+			SerializedProperty property = properties.get(i);
+			PropertyKind kind = property.getKind();
+
+			String get = property.isAccessible()
+				? "object." + property.getFieldName()
+				: "(" + property.getTypeName() + ") " + handle(i) + ".get(object)";
+
+			code.line()
+				.line(property.getTypeName() + " " + value(i) + " = " + get + ";");
+
+			if(property.isSkipIfDefault())
+			{
+				String isDefault = kind == PropertyKind.BOOLEAN
+					? value(i)
+					: value(i) + " != " + kind.getDefaultValue();
+
+				code.line("if(" + isDefault + ")")
+					.open();
+			}
+
+			code.line("out.writeString(" + literal(property.getName()) + ");");
+			if(kind == PropertyKind.STRING)
+			{
+				code.line("if(" + value(i) + " == null)")
+					.open()
+					.line("out.writeNull();")
+					.close()
+					.line("else")
+					.open()
+					.line("out.writeString(" + value(i) + ");")
+					.close();
+			}
+			else if(kind.isDirect())
+			{
+				code.line("out." + kind.getWriteMethod() + "(" + value(i) + ");");
+			}
+			else
+			{
+				code.line("out.writeObject(" + serializer(i) + ", " + value(i) + ");");
+			}
+
+			if(property.isSkipIfDefault())
+			{
+				code.close();
+			}
+		}
+
+		code.line()
+			.line("out.writeObjectEnd();")
+			.close();
+	}
+
+	private String literal(String value)
+	{
+		return elements.getConstantExpression(value);
+	}
+
+	private static String handle(int index)
+	{
+		return "FIELD_" + index;
+	}
+
+	private static String serializer(int index)
+	{
+		return "serializer" + index;
+	}
+
+	private static String value(int index)
+	{
+		return "value" + index;
+	}
+}
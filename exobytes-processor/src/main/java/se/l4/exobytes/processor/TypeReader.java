@@ -0,0 +1,703 @@
+package se.l4.exobytes.processor;
+
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Reads the annotations of a type into a {@link SerializedType}. Follows the
+ * same rules as the reflection based serializer and will throw
+ * {@link UnsupportedTypeException} for anything that generated code can
+ * not handle.
+ */
+class TypeReader
+{
+	static final String ANNOTATION_SERIALIZATION = "se.l4.exobytes.AnnotationSerialization";
+
+	private static final String EXPOSE = "se.l4.exobytes.Expose";
+	private static final String FACTORY = "se.l4.exobytes.Factory";
+	private static final String NAMED = "se.l4.exobytes.Named";
+	private static final String SKIP_DEFAULT_VALUE = "se.l4.exobytes.SkipDefaultValue";
+	private static final String USE = "se.l4.exobytes.Use";
+	private static final String CONSTRUCTOR_PROPERTIES = "java.beans.ConstructorProperties";
+
+	/**
+	 * Annotations that are handled at compile time, any other annotation
+	 * retained at runtime may be a hint for the serializer of a field.
+	 */
+	private static final Set<String> KNOWN = Set.of(
+		ANNOTATION_SERIALIZATION,
+		EXPOSE,
+		NAMED,
+		SKIP_DEFAULT_VALUE,
+		USE
+	);
+
+	private final Elements elements;
+	private final Types types;
+
+	TypeReader(ProcessingEnvironment env)
+	{
+		this.elements = env.getElementUtils();
+		this.types = env.getTypeUtils();
+	}
+
+	/**
+	 * Read the given type.
+	 *
+	 * @param type
+	 * @return
+	 * @throws UnsupportedTypeException
+	 *   if a serializer can not be generated for the type
+	 */
+	SerializedType read(TypeElement type)
+		throws UnsupportedTypeException
+	{
+		boolean record = type.getKind().name().equals("RECORD");
+		if(type.getKind() != ElementKind.CLASS && ! record)
+		{
+			throw new UnsupportedTypeException("only classes and records are supported");
+		}
+
+		if(type.getModifiers().contains(Modifier.ABSTRACT))
+		{
+			throw new UnsupportedTypeException("abstract classes can not be created");
+		}
+
+		if(! type.getTypeParameters().isEmpty())
+		{
+			throw new UnsupportedTypeException("generic types are resolved at runtime");
+		}
+
+		if(find(type, USE) != null)
+		{
+			throw new UnsupportedTypeException("the type declares a serializer via @Use");
+		}
+
+		PackageElement pkg = elements.getPackageOf(type);
+		String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+		checkAccessible(type, packageName);
+
+		List<SerializedProperty> properties = new ArrayList<>();
+		Map<String, SerializedProperty> byName = new HashMap<>();
+		Map<String, SerializedProperty> byField = new HashMap<>();
+		Map<SerializedProperty, VariableElement> fields = new HashMap<>();
+		boolean hasFinal = false;
+
+		for(VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements()))
+		{
+			AnnotationMirror expose = find(field, EXPOSE);
+			if(expose == null)
+			{
+				continue;
+			}
+
+			if(field.getModifiers().contains(Modifier.STATIC))
+			{
+				throw new UnsupportedTypeException("the static field " + field.getSimpleName() + " is exposed");
+			}
+
+			String fieldName = field.getSimpleName().toString();
+			String name = stringValue(expose, "value");
+			if(name.isEmpty())
+			{
+				name = fieldName;
+			}
+
+			if(byName.containsKey(name))
+			{
+				throw new UnsupportedTypeException("the name " + name + " is used by several fields");
+			}
+
+			SerializedProperty property = readProperty(field, name, packageName);
+			properties.add(property);
+			byName.put(name, property);
+			byField.put(fieldName, property);
+			fields.put(property, field);
+
+			hasFinal |= field.getModifiers().contains(Modifier.FINAL);
+		}
+
+		List<SerializedProperty> arguments = null;
+		boolean hasSerializedArguments = false;
+		boolean hasNoArgs = false;
+		boolean hasInjection = false;
+
+		for(ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements()))
+		{
+			List<? extends VariableElement> parameters = constructor.getParameters();
+			boolean isPrivate = constructor.getModifiers().contains(Modifier.PRIVATE);
+			if(parameters.isEmpty())
+			{
+				hasNoArgs |= ! isPrivate;
+				continue;
+			}
+
+			boolean isFactory = find(constructor, FACTORY) != null
+				|| hasAnnotationNamed(constructor, "Inject");
+
+			List<String> names = findNames(constructor, record);
+
+			List<SerializedProperty> mapped = new ArrayList<>();
+			boolean serialized = false;
+			boolean complete = true;
+			for(int i=0, n=parameters.size(); i<n; i++)
+			{
+				VariableElement parameter = parameters.get(i);
+				AnnotationMirror expose = find(parameter, EXPOSE);
+
+				SerializedProperty property = null;
+				if(expose != null)
+				{
+					String name = stringValue(expose, "value").trim();
+					property = name.isEmpty()
+						? byField.get(parameter.getSimpleName().toString())
+						: byName.get(name);
+
+					if(property == null)
+					{
+						throw new UnsupportedTypeException("the parameter " + parameter.getSimpleName()
+							+ " of a constructor does not match an exposed field");
+					}
+
+					serialized = true;
+				}
+				else if(names != null && i < names.size())
+				{
+					property = byField.get(names.get(i));
+					serialized |= property != null;
+				}
+
+				if(property == null)
+				{
+					// This argument would be injected
+					complete = false;
+					continue;
+				}
+
+				TypeMirror fieldType = types.erasure(fields.get(property).asType());
+				TypeMirror parameterType = types.erasure(parameter.asType());
+				if(! types.isSameType(wrap(fieldType), wrap(parameterType)))
+				{
+					throw new UnsupportedTypeException("the parameter " + parameter.getSimpleName()
+						+ " of a constructor has a different type than its field");
+				}
+
+				mapped.add(property);
+			}
+
+			if(! serialized)
+			{
+				hasInjection |= isFactory;
+				continue;
+			}
+
+			hasSerializedArguments = true;
+
+			if(complete && ! isPrivate
+				&& mapped.size() == properties.size()
+				&& new HashSet<>(mapped).size() == properties.size()
+				&& (arguments == null || isFactory))
+			{
+				arguments = mapped;
+			}
+		}
+
+		if(hasSerializedArguments)
+		{
+			if(arguments == null)
+			{
+				throw new UnsupportedTypeException("no single accessible constructor takes all exposed fields");
+			}
+		}
+		else if(hasInjection)
+		{
+			throw new UnsupportedTypeException("constructors with injected arguments are not supported");
+		}
+		else if(! hasNoArgs)
+		{
+			throw new UnsupportedTypeException("there is no accessible constructor");
+		}
+		else if(hasFinal)
+		{
+			throw new UnsupportedTypeException("final fields can only be set via a constructor");
+		}
+
+		String namespace = "";
+		String name = null;
+		AnnotationMirror named = find(type, NAMED);
+		if(named != null)
+		{
+			namespace = stringValue(named, "namespace");
+			name = stringValue(named, "name");
+		}
+
+		return new SerializedType(
+			type,
+			packageName,
+			type.getQualifiedName().toString(),
+			serializerName(type),
+			Collections.unmodifiableList(properties),
+			arguments == null ? null : Collections.unmodifiableList(arguments),
+			namespace,
+			name
+		);
+	}
+
+	private SerializedProperty readProperty(VariableElement field, String name, String packageName)
+		throws UnsupportedTypeException
+	{
+		TypeMirror type = field.asType();
+		boolean skipIfDefault = find(field, SKIP_DEFAULT_VALUE) != null;
+		boolean accessible = ! field.getModifiers().contains(Modifier.PRIVATE);
+
+		AnnotationMirror useAnnotation = find(field, USE);
+		String use = null;
+		if(useAnnotation != null)
+		{
+			TypeMirror useType = (TypeMirror) value(useAnnotation, "value").getValue();
+			use = sourceName(types.erasure(useType), packageName);
+		}
+
+		boolean hinted = hasHints(field) || hasTypeHints(type, true);
+
+		PropertyKind kind = kindOf(type);
+		if(kind != PropertyKind.OBJECT && (use != null || hinted))
+		{
+			if(type.getKind().isPrimitive())
+			{
+				throw new UnsupportedTypeException("the primitive field " + field.getSimpleName()
+					+ " uses a custom serializer");
+			}
+
+			kind = PropertyKind.OBJECT;
+		}
+
+		String typeName = sourceName(type, packageName);
+		String erasedTypeName = sourceName(types.erasure(type), packageName);
+
+		String typeReference = hinted ? null : typeReference(type, packageName);
+
+		return new SerializedProperty(
+			name,
+			field.getSimpleName().toString(),
+			typeName,
+			erasedTypeName,
+			kind,
+			skipIfDefault,
+			accessible,
+			typeReference,
+			use
+		);
+	}
+
+	private PropertyKind kindOf(TypeMirror type)
+	{
+		switch(type.getKind())
+		{
+			case BOOLEAN:
+				return PropertyKind.BOOLEAN;
+			case BYTE:
+				return PropertyKind.BYTE;
+			case SHORT:
+				return PropertyKind.SHORT;
+			case CHAR:
+				return PropertyKind.CHAR;
+			case INT:
+				return PropertyKind.INT;
+			case LONG:
+				return PropertyKind.LONG;
+			case FLOAT:
+				return PropertyKind.FLOAT;
+			case DOUBLE:
+				return PropertyKind.DOUBLE;
+			case DECLARED:
+				TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+				if(element.getQualifiedName().contentEquals("java.lang.String"))
+				{
+					return PropertyKind.STRING;
+				}
+				// fall through
+			default:
+				return PropertyKind.OBJECT;
+		}
+	}
+
+	/**
+	 * Get the names of the parameters of a constructor if they are known to
+	 * match fields, either via {@code ConstructorProperties} or because the
+	 * constructor is the canonical constructor of a record.
+	 */
+	private List<String> findNames(ExecutableElement constructor, boolean record)
+	{
+		AnnotationMirror properties = find(constructor, CONSTRUCTOR_PROPERTIES);
+		if(properties != null)
+		{
+			List<String> result = new ArrayList<>();
+			for(Object value : (List<?>) value(properties, "value").getValue())
+			{
+				result.add((String) ((AnnotationValue) value).getValue());
+			}
+			return result;
+		}
+
+		if(! record)
+		{
+			return null;
+		}
+
+		// The canonical constructor takes every instance field in order
+		List<VariableElement> fields = new ArrayList<>();
+		for(VariableElement field : ElementFilter.fieldsIn(constructor.getEnclosingElement().getEnclosedElements()))
+		{
+			if(! field.getModifiers().contains(Modifier.STATIC))
+			{
+				fields.add(field);
+			}
+		}
+
+		List<? extends VariableElement> parameters = constructor.getParameters();
+		if(parameters.size() != fields.size())
+		{
+			return null;
+		}
+
+		List<String> result = new ArrayList<>();
+		for(int i=0, n=fields.size(); i<n; i++)
+		{
+			VariableElement field = fields.get(i);
+			if(! types.isSameType(types.erasure(field.asType()), types.erasure(parameters.get(i).asType())))
+			{
+				return null;
+			}
+
+			result.add(field.getSimpleName().toString());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get if the field has annotations that are visible at runtime and that
+	 * might be used as hints when resolving its serializer.
+	 */
+	private boolean hasHints(Element element)
+	{
+		for(AnnotationMirror mirror : element.getAnnotationMirrors())
+		{
+			if(isHint(mirror))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private boolean hasTypeHints(TypeMirror type, boolean root)
+	{
+		for(AnnotationMirror mirror : type.getAnnotationMirrors())
+		{
+			// Annotations on the field itself are also present on its type
+			if(root ? isHint(mirror) : isRuntime(mirror))
+			{
+				return true;
+			}
+		}
+
+		switch(type.getKind())
+		{
+			case ARRAY:
+				return hasTypeHints(((ArrayType) type).getComponentType(), false);
+			case DECLARED:
+				for(TypeMirror argument : ((DeclaredType) type).getTypeArguments())
+				{
+					if(hasTypeHints(argument, false))
+					{
+						return true;
+					}
+				}
+				return false;
+			case WILDCARD:
+				WildcardType wildcard = (WildcardType) type;
+				return (wildcard.getExtendsBound() != null && hasTypeHints(wildcard.getExtendsBound(), false))
+					|| (wildcard.getSuperBound() != null && hasTypeHints(wildcard.getSuperBound(), false));
+			default:
+				return false;
+		}
+	}
+
+	private boolean isHint(AnnotationMirror mirror)
+	{
+		TypeElement annotation = (TypeElement) mirror.getAnnotationType().asElement();
+		return ! KNOWN.contains(annotation.getQualifiedName().toString())
+			&& isRuntime(mirror);
+	}
+
+	private boolean isRuntime(AnnotationMirror mirror)
+	{
+		TypeElement annotation = (TypeElement) mirror.getAnnotationType().asElement();
+		AnnotationMirror retention = find(annotation, "java.lang.annotation.Retention");
+		if(retention == null)
+		{
+			return false;
+		}
+
+		VariableElement policy = (VariableElement) value(retention, "value").getValue();
+		return policy.getSimpleName().contentEquals(RetentionPolicy.RUNTIME.name());
+	}
+
+	/**
+	 * Get source code for the given type as used from the package of the
+	 * generated serializer.
+	 */
+	private String sourceName(TypeMirror type, String packageName)
+		throws UnsupportedTypeException
+	{
+		switch(type.getKind())
+		{
+			case BOOLEAN:
+			case BYTE:
+			case SHORT:
+			case CHAR:
+			case INT:
+			case LONG:
+			case FLOAT:
+			case DOUBLE:
+				return type.getKind().name().toLowerCase();
+			case ARRAY:
+				return sourceName(((ArrayType) type).getComponentType(), packageName) + "[]";
+			case DECLARED:
+				DeclaredType declared = (DeclaredType) type;
+				TypeElement element = (TypeElement) declared.asElement();
+				checkAccessible(element, packageName);
+
+				StringBuilder builder = new StringBuilder(element.getQualifiedName());
+				List<? extends TypeMirror> arguments = declared.getTypeArguments();
+				if(! arguments.isEmpty())
+				{
+					builder.append('<');
+					for(int i=0, n=arguments.size(); i<n; i++)
+					{
+						if(i > 0) builder.append(", ");
+						builder.append(sourceName(arguments.get(i), packageName));
+					}
+					builder.append('>');
+				}
+				return builder.toString();
+			case WILDCARD:
+				WildcardType wildcard = (WildcardType) type;
+				if(wildcard.getExtendsBound() != null)
+				{
+					return "? extends " + sourceName(wildcard.getExtendsBound(), packageName);
+				}
+				else if(wildcard.getSuperBound() != null)
+				{
+					return "? super " + sourceName(wildcard.getSuperBound(), packageName);
+				}
+				return "?";
+			default:
+				throw new UnsupportedTypeException("the type " + type + " is not supported");
+		}
+	}
+
+	/**
+	 * Get source code that creates a {@code TypeRef} for the given type, or
+	 * {@code null} if it can not be expressed in source code.
+	 */
+	private String typeReference(TypeMirror type, String packageName)
+		throws UnsupportedTypeException
+	{
+		if(type.getKind() == TypeKind.DECLARED)
+		{
+			StringBuilder builder = new StringBuilder("Types.reference(")
+				.append(sourceName(types.erasure(type), packageName))
+				.append(".class");
+
+			for(TypeMirror argument : ((DeclaredType) type).getTypeArguments())
+			{
+				String reflected = reflectedType(argument, packageName);
+				if(reflected == null)
+				{
+					return null;
+				}
+
+				builder.append(", ").append(reflected);
+			}
+
+			return builder.append(')').toString();
+		}
+
+		String reflected = reflectedType(type, packageName);
+		return reflected == null ? null : "Types.reference(" + reflected + ")";
+	}
+
+	/**
+	 * Get source code for a {@code java.lang.reflect.Type} of the given
+	 * type, either a class literal or a {@code TypeRef} converted to a type.
+	 */
+	private String reflectedType(TypeMirror type, String packageName)
+		throws UnsupportedTypeException
+	{
+		switch(type.getKind())
+		{
+			case ARRAY:
+				TypeMirror component = ((ArrayType) type).getComponentType();
+				while(component.getKind() == TypeKind.ARRAY)
+				{
+					component = ((ArrayType) component).getComponentType();
+				}
+
+				if(component.getKind() == TypeKind.DECLARED
+					&& ! ((DeclaredType) component).getTypeArguments().isEmpty())
+				{
+					// Generic arrays are resolved at runtime
+					return null;
+				}
+
+				return sourceName(type, packageName) + ".class";
+			case DECLARED:
+				if(((DeclaredType) type).getTypeArguments().isEmpty())
+				{
+					return sourceName(type, packageName) + ".class";
+				}
+
+				String reference = typeReference(type, packageName);
+				return reference == null ? null : reference + ".getType()";
+			default:
+				if(type.getKind().isPrimitive())
+				{
+					return sourceName(type, packageName) + ".class";
+				}
+
+				// Wildcards and type variables are resolved at runtime
+				return null;
+		}
+	}
+
+	private TypeMirror wrap(TypeMirror type)
+	{
+		if(type.getKind().isPrimitive())
+		{
+			return types.boxedClass(types.getPrimitiveType(type.getKind())).asType();
+		}
+
+		return type;
+	}
+
+	/**
+	 * Check that the given type can be accessed from the package of the
+	 * generated serializer.
+	 */
+	private void checkAccessible(TypeElement type, String packageName)
+		throws UnsupportedTypeException
+	{
+		Element current = type;
+		while(current instanceof TypeElement)
+		{
+			Set<Modifier> modifiers = current.getModifiers();
+			if(modifiers.contains(Modifier.PRIVATE))
+			{
+				throw new UnsupportedTypeException(current + " is private");
+			}
+
+			Element enclosing = current.getEnclosingElement();
+			if(enclosing instanceof TypeElement
+				&& current.getKind() == ElementKind.CLASS
+				&& ! modifiers.contains(Modifier.STATIC))
+			{
+				throw new UnsupportedTypeException(current + " is an inner class");
+			}
+
+			if(! modifiers.contains(Modifier.PUBLIC)
+				&& ! elements.getPackageOf(current).getQualifiedName().contentEquals(packageName))
+			{
+				throw new UnsupportedTypeException(current + " is not accessible");
+			}
+
+			current = enclosing;
+		}
+	}
+
+	private static String serializerName(TypeElement type)
+	{
+		StringBuilder builder = new StringBuilder(type.getSimpleName());
+		Element current = type.getEnclosingElement();
+		while(current instanceof TypeElement)
+		{
+			builder.insert(0, '_').insert(0, current.getSimpleName());
+			current = current.getEnclosingElement();
+		}
+
+		return builder.append("_Serializer").toString();
+	}
+
+	private static boolean hasAnnotationNamed(Element element, String simpleName)
+	{
+		for(AnnotationMirror mirror : element.getAnnotationMirrors())
+		{
+			if(mirror.getAnnotationType().asElement().getSimpleName().contentEquals(simpleName))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static AnnotationMirror find(Element element, String name)
+	{
+		for(AnnotationMirror mirror : element.getAnnotationMirrors())
+		{
+			TypeElement annotation = (TypeElement) mirror.getAnnotationType().asElement();
+			if(annotation.getQualifiedName().contentEquals(name))
+			{
+				return mirror;
+			}
+		}
+
+		return null;
+	}
+
+	private AnnotationValue value(AnnotationMirror mirror, String name)
+	{
+		for(Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : elements.getElementValuesWithDefaults(mirror).entrySet())
+		{
+			if(e.getKey().getSimpleName().contentEquals(name))
+			{
+				return e.getValue();
+			}
+		}
+
+		throw new IllegalArgumentException("No value " + name + " in " + mirror);
+	}
+
+	private String stringValue(AnnotationMirror mirror, String name)
+	{
+		return (String) value(mirror, name).getValue();
+	}
+}
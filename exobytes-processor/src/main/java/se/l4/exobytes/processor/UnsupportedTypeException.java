@@ -0,0 +1,16 @@
+package se.l4.exobytes.processor;
+
+/**
+ * Thrown when a serializer can not be generated for a type. Such types are
+ * skipped and will use reflection at runtime.
+ */
+class UnsupportedTypeException
+	extends Exception
+{
+	private static final long serialVersionUID = 1L;
+
+	UnsupportedTypeException(String message)
+	{
+		super(message);
+	}
+}
@@ -0,0 +1,409 @@
+package se.l4.exobytes.processor;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import se.l4.exobytes.AnnotationSerialization;
+import se.l4.exobytes.Expose;
+import se.l4.exobytes.Factory;
+import se.l4.exobytes.Named;
+import se.l4.exobytes.QualifiedName;
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.Serializers;
+import se.l4.exobytes.SerializersModule;
+import se.l4.exobytes.SkipDefaultValue;
+import se.l4.exobytes.Use;
+import se.l4.exobytes.collections.CollectionSerializersModule;
+import se.l4.exobytes.standard.StandardSerializersModule;
+import se.l4.exobytes.streaming.StreamingFormat;
+import se.l4.exobytes.streaming.StreamingInput;
+import se.l4.exobytes.streaming.StreamingOutput;
+import se.l4.exobytes.streaming.Token;
+import se.l4.ylem.types.reflect.Types;
+
+public class SerializerProcessorTest
+{
+	private Serializers serializers;
+	private Serializers reflection;
+
+	@BeforeEach
+	public void before()
+	{
+		serializers = Serializers.create()
+			.build();
+
+		reflection = Serializers.create()
+			.empty()
+			.addModule(new StandardSerializersModule())
+			.addModule(new CollectionSerializersModule())
+			.build();
+	}
+
+	@Test
+	public void testModuleRegistersGeneratedSerializer()
+	{
+		assertThat(serializers.get(Person.class), instanceOf(SerializerProcessorTest_Person_Serializer.class));
+		assertThat(serializers.get(Point.class), instanceOf(SerializerProcessorTest_Point_Serializer.class));
+	}
+
+	@Test
+	public void testExistingServiceEntriesAreKept()
+	{
+		assertThat(serializers.get(HandWritten.class), instanceOf(UpperCaseSerializer.class));
+	}
+
+	@Test
+	public void testFields()
+		throws IOException
+	{
+		Person person = new Person();
+		person.setName("Emma");
+		person.age = 32;
+		person.tags = Arrays.asList("a", "b");
+
+		testWriteAndRead(serializers.get(Person.class), person);
+	}
+
+	@Test
+	public void testNullValues()
+		throws IOException
+	{
+		testWriteAndRead(serializers.get(Person.class), new Person());
+	}
+
+	@Test
+	public void testSkipDefaultValue()
+		throws IOException
+	{
+		Person person = new Person();
+		person.setName("Emma");
+
+		String json = writeJson(serializers.get(Person.class), person);
+		assertThat(json.contains("age"), is(false));
+		assertThat(json.contains("tags"), is(true));
+
+		person.age = 1;
+		json = writeJson(serializers.get(Person.class), person);
+		assertThat(json.contains("age"), is(true));
+	}
+
+	@Test
+	public void testNamed()
+	{
+		Serializer<Person> serializer = serializers.get(Person.class);
+		assertThat(serializer.getName(), is(Optional.of(new QualifiedName("test", "person"))));
+		assertThat(serializers.getViaName("test", "person").get(), is(serializer));
+	}
+
+	@Test
+	public void testUnknownKeysAreSkipped()
+		throws IOException
+	{
+		Person person = readJson(
+			serializers.get(Person.class),
+			"{\"unknown\":{\"a\":[1,2]},\"name\":\"Emma\",\"age\":2}"
+		);
+
+		assertThat(person.getName(), is("Emma"));
+		assertThat(person.age, is(2));
+	}
+
+	@Test
+	public void testConstructor()
+		throws IOException
+	{
+		testWriteAndRead(serializers.get(Point.class), new Point(10, -20));
+	}
+
+	@Test
+	public void testConstructorMissingValues()
+		throws IOException
+	{
+		Point point = readJson(serializers.get(Point.class), "{\"x\":5}");
+		assertThat(point, is(new Point(5, 0)));
+	}
+
+	@Test
+	public void testPrimitives()
+		throws IOException
+	{
+		Primitives primitives = new Primitives();
+		primitives.b = true;
+		primitives.by = 1;
+		primitives.s = 2;
+		primitives.c = 'c';
+		primitives.i = 3;
+		primitives.l = 4;
+		primitives.f = 5.5f;
+		primitives.d = 6.5;
+		primitives.boxed = 7;
+
+		testWriteAndRead(serializers.get(Primitives.class), primitives);
+		testWriteAndRead(serializers.get(Primitives.class), new Primitives());
+	}
+
+	@Test
+	public void testUse()
+		throws IOException
+	{
+		WithUse value = new WithUse();
+		value.value = "Test";
+
+		String json = writeJson(serializers.get(WithUse.class), value);
+		assertThat(json, is("{\"value\":\"TEST\"}"));
+	}
+
+	@Test
+	public void testCompatibleWithReflection()
+		throws IOException
+	{
+		Person person = new Person();
+		person.setName("Emma");
+		person.age = 32;
+		person.tags = Arrays.asList("a", "b");
+
+		Serializer<Person> generated = serializers.get(Person.class);
+		Serializer<Person> reflected = reflection.get(Person.class);
+		assertThat(reflected, not(instanceOf(SerializerProcessorTest_Person_Serializer.class)));
+
+		for(StreamingFormat format : new StreamingFormat[] { StreamingFormat.JSON, StreamingFormat.CBOR })
+		{
+			assertThat(read(generated, format, write(reflected, format, person)), is(person));
+			assertThat(read(reflected, format, write(generated, format, person)), is(person));
+		}
+	}
+
+	@Test
+	public void testGenericTypeUsesReflection()
+	{
+		Serializer<?> serializer = serializers.get(Types.reference(Box.class, String.class));
+		assertThat(serializer.getClass().getSimpleName().endsWith("_Serializer"), is(false));
+	}
+
+	private static <T> void testWriteAndRead(Serializer<T> serializer, T object)
+		throws IOException
+	{
+		for(StreamingFormat format : new StreamingFormat[] { StreamingFormat.JSON, StreamingFormat.CBOR })
+		{
+			assertThat(read(serializer, format, write(serializer, format, object)), is(object));
+		}
+	}
+
+	private static <T> byte[] write(Serializer<T> serializer, StreamingFormat format, T object)
+		throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try(StreamingOutput so = format.createOutput(out))
+		{
+			so.writeObject(serializer, object);
+		}
+
+		return out.toByteArray();
+	}
+
+	private static <T> T read(Serializer<T> serializer, StreamingFormat format, byte[] data)
+		throws IOException
+	{
+		try(StreamingInput in = format.createInput(new ByteArrayInputStream(data)))
+		{
+			return in.readObject(serializer);
+		}
+	}
+
+	private static <T> String writeJson(Serializer<T> serializer, T object)
+		throws IOException
+	{
+		return new String(write(serializer, StreamingFormat.JSON, object), StandardCharsets.UTF_8);
+	}
+
+	private static <T> T readJson(Serializer<T> serializer, String json)
+		throws IOException
+	{
+		return read(serializer, StreamingFormat.JSON, json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@AnnotationSerialization
+	@Named(namespace="test", name="person")
+	public static class Person
+	{
+		@Expose
+		private String name;
+
+		@Expose
+		@SkipDefaultValue
+		int age;
+
+		@Expose
+		List<String> tags;
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public void setName(String name)
+		{
+			this.name = name;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(name, age, tags);
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(this == obj) return true;
+			if(obj == null || getClass() != obj.getClass()) return false;
+
+			Person other = (Person) obj;
+			return Objects.equals(name, other.name)
+				&& age == other.age
+				&& Objects.equals(tags, other.tags);
+		}
+	}
+
+	@AnnotationSerialization
+	public static class Point
+	{
+		@Expose
+		private final int x;
+
+		@Expose
+		private final int y;
+
+		@Factory
+		public Point(@Expose("x") int x, @Expose("y") int y)
+		{
+			this.x = x;
+			this.y = y;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(x, y);
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(this == obj) return true;
+			if(obj == null || getClass() != obj.getClass()) return false;
+
+			Point other = (Point) obj;
+			return x == other.x && y == other.y;
+		}
+	}
+
+	@AnnotationSerialization
+	public static class Primitives
+	{
+		@Expose
+		private boolean b;
+		@Expose
+		private byte by;
+		@Expose
+		private short s;
+		@Expose
+		private char c;
+		@Expose
+		private int i;
+		@Expose
+		private long l;
+		@Expose
+		private float f;
+		@Expose
+		private double d;
+		@Expose
+		private Integer boxed;
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(b, by, s, c, i, l, f, d, boxed);
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(this == obj) return true;
+			if(obj == null || getClass() != obj.getClass()) return false;
+
+			Primitives other = (Primitives) obj;
+			return b == other.b && by == other.by && s == other.s
+				&& c == other.c && i == other.i && l == other.l
+				&& f == other.f && d == other.d
+				&& Objects.equals(boxed, other.boxed);
+		}
+	}
+
+	@AnnotationSerialization
+	public static class WithUse
+	{
+		@Expose
+		@Use(UpperCaseSerializer.class)
+		String value;
+	}
+
+	@AnnotationSerialization
+	public static class Box<T>
+	{
+		@Expose
+		T value;
+	}
+
+	public static class HandWritten
+	{
+	}
+
+	/**
+	 * Module listed in the service file of the test resources, which the
+	 * processor merges its generated module into.
+	 */
+	public static class HandWrittenModule
+		implements SerializersModule
+	{
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public void activate(Serializers serializers)
+		{
+			serializers.register(HandWritten.class, (Serializer) new UpperCaseSerializer());
+		}
+	}
+
+	public static class UpperCaseSerializer
+		implements Serializer<String>
+	{
+		@Override
+		public String read(StreamingInput in)
+			throws IOException
+		{
+			in.next(Token.VALUE);
+			return in.readString();
+		}
+
+		@Override
+		public void write(String object, StreamingOutput out)
+			throws IOException
+		{
+			out.writeString(object.toUpperCase());
+		}
+	}
+}
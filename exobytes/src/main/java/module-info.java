@@ -8,6 +8,10 @@ module se.l4.exobytes {
 	requires org.eclipse.collections.api;
 	requires org.eclipse.collections.impl;
 
+	requires com.github.benmanes.caffeine;
+
+	requires static org.objectweb.asm;
+
 	exports se.l4.exobytes;
 	exports se.l4.exobytes.array;
 	exports se.l4.exobytes.collections;
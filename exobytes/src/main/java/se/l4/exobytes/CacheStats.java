@@ -0,0 +1,92 @@
+package se.l4.exobytes;
+
+/**
+ * Snapshot of the statistics for the cache of resolved serializers in an
+ * instance of {@link Serializers}.
+ *
+ * @see Serializers#getCacheStats()
+ */
+public final class CacheStats
+{
+	private final long hitCount;
+	private final long missCount;
+	private final long evictionCount;
+	private final long size;
+
+	public CacheStats(
+		long hitCount,
+		long missCount,
+		long evictionCount,
+		long size
+	)
+	{
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.size = size;
+	}
+
+	/**
+	 * Get the number of times a serializer was found in the cache.
+	 *
+	 * @return
+	 */
+	public long getHitCount()
+	{
+		return hitCount;
+	}
+
+	/**
+	 * Get the number of times a serializer had to be resolved as it was not
+	 * in the cache.
+	 *
+	 * @return
+	 */
+	public long getMissCount()
+	{
+		return missCount;
+	}
+
+	/**
+	 * Get the number of serializers that have been evicted from the cache
+	 * because it was full. Always zero for an unbounded cache.
+	 *
+	 * @return
+	 */
+	public long getEvictionCount()
+	{
+		return evictionCount;
+	}
+
+	/**
+	 * Get the approximate number of serializers currently in the cache.
+	 *
+	 * @return
+	 */
+	public long getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Get the ratio of lookups that were found in the cache, or {@code 1.0}
+	 * if no lookups have been made.
+	 *
+	 * @return
+	 */
+	public double getHitRate()
+	{
+		long total = hitCount + missCount;
+		return total == 0 ? 1.0 : (double) hitCount / total;
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + "{hitCount=" + hitCount
+			+ ", missCount=" + missCount
+			+ ", evictionCount=" + evictionCount
+			+ ", size=" + size
+			+ "}";
+	}
+}
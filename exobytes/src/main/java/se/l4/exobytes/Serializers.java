@@ -5,8 +5,10 @@ import java.util.Optional;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 import se.l4.exobytes.internal.SerializersBuilderImpl;
+import se.l4.exobytes.internal.SerializersWarmUp;
 import se.l4.ylem.types.instances.InstanceFactory;
 import se.l4.ylem.types.reflect.TypeRef;
+import se.l4.ylem.types.reflect.Types;
 
 
 /**
@@ -33,7 +35,8 @@ public interface Serializers
 	Serializers register(@NonNull Class<?> type);
 
 	/**
-	 * Bind a given type to the specified serializer.
+	 * Bind a given type to the specified serializer. The serializer takes
+	 * precedence over a {@link Use} annotation on the type itself.
 	 *
 	 * @param <T>
 	 * @param type
@@ -45,6 +48,8 @@ public interface Serializers
 	/**
 	 * Bind a given type to the specified resolver. The resolver will be
 	 * asked to resolve a more specific serializer based on type parameters.
+	 * The resolver takes precedence over a {@link Use} annotation on the type
+	 * itself.
 	 *
 	 * @param <T>
 	 * @param type
@@ -82,6 +87,41 @@ public interface Serializers
 	@NonNull
 	Serializer<?> get(@NonNull TypeRef type);
 
+	/**
+	 * Find a serializer suitable for the specific type, returning an empty
+	 * optional instead of throwing if no serializer is available.
+	 *
+	 * @param <T>
+	 * @param type
+	 * @return
+	 */
+	@NonNull
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	default <T> Optional<Serializer<T>> find(@NonNull Class<T> type)
+	{
+		return (Optional) find(Types.reference(type));
+	}
+
+	/**
+	 * Find a serializer suitable for the specified type, returning an empty
+	 * optional instead of throwing if no serializer is available.
+	 *
+	 * @param type
+	 * @return
+	 */
+	@NonNull
+	default Optional<? extends Serializer<?>> find(@NonNull TypeRef type)
+	{
+		try
+		{
+			return Optional.of(get(type));
+		}
+		catch(SerializationException e)
+		{
+			return Optional.empty();
+		}
+	}
+
 	/**
 	 * Find a serializer based on its registered name.
 	 *
@@ -118,6 +158,64 @@ public interface Serializers
 	 */
 	boolean isSupported(@NonNull Class<?> type);
 
+	/**
+	 * Resolve the serializers of the given types ahead of their first use.
+	 * Serializers are resolved lazily, which for a type using reflection
+	 * can take several milliseconds. Warming up resolves the given types
+	 * together with the types of their exposed fields and type parameters
+	 * in parallel on the common {@link java.util.concurrent.ForkJoinPool}.
+	 *
+	 * @param types
+	 *   types to warm up
+	 * @return
+	 *   result with the time it took to resolve every type
+	 */
+	@NonNull
+	default WarmUpResult warmUp(@NonNull Iterable<? extends TypeRef> types)
+	{
+		return warmUp(types, 0);
+	}
+
+	/**
+	 * Resolve the serializers of the given types ahead of their first use,
+	 * and write and read a default instance of every type a number of times
+	 * so that the serializers are compiled by the JIT. Types that can not be
+	 * created via the {@link #getInstanceFactory() instance factory} are
+	 * only resolved.
+	 *
+	 * @param types
+	 *   types to warm up
+	 * @param iterations
+	 *   number of times to write and read every type
+	 * @return
+	 *   result with the time it took to resolve every type
+	 * @see #warmUp(Iterable)
+	 */
+	@NonNull
+	default WarmUpResult warmUp(@NonNull Iterable<? extends TypeRef> types, int iterations)
+	{
+		return new SerializersWarmUp(this, iterations).run(types);
+	}
+
+	/**
+	 * Get statistics for the cache of resolved serializers, such as the
+	 * number of hits, misses and evictions.
+	 *
+	 * <p>
+	 * Implementations that do not track statistics return all zeroes, which
+	 * can not be told apart from an instance that has not been used yet. The
+	 * instances created via {@link #create()} always track statistics.
+	 *
+	 * @return
+	 *   snapshot of the statistics, all zeroes if not tracked
+	 * @see Builder#withCacheSize(int)
+	 * @see Builder#withUnboundedCache()
+	 */
+	default CacheStats getCacheStats()
+	{
+		return new CacheStats(0, 0, 0, 0);
+	}
+
 	/**
 	 * Start building a new instance of {@link Serializers}.
 	 *
@@ -167,6 +265,70 @@ public interface Serializers
 		 */
 		Builder wrap(Serializers serializers);
 
+		/**
+		 * Generate bytecode for serializers of types that use
+		 * {@link AnnotationSerialization}, instead of accessing their fields
+		 * via reflection. Generation requires ASM to be available and falls
+		 * back to reflection if it is not, if access to a field is denied
+		 * or if the type is created via a constructor with serialized
+		 * arguments. When running on the module path ASM is an optional
+		 * dependency and needs to be added using
+		 * {@code --add-modules org.objectweb.asm}.
+		 *
+		 * <p>
+		 * A class is generated once for every type and shared between
+		 * instances of {@link Serializers}. On Java 15 and later generated
+		 * classes are hidden classes that are unloaded together with their
+		 * type. On earlier versions they are defined in the class loader of
+		 * this library and stay loaded for as long as it is, which also keeps
+		 * the serialized types and their class loaders from being unloaded.
+		 * Avoid this option on those versions when types are loaded by class
+		 * loaders that are discarded, such as during hot redeploys.
+		 *
+		 * @return
+		 */
+		Builder withGeneratedSerializers();
+
+		/**
+		 * Set the maximum number of resolved serializers to cache. Defaults
+		 * to {@code 100}. If more types than this are in active use
+		 * serializers will be evicted and resolved again, which can be seen
+		 * via {@link Serializers#getCacheStats()}.
+		 *
+		 * @param maximumSize
+		 *   maximum number of serializers to keep, {@code 0} disables caching
+		 * @return
+		 */
+		Builder withCacheSize(int maximumSize);
+
+		/**
+		 * Cache all resolved serializers without ever evicting them. Lookups
+		 * in the cache are lock-free, which makes this suitable when the set
+		 * of serialized types is known and limited, such as in a
+		 * closed-world deployment.
+		 *
+		 * @return
+		 */
+		Builder withUnboundedCache();
+
+		/**
+		 * Resolve the serializers of the given types when the instance is
+		 * built. See {@link Serializers#warmUp(Iterable)} for details.
+		 *
+		 * @param types
+		 * @return
+		 */
+		Builder preload(@NonNull Class<?>... types);
+
+		/**
+		 * Resolve the serializers of the given types when the instance is
+		 * built. See {@link Serializers#warmUp(Iterable)} for details.
+		 *
+		 * @param types
+		 * @return
+		 */
+		Builder preload(@NonNull Iterable<? extends TypeRef> types);
+
 		/**
 		 * Build the instance.
 		 *
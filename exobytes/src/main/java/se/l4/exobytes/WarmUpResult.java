@@ -0,0 +1,79 @@
+package se.l4.exobytes;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.ylem.types.reflect.TypeRef;
+
+/**
+ * Result of warming up an instance of {@link Serializers}.
+ *
+ * @see Serializers#warmUp(Iterable)
+ */
+public final class WarmUpResult
+{
+	private final Map<TypeRef, Duration> resolutionTimes;
+	private final Set<TypeRef> unsupported;
+	private final Duration totalTime;
+
+	public WarmUpResult(
+		@NonNull Map<TypeRef, Duration> resolutionTimes,
+		@NonNull Set<TypeRef> unsupported,
+		@NonNull Duration totalTime
+	)
+	{
+		this.resolutionTimes = Collections.unmodifiableMap(new HashMap<>(resolutionTimes));
+		this.unsupported = Collections.unmodifiableSet(new HashSet<>(unsupported));
+		this.totalTime = totalTime;
+	}
+
+	/**
+	 * Get the time it took to resolve the serializer of every type that was
+	 * warmed up, including types found via fields and type parameters.
+	 * Times do not include resolving the serializers of nested types that
+	 * were resolved before the type itself.
+	 *
+	 * @return
+	 */
+	@NonNull
+	public Map<TypeRef, Duration> getResolutionTimes()
+	{
+		return resolutionTimes;
+	}
+
+	/**
+	 * Get types for which no serializer could be resolved.
+	 *
+	 * @return
+	 */
+	@NonNull
+	public Set<TypeRef> getUnsupported()
+	{
+		return unsupported;
+	}
+
+	/**
+	 * Get the total time the warm up took.
+	 *
+	 * @return
+	 */
+	@NonNull
+	public Duration getTotalTime()
+	{
+		return totalTime;
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + "{types=" + resolutionTimes.size()
+			+ ", unsupported=" + unsupported.size()
+			+ ", totalTime=" + totalTime
+			+ "}";
+	}
+}
@@ -5,8 +5,11 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 
+import se.l4.exobytes.CacheStats;
 import se.l4.exobytes.QualifiedName;
 import se.l4.exobytes.SerializationException;
 import se.l4.exobytes.Serializer;
@@ -14,6 +17,7 @@ import se.l4.exobytes.SerializerResolver;
 import se.l4.exobytes.Serializers;
 import se.l4.exobytes.TypeEncounter;
 import se.l4.exobytes.array.ArraySerializerResolver;
+import se.l4.exobytes.internal.reflection.ReflectionSerializer;
 import se.l4.ylem.types.mapping.Mapped;
 import se.l4.ylem.types.mapping.MutableTypeMapper;
 import se.l4.ylem.types.mapping.OutputDeduplicator;
@@ -29,22 +33,86 @@ public abstract class AbstractSerializers
 {
 	private static final ThreadLocal<Set<TypeRef>> stack = new ThreadLocal<Set<TypeRef>>();
 
+	/**
+	 * References for classes looked up via {@link #get(Class)}, shared as
+	 * they never point back to an instance.
+	 */
+	private static final ClassValue<TypeRef> classRefs = new ClassValue<TypeRef>()
+	{
+		@Override
+		protected TypeRef computeValue(Class<?> type)
+		{
+			return Types.reference(type);
+		}
+	};
+
 	protected final Map<QualifiedName, Serializer<?>> nameToSerializer;
 	protected final MutableTypeMapper<TypeEncounter, Serializer<?>> mapper;
 	protected final OutputDeduplicator<Serializer<?>> deduplicator;
 
+	private final ReflectionSerializer<?> reflectionSerializer;
+	private final Set<Class<?>> registered;
+	private final SerializerCache cache;
+
+	/**
+	 * Resolutions currently in progress, used so that threads needing the
+	 * same serializer wait for a single resolution.
+	 */
+	private final ConcurrentHashMap<TypeRef, Resolution> resolutions;
+	/**
+	 * The resolution every thread is waiting for, used to detect when
+	 * waiting would deadlock on a circular dependency.
+	 */
+	private final ConcurrentHashMap<Thread, Resolution> waiting;
+
 	public AbstractSerializers()
 	{
+		this(false);
+	}
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param generateSerializers
+	 *   if serializers for types using reflection should be generated as
+	 *   bytecode when possible
+	 */
+	public AbstractSerializers(boolean generateSerializers)
+	{
+		this(generateSerializers, SerializerCache.bounded(SerializerCache.DEFAULT_SIZE));
+	}
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param generateSerializers
+	 *   if serializers for types using reflection should be generated as
+	 *   bytecode when possible
+	 * @param cache
+	 *   cache used for resolved serializers
+	 */
+	public AbstractSerializers(boolean generateSerializers, SerializerCache cache)
+	{
+		this.cache = cache;
+
+		reflectionSerializer = generateSerializers
+			? ReflectionSerializer.GENERATING
+			: ReflectionSerializer.INSTANCE;
+
 		nameToSerializer = new ConcurrentHashMap<QualifiedName, Serializer<?>>();
+		registered = ConcurrentHashMap.newKeySet();
+		resolutions = new ConcurrentHashMap<>();
+		waiting = new ConcurrentHashMap<>();
 
 		deduplicator = createDeduplicator();
 		mapper = MutableTypeMapper.create(this::createEncounter)
-			.withCaching(100)
+			// Results are cached by SerializerCache in resolve
+			.withCaching(0)
 			.withOutputDeduplication(deduplicator)
 			.build();
 
 		mapper.addAnnotationResolver(new SerializerResolverAdapter(new ArraySerializerResolver()));
-		mapper.addAnnotationResolver(new SerializerResolverAdapter(new UseSerializerResolver()));
+		mapper.addAnnotationResolver(new SerializerResolverAdapter(new UseSerializerResolver(registered::contains)));
 	}
 
 	private OutputDeduplicator<Serializer<?>> createDeduplicator()
@@ -63,7 +131,7 @@ public abstract class AbstractSerializers
 
 	private TypeEncounter createEncounter(TypeRef type)
 	{
-		return new TypeEncounterImpl(this, deduplicator, type);
+		return new TypeEncounterImpl(this, deduplicator, type, reflectionSerializer);
 	}
 
 	@Override
@@ -77,14 +145,18 @@ public abstract class AbstractSerializers
 	@Override
 	public <T> Serializers register(Class<T> type, Serializer<T> serializer)
 	{
+		registered.add(type);
 		mapper.addSpecific(type, serializer);
+		cache.invalidateAll();
 		return this;
 	}
 
 	@Override
 	public <T> Serializers register(Class<T> type, SerializerResolver<? extends T> resolver)
 	{
+		registered.add(type);
 		mapper.addHierarchyResolver(type, new SerializerResolverAdapter(resolver));
+		cache.invalidateAll();
 		return this;
 	}
 
@@ -92,7 +164,7 @@ public abstract class AbstractSerializers
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public <T> Serializer<T> get(Class<T> type)
 	{
-		return (Serializer) get(Types.reference(type));
+		return (Serializer) get(classRefs.get(type));
 	}
 
 	@Override
@@ -105,14 +177,91 @@ public abstract class AbstractSerializers
 	@Override
 	public Serializer<?> get(TypeRef type)
 	{
-		Set<TypeRef> s = stack.get();
-		if(s != null && s.contains(type))
+		return lookup(type, true);
+	}
+
+	@Override
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public <T> Optional<Serializer<T>> find(Class<T> type)
+	{
+		return (Optional) find(classRefs.get(type));
+	}
+
+	@Override
+	public Optional<? extends Serializer<?>> find(TypeRef type)
+	{
+		return Optional.ofNullable(lookup(type, false));
+	}
+
+	/**
+	 * Get the serializer for a type, resolving it if it is not cached.
+	 *
+	 * @param type
+	 * @param required
+	 *   if an exception should be thrown when no serializer is available
+	 * @return
+	 *   serializer or {@code null} if not available and not required
+	 */
+	private Serializer<?> lookup(TypeRef type, boolean required)
+	{
+		Mapped<Serializer<?>> mapped = cache.get(type);
+		if(mapped == null)
+		{
+			Set<TypeRef> s = stack.get();
+			if(s != null && s.contains(type))
+			{
+				// Already trying to create this serializer, delay creation
+				return new DelayedSerializer<>(this, type);
+			}
+
+			Resolution resolution = new Resolution();
+			Resolution existing = resolutions.putIfAbsent(type, resolution);
+			if(existing == null)
+			{
+				mapped = resolveTracked(type, resolution);
+			}
+			else
+			{
+				mapped = await(existing);
+				if(mapped == null)
+				{
+					// Waiting would deadlock, delay creation as for other cycles
+					return new DelayedSerializer<>(this, type);
+				}
+			}
+		}
+
+		if(mapped.isPresent())
+		{
+			return mapped.get();
+		}
+		else if(! required)
+		{
+			return null;
+		}
+
+		return mapped.asOptional(() -> new SerializationException("Could not create serializer for " + type.toTypeDescription()))
+			.orElseThrow(() -> new SerializationException("No serializer available for " + type.toTypeDescription()));
+	}
+
+	/**
+	 * Resolve a type on this thread, keeping track of it to support
+	 * circular dependencies and completing the resolution for any threads
+	 * waiting for it.
+	 */
+	private Mapped<Serializer<?>> resolveTracked(TypeRef type, Resolution resolution)
+	{
+		Mapped<Serializer<?>> cached = cache.peek(type);
+		if(cached != null)
 		{
-			// Already trying to create this serializer, delay creation
-			return new DelayedSerializer<>(this, type);
+			// Resolved by another thread since the cache was checked
+			resolutions.remove(type, resolution);
+			resolution.future.complete(cached);
+			return cached;
 		}
 
 		// Stack to keep track of circular dependencies
+		Set<TypeRef> s = stack.get();
 		if(s == null)
 		{
 			s = new HashSet<>();
@@ -124,12 +273,17 @@ public abstract class AbstractSerializers
 			s.add(type);
 
 			Mapped<Serializer<?>> mapped = resolve(type);
-
-			return mapped.asOptional(() -> new SerializationException("Could not create serializer for " + type.toTypeDescription()))
-				.orElseThrow(() -> new SerializationException("No serializer available for " + type.toTypeDescription()));
+			resolution.future.complete(mapped);
+			return mapped;
+		}
+		catch(RuntimeException | Error e)
+		{
+			resolution.future.completeExceptionally(e);
+			throw e;
 		}
 		finally
 		{
+			resolutions.remove(type, resolution);
 			s.remove(type);
 
 			if(s.isEmpty())
@@ -139,9 +293,66 @@ public abstract class AbstractSerializers
 		}
 	}
 
+	/**
+	 * Wait for a resolution made by another thread.
+	 *
+	 * @return
+	 *   result of the resolution, or {@code null} if waiting would deadlock
+	 */
+	private Mapped<Serializer<?>> await(Resolution resolution)
+	{
+		Thread current = Thread.currentThread();
+		waiting.put(current, resolution);
+		try
+		{
+			/*
+			 * Follow the threads that are waiting for each other, if this
+			 * leads back to the current thread it is resolving something
+			 * the other resolution depends on.
+			 */
+			Resolution r = resolution;
+			for(int i=0, n=waiting.size(); r != null && ! r.future.isDone() && i<=n; i++)
+			{
+				if(r.owner == current)
+				{
+					return null;
+				}
+
+				r = waiting.get(r.owner);
+			}
+
+			return resolution.future.join();
+		}
+		catch(CompletionException e)
+		{
+			if(e.getCause() instanceof RuntimeException)
+			{
+				throw (RuntimeException) e.getCause();
+			}
+			else if(e.getCause() instanceof Error)
+			{
+				throw (Error) e.getCause();
+			}
+
+			throw new SerializationException("Could not create serializer; " + e.getCause().getMessage(), e.getCause());
+		}
+		finally
+		{
+			waiting.remove(current);
+		}
+	}
+
 	protected Mapped<Serializer<?>> resolve(TypeRef type)
 	{
-		return mapper.get(type);
+		Mapped<Serializer<?>> mapped = mapper.get(type);
+		cache.put(type, mapped);
+		return mapped;
+	}
+
+	@Override
+	public CacheStats getCacheStats()
+	{
+		return cache.getStats();
 	}
 
 	@Override
@@ -165,14 +376,21 @@ public abstract class AbstractSerializers
 	@Override
 	public boolean isSupported(Class<?> type)
 	{
-		try
-		{
-			get(type);
-			return true;
-		}
-		catch(SerializationException e)
+		return find(classRefs.get(type)).isPresent();
+	}
+
+	/**
+	 * Resolution of a serializer that is in progress on a thread.
+	 */
+	private static class Resolution
+	{
+		private final Thread owner;
+		private final CompletableFuture<Mapped<Serializer<?>>> future;
+
+		public Resolution()
 		{
-			return false;
+			owner = Thread.currentThread();
+			future = new CompletableFuture<>();
 		}
 	}
 }
@@ -0,0 +1,69 @@
+package se.l4.exobytes.internal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import se.l4.exobytes.CacheStats;
+import se.l4.exobytes.Serializer;
+import se.l4.ylem.types.mapping.Mapped;
+import se.l4.ylem.types.reflect.TypeRef;
+
+/**
+ * {@link SerializerCache} that evicts serializers when a maximum size has
+ * been reached.
+ */
+public class BoundedSerializerCache
+	implements SerializerCache
+{
+	private final Cache<TypeRef, Mapped<Serializer<?>>> cache;
+
+	public BoundedSerializerCache(int maximumSize)
+	{
+		if(maximumSize < 0)
+		{
+			throw new IllegalArgumentException("maximumSize can not be negative, was " + maximumSize);
+		}
+
+		cache = Caffeine.newBuilder()
+			.maximumSize(maximumSize)
+			.executor(Runnable::run)
+			.recordStats()
+			.build();
+	}
+
+	@Override
+	public Mapped<Serializer<?>> get(TypeRef type)
+	{
+		return cache.getIfPresent(type);
+	}
+
+	@Override
+	public Mapped<Serializer<?>> peek(TypeRef type)
+	{
+		return cache.asMap().get(type);
+	}
+
+	@Override
+	public void put(TypeRef type, Mapped<Serializer<?>> mapped)
+	{
+		cache.put(type, mapped);
+	}
+
+	@Override
+	public void invalidateAll()
+	{
+		cache.invalidateAll();
+	}
+
+	@Override
+	public CacheStats getStats()
+	{
+		com.github.benmanes.caffeine.cache.stats.CacheStats stats = cache.stats();
+		return new CacheStats(
+			stats.hitCount(),
+			stats.missCount(),
+			stats.evictionCount(),
+			cache.estimatedSize()
+		);
+	}
+}
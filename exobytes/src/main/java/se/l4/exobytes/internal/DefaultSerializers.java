@@ -19,6 +19,22 @@ public class DefaultSerializers
 
 	public DefaultSerializers(InstanceFactory instanceFactory)
 	{
+		this(instanceFactory, false);
+	}
+
+	public DefaultSerializers(InstanceFactory instanceFactory, boolean generateSerializers)
+	{
+		this(instanceFactory, generateSerializers, SerializerCache.bounded(SerializerCache.DEFAULT_SIZE));
+	}
+
+	public DefaultSerializers(
+		InstanceFactory instanceFactory,
+		boolean generateSerializers,
+		SerializerCache cache
+	)
+	{
+		super(generateSerializers, cache);
+
 		this.instanceFactory = instanceFactory;
 	}
 
@@ -0,0 +1,82 @@
+package se.l4.exobytes.internal;
+
+import se.l4.exobytes.CacheStats;
+import se.l4.exobytes.Serializer;
+import se.l4.ylem.types.mapping.Mapped;
+import se.l4.ylem.types.reflect.TypeRef;
+
+/**
+ * Cache of resolved serializers used by {@link AbstractSerializers}. Only
+ * simple lookups and puts are supported as resolving a serializer can
+ * recursively resolve other serializers.
+ */
+public interface SerializerCache
+{
+	/**
+	 * The maximum number of serializers cached by default.
+	 */
+	int DEFAULT_SIZE = 100;
+
+	/**
+	 * Get a previously resolved serializer.
+	 *
+	 * @param type
+	 * @return
+	 *   resolved serializer or {@code null} if not cached
+	 */
+	Mapped<Serializer<?>> get(TypeRef type);
+
+	/**
+	 * Get a previously resolved serializer without counting it as a hit or
+	 * miss.
+	 *
+	 * @param type
+	 * @return
+	 *   resolved serializer or {@code null} if not cached
+	 */
+	Mapped<Serializer<?>> peek(TypeRef type);
+
+	/**
+	 * Store a resolved serializer.
+	 *
+	 * @param type
+	 * @param mapped
+	 */
+	void put(TypeRef type, Mapped<Serializer<?>> mapped);
+
+	/**
+	 * Remove all cached serializers, used when new serializers are
+	 * registered.
+	 */
+	void invalidateAll();
+
+	/**
+	 * Get the current statistics of this cache.
+	 *
+	 * @return
+	 */
+	CacheStats getStats();
+
+	/**
+	 * Create a cache that keeps at most the given number of serializers.
+	 *
+	 * @param maximumSize
+	 * @return
+	 */
+	static SerializerCache bounded(int maximumSize)
+	{
+		return new BoundedSerializerCache(maximumSize);
+	}
+
+	/**
+	 * Create a cache that never evicts serializers. Suitable when the set of
+	 * serialized types is known and limited, such as in a closed-world
+	 * deployment.
+	 *
+	 * @return
+	 */
+	static SerializerCache unbounded()
+	{
+		return new UnboundedSerializerCache();
+	}
+}
@@ -13,6 +13,8 @@ import se.l4.exobytes.standard.StandardSerializersModule;
 import se.l4.exobytes.time.TimeSerializersModule;
 import se.l4.ylem.types.instances.DefaultInstanceFactory;
 import se.l4.ylem.types.instances.InstanceFactory;
+import se.l4.ylem.types.reflect.TypeRef;
+import se.l4.ylem.types.reflect.Types;
 
 public class SerializersBuilderImpl
 	implements Serializers.Builder
@@ -21,13 +23,18 @@ public class SerializersBuilderImpl
 	private boolean includeDefaults;
 	private List<SerializersModule> modules;
 	private Serializers wrapped;
+	private boolean generateSerializers;
+	private int cacheSize;
+	private List<TypeRef> preload;
 
 	public SerializersBuilderImpl()
 	{
 		instanceFactory = new DefaultInstanceFactory();
 		includeDefaults = true;
+		cacheSize = SerializerCache.DEFAULT_SIZE;
 
 		modules = new ArrayList<>();
+		preload = new ArrayList<>();
 	}
 
 	@Override
@@ -64,12 +71,68 @@ public class SerializersBuilderImpl
 		return this;
 	}
 
+	@Override
+	public Builder withGeneratedSerializers()
+	{
+		this.generateSerializers = true;
+		return this;
+	}
+
+	@Override
+	public Builder withCacheSize(int maximumSize)
+	{
+		if(maximumSize < 0)
+		{
+			throw new IllegalArgumentException("maximumSize can not be negative, was " + maximumSize);
+		}
+
+		this.cacheSize = maximumSize;
+		return this;
+	}
+
+	@Override
+	public Builder withUnboundedCache()
+	{
+		this.cacheSize = -1;
+		return this;
+	}
+
+	@Override
+	public Builder preload(Class<?>... types)
+	{
+		for(Class<?> type : types)
+		{
+			Objects.requireNonNull(type, "type can not be null");
+
+			preload.add(Types.reference(type));
+		}
+
+		return this;
+	}
+
+	@Override
+	public Builder preload(Iterable<? extends TypeRef> types)
+	{
+		for(TypeRef type : types)
+		{
+			Objects.requireNonNull(type, "type can not be null");
+
+			preload.add(type);
+		}
+
+		return this;
+	}
+
 	@Override
 	public Serializers build()
 	{
+		SerializerCache cache = cacheSize < 0
+			? SerializerCache.unbounded()
+			: SerializerCache.bounded(cacheSize);
+
 		Serializers instance = wrapped == null
-			? new DefaultSerializers(instanceFactory)
-			: new WrappedSerializers(instanceFactory, wrapped);
+			? new DefaultSerializers(instanceFactory, generateSerializers, cache)
+			: new WrappedSerializers(instanceFactory, wrapped, generateSerializers, cache);
 
 		// First include the defaults if requested
 		if(includeDefaults)
@@ -91,6 +154,11 @@ public class SerializersBuilderImpl
 			module.activate(instance);
 		}
 
+		if(! preload.isEmpty())
+		{
+			instance.warmUp(preload);
+		}
+
 		return instance;
 	}
 }
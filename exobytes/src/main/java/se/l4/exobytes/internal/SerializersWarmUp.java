@@ -0,0 +1,224 @@
+package se.l4.exobytes.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import se.l4.exobytes.Expose;
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.Serializers;
+import se.l4.exobytes.WarmUpResult;
+import se.l4.exobytes.streaming.StreamingFormat;
+import se.l4.exobytes.streaming.StreamingInput;
+import se.l4.exobytes.streaming.StreamingOutput;
+import se.l4.ylem.types.reflect.FieldRef;
+import se.l4.ylem.types.reflect.TypeRef;
+
+/**
+ * Warm up of {@link Serializers}. Resolves the serializers of a set of types
+ * and the types of their exposed fields, type parameters and component types
+ * in parallel on a {@link ForkJoinPool}. Nested types are resolved before the
+ * types that use them so that the time reported for a type is mostly the
+ * time spent on the type itself.
+ */
+public class SerializersWarmUp
+{
+	private final Serializers serializers;
+	private final int iterations;
+
+	private final Set<TypeRef> seen;
+	private final Map<TypeRef, Duration> times;
+	private final Set<TypeRef> unsupported;
+
+	/**
+	 * Create a new warm up.
+	 *
+	 * @param serializers
+	 *   instance to warm up
+	 * @param iterations
+	 *   number of times to write and read a default instance of every
+	 *   type, {@code 0} to only resolve serializers
+	 */
+	public SerializersWarmUp(Serializers serializers, int iterations)
+	{
+		if(iterations < 0)
+		{
+			throw new IllegalArgumentException("iterations can not be negative, was " + iterations);
+		}
+
+		this.serializers = serializers;
+		this.iterations = iterations;
+
+		seen = ConcurrentHashMap.newKeySet();
+		times = new ConcurrentHashMap<>();
+		unsupported = ConcurrentHashMap.newKeySet();
+	}
+
+	/**
+	 * Run the warm up for the given types.
+	 *
+	 * @param types
+	 * @return
+	 */
+	public WarmUpResult run(Iterable<? extends TypeRef> types)
+	{
+		long start = System.nanoTime();
+
+		List<WarmUpTask> tasks = new ArrayList<>();
+		for(TypeRef type : types)
+		{
+			if(seen.add(type))
+			{
+				tasks.add(new WarmUpTask(type));
+			}
+		}
+
+		ForkJoinPool.commonPool().invoke(new RecursiveAction()
+		{
+			@Override
+			protected void compute()
+			{
+				invokeAll(tasks);
+			}
+		});
+
+		return new WarmUpResult(
+			times,
+			unsupported,
+			Duration.ofNanos(System.nanoTime() - start)
+		);
+	}
+
+	private List<TypeRef> discover(TypeRef type)
+	{
+		List<TypeRef> result = new ArrayList<>();
+		type.getTypeParameters().forEach(result::add);
+		type.getComponentType().ifPresent(result::add);
+
+		if(! type.isPrimitive() && ! type.getErasedType().isArray())
+		{
+			for(FieldRef field : type.getDeclaredFields())
+			{
+				if(field.hasAnnotation(Expose.class))
+				{
+					result.add(field.getType());
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private void resolve(TypeRef type)
+	{
+		long start = System.nanoTime();
+		Optional<? extends Serializer<?>> serializer = serializers.find(type);
+		times.put(type, Duration.ofNanos(System.nanoTime() - start));
+
+		if(! serializer.isPresent())
+		{
+			unsupported.add(type);
+			return;
+		}
+
+		if(iterations > 0)
+		{
+			exercise(type, serializer.get());
+		}
+	}
+
+	/**
+	 * Write and read a default instance of the type so that the code of the
+	 * serializer is compiled by the JIT. Types that can not be created
+	 * without arguments are skipped.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private void exercise(TypeRef type, Serializer serializer)
+	{
+		Class<?> erased = type.getErasedType();
+		Object instance;
+		try
+		{
+			if(erased.isEnum())
+			{
+				Object[] constants = erased.getEnumConstants();
+				if(constants.length == 0) return;
+
+				instance = constants[0];
+			}
+			else if(erased.isPrimitive() || erased.isArray() || erased.isInterface()
+				|| Modifier.isAbstract(erased.getModifiers()))
+			{
+				return;
+			}
+			else
+			{
+				instance = serializers.getInstanceFactory().create(type);
+			}
+		}
+		catch(RuntimeException e)
+		{
+			// No way to create a default instance
+			return;
+		}
+
+		try
+		{
+			for(int i=0; i<iterations; i++)
+			{
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				try(StreamingOutput out = StreamingFormat.CBOR.createOutput(baos))
+				{
+					out.writeObject(serializer, instance);
+				}
+
+				try(StreamingInput in = StreamingFormat.CBOR.createInput(new ByteArrayInputStream(baos.toByteArray())))
+				{
+					in.readObject(serializer);
+				}
+			}
+		}
+		catch(IOException | RuntimeException e)
+		{
+			// Warming up is best effort, the serializer may need other values
+		}
+	}
+
+	private class WarmUpTask
+		extends RecursiveAction
+	{
+		private final TypeRef type;
+
+		public WarmUpTask(TypeRef type)
+		{
+			this.type = type;
+		}
+
+		@Override
+		protected void compute()
+		{
+			List<WarmUpTask> nested = new ArrayList<>();
+			for(TypeRef t : discover(type))
+			{
+				if(seen.add(t))
+				{
+					nested.add(new WarmUpTask(t));
+				}
+			}
+
+			invokeAll(nested);
+
+			resolve(type);
+		}
+	}
+}
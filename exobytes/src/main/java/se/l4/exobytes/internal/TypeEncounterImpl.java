@@ -24,16 +24,28 @@ public class TypeEncounterImpl
 	private final Serializers collection;
 	private final OutputDeduplicator<Serializer<?>> deduplicator;
 	private final TypeRef type;
+	private final ReflectionSerializer<?> reflectionSerializer;
 
 	public TypeEncounterImpl(
 		Serializers collection,
 		OutputDeduplicator<Serializer<?>> deduplicator,
 		TypeRef type
 	)
+	{
+		this(collection, deduplicator, type, ReflectionSerializer.INSTANCE);
+	}
+
+	public TypeEncounterImpl(
+		Serializers collection,
+		OutputDeduplicator<Serializer<?>> deduplicator,
+		TypeRef type,
+		ReflectionSerializer<?> reflectionSerializer
+	)
 	{
 		this.collection = collection;
 		this.deduplicator = deduplicator;
 		this.type = type;
+		this.reflectionSerializer = reflectionSerializer;
 	}
 
 	@Override
@@ -111,7 +123,7 @@ public class TypeEncounterImpl
 	{
 		if(type == ReflectionSerializer.class)
 		{
-			return (T) ReflectionSerializer.INSTANCE;
+			return (T) reflectionSerializer;
 		}
 
 		return collection.getInstanceFactory()
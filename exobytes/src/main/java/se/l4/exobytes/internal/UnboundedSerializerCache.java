@@ -0,0 +1,73 @@
+package se.l4.exobytes.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import se.l4.exobytes.CacheStats;
+import se.l4.exobytes.Serializer;
+import se.l4.ylem.types.mapping.Mapped;
+import se.l4.ylem.types.reflect.TypeRef;
+
+/**
+ * {@link SerializerCache} that never evicts, lookups are lock-free reads
+ * from a {@link ConcurrentHashMap}.
+ */
+public class UnboundedSerializerCache
+	implements SerializerCache
+{
+	private final ConcurrentHashMap<TypeRef, Mapped<Serializer<?>>> cache;
+	private final LongAdder hits;
+	private final LongAdder misses;
+
+	public UnboundedSerializerCache()
+	{
+		cache = new ConcurrentHashMap<>();
+		hits = new LongAdder();
+		misses = new LongAdder();
+	}
+
+	@Override
+	public Mapped<Serializer<?>> get(TypeRef type)
+	{
+		Mapped<Serializer<?>> mapped = cache.get(type);
+		if(mapped == null)
+		{
+			misses.increment();
+		}
+		else
+		{
+			hits.increment();
+		}
+
+		return mapped;
+	}
+
+	@Override
+	public Mapped<Serializer<?>> peek(TypeRef type)
+	{
+		return cache.get(type);
+	}
+
+	@Override
+	public void put(TypeRef type, Mapped<Serializer<?>> mapped)
+	{
+		cache.put(type, mapped);
+	}
+
+	@Override
+	public void invalidateAll()
+	{
+		cache.clear();
+	}
+
+	@Override
+	public CacheStats getStats()
+	{
+		return new CacheStats(
+			hits.sum(),
+			misses.sum(),
+			0,
+			cache.size()
+		);
+	}
+}
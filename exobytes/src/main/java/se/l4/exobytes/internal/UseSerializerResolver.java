@@ -1,21 +1,58 @@
 package se.l4.exobytes.internal;
 
 import java.util.Optional;
+import java.util.function.Predicate;
 
 import se.l4.exobytes.SerializerOrResolver;
 import se.l4.exobytes.SerializerResolver;
 import se.l4.exobytes.TypeEncounter;
 import se.l4.exobytes.Use;
+import se.l4.ylem.types.reflect.AnnotationLocator;
+import se.l4.ylem.types.reflect.TypeRef;
 
 public class UseSerializerResolver
 	implements SerializerResolver<Object>
 {
+	private static final AnnotationLocator<Use> USE = AnnotationLocator.meta(Use.class);
+
+	private final Predicate<Class<?>> isRegistered;
+
+	public UseSerializerResolver()
+	{
+		this(type -> false);
+	}
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param isRegistered
+	 *   predicate used to check if a type has been explicitly registered, in
+	 *   which case a {@link Use} annotation on the type itself is ignored
+	 */
+	public UseSerializerResolver(Predicate<Class<?>> isRegistered)
+	{
+		this.isRegistered = isRegistered;
+	}
+
 	@Override
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public Optional<? extends SerializerOrResolver<Object>> find(TypeEncounter encounter)
 	{
-		// A specific serializer should be used
-		Optional<Use> annotation = encounter.getHint(Use.class);
+		TypeRef type = encounter.getType();
+
+		// A specific serializer should be used, either via the usage or the type
+		Optional<Use> annotation = type.getUsage().findAnnotation(USE);
+		if(! annotation.isPresent())
+		{
+			if(isRegistered.test(type.getErasedType()))
+			{
+				// Registered serializers take precedence over the type
+				return Optional.empty();
+			}
+
+			annotation = type.getAnnotation(USE);
+		}
+
 		if(! annotation.isPresent())
 		{
 			return Optional.empty();
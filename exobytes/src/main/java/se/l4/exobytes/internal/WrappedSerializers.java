@@ -1,6 +1,7 @@
 package se.l4.exobytes.internal;
 
-import se.l4.exobytes.SerializationException;
+import java.util.Optional;
+
 import se.l4.exobytes.Serializer;
 import se.l4.exobytes.Serializers;
 import se.l4.ylem.types.instances.InstanceFactory;
@@ -18,6 +19,23 @@ public class WrappedSerializers
 
 	public WrappedSerializers(InstanceFactory instanceFactory, Serializers other)
 	{
+		this(instanceFactory, other, false);
+	}
+
+	public WrappedSerializers(InstanceFactory instanceFactory, Serializers other, boolean generateSerializers)
+	{
+		this(instanceFactory, other, generateSerializers, SerializerCache.bounded(SerializerCache.DEFAULT_SIZE));
+	}
+
+	public WrappedSerializers(
+		InstanceFactory instanceFactory,
+		Serializers other,
+		boolean generateSerializers,
+		SerializerCache cache
+	)
+	{
+		super(generateSerializers, cache);
+
 		this.other = other;
 		this.instanceFactory = instanceFactory;
 	}
@@ -31,13 +49,24 @@ public class WrappedSerializers
 	@Override
 	public Serializer<?> get(TypeRef type)
 	{
-		try
+		Optional<? extends Serializer<?>> serializer = super.find(type);
+		if(serializer.isPresent())
 		{
-			return super.get(type);
+			return serializer.get();
 		}
-		catch(SerializationException e)
+
+		return other.get(type);
+	}
+
+	@Override
+	public Optional<? extends Serializer<?>> find(TypeRef type)
+	{
+		Optional<? extends Serializer<?>> serializer = super.find(type);
+		if(serializer.isPresent())
 		{
-			return other.get(type);
+			return serializer;
 		}
+
+		return other.find(type);
 	}
 }
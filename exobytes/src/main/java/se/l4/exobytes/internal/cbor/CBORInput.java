@@ -5,9 +5,12 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Objects;
 import java.util.OptionalInt;
 
+import se.l4.exobytes.internal.streaming.NestingStack;
 import se.l4.exobytes.streaming.AbstractStreamingInput;
+import se.l4.exobytes.streaming.KeyTable;
 import se.l4.exobytes.streaming.StreamingInput;
 import se.l4.exobytes.streaming.Token;
 import se.l4.exobytes.streaming.ValueConversion;
@@ -19,34 +22,170 @@ public class CBORInput
 	extends AbstractStreamingInput
 {
 	private static final byte[] EMPTY_BYTES = new byte[0];
-	private static final int LEVELS = 20;
+	private static final int BUFFER_SIZE = 4096;
 
-	private final InputStream in;
+	private InputStream in;
+
+	/**
+	 * Buffer holding data read from the stream, valid data is between
+	 * {@link #position} and {@link #limit}. If this input reads directly from
+	 * an array this is that array and {@link #in} is {@code null}.
+	 */
+	protected byte[] buffer;
+	/**
+	 * Buffer owned by this input, kept so that it can be used again when the
+	 * input is reset to read from a stream.
+	 */
+	private byte[] streamBuffer;
+	protected int position;
+	protected int limit;
 
-	private int peekedByte;
 	private int currentByte;
 
-	private int[] remainingReads;
-	private boolean[] listOrMap;
-	private int level;
+	/**
+	 * Open lists and maps, with the number of values remaining to be read
+	 * in each. Indefinite lengths are tracked as a negative count.
+	 */
+	protected final NestingStack nesting;
 
 	private int length;
 	private char[] reusableChars = new char[64];
 
 	public CBORInput(InputStream in)
 		throws IOException
+	{
+		this(in, NestingStack.DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Create an input that reads from the given stream and fails if lists
+	 * and maps are nested deeper than the given depth.
+	 *
+	 * @param in
+	 * @param maxDepth
+	 * @throws IOException
+	 */
+	public CBORInput(InputStream in, int maxDepth)
+		throws IOException
+	{
+		this(Objects.requireNonNull(in), new byte[BUFFER_SIZE], 0, 0, maxDepth);
+	}
+
+	/**
+	 * Create an input that reads directly from the given array. The array is
+	 * used as is without copying and must not be modified while this input
+	 * is in use.
+	 *
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @throws IOException
+	 */
+	public CBORInput(byte[] data, int offset, int length)
+		throws IOException
+	{
+		this(data, offset, length, NestingStack.DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Create an input that reads directly from the given array and fails if
+	 * lists and maps are nested deeper than the given depth.
+	 *
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @param maxDepth
+	 * @throws IOException
+	 */
+	public CBORInput(byte[] data, int offset, int length, int maxDepth)
+		throws IOException
+	{
+		this(null, data, offset, Objects.checkFromIndexSize(offset, length, data.length) + length, maxDepth);
+	}
+
+	/**
+	 * Create an input that is not connected to any source. One of the
+	 * {@code reset} methods must be called before reading.
+	 *
+	 * @param maxDepth
+	 */
+	protected CBORInput(int maxDepth)
+	{
+		in = null;
+		buffer = EMPTY_BYTES;
+
+		nesting = new NestingStack(maxDepth, true, -1);
+
+		length = -1;
+	}
+
+	private CBORInput(InputStream in, byte[] buffer, int position, int limit, int maxDepth)
+		throws IOException
 	{
 		this.in = in;
 
-		remainingReads = new int[LEVELS];
-		listOrMap = new boolean[LEVELS];
+		this.buffer = buffer;
+		this.position = position;
+		this.limit = limit;
+
+		if(in != null)
+		{
+			streamBuffer = buffer;
+		}
 
-		listOrMap[0] = true;
-		remainingReads[0] = -1;
+		nesting = new NestingStack(maxDepth, true, -1);
+
+		length = -1;
+
+		readType();
+	}
+
+	/**
+	 * Start reading from the given stream, see {@link ReusableCBORInput}.
+	 *
+	 * @param in
+	 * @throws IOException
+	 */
+	protected void reset(InputStream in)
+		throws IOException
+	{
+		if(streamBuffer == null)
+		{
+			streamBuffer = new byte[BUFFER_SIZE];
+		}
+
+		reset(Objects.requireNonNull(in), streamBuffer, 0, 0);
+	}
+
+	/**
+	 * Start reading directly from a part of the given array, see
+	 * {@link ReusableCBORInput}.
+	 *
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @throws IOException
+	 */
+	protected void reset(byte[] data, int offset, int length)
+		throws IOException
+	{
+		reset(null, data, offset, Objects.checkFromIndexSize(offset, length, data.length) + length);
+	}
+
+	private void reset(InputStream in, byte[] buffer, int position, int limit)
+		throws IOException
+	{
+		this.in = in;
+
+		this.buffer = buffer;
+		this.position = position;
+		this.limit = limit;
+
+		nesting.reset(true, -1);
+		resetToken();
 
 		length = -1;
 
-		peekedByte = in.read();
 		readType();
 	}
 
@@ -54,15 +193,16 @@ public class CBORInput
 	protected Token peek0()
 		throws IOException
 	{
-		if(remainingReads[level] == 0)
+		if(nesting.getCount() == 0)
 		{
 			/*
 			 * If there are no more values to read in the list or object
 			 * emulate an end token.
 			 */
-			return listOrMap[level] ? Token.LIST_END : Token.OBJECT_END;
+			return nesting.isList() ? Token.LIST_END : Token.OBJECT_END;
 		}
 
+		int peekedByte = peekByte();
 		if(peekedByte == -1)
 		{
 			return Token.END_OF_STREAM;
@@ -81,7 +221,7 @@ public class CBORInput
 				}
 				else if((peekedByte & CborConstants.AI_INDEFINITE) == CborConstants.AI_INDEFINITE)
 				{
-					return listOrMap[level] ? Token.LIST_END : Token.OBJECT_END;
+					return nesting.isList() ? Token.LIST_END : Token.OBJECT_END;
 				}
 			case CborConstants.MAJOR_TYPE_UNSIGNED_INT:
 			case CborConstants.MAJOR_TYPE_NEGATIVE_INT:
@@ -98,7 +238,7 @@ public class CBORInput
 	protected Token next0()
 		throws IOException
 	{
-		if(remainingReads[level] == 0)
+		if(nesting.getCount() == 0)
 		{
 			/*
 			 * If there are no more values to read in the list or object
@@ -107,9 +247,10 @@ public class CBORInput
 			length = -1;
 			readType();
 
-			return listOrMap[level--] ? Token.LIST_END : Token.OBJECT_END;
+			return decreaseLevel();
 		}
 
+		int peekedByte = peekByte();
 		if(peekedByte == -1)
 		{
 			return Token.END_OF_STREAM;
@@ -120,12 +261,12 @@ public class CBORInput
 		{
 			case CborConstants.MAJOR_TYPE_ARRAY:
 				markValueRead();
-				peekedByte = in.read();
+				position++;
 				increaseLevel(isIndeterminateLength() ? -2 : getLengthAsInt(), true);
 				return Token.LIST_START;
 			case CborConstants.MAJOR_TYPE_MAP:
 				markValueRead();
-				peekedByte = in.read();
+				position++;
 				increaseLevel(isIndeterminateLength() ? -2 : getLengthAsInt(), false);
 				return Token.OBJECT_START;
 			case CborConstants.MAJOR_TYPE_SIMPLE:
@@ -133,18 +274,18 @@ public class CBORInput
 				{
 					case 246:
 						markValueRead();
-						peekedByte = in.read();
+						position++;
 						length = -1;
 						return Token.NULL;
 					case 255:
 						length = -1;
 
-						// Peek the next byte if this wasn't a synthetic end event
-						peekedByte = in.read();
+						// Consume the break as this wasn't a synthetic end event
+						position++;
 
 						readType();
 
-						return listOrMap[level--] ? Token.LIST_END : Token.OBJECT_END;
+						return decreaseLevel();
 				}
 			case CborConstants.MAJOR_TYPE_UNSIGNED_INT:
 			case CborConstants.MAJOR_TYPE_NEGATIVE_INT:
@@ -152,7 +293,7 @@ public class CBORInput
 			case CborConstants.MAJOR_TYPE_TEXT_STRING:
 				length = -1;
 
-				peekedByte = in.read();
+				position++;
 				return Token.VALUE;
 		}
 
@@ -169,7 +310,10 @@ public class CBORInput
 	public void close()
 		throws IOException
 	{
-		in.close();
+		if(in != null)
+		{
+			in.close();
+		}
 	}
 
 	@Override
@@ -396,7 +540,7 @@ public class CBORInput
 		else if(length == CborConstants.AI_INDEFINITE)
 		{
 			StringBuilder builder = new StringBuilder();
-			while(peekedByte != 0xff)
+			while(peekByte() != 0xff)
 			{
 				currentByte = read();
 				if(! isMajorType(CborConstants.MAJOR_TYPE_TEXT_STRING))
@@ -424,105 +568,141 @@ public class CBORInput
 		return result;
 	}
 
+	@Override
+	public int readKey(KeyTable table)
+		throws IOException
+	{
+		if(! isMajorType(CborConstants.MAJOR_TYPE_TEXT_STRING) || isIndeterminateLength())
+		{
+			return super.readKey(table);
+		}
+
+		int length = getLengthAsInt();
+		int result;
+		if(length <= buffer.length)
+		{
+			// Match the raw bytes of the key against the table
+			require(length);
+			result = table.indexOf(buffer, position, length);
+			position += length;
+		}
+		else
+		{
+			result = table.indexOf(readString(length));
+		}
+
+		markValueRead();
+		return result;
+	}
+
 	private String readString(int byteLength)
 		throws IOException
 	{
+		/*
+		 * A string never decodes into more chars than it has bytes, so make
+		 * sure the reusable array can fit all of them up front.
+		 */
 		char[] chars = this.reusableChars;
+		if(chars.length < byteLength)
+		{
+			chars = this.reusableChars = new char[Math.max(byteLength, chars.length * 2)];
+		}
 
+		byte[] buffer = this.buffer;
 		int offset = 0;
-		int c = peekedByte;
-		while(offset < byteLength)
+		int remaining = byteLength;
+		while(remaining > 0)
 		{
-			if(c >= 0x80)
+			if(limit - position < 4 && limit - position < remaining)
 			{
-				break;
+				require(Math.min(4, remaining));
 			}
 
-			if(chars.length == offset)
+			/*
+			 * Copy as many ASCII characters as possible directly from the
+			 * buffer before falling back to decoding multi-byte sequences.
+			 */
+			int p = position;
+			int end = p + Math.min(remaining, limit - p);
+			while(p < end && buffer[p] >= 0)
 			{
-				chars = this.reusableChars = Arrays.copyOf(chars, chars.length * 2);
+				chars[offset++] = (char) buffer[p++];
 			}
 
-			chars[offset++] = (char) c;
-			c = in.read();
-		}
+			remaining -= p - position;
+			position = p;
 
-		int read = offset;
-		while(read < byteLength)
-		{
-			if((c & 0x80) == 0)
+			if(p == end)
 			{
-				if(chars.length == offset)
-				{
-					chars = this.reusableChars = Arrays.copyOf(chars, chars.length * 2);
-				}
-
-				read += 1;
-				chars[offset++] = (char) c;
+				continue;
 			}
-			else if((c & 0xe0) == 0xc0)
-			{
-				if(chars.length == offset)
-				{
-					chars = this.reusableChars = Arrays.copyOf(chars, chars.length * 2);
-				}
 
-				read += 2;
-				chars[offset++] = (char) (((c & 0x1f) << 6)
-					| (in.read() & 0x3f));
+			int c = buffer[p] & 0xff;
+			int sequenceLength;
+			if((c & 0xe0) == 0xc0)
+			{
+				sequenceLength = 2;
 			}
 			else if((c & 0xf0) == 0xe0)
 			{
-				if(chars.length == offset)
-				{
-					chars = this.reusableChars = Arrays.copyOf(chars, chars.length * 2);
-				}
-
-				read += 3;
-				chars[offset++] = (char) (((c & 0x0f) << 12)
-					| (in.read() & 0x3f) << 6
-					| (in.read() & 0x3f));
+				sequenceLength = 3;
+			}
+			else if((c & 0xf8) == 0xf0)
+			{
+				sequenceLength = 4;
 			}
 			else
 			{
-				int v;
-				if((c & 0xf8) == 0xf0)
-				{
-					if(chars.length == offset)
-					{
-						chars = this.reusableChars = Arrays.copyOf(chars, chars.length * 2);
-					}
+				throw raiseException("Tried reading a string but encountered invalid UTF-8 sequence");
+			}
 
-					v = ((c & 0x07) << 18)
-						| ((in.read() & 0x3f) << 12)
-						| ((in.read() & 0x3f) << 6)
-						| (in.read() & 0x3F);
+			if(sequenceLength > remaining)
+			{
+				throw raiseException("Tried reading a string but a UTF-8 sequence crossed the end of the string");
+			}
 
-					read += 4;
-				}
-				else
-				{
-					throw raiseException("Tried reading a string but encountered invalid UTF-8 sequence");
-				}
+			if(limit - p < sequenceLength)
+			{
+				// The sequence crosses the end of the buffer, which moves the data
+				require(sequenceLength);
+				buffer = this.buffer;
+				p = position;
+			}
 
-				if(v > 0x10000)
-				{
-					// This is a surrogate - let's read the next char
-					int supplement = v - 0x10000;
-					chars[offset++] = (char) ((supplement >> 10) | 0xd800);
-					chars[offset++] = (char) ((supplement & 0x3ff) | 0xdc00);
-				}
-				else
-				{
-					chars[offset++] = (char) v;
-				}
+			switch(sequenceLength)
+			{
+				case 2:
+					chars[offset++] = (char) (((c & 0x1f) << 6)
+						| (buffer[p + 1] & 0x3f));
+					break;
+				case 3:
+					chars[offset++] = (char) (((c & 0x0f) << 12)
+						| (buffer[p + 1] & 0x3f) << 6
+						| (buffer[p + 2] & 0x3f));
+					break;
+				default:
+					int v = ((c & 0x07) << 18)
+						| ((buffer[p + 1] & 0x3f) << 12)
+						| ((buffer[p + 2] & 0x3f) << 6)
+						| (buffer[p + 3] & 0x3F);
+
+					if(v >= 0x10000)
+					{
+						// This is a surrogate pair - encode as two chars
+						int supplement = v - 0x10000;
+						chars[offset++] = (char) ((supplement >> 10) | 0xd800);
+						chars[offset++] = (char) ((supplement & 0x3ff) | 0xdc00);
+					}
+					else
+					{
+						chars[offset++] = (char) v;
+					}
 			}
 
-			c = in.read();
+			position += sequenceLength;
+			remaining -= sequenceLength;
 		}
 
-		peekedByte = c;
-
 		return new String(chars, 0, offset);
 	}
 
@@ -532,7 +712,7 @@ public class CBORInput
 		int length = getLengthAsInt();
 		if(length == CborConstants.AI_INDEFINITE)
 		{
-			while(peekedByte != 0xff)
+			while(peekByte() != 0xff)
 			{
 				currentByte = read();
 				if(! isMajorType(CborConstants.MAJOR_TYPE_TEXT_STRING))
@@ -573,7 +753,7 @@ public class CBORInput
 		else if(length == CborConstants.AI_INDEFINITE)
 		{
 			byte[] data = EMPTY_BYTES;
-			while(peekedByte != 0xff)
+			while(peekByte() != 0xff)
 			{
 				currentByte = read();
 				if(! isMajorType(CborConstants.MAJOR_TYPE_BYTE_STRING))
@@ -585,7 +765,7 @@ public class CBORInput
 
 				int offset = data.length;
 				data = Arrays.copyOf(data, data.length + subLength);
-				readFully(data, offset, data.length);
+				readFully(data, offset, subLength);
 			}
 
 			if(read() != 0xff)
@@ -611,7 +791,7 @@ public class CBORInput
 		int length = getLengthAsInt();
 		if(length == CborConstants.AI_INDEFINITE)
 		{
-			while(peekedByte != 0xff)
+			while(peekByte() != 0xff)
 			{
 				currentByte = read();
 				if(! isMajorType(CborConstants.MAJOR_TYPE_BYTE_STRING))
@@ -657,7 +837,7 @@ public class CBORInput
 				public int readChunkLength()
 					throws IOException
 				{
-					if(peekedByte == 0xff)
+					if(peekByte() == 0xff)
 					{
 						return -1;
 					}
@@ -682,13 +862,22 @@ public class CBORInput
 				public int read(byte[] buf, int offset, int length)
 					throws IOException
 				{
-					if(peekedByte == -1) return -1;
 					if(length == 0) return 0;
 
-					buf[offset] = (byte) peekedByte;
+					int available = limit - position;
+					if(available == 0)
+					{
+						if(! fill())
+						{
+							return -1;
+						}
+
+						available = limit - position;
+					}
 
-					int read = in.read(buf, offset + 1, length - 1) + 1;
-					peekedByte = in.read();
+					int read = Math.min(available, length);
+					System.arraycopy(buffer, position, buf, offset, read);
+					position += read;
 					return read;
 				}
 
@@ -712,6 +901,15 @@ public class CBORInput
 				}
 			});
 		}
+		else if(in == null)
+		{
+			// Data is owned by the caller and never reused, return a view of it
+			require(length);
+			InputStream result = new ByteArrayInputStream(buffer, position, length);
+			position += length;
+			markValueRead();
+			return result;
+		}
 		else
 		{
 			byte[] data = new byte[length];
@@ -721,29 +919,38 @@ public class CBORInput
 		}
 	}
 
-	private void readFully(byte[] buffer, int offset, int len)
+	/**
+	 * Read a number of bytes into the given array. Will first use data
+	 * available in the buffer and then read the rest directly from the
+	 * stream.
+	 *
+	 * @param target
+	 * @param offset
+	 * @param length
+	 * @throws IOException
+	 */
+	private void readFully(byte[] target, int offset, int length)
 		throws IOException
 	{
-		if(len == 0) return;
-
-		buffer[offset] = (byte) peekedByte;
+		int available = Math.min(limit - position, length);
+		System.arraycopy(buffer, position, target, offset, available);
+		position += available;
 
-		int n = offset + 1;
-		while(n < len)
+		int n = available;
+		while(n < length)
 		{
-			int count = in.read(buffer, n, len - n);
+			int count = in == null ? -1 : in.read(target, offset + n, length - n);
 			if(count < 0)
 			{
-				throw new EOFException("Expected to read " + len + " bytes, but could only read " + n);
+				throw new EOFException("Expected to read " + length + " bytes, but could only read " + n);
 			}
 			n += count;
 		}
-
-		peekedByte = in.read();
 	}
 
 	/**
-	 * Skip a certain amount of bytes taking the peeked byte into account.
+	 * Skip a certain amount of bytes, consuming the buffer first and then
+	 * skipping in the underlying stream.
 	 *
 	 * @param length
 	 * @throws IOException
@@ -751,36 +958,89 @@ public class CBORInput
 	private void skipBytes(int length)
 		throws IOException
 	{
-		for(int i=0, n=length-1; i<n; i++)
+		int available = limit - position;
+		if(length <= available)
+		{
+			position += length;
+			return;
+		}
+
+		position = limit;
+
+		if(in == null)
 		{
-			in.read();
+			throw new EOFException("Expected to skip " + length + " bytes, but reached end of data");
 		}
 
-		peekedByte = in.read();
+		long remaining = length - available;
+		while(remaining > 0)
+		{
+			long skipped = in.skip(remaining);
+			if(skipped <= 0)
+			{
+				// Stream could not skip, read a single byte to detect the end
+				if(in.read() == -1)
+				{
+					throw new EOFException("Expected to skip " + length + " bytes, but reached end of stream");
+				}
+
+				skipped = 1;
+			}
+
+			remaining -= skipped;
+		}
 	}
 
 	private float readRawFloat()
 		throws IOException
 	{
-		int i = read() << 24
-			| read() << 16
-			| read() << 8
-			| read();
-		return Float.intBitsToFloat(i);
+		require(4);
+		return Float.intBitsToFloat(readRawInt());
 	}
 
 	private double readRawDouble()
 		throws IOException
 	{
-		long l = ((long) read()) << 56
-			| (long) read() << 48
-			| (long) read() << 40
-			| (long) read() << 32
-			| (long) read() << 24
-			| read() << 16
-			| read() << 8
-			| read();
-		return Double.longBitsToDouble(l);
+		require(8);
+		return Double.longBitsToDouble(readRawLong());
+	}
+
+	/**
+	 * Read four bytes from the buffer as an int. Requires that the
+	 * caller has made sure the bytes are {@link #require(int) available}.
+	 *
+	 * @return
+	 */
+	private int readRawInt()
+	{
+		byte[] buffer = this.buffer;
+		int p = position;
+		position = p + 4;
+		return (buffer[p] & 0xff) << 24
+			| (buffer[p + 1] & 0xff) << 16
+			| (buffer[p + 2] & 0xff) << 8
+			| (buffer[p + 3] & 0xff);
+	}
+
+	/**
+	 * Read eight bytes from the buffer as a long. Requires that the
+	 * caller has made sure the bytes are {@link #require(int) available}.
+	 *
+	 * @return
+	 */
+	private long readRawLong()
+	{
+		byte[] buffer = this.buffer;
+		int p = position;
+		position = p + 8;
+		return (buffer[p] & 0xffl) << 56
+			| (buffer[p + 1] & 0xffl) << 48
+			| (buffer[p + 2] & 0xffl) << 40
+			| (buffer[p + 3] & 0xffl) << 32
+			| (buffer[p + 4] & 0xffl) << 24
+			| (buffer[p + 5] & 0xffl) << 16
+			| (buffer[p + 6] & 0xffl) << 8
+			| (buffer[p + 7] & 0xffl);
 	}
 
 	private int majorType()
@@ -806,13 +1066,16 @@ public class CBORInput
 			case CborConstants.AI_ONE_BYTE:
 				return read();
 			case CborConstants.AI_TWO_BYTES:
-				return read() << 8
-					| read();
+			{
+				require(2);
+				int p = position;
+				position = p + 2;
+				return (buffer[p] & 0xff) << 8
+					| (buffer[p + 1] & 0xff);
+			}
 			case CborConstants.AI_FOUR_BYTES:
-				int v = read() << 24
-					| read() << 16
-					| read() << 8
-					| read();
+				require(4);
+				int v = readRawInt();
 
 				if(v < 0)
 				{
@@ -835,22 +1098,19 @@ public class CBORInput
 			case CborConstants.AI_ONE_BYTE:
 				return read();
 			case CborConstants.AI_TWO_BYTES:
-				return read() << 8
-					| read();
+			{
+				require(2);
+				int p = position;
+				position = p + 2;
+				return (buffer[p] & 0xff) << 8
+					| (buffer[p + 1] & 0xff);
+			}
 			case CborConstants.AI_FOUR_BYTES:
-				return read() << 24
-					| read() << 16
-					| read() << 8
-					| read();
+				require(4);
+				return readRawInt() & 0xffffffffl;
 			case CborConstants.AI_EIGHT_BYTES:
-				return ((long) read()) << 56
-					| (long) read() << 48
-					| (long) read() << 40
-					| (long) read() << 32
-					| (long) read() << 24
-					| read() << 16
-					| read() << 8
-					| read();
+				require(8);
+				return readRawLong();
 			default:
 				return currentByte & 31;
 		}
@@ -879,32 +1139,112 @@ public class CBORInput
 	}
 
 	private void increaseLevel(int expectedCount, boolean isList)
+		throws IOException
 	{
-		level++;
-		if(listOrMap.length == level)
-		{
-			// Grow lists when needed
-			listOrMap = Arrays.copyOf(listOrMap, level * 2);
-			remainingReads = Arrays.copyOf(remainingReads, level * 2);
-		}
-
-		listOrMap[level] = isList;
-		remainingReads[level] = isList ? expectedCount : expectedCount * 2;
+		nesting.push(isList, isList ? expectedCount : expectedCount * 2L);
 
 		length = expectedCount;
 	}
 
+	private Token decreaseLevel()
+		throws IOException
+	{
+		boolean isList = nesting.isList();
+		nesting.pop();
+		return isList ? Token.LIST_END : Token.OBJECT_END;
+	}
+
+	/**
+	 * Consume a single byte.
+	 *
+	 * @return
+	 * @throws IOException
+	 *   if the end of the stream has been reached
+	 */
 	private int read()
 		throws IOException
 	{
-		if(peekedByte == -1)
+		if(position == limit && ! fill())
 		{
 			throw new EOFException();
 		}
 
-		int v = currentByte = peekedByte;
-		peekedByte = in.read();
-		return v;
+		return buffer[position++] & 0xff;
+	}
+
+	/**
+	 * Peek at the next byte without consuming it.
+	 *
+	 * @return
+	 *   the next byte or {@code -1} if the end of the stream has been reached
+	 * @throws IOException
+	 */
+	private int peekByte()
+		throws IOException
+	{
+		if(position == limit && ! fill())
+		{
+			return -1;
+		}
+
+		return buffer[position] & 0xff;
+	}
+
+	/**
+	 * Make sure that at least the given number of bytes are available in
+	 * the buffer.
+	 *
+	 * @param bytes
+	 * @throws IOException
+	 *   if the stream ends before the bytes are available
+	 */
+	private void require(int bytes)
+		throws IOException
+	{
+		while(limit - position < bytes)
+		{
+			if(! fill())
+			{
+				throw new EOFException("Expected " + bytes + " bytes, but reached end of stream");
+			}
+		}
+	}
+
+	/**
+	 * Read more data into the buffer, keeping any data that has not yet been
+	 * consumed.
+	 *
+	 * @return
+	 *   {@code true} if data was read, {@code false} if the end of the stream
+	 *   has been reached
+	 * @throws IOException
+	 */
+	private boolean fill()
+		throws IOException
+	{
+		if(in == null)
+		{
+			// Reading directly from an array, there is never more data
+			return false;
+		}
+
+		int remaining = limit - position;
+		if(remaining > 0 && position > 0)
+		{
+			System.arraycopy(buffer, position, buffer, 0, remaining);
+		}
+
+		position = 0;
+		limit = remaining;
+
+		int read = in.read(buffer, limit, buffer.length - limit);
+		if(read <= 0)
+		{
+			return false;
+		}
+
+		limit += read;
+		return true;
 	}
 
 	protected void markValueRead()
@@ -912,21 +1252,25 @@ public class CBORInput
 	{
 		super.markValueRead();
 
-		int count = remainingReads[level];
-		if(count == 0)
+		if(nesting.getCount() == 0)
 		{
 			throw raiseException("Tried to read more values than expected");
 		}
 
-		remainingReads[level] = count - 1;
+		nesting.decrementCount();
 
 		readType();
 	}
 
-	private void readType()
+	/**
+	 * Skip any tags in front of the next item.
+	 *
+	 * @throws IOException
+	 */
+	protected void readType()
 		throws IOException
 	{
-		while(peekedByte >> 5 == CborConstants.MAJOR_TYPE_TAGGED)
+		while(peekByte() >> 5 == CborConstants.MAJOR_TYPE_TAGGED)
 		{
 			// TODO: What do we do with these types?
 			read();
@@ -2,53 +2,235 @@ package se.l4.exobytes.internal.cbor;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.Objects;
 
+import se.l4.exobytes.internal.streaming.NestingStack;
+import se.l4.exobytes.streaming.BufferRecycler;
+import se.l4.exobytes.streaming.ReusableStreamingOutput;
 import se.l4.exobytes.streaming.StreamingOutput;
 
 /**
  * {@link StreamingOutput} that writes data in a CBOR format.
  */
 public class CBOROutput
-	implements StreamingOutput
+	implements ReusableStreamingOutput
 {
-	private static final int LEVELS = 20;
+	/**
+	 * Strings longer than this number of chars are written as indefinite
+	 * length text strings, avoiding the extra pass needed to calculate their
+	 * encoded length.
+	 */
+	private static final int CHUNKED_STRING_THRESHOLD = 8192;
+
+	private OutputStream out;
+	private final BufferRecycler recycler;
 
-	private final OutputStream out;
+	/**
+	 * If set this output encodes directly into the backing array of this
+	 * buffer and {@link #buffer} is that array.
+	 */
+	private final ByteBuffer target;
 
 	private byte[] buffer;
 	private int index;
+	/**
+	 * The index in {@link #buffer} where writing must stop.
+	 */
+	private int limit;
+	private boolean closed;
 
 	/**
-	 * If the current level is using an indeterminate length and needs a break.
+	 * Open lists and maps, with the number of items remaining to be written
+	 * in each or {@code -1} for indeterminate lengths that need a break.
 	 */
-	private int[] remainingWrites;
-	private int level;
+	private final NestingStack nesting;
 
 	public CBOROutput(OutputStream out)
+	{
+		this(out, BufferRecycler.threadLocal());
+	}
+
+	/**
+	 * Create an output that writes to the given stream using a buffer from
+	 * the given recycler. The buffer is flushed to the stream whenever it
+	 * fills up. It is given back to the recycler when the output is closed
+	 * or flushed outside of any list or map, and acquired again on the next
+	 * write.
+	 *
+	 * @param out
+	 * @param recycler
+	 */
+	public CBOROutput(OutputStream out, BufferRecycler recycler)
+	{
+		this(out, recycler, NestingStack.DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Create an output that writes to the given stream using a buffer from
+	 * the given recycler, failing if lists and maps are nested deeper than
+	 * the given depth.
+	 *
+	 * @param out
+	 * @param recycler
+	 * @param maxDepth
+	 */
+	public CBOROutput(OutputStream out, BufferRecycler recycler, int maxDepth)
 	{
 		this.out = out;
+		this.recycler = recycler;
+		this.target = null;
+
+		if(out != null)
+		{
+			this.buffer = recycler.acquire();
+			this.limit = buffer.length;
+		}
+
+		nesting = new NestingStack(maxDepth, false, -1);
+	}
 
-		this.buffer = new byte[32];
+	/**
+	 * Create an output that is not connected to any stream.
+	 * {@link #reset(OutputStream)} must be called before writing, which is
+	 * also when a buffer is acquired from the recycler.
+	 *
+	 * @param recycler
+	 * @param maxDepth
+	 */
+	public CBOROutput(BufferRecycler recycler, int maxDepth)
+	{
+		this((OutputStream) null, recycler, maxDepth);
+	}
 
-		remainingWrites = new int[LEVELS];
-		remainingWrites[0] = -1;
+	/**
+	 * Create an output that encodes directly into the given buffer, starting
+	 * at its current position. The buffer must be backed by an accessible
+	 * array. The position of the buffer is moved forward when this output is
+	 * flushed or closed, and writing more than the buffer can hold will fail.
+	 *
+	 * @param target
+	 */
+	public CBOROutput(ByteBuffer target)
+	{
+		this(target, NestingStack.DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Create an output that encodes directly into the given buffer, failing
+	 * if lists and maps are nested deeper than the given depth.
+	 *
+	 * @param target
+	 * @param maxDepth
+	 * @see #CBOROutput(ByteBuffer)
+	 */
+	public CBOROutput(ByteBuffer target, int maxDepth)
+	{
+		if(! target.hasArray())
+		{
+			throw new IllegalArgumentException("ByteBuffer must be backed by an accessible array");
+		}
+
+		this.out = null;
+		this.recycler = null;
+		this.target = target;
+
+		this.buffer = target.array();
+		this.index = target.arrayOffset() + target.position();
+		this.limit = target.arrayOffset() + target.limit();
+
+		nesting = new NestingStack(maxDepth, false, -1);
+	}
+
+	@Override
+	public void reset(OutputStream out)
+	{
+		if(target != null)
+		{
+			throw new IllegalStateException("Outputs that write into a ByteBuffer can not be reset");
+		}
+
+		this.out = Objects.requireNonNull(out);
+
+		if(buffer == null)
+		{
+			buffer = recycler.acquire();
+			limit = buffer.length;
+		}
+
+		index = 0;
+		closed = false;
+
+		nesting.reset(false, -1);
 	}
 
 	@Override
 	public void close()
 		throws IOException
 	{
-		flushBuffer();
-		out.close();
+		if(closed || (buffer == null && out == null)) return;
+
+		closed = true;
+		try
+		{
+			if(buffer != null)
+			{
+				flushBuffer();
+			}
+
+			if(out != null)
+			{
+				out.close();
+			}
+		}
+		finally
+		{
+			releaseBuffer();
+		}
 	}
 
 	@Override
 	public void flush()
 		throws IOException
 	{
-		flushBuffer();
-		out.flush();
+		if(closed) return;
+
+		if(buffer != null)
+		{
+			flushBuffer();
+
+			if(nesting.getDepth() == 0)
+			{
+				// Outputs that are only flushed should not hold on to the buffer
+				releaseBuffer();
+			}
+		}
+
+		if(out != null)
+		{
+			out.flush();
+		}
+	}
+
+	/**
+	 * Give the buffer back to the recycler. Outputs writing into a
+	 * {@link ByteBuffer} keep the array of the buffer until closed.
+	 */
+	private void releaseBuffer()
+	{
+		if(buffer == null || (target != null && ! closed))
+		{
+			return;
+		}
+
+		if(recycler != null)
+		{
+			recycler.release(buffer);
+		}
+
+		buffer = null;
+		index = 0;
+		limit = 0;
 	}
 
 	@Override
@@ -120,6 +302,7 @@ public class CBOROutput
 	{
 		consumeWrite();
 
+		ensure(1);
 		buffer[index++] = (byte) ((CborConstants.MAJOR_TYPE_SIMPLE << 5) | CborConstants.SIMPLE_TYPE_NULL);
 	}
 
@@ -165,10 +348,20 @@ public class CBOROutput
 	{
 		consumeWrite();
 
-		// TODO: There is probably a point where a huge string is better written streaming
-
 		int length = value.length();
+		if(length > CHUNKED_STRING_THRESHOLD)
+		{
+			writeStringChunked(value);
+			return;
+		}
+
 		int byteLength = calculateUTF8Length(value);
+		if(target != null)
+		{
+			// Fail before writing anything if the string does not fit
+			ensure(headerLength(byteLength) + byteLength);
+		}
+
 		writeMajorTypeAndLength(CborConstants.MAJOR_TYPE_TEXT_STRING, byteLength);
 
 		if(length == byteLength)
@@ -185,42 +378,212 @@ public class CBOROutput
 		throws IOException
 	{
 		int length = s.length();
-		ensure(length);
-		for(int i=0; i<length; i++)
+		int charIdx = 0;
+		while(charIdx < length)
 		{
-			buffer[index++] = (byte) s.charAt(i);
+			ensure(1);
+
+			int end = Math.min(length, charIdx + (limit - index));
+			copyASCII(s, charIdx, end);
+			charIdx = end;
 		}
 	}
 
+	/**
+	 * Copy a run of chars that are known to be ASCII into the buffer at the
+	 * current index. The caller must make sure that the buffer has room.
+	 *
+	 * @param s
+	 * @param start
+	 * @param end
+	 */
+	@SuppressWarnings("deprecation")
+	private void copyASCII(String s, int start, int end)
+	{
+		/*
+		 * This variant of getBytes drops the high byte of each char, which is
+		 * safe for ASCII. For compact strings it is a plain array copy.
+		 */
+		s.getBytes(start, end, buffer, index);
+		index += end - start;
+	}
+
 	private void writeStringUTF8(String value, int byteLength)
 		throws IOException
 	{
-		ensure(byteLength);
-		byte[] buffer = this.buffer;
-
 		int length = value.length();
+		if(limit - index >= byteLength)
+		{
+			// The entire string fits, encode it in a single pass
+			encodeUTF8(value, 0, length);
+			return;
+		}
 
-		int writeIdx = index;
 		int charIdx = 0;
 
-		/*
-		 * Write as many pure ASCII characters as possible. As soon as a char
-		 * that needs multi byte encoding is seen stop.
-		 */
 		while(charIdx < length)
 		{
-			char c = value.charAt(charIdx);
-			if(c >= 0x80) break;
+			ensure(4);
 
-			buffer[writeIdx++] = (byte) c;
-			charIdx++;
+			int end = Math.min(length, charIdx + (limit - index - 1) / 3);
+			charIdx = encodeUTF8(value, charIdx, end);
 		}
+	}
+
+	/**
+	 * Write a string as an indefinite length text string. The string is
+	 * encoded in a single pass with every chunk filling as much of the buffer
+	 * as possible. Chunks always end at a code point boundary so that each
+	 * one is valid UTF-8 on its own.
+	 *
+	 * @param value
+	 * @throws IOException
+	 */
+	private void writeStringChunked(String value)
+		throws IOException
+	{
+		ensure(1);
+		buffer[index++] = (byte) (CborConstants.MAJOR_TYPE_TEXT_STRING << 5 | CborConstants.AI_INDEFINITE);
+
+		int length = value.length();
+		int charIdx = 0;
+
+		while(charIdx < length)
+		{
+			int end;
+			if(target == null)
+			{
+				/*
+				 * Reserve room for a two byte length and at least one code
+				 * point, the length is filled in when the chunk has been
+				 * encoded.
+				 */
+				ensure(7);
+
+				int maxBytes = Math.min(limit - index - 3, 65535);
+				end = Math.min(length, charIdx + (maxBytes - 1) / 3);
+			}
+			else
+			{
+				// The buffer can not be flushed, fit as many chars as possible
+				end = fitUTF8(value, charIdx, Math.min(limit - index - 3, 65535));
+				if(end == charIdx)
+				{
+					throw new IOException("Buffer is full, only " + (limit - index)
+						+ " bytes remain for the rest of the string");
+				}
+			}
+
+			int headerIdx = index;
+			index += 3;
+
+			charIdx = encodeUTF8(value, charIdx, end);
+
+			int chunkLength = index - headerIdx - 3;
+			buffer[headerIdx] = (byte) (CborConstants.MAJOR_TYPE_TEXT_STRING << 5 | CborConstants.AI_TWO_BYTES);
+			buffer[headerIdx + 1] = (byte) ((chunkLength >> 8) & 0xff);
+			buffer[headerIdx + 2] = (byte) (chunkLength & 0xff);
+		}
+
+		writeBreak();
+	}
+
+	/**
+	 * Find the index of the first char that does not fit when encoding
+	 * chars as UTF-8 into the given number of bytes. Surrogate pairs are
+	 * never split.
+	 *
+	 * @param value
+	 * @param charIdx
+	 *   the index of the first char to encode
+	 * @param maxBytes
+	 *   the number of bytes available
+	 * @return
+	 *   index of the first char that does not fit
+	 */
+	private static int fitUTF8(String value, int charIdx, int maxBytes)
+	{
+		int length = value.length();
+		int bytes = 0;
+		int i = charIdx;
+		while(i < length)
+		{
+			char c = value.charAt(i);
+
+			int chars = 1;
+			int size;
+			if(c < 0x80)
+			{
+				size = 1;
+			}
+			else if(c < 0x800)
+			{
+				size = 2;
+			}
+			else if(Character.isHighSurrogate(c)
+				&& i + 1 < length
+				&& Character.isLowSurrogate(value.charAt(i + 1)))
+			{
+				size = 4;
+				chars = 2;
+			}
+			else
+			{
+				size = 3;
+			}
+
+			if(bytes + size > maxBytes)
+			{
+				break;
+			}
+
+			bytes += size;
+			i += chars;
+		}
+
+		return i;
+	}
+
+	/**
+	 * Encode chars as UTF-8 directly into the buffer at the current index.
+	 * The caller must make sure there is room for three bytes per char plus
+	 * one extra byte, as a surrogate pair that starts at the last char will
+	 * be encoded in full.
+	 *
+	 * @param value
+	 *   the string being encoded
+	 * @param charIdx
+	 *   the index of the first char to encode
+	 * @param end
+	 *   the index to stop encoding at
+	 * @return
+	 *   index of the next char to encode, may be {@code end + 1} if the
+	 *   segment ended in a surrogate pair
+	 * @throws IOException
+	 *   if the string contains an invalid surrogate pair
+	 */
+	private int encodeUTF8(String value, int charIdx, int end)
+		throws IOException
+	{
+		/*
+		 * Copy as many pure ASCII characters as possible in bulk. As soon as
+		 * a char that needs multi byte encoding is seen stop.
+		 */
+		int asciiEnd = scanASCII(value, charIdx, end);
+		if(asciiEnd > charIdx)
+		{
+			copyASCII(value, charIdx, asciiEnd);
+			charIdx = asciiEnd;
+		}
+
+		byte[] buffer = this.buffer;
+		int writeIdx = index;
 
 		/*
 		 * Write the remaining characters that may be a mix of multi-byte and
 		 * non multi-byte chars.
 		 */
-		while(charIdx < length)
+		while(charIdx < end)
 		{
 			char c = value.charAt(charIdx++);
 
@@ -241,9 +604,14 @@ public class CBOROutput
 			}
 			else
 			{
-				char c2 = value.charAt(charIdx++);
+				if(! Character.isHighSurrogate(c)
+					|| charIdx == value.length()
+					|| ! Character.isLowSurrogate(value.charAt(charIdx)))
+				{
+					throw new IOException("String contains an invalid surrogate pair at index " + (charIdx - 1));
+				}
 
-				// TODO: This needs quick sanity check if the one in calculateUTF8Length is not enough
+				char c2 = value.charAt(charIdx++);
 
 				int codePoint = Character.toCodePoint(c, c2);
 				buffer[writeIdx++] = (byte) ((0xf0) | (codePoint >>> 18));
@@ -254,6 +622,39 @@ public class CBOROutput
 		}
 
 		index = writeIdx;
+		return charIdx;
+	}
+
+	/**
+	 * Find the end of the run of ASCII chars starting at the given index.
+	 * Chars are checked in blocks of eight by combining them, so the common
+	 * case of a pure ASCII string only branches once per block.
+	 *
+	 * @param value
+	 * @param start
+	 * @param end
+	 * @return
+	 *   index of the first non-ASCII char, or {@code end}
+	 */
+	private static int scanASCII(String value, int start, int end)
+	{
+		int i = start;
+		for(int blockEnd=end - 7; i<blockEnd; i+=8)
+		{
+			int combined = value.charAt(i) | value.charAt(i + 1)
+				| value.charAt(i + 2) | value.charAt(i + 3)
+				| value.charAt(i + 4) | value.charAt(i + 5)
+				| value.charAt(i + 6) | value.charAt(i + 7);
+
+			if(combined >= 0x80) break;
+		}
+
+		while(i < end && value.charAt(i) < 0x80)
+		{
+			i++;
+		}
+
+		return i;
 	}
 
 	private int calculateUTF8Length(String value)
@@ -262,11 +663,7 @@ public class CBOROutput
 		int length = value.length();
 		int result = length;
 
-		int i =0;
-		while(i < length && value.charAt(i) < 0x80)
-		{
-			i++;
-		}
+		int i = scanASCII(value, 0, length);
 
 		while(i < length)
 		{
@@ -390,7 +787,7 @@ public class CBOROutput
 	{
 		consumeWrite();
 
-		increaseLevel(keyValuePairs * 2);
+		increaseLevel(keyValuePairs * 2L);
 		writeMajorTypeAndLength(CborConstants.MAJOR_TYPE_MAP, keyValuePairs);
 	}
 
@@ -417,6 +814,31 @@ public class CBOROutput
 		writeMajorTypeAndLength(CborConstants.MAJOR_TYPE_TAGGED, tag);
 	}
 
+	/**
+	 * Get the number of bytes used by the header of an item with the given
+	 * length.
+	 *
+	 * @param length
+	 * @return
+	 */
+	private static int headerLength(int length)
+	{
+		if(length < 24)
+		{
+			return 1;
+		}
+		else if(length < 256)
+		{
+			return 2;
+		}
+		else if(length < 65536)
+		{
+			return 3;
+		}
+
+		return 5;
+	}
+
 	private void writeMajorTypeAndLength(int majorType, int length)
 		throws IOException
 	{
@@ -491,7 +913,7 @@ public class CBOROutput
 	private void consumeWrite()
 		throws IOException
 	{
-		int remaining = remainingWrites[level];
+		long remaining = nesting.getCount();
 		if(remaining == -1) return;
 
 		if(remaining == 0)
@@ -499,7 +921,7 @@ public class CBOROutput
 			throw new IOException("Tried writing an item, but would overflow fixed length of list or object");
 		}
 
-		remainingWrites[level] = remaining - 1;
+		nesting.decrementCount();
 	}
 
 	/**
@@ -509,16 +931,10 @@ public class CBOROutput
 	 *   the number of items a list or object are expected to write, or {@code -1}
 	 *   for indeterminate length
 	 */
-	private void increaseLevel(int expectedLength)
+	private void increaseLevel(long expectedLength)
+		throws IOException
 	{
-		level++;
-		if(remainingWrites.length == level)
-		{
-			// Grow lists when needed
-			remainingWrites = Arrays.copyOf(remainingWrites, remainingWrites.length * 2);
-		}
-
-		remainingWrites[level] = expectedLength;
+		nesting.push(false, expectedLength);
 	}
 
 	/**
@@ -530,13 +946,13 @@ public class CBOROutput
 	private boolean decreaseLevel()
 		throws IOException
 	{
-		int remaining = remainingWrites[level];
+		long remaining = nesting.getCount();
 		if(remaining > 0)
 		{
 			throw new IOException("Not all items of the list or object have been written, remaining writes: " + remaining);
 		}
 
-		level--;
+		nesting.pop();
 		return remaining == -1;
 	}
 
@@ -553,31 +969,61 @@ public class CBOROutput
 		buffer[index++] = (byte) (CborConstants.MAJOR_TYPE_SIMPLE << 5 | CborConstants.SIMPLE_TYPE_BREAK);
 	}
 
+	/**
+	 * Make sure that the buffer has room for the given number of bytes,
+	 * flushing it if needed. The buffer never grows beyond the size given to
+	 * it by the recycler, except for single writes that are larger than it.
+	 *
+	 * @param numberOfBytes
+	 * @throws IOException
+	 */
 	private void ensure(int numberOfBytes)
 		throws IOException
 	{
-		if(buffer.length > index + numberOfBytes)
+		if(limit - index >= numberOfBytes)
 		{
 			return;
 		}
 
-		// TODO: Do we want to automatically flush?
-		if(index > 512)
+		if(buffer == null)
+		{
+			if(closed || out == null)
+			{
+				throw new IOException("Output has been closed");
+			}
+
+			// The buffer was given back when the output was flushed
+			buffer = recycler.acquire();
+			limit = buffer.length;
+		}
+		else if(target != null)
+		{
+			throw new IOException("Buffer is full, needed " + numberOfBytes
+				+ " bytes but only " + (limit - index) + " bytes remain");
+		}
+		else
 		{
 			flushBuffer();
 		}
 
-		int length = buffer.length;
-		if(length < numberOfBytes)
+		if(buffer.length < numberOfBytes)
 		{
-			length = numberOfBytes;
+			recycler.release(buffer);
+			buffer = new byte[numberOfBytes];
+			limit = numberOfBytes;
 		}
-		buffer = Arrays.copyOf(buffer, buffer.length + length);
 	}
 
 	private void flushBuffer()
 		throws IOException
 	{
+		if(target != null)
+		{
+			// Data is already in place, move the position of the target
+			target.position(index - target.arrayOffset());
+			return;
+		}
+
 		if(index == 0) return;
 
 		out.write(buffer, 0, index);
@@ -587,6 +1033,23 @@ public class CBOROutput
 	private void write(byte[] data, int offset, int length)
 		throws IOException
 	{
+		if(buffer == null)
+		{
+			ensure(1);
+		}
+
+		if(limit - index < length && target == null)
+		{
+			flushBuffer();
+
+			if(length >= buffer.length)
+			{
+				// Large writes skip the buffer
+				out.write(data, offset, length);
+				return;
+			}
+		}
+
 		ensure(length);
 		System.arraycopy(data, offset, buffer, index, length);
 		index += length;
@@ -0,0 +1,421 @@
+package se.l4.exobytes.internal.cbor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import se.l4.exobytes.streaming.NonBlockingInput;
+import se.l4.exobytes.streaming.Token;
+
+/**
+ * {@link NonBlockingInput} for CBOR. Data that is fed is appended to the
+ * buffer of {@link CBORInput} and tokens are only decoded once all of their
+ * bytes are available, so the regular decoding in {@link CBORInput} never
+ * runs out of data in the middle of an item.
+ */
+public class NonBlockingCBORInput
+	extends CBORInput
+	implements NonBlockingInput
+{
+	private static final int INITIAL_CAPACITY = 4096;
+
+	private boolean endOfInput;
+
+	/**
+	 * Position in {@link #buffer} that the current scan for a complete value
+	 * started at, {@code -1} if no scan is active.
+	 */
+	private int scanStart;
+	/**
+	 * Position of the next item the scan will look at.
+	 */
+	private int scanPosition;
+	/**
+	 * Remaining items of the lists and maps the scan is currently in, with
+	 * {@code -1} for indefinite lengths.
+	 */
+	private long[] scanRemaining;
+	private int scanDepth;
+	private boolean scanComplete;
+
+	public NonBlockingCBORInput(int maxDepth)
+	{
+		super(maxDepth);
+
+		scanStart = -1;
+		scanRemaining = new long[8];
+	}
+
+	@Override
+	public void feed(ByteBuffer data)
+		throws IOException
+	{
+		if(endOfInput)
+		{
+			throw new IOException("Can not feed data after end of input");
+		}
+
+		int length = data.remaining();
+		if(buffer.length - limit < length)
+		{
+			makeRoom(length);
+		}
+
+		data.get(buffer, limit, length);
+		limit += length;
+	}
+
+	/**
+	 * Make room for the given number of bytes after {@link #limit}, first by
+	 * discarding consumed data and then by growing the buffer.
+	 *
+	 * @param length
+	 */
+	private void makeRoom(int length)
+	{
+		int shift = position;
+		if(shift > 0)
+		{
+			System.arraycopy(buffer, shift, buffer, 0, limit - shift);
+
+			position = 0;
+			limit -= shift;
+			scanStart -= shift;
+			scanPosition -= shift;
+		}
+
+		if(buffer.length - limit < length)
+		{
+			int required = limit + length;
+			if(required < 0)
+			{
+				throw new OutOfMemoryError("Required buffer size too large");
+			}
+
+			buffer = Arrays.copyOf(buffer, Math.max(required, Math.max(INITIAL_CAPACITY, buffer.length * 2)));
+		}
+	}
+
+	@Override
+	public void endOfInput()
+	{
+		endOfInput = true;
+	}
+
+	@Override
+	protected Token peek0()
+		throws IOException
+	{
+		if(! isTokenAvailable())
+		{
+			return Token.NEED_MORE_INPUT;
+		}
+
+		return super.peek0();
+	}
+
+	@Override
+	protected Token next0()
+		throws IOException
+	{
+		if(! isTokenAvailable())
+		{
+			return Token.NEED_MORE_INPUT;
+		}
+
+		return super.next0();
+	}
+
+	/**
+	 * Check if all the bytes of the next token have been fed. For lists and
+	 * maps this is only their header, for other items it is the entire item.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	private boolean isTokenAvailable()
+		throws IOException
+	{
+		if(endOfInput || nesting.getCount() == 0)
+		{
+			return true;
+		}
+
+		// Tags may have been fed after the previous token was read
+		readType();
+
+		if(position == limit)
+		{
+			return false;
+		}
+
+		int major = (buffer[position] & 0xff) >> 5;
+		if(major == CborConstants.MAJOR_TYPE_ARRAY || major == CborConstants.MAJOR_TYPE_MAP)
+		{
+			return headerLength(position) > 0;
+		}
+
+		return itemEnd(position) >= 0;
+	}
+
+	@Override
+	public boolean isValueAvailable()
+		throws IOException
+	{
+		if(scanStart != position)
+		{
+			// The input has moved since the last scan, start over
+			scanStart = position;
+			scanPosition = position;
+			scanDepth = 0;
+			scanComplete = false;
+		}
+
+		if(! scanComplete)
+		{
+			scanComplete = scan();
+		}
+
+		if(endOfInput && ! scanComplete)
+		{
+			if(position < limit)
+			{
+				throw new EOFException("Input ended in the middle of a value");
+			}
+
+			return true;
+		}
+
+		return scanComplete;
+	}
+
+	/**
+	 * Continue scanning for the end of the value that starts at
+	 * {@link #scanStart}. The scan stops at the first item that has not been
+	 * completely fed and picks up from there when called again.
+	 *
+	 * @return
+	 *   if the end of the value has been reached
+	 */
+	private boolean scan()
+	{
+		while(true)
+		{
+			int p = scanPosition;
+			if(p == limit)
+			{
+				return false;
+			}
+
+			int initialByte = buffer[p] & 0xff;
+			int major = initialByte >> 5;
+
+			if(major == CborConstants.MAJOR_TYPE_TAGGED)
+			{
+				// Tags are skipped one byte at a time, same as when reading
+				scanPosition = p + 1;
+				continue;
+			}
+
+			if(initialByte == 0xff)
+			{
+				if(scanDepth == 0 || scanRemaining[scanDepth - 1] != -1)
+				{
+					// Unexpected break, let the regular decoding report it
+					return true;
+				}
+
+				scanPosition = p + 1;
+				scanDepth--;
+			}
+			else if(major == CborConstants.MAJOR_TYPE_ARRAY || major == CborConstants.MAJOR_TYPE_MAP)
+			{
+				int header = headerLength(p);
+				if(header < 0)
+				{
+					return false;
+				}
+
+				scanPosition = p + header;
+
+				long count;
+				if((initialByte & 31) == CborConstants.AI_INDEFINITE)
+				{
+					count = -1;
+				}
+				else
+				{
+					count = argument(p);
+					if(count < 0 || count > Integer.MAX_VALUE)
+					{
+						// Invalid length, let the regular decoding report it
+						return true;
+					}
+
+					if(major == CborConstants.MAJOR_TYPE_MAP)
+					{
+						count *= 2;
+					}
+				}
+
+				if(count != 0)
+				{
+					if(scanDepth == scanRemaining.length)
+					{
+						scanRemaining = Arrays.copyOf(scanRemaining, scanDepth * 2);
+					}
+
+					scanRemaining[scanDepth++] = count;
+					continue;
+				}
+			}
+			else
+			{
+				long end = itemEnd(p);
+				if(end < 0)
+				{
+					return false;
+				}
+
+				scanPosition = (int) end;
+			}
+
+			// An item has been completed, count it against the open lists and maps
+			while(true)
+			{
+				if(scanDepth == 0)
+				{
+					return true;
+				}
+
+				long remaining = scanRemaining[scanDepth - 1];
+				if(remaining == -1)
+				{
+					break;
+				}
+				else if(remaining > 1)
+				{
+					scanRemaining[scanDepth - 1] = remaining - 1;
+					break;
+				}
+
+				scanDepth--;
+			}
+		}
+	}
+
+	/**
+	 * Get the length of the header of the item at the given position.
+	 *
+	 * @param p
+	 * @return
+	 *   length of the header or {@code -1} if it has not been completely fed
+	 */
+	private int headerLength(int p)
+	{
+		if(p >= limit)
+		{
+			return -1;
+		}
+
+		int additional = buffer[p] & 31;
+		int length = additional < CborConstants.AI_ONE_BYTE || additional > CborConstants.AI_EIGHT_BYTES
+			? 1
+			: 1 + (1 << (additional - CborConstants.AI_ONE_BYTE));
+
+		return limit - p >= length ? length : -1;
+	}
+
+	/**
+	 * Get the argument encoded in the header at the given position. The
+	 * header must be available.
+	 *
+	 * @param p
+	 * @return
+	 */
+	private long argument(int p)
+	{
+		int additional = buffer[p] & 31;
+		if(additional < CborConstants.AI_ONE_BYTE || additional > CborConstants.AI_EIGHT_BYTES)
+		{
+			return additional;
+		}
+
+		long result = 0;
+		for(int i=1, n=1 << (additional - CborConstants.AI_ONE_BYTE); i<=n; i++)
+		{
+			result = (result << 8) | (buffer[p + i] & 0xff);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get the position after the item at the given position, including the
+	 * data of strings. Lists and maps are not supported.
+	 *
+	 * @param p
+	 * @return
+	 *   position after the item or {@code -1} if it has not been completely
+	 *   fed
+	 */
+	private long itemEnd(int p)
+	{
+		int header = headerLength(p);
+		if(header < 0)
+		{
+			return -1;
+		}
+
+		int initialByte = buffer[p] & 0xff;
+		int major = initialByte >> 5;
+		if(major != CborConstants.MAJOR_TYPE_BYTE_STRING && major != CborConstants.MAJOR_TYPE_TEXT_STRING)
+		{
+			return p + header;
+		}
+
+		if((initialByte & 31) != CborConstants.AI_INDEFINITE)
+		{
+			long end = p + header + argument(p);
+			if(end < 0)
+			{
+				// Invalid length, let the regular decoding report it
+				return p + header;
+			}
+
+			return end <= limit ? end : -1;
+		}
+
+		// Indefinite length, find the break after the chunks
+		long q = p + 1;
+		while(true)
+		{
+			if(q >= limit)
+			{
+				return -1;
+			}
+
+			int chunk = (int) q;
+			if((buffer[chunk] & 0xff) == 0xff)
+			{
+				return q + 1;
+			}
+
+			int chunkHeader = headerLength(chunk);
+			if(chunkHeader < 0)
+			{
+				return -1;
+			}
+
+			long chunkLength = argument(chunk);
+			if(chunkLength < 0)
+			{
+				// Invalid length, let the regular decoding report it
+				return chunk + chunkHeader;
+			}
+
+			q = chunk + chunkHeader + chunkLength;
+		}
+	}
+}
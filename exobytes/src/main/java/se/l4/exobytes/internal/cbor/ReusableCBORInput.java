@@ -0,0 +1,34 @@
+package se.l4.exobytes.internal.cbor;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import se.l4.exobytes.streaming.ReusableStreamingInput;
+
+/**
+ * {@link CBORInput} that can be reset to read from a new source, created via
+ * {@link se.l4.exobytes.streaming.StreamingFormat#newReader()}.
+ */
+public class ReusableCBORInput
+	extends CBORInput
+	implements ReusableStreamingInput
+{
+	public ReusableCBORInput(int maxDepth)
+	{
+		super(maxDepth);
+	}
+
+	@Override
+	public void reset(InputStream in)
+		throws IOException
+	{
+		super.reset(in);
+	}
+
+	@Override
+	public void reset(byte[] data, int offset, int length)
+		throws IOException
+	{
+		super.reset(data, offset, length);
+	}
+}
@@ -0,0 +1,121 @@
+package se.l4.exobytes.internal.reflection;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Adapts constructor handles so that they can be invoked with arguments
+ * held in arrays.
+ */
+final class ConstructorHandles
+{
+	private static final MethodHandle OBJECT_ELEMENT = MethodHandles.arrayElementGetter(Object[].class);
+	private static final MethodHandle LONG_ELEMENT = MethodHandles.arrayElementGetter(long[].class);
+
+	private static final MethodHandle INT_BITS_TO_FLOAT;
+	private static final MethodHandle LONG_BITS_TO_DOUBLE;
+
+	static
+	{
+		try
+		{
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			INT_BITS_TO_FLOAT = lookup.findStatic(Float.class, "intBitsToFloat", MethodType.methodType(float.class, int.class));
+			LONG_BITS_TO_DOUBLE = lookup.findStatic(Double.class, "longBitsToDouble", MethodType.methodType(double.class, long.class));
+		}
+		catch(ReflectiveOperationException e)
+		{
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private ConstructorHandles()
+	{
+	}
+
+	/**
+	 * Adapt a constructor into a handle of type
+	 * {@code (Object[], long[])Object}. If {@code primitive[i]} is set
+	 * argument {@code i} is read from the {@code long[]} as raw bits in the
+	 * format of
+	 * {@link se.l4.exobytes.internal.reflection.properties.PrimitiveProperty},
+	 * where the array only holds the primitive arguments in order. Other
+	 * arguments are read from index {@code i} of the {@code Object[]}.
+	 *
+	 * @param constructor
+	 * @param primitive
+	 * @return
+	 */
+	public static MethodHandle bind(MethodHandle constructor, boolean[] primitive)
+	{
+		MethodType type = constructor.type();
+		int count = type.parameterCount();
+
+		MethodHandle[] filters = new MethodHandle[count];
+		int[] reorder = new int[count];
+		int primitiveIndex = 0;
+		for(int i=0; i<count; i++)
+		{
+			Class<?> parameterType = type.parameterType(i);
+			if(primitive[i])
+			{
+				filters[i] = primitiveElement(parameterType, primitiveIndex++);
+				reorder[i] = 1;
+			}
+			else
+			{
+				filters[i] = MethodHandles.insertArguments(OBJECT_ELEMENT, 1, i)
+					.asType(MethodType.methodType(parameterType, Object[].class));
+				reorder[i] = 0;
+			}
+		}
+
+		MethodHandle filtered = MethodHandles.filterArguments(
+			constructor.asType(type.changeReturnType(Object.class)),
+			0,
+			filters
+		);
+
+		return MethodHandles.permuteArguments(
+			filtered,
+			MethodType.methodType(Object.class, Object[].class, long[].class),
+			reorder
+		);
+	}
+
+	/**
+	 * Adapt a constructor into a handle of type {@code (Object[])Object}
+	 * where primitive arguments are unboxed.
+	 *
+	 * @param constructor
+	 * @return
+	 */
+	public static MethodHandle spread(MethodHandle constructor)
+	{
+		int count = constructor.type().parameterCount();
+		return constructor.asType(MethodType.genericMethodType(count))
+			.asSpreader(Object[].class, count);
+	}
+
+	private static MethodHandle primitiveElement(Class<?> type, int index)
+	{
+		MethodHandle element = MethodHandles.insertArguments(LONG_ELEMENT, 1, index);
+		if(type == long.class)
+		{
+			return element;
+		}
+		else if(type == double.class)
+		{
+			return MethodHandles.filterReturnValue(element, LONG_BITS_TO_DOUBLE);
+		}
+		else if(type == float.class)
+		{
+			MethodHandle bits = MethodHandles.explicitCastArguments(element, MethodType.methodType(int.class, long[].class));
+			return MethodHandles.filterReturnValue(bits, INT_BITS_TO_FLOAT);
+		}
+
+		// Narrowing, booleans are converted by testing the lowest bit
+		return MethodHandles.explicitCastArguments(element, MethodType.methodType(type, long[].class));
+	}
+}
@@ -1,12 +1,13 @@
 package se.l4.exobytes.internal.reflection;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
 
@@ -16,6 +17,7 @@ import se.l4.exobytes.Expose;
 import se.l4.exobytes.Factory;
 import se.l4.exobytes.SerializationException;
 import se.l4.exobytes.Serializers;
+import se.l4.exobytes.internal.reflection.properties.PrimitiveProperty;
 import se.l4.exobytes.internal.reflection.properties.SerializableProperty;
 import se.l4.ylem.types.instances.InstanceException;
 import se.l4.ylem.types.reflect.ConstructorRef;
@@ -29,6 +31,15 @@ import se.l4.ylem.types.reflect.Types;
 public class FactoryDefinition<T>
 {
 	private final Constructor<?> raw;
+	/**
+	 * Handle of the constructor taking {@code (Object[], long[])}, see
+	 * {@link ConstructorHandles#bind(MethodHandle, boolean[])}.
+	 */
+	private final MethodHandle handle;
+	/**
+	 * Handle of the constructor taking {@code Object[]}.
+	 */
+	private final MethodHandle spreader;
 	final Argument[] arguments;
 
 	private final boolean hasSerializedFields;
@@ -36,12 +47,16 @@ public class FactoryDefinition<T>
 
 	public FactoryDefinition(
 		Constructor<?> raw,
+		MethodHandle handle,
+		MethodHandle spreader,
 		Argument[] arguments,
 		boolean hasSerializedFields,
 		boolean isInjectable
 	)
 	{
 		this.raw = raw;
+		this.handle = handle;
+		this.spreader = spreader;
 		this.arguments = arguments;
 		this.hasSerializedFields = hasSerializedFields;
 		this.isInjectable = isInjectable;
@@ -52,7 +67,8 @@ public class FactoryDefinition<T>
 		TypeRef parentType,
 		MapIterable<String, SerializableProperty> fields,
 		MapIterable<String, SerializableProperty> nonRenamed,
-		ConstructorRef constructor
+		ConstructorRef constructor,
+		MethodHandles.Lookup lookup
 	)
 	{
 		List<Argument> args = new ArrayList<>();
@@ -107,21 +123,33 @@ public class FactoryDefinition<T>
 			return null;
 		}
 
+		i = 0;
 		for(ParameterRef parameter : constructor.getParameters())
 		{
 			Optional<Expose> expose = parameter.getAnnotation(Expose.class);
+			Class<?> parameterType = parameter.getType().getErasedType();
 			if(expose.isPresent())
 			{
 				// Try to serialize
+				SerializableProperty def;
 				if("".equals(expose.get().value().trim()))
 				{
-					throw new SerializationException("The annotation @" +
-						Expose.class.getSimpleName() +
-						" when used in a constructor must have a name (for " +
-						parentType.getErasedType() + ")");
+					if(i >= names.length || names[i] == null)
+					{
+						throw new SerializationException("The annotation @" +
+							Expose.class.getSimpleName() +
+							" when used in a constructor must have a name (for " +
+							parentType.getErasedType() + ")");
+					}
+
+					// Name is known, such as for the canonical constructor of a record
+					def = nonRenamed.get(names[i]);
+				}
+				else
+				{
+					def = fields.get(expose.get().value());
 				}
 
-				SerializableProperty def = fields.get(expose.get().value());
 				if(def == null)
 				{
 					throw new SerializationException(expose + " was used on a " +
@@ -138,7 +166,7 @@ public class FactoryDefinition<T>
 						" (for " + parentType.getErasedType() + ")");
 				}
 
-				args.add(new SerializedArgument(def.getType(), expose.get().value()));
+				args.add(new SerializedArgument(def.getType(), def.getName(), isPrimitive(def, parameterType)));
 			}
 			else
 			{
@@ -148,7 +176,8 @@ public class FactoryDefinition<T>
 					SerializableProperty def = nonRenamed.get(name);
 					if(def != null)
 					{
-						args.add(new SerializedArgument(def.getType(), def.getName()));
+						args.add(new SerializedArgument(def.getType(), def.getName(), isPrimitive(def, parameterType)));
+						i++;
 						continue;
 					}
 				}
@@ -162,22 +191,65 @@ public class FactoryDefinition<T>
 					throw new SerializationException("Error in constructor for " + constructor.toDescription() + " while processing argument " + i + "; " + e.getMessage(), e);
 				}
 			}
+
+			i++;
 		}
 
 		Argument[] arguments = args.toArray(new Argument[args.size()]);
+
+		MethodHandle handle = null;
+		MethodHandle spreader = null;
+		if(lookup != null)
+		{
+			try
+			{
+				MethodHandle raw = lookup.unreflectConstructor(constructor.getConstructor());
+				handle = ConstructorHandles.bind(raw, primitiveArguments(arguments));
+				spreader = ConstructorHandles.spread(raw);
+			}
+			catch(IllegalAccessException e)
+			{
+				// Fall back to reflection
+			}
+		}
+
 		return new FactoryDefinition<>(
 			constructor.getConstructor(),
+			handle,
+			spreader,
 			arguments,
 			hasSerializedFields,
 			isInjectable
 		);
 	}
 
+	/**
+	 * Get if an argument can be passed as a primitive without boxing it.
+	 */
+	private static boolean isPrimitive(SerializableProperty property, Class<?> parameterType)
+	{
+		return parameterType.isPrimitive() && property instanceof PrimitiveProperty;
+	}
+
+	private static boolean[] primitiveArguments(Argument[] arguments)
+	{
+		boolean[] result = new boolean[arguments.length];
+		for(int i=0; i<arguments.length; i++)
+		{
+			result[i] = arguments[i] instanceof SerializedArgument
+				&& ((SerializedArgument) arguments[i]).primitive;
+		}
+		return result;
+	}
+
 	private static String[] findNames(ConstructorRef c)
 	{
 		String[] names = findNamesViaConstructorProperties(c);
 		if(names != null) return names;
 
+		names = Records.findCanonicalNames(c.getConstructor());
+		if(names != null) return names;
+
 		return findNamesViaReflection(c);
 	}
 
@@ -250,49 +322,31 @@ public class FactoryDefinition<T>
 	}
 
 	/**
-	 * Get a score for this factory based on the given data. The higher the
-	 * score the more arguments were found.
+	 * Create a new instance using a plain arguments array. Injected
+	 * arguments are filled in by this method.
 	 *
-	 * @param data
+	 * @param args
 	 * @return
 	 */
-	public int getScore(Map<String, Object> data)
+	@SuppressWarnings("unchecked")
+	public T create(Object[] args)
 	{
-		if(! hasSerializedFields)
-		{
-			return 0;
-		}
-
-		int score = 0;
+		injectArguments(args);
 
-		for(Argument arg : arguments)
+		if(spreader != null)
 		{
-			if(arg instanceof FactoryDefinition.SerializedArgument)
+			try
 			{
-				if(data.containsKey(((SerializedArgument) arg).name))
-				{
-					score++;
-				}
+				return (T) spreader.invokeExact(args);
+			}
+			catch(SerializationException | Error e)
+			{
+				throw e;
+			}
+			catch(Throwable t)
+			{
+				throw new SerializationException("Unable to create; " + t.getMessage(), t);
 			}
-		}
-
-		return score;
-	}
-
-	/**
-	 * Create a new instance using the given deserialized data. The data
-	 * is only used if this factory has any serialized fields.
-	 *
-	 * @param data
-	 * @return
-	 */
-	@SuppressWarnings("unchecked")
-	public T create(Map<String, Object> data)
-	{
-		Object[] args = new Object[arguments.length];
-		for(int i=0, n=args.length; i<n; i++)
-		{
-			args[i] = arguments[i].getValue(data);
 		}
 
 		try
@@ -318,47 +372,58 @@ public class FactoryDefinition<T>
 	}
 
 	/**
-	 * Create a new instance using a plain arguments array.
+	 * Get if this factory can be invoked via
+	 * {@link #create(Object[], long[])}.
 	 *
-	 * @param args
+	 * @return
+	 */
+	public boolean hasHandle()
+	{
+		return handle != null;
+	}
+
+	/**
+	 * Create a new instance passing primitive arguments without boxing
+	 * them. Primitive arguments are read in order from {@code primitives}
+	 * as raw bits and all other arguments from their position in
+	 * {@code objects}. Injected arguments are filled in by this method.
+	 *
+	 * @param objects
+	 * @param primitives
 	 * @return
 	 */
 	@SuppressWarnings("unchecked")
-	public T create(Object[] args)
+	public T create(Object[] objects, long[] primitives)
 	{
-		for(int i=0, n=args.length; i<n; i++)
-		{
-			if(arguments[i] instanceof FactoryDefinition.InjectedArgument)
-			{
-				args[i] = arguments[i].getValue(null);
-			}
-		}
+		injectArguments(objects);
 
 		try
 		{
-			return (T) raw.newInstance(args);
-		}
-		catch(IllegalArgumentException e)
-		{
-			throw new SerializationException("Unable to create; " + e.getMessage(), e);
+			return (T) handle.invokeExact(objects, primitives);
 		}
-		catch(InstantiationException e)
+		catch(SerializationException | Error e)
 		{
-			throw new SerializationException("Unable to create; " + e.getMessage(), e);
+			throw e;
 		}
-		catch(IllegalAccessException e)
+		catch(Throwable t)
 		{
-			throw new SerializationException("Unable to create; " + e.getMessage(), e);
+			throw new SerializationException("Unable to create; " + t.getMessage(), t);
 		}
-		catch(InvocationTargetException e)
+	}
+
+	private void injectArguments(Object[] args)
+	{
+		for(int i=0, n=arguments.length; i<n; i++)
 		{
-			throw new SerializationException("Unable to create; " + e.getCause().getMessage(), e.getCause());
+			if(arguments[i] instanceof FactoryDefinition.InjectedArgument)
+			{
+				args[i] = ((InjectedArgument) arguments[i]).getValue();
+			}
 		}
 	}
 
 	interface Argument
 	{
-		Object getValue(Map<String, Object> data);
 	}
 
 	static class SerializedArgument
@@ -366,23 +431,13 @@ public class FactoryDefinition<T>
 	{
 		final Class<?> type;
 		final String name;
+		final boolean primitive;
 
-		public SerializedArgument(Class<?> type, String name)
+		public SerializedArgument(Class<?> type, String name, boolean primitive)
 		{
 			this.type = type;
 			this.name = name;
-		}
-
-		@Override
-		public Object getValue(Map<String, Object> data)
-		{
-			Object value = data.get(name);
-			if(value == null && type.isPrimitive())
-			{
-				return Types.defaultValue(type);
-			}
-
-			return value;
+			this.primitive = primitive;
 		}
 	}
 
@@ -396,8 +451,7 @@ public class FactoryDefinition<T>
 			supplier = collection.getInstanceFactory().supplier(type, annotations);
 		}
 
-		@Override
-		public Object getValue(Map<String, Object> data)
+		public Object getValue()
 		{
 			try
 			{
@@ -0,0 +1,113 @@
+package se.l4.exobytes.internal.reflection;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Support for records. Records were added after the Java version this
+ * library targets, so they are detected reflectively.
+ */
+public final class Records
+{
+	private static final Method IS_RECORD;
+	private static final Method GET_RECORD_COMPONENTS;
+	private static final Method GET_NAME;
+	private static final Method GET_TYPE;
+
+	static
+	{
+		Method isRecord = null;
+		Method getRecordComponents = null;
+		Method getName = null;
+		Method getType = null;
+
+		try
+		{
+			isRecord = Class.class.getMethod("isRecord");
+			getRecordComponents = Class.class.getMethod("getRecordComponents");
+
+			Class<?> component = getRecordComponents.getReturnType().getComponentType();
+			getName = component.getMethod("getName");
+			getType = component.getMethod("getType");
+		}
+		catch(NoSuchMethodException e)
+		{
+			// Records are not supported by this JVM
+			isRecord = null;
+		}
+
+		IS_RECORD = isRecord;
+		GET_RECORD_COMPONENTS = getRecordComponents;
+		GET_NAME = getName;
+		GET_TYPE = getType;
+	}
+
+	private Records()
+	{
+	}
+
+	/**
+	 * Get if the given type is a record.
+	 *
+	 * @param type
+	 * @return
+	 */
+	public static boolean isRecord(Class<?> type)
+	{
+		if(IS_RECORD == null)
+		{
+			return false;
+		}
+
+		try
+		{
+			return (Boolean) IS_RECORD.invoke(type);
+		}
+		catch(ReflectiveOperationException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Get the names of the parameters of a constructor if it is the
+	 * canonical constructor of a record.
+	 *
+	 * @param constructor
+	 * @return
+	 *   names of the record components, or {@code null} if the constructor
+	 *   is not the canonical constructor of a record
+	 */
+	public static String[] findCanonicalNames(Constructor<?> constructor)
+	{
+		Class<?> type = constructor.getDeclaringClass();
+		if(! isRecord(type))
+		{
+			return null;
+		}
+
+		try
+		{
+			Object[] components = (Object[]) GET_RECORD_COMPONENTS.invoke(type);
+			String[] names = new String[components.length];
+			Class<?>[] types = new Class<?>[components.length];
+			for(int i=0; i<components.length; i++)
+			{
+				names[i] = (String) GET_NAME.invoke(components[i]);
+				types[i] = (Class<?>) GET_TYPE.invoke(components[i]);
+			}
+
+			if(! Arrays.equals(types, constructor.getParameterTypes()))
+			{
+				return null;
+			}
+
+			return names;
+		}
+		catch(ReflectiveOperationException e)
+		{
+			return null;
+		}
+	}
+}
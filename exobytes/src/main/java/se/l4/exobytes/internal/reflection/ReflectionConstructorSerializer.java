@@ -0,0 +1,164 @@
+package se.l4.exobytes.internal.reflection;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import se.l4.exobytes.QualifiedName;
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.internal.reflection.properties.PrimitiveProperty;
+import se.l4.exobytes.internal.reflection.properties.SerializableProperty;
+import se.l4.exobytes.streaming.KeyTable;
+import se.l4.exobytes.streaming.StreamingInput;
+import se.l4.exobytes.streaming.StreamingOutput;
+import se.l4.exobytes.streaming.Token;
+import se.l4.ylem.types.reflect.Types;
+
+/**
+ * Serializer for types created via a single constructor that takes every
+ * property, such as records and other immutable value objects. The
+ * constructor is invoked via a method handle and primitive values are
+ * passed to it without being boxed.
+ *
+ * @param <T>
+ */
+public class ReflectionConstructorSerializer<T>
+	implements Serializer<T>
+{
+	private static final long[] NO_PRIMITIVES = new long[0];
+
+	private final TypeInfo<T> type;
+	private final FactoryDefinition<T> factory;
+
+	private final KeyTable keys;
+	private final SerializableProperty[] properties;
+	/**
+	 * For every slot the property used to read it as a primitive, or
+	 * {@code null} if it is read as an object.
+	 */
+	private final PrimitiveProperty[] primitives;
+	/**
+	 * For every slot the index of the argument it is passed as, or for
+	 * primitives the index in the array of primitive arguments.
+	 */
+	private final int[] mapping;
+	/**
+	 * Default values of primitive arguments that are read as objects.
+	 */
+	private final Object[] defaults;
+	private final boolean hasDefaults;
+	private final int argumentCount;
+	private final int primitiveCount;
+
+	public ReflectionConstructorSerializer(TypeInfo<T> type, FactoryDefinition<T> factory)
+	{
+		this.type = type;
+		this.factory = factory;
+
+		keys = type.getKeyTable();
+		properties = type.getProperties();
+		argumentCount = factory.arguments.length;
+
+		primitives = new PrimitiveProperty[properties.length];
+		mapping = new int[properties.length];
+		defaults = new Object[argumentCount];
+
+		boolean hasDefaults = false;
+		int primitiveCount = 0;
+		for(int i=0; i<argumentCount; i++)
+		{
+			FactoryDefinition.Argument arg = factory.arguments[i];
+			if(! (arg instanceof FactoryDefinition.SerializedArgument))
+			{
+				continue;
+			}
+
+			FactoryDefinition.SerializedArgument serializedArg = (FactoryDefinition.SerializedArgument) arg;
+			int slot = keys.indexOf(serializedArg.name);
+
+			if(serializedArg.primitive)
+			{
+				primitives[slot] = (PrimitiveProperty) properties[slot];
+				mapping[slot] = primitiveCount++;
+			}
+			else
+			{
+				mapping[slot] = i;
+
+				if(serializedArg.type.isPrimitive())
+				{
+					defaults[i] = Types.defaultValue(serializedArg.type);
+					hasDefaults = true;
+				}
+			}
+		}
+
+		this.hasDefaults = hasDefaults;
+		this.primitiveCount = primitiveCount;
+	}
+
+	@Override
+	public Optional<QualifiedName> getName()
+	{
+		return Optional.ofNullable(type.getName());
+	}
+
+	@Override
+	public T read(StreamingInput in)
+		throws IOException
+	{
+		in.next(Token.OBJECT_START);
+
+		Object[] objects = new Object[argumentCount];
+		long[] primitives = primitiveCount == 0 ? NO_PRIMITIVES : new long[primitiveCount];
+
+		while(in.peek() != Token.OBJECT_END)
+		{
+			in.next(Token.VALUE);
+			int idx = in.readKey(keys);
+			if(idx == KeyTable.NOT_FOUND)
+			{
+				in.skipNext();
+				continue;
+			}
+
+			PrimitiveProperty primitive = this.primitives[idx];
+			if(primitive != null)
+			{
+				primitives[mapping[idx]] = primitive.readPrimitive(in);
+			}
+			else
+			{
+				objects[mapping[idx]] = properties[idx].read(in);
+			}
+		}
+
+		in.next(Token.OBJECT_END);
+
+		if(hasDefaults)
+		{
+			for(int i=0; i<argumentCount; i++)
+			{
+				if(objects[i] == null)
+				{
+					objects[i] = defaults[i];
+				}
+			}
+		}
+
+		return factory.create(objects, primitives);
+	}
+
+	@Override
+	public void write(T object, StreamingOutput stream)
+		throws IOException
+	{
+		stream.writeObjectStart();
+
+		for(SerializableProperty def : properties)
+		{
+			def.write(object, stream);
+		}
+
+		stream.writeObjectEnd();
+	}
+}
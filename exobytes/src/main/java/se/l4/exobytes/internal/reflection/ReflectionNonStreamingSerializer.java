@@ -1,13 +1,12 @@
 package se.l4.exobytes.internal.reflection;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
 
 import se.l4.exobytes.QualifiedName;
 import se.l4.exobytes.Serializer;
 import se.l4.exobytes.internal.reflection.properties.SerializableProperty;
+import se.l4.exobytes.streaming.KeyTable;
 import se.l4.exobytes.streaming.StreamingInput;
 import se.l4.exobytes.streaming.StreamingOutput;
 import se.l4.exobytes.streaming.Token;
@@ -20,13 +19,17 @@ import se.l4.exobytes.streaming.Token;
 public class ReflectionNonStreamingSerializer<T>
 	implements Serializer<T>
 {
+	private static final long[] NO_OVERFLOW = new long[0];
+
 	private final TypeInfo<T> type;
 	private final int size;
+	private final int overflowLength;
 
 	public ReflectionNonStreamingSerializer(TypeInfo<T> type)
 	{
 		this.type = type;
 		this.size = type.getProperties().length;
+		this.overflowLength = type.getOverflowLength();
 	}
 
 	@Override
@@ -41,43 +44,71 @@ public class ReflectionNonStreamingSerializer<T>
 	{
 		in.next(Token.OBJECT_START);
 
-		// First create a map with all the data
-		Map<String, Object> data = new HashMap<>(size);
+		// First read all the values into their slots
+		KeyTable keys = type.getKeyTable();
+		SerializableProperty[] properties = type.getProperties();
+
+		Object[] values = new Object[size];
+		long seen = 0;
+		long[] overflow = overflowLength == 0 ? NO_OVERFLOW : new long[overflowLength];
+
 		while(in.peek() != Token.OBJECT_END)
 		{
 			in.next(Token.VALUE);
-			String key = in.readString();
+			int idx = in.readKey(keys);
 
-			SerializableProperty property = type.getProperty(key);
-			if(property == null)
+			if(idx == KeyTable.NOT_FOUND)
 			{
 				// No such field, skip the entire value
 				in.skipNext();
 			}
 			else
 			{
-				data.put(key, property.read(in));
+				values[idx] = properties[idx].read(in);
+
+				if(idx < 64)
+				{
+					seen |= 1L << idx;
+				}
+				else
+				{
+					overflow[(idx >>> 6) - 1] |= 1L << idx;
+				}
 			}
 		}
 
 		in.next(Token.OBJECT_END);
 
 		// Create the instance
-		T instance = type.newInstance(data);
+		T instance = type.newInstance(values, seen, overflow);
 
 		// Transfer any other fields
-		for(Map.Entry<String, Object> entry : data.entrySet())
+		for(long bits = seen; bits != 0; bits &= bits - 1)
+		{
+			set(properties, instance, values, Long.numberOfTrailingZeros(bits));
+		}
+
+		for(int i=0; i<overflowLength; i++)
 		{
-			SerializableProperty property = type.getProperty(entry.getKey());
-			if(! property.isReadOnly())
+			for(long bits = overflow[i]; bits != 0; bits &= bits - 1)
 			{
-				property.set(instance, entry.getValue());
+				set(properties, instance, values, ((i + 1) << 6) + Long.numberOfTrailingZeros(bits));
 			}
 		}
 
 		return instance;
 	}
 
+	private static void set(SerializableProperty[] properties, Object instance, Object[] values, int slot)
+		throws IOException
+	{
+		SerializableProperty property = properties[slot];
+		if(! property.isReadOnly())
+		{
+			property.set(instance, values[slot]);
+		}
+	}
+
 	@Override
 	public void write(T object, StreamingOutput stream)
 		throws IOException
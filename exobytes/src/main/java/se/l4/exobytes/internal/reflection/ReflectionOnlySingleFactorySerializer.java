@@ -9,6 +9,7 @@ import java.util.TreeMap;
 import se.l4.exobytes.QualifiedName;
 import se.l4.exobytes.Serializer;
 import se.l4.exobytes.internal.reflection.properties.SerializableProperty;
+import se.l4.exobytes.streaming.KeyTable;
 import se.l4.exobytes.streaming.StreamingInput;
 import se.l4.exobytes.streaming.StreamingOutput;
 import se.l4.exobytes.streaming.Token;
@@ -26,7 +27,7 @@ public class ReflectionOnlySingleFactorySerializer<T>
 	private final FactoryDefinition<T> factory;
 	private final Object[] defaultArguments;
 
-	private final String[] names;
+	private final KeyTable keys;
 	private final SerializableProperty[] fields;
 	private final int[] mapping;
 
@@ -66,7 +67,7 @@ public class ReflectionOnlySingleFactorySerializer<T>
 
 		}
 
-		this.names = names;
+		this.keys = KeyTable.of(names);
 		this.fields = fields;
 		this.mapping = mapping;
 	}
@@ -88,10 +89,8 @@ public class ReflectionOnlySingleFactorySerializer<T>
 		while(in.peek() != Token.OBJECT_END)
 		{
 			in.next(Token.VALUE);
-			String key = in.readString();
-
-			int idx = Arrays.binarySearch(names, key);
-			if(idx >= 0)
+			int idx = in.readKey(keys);
+			if(idx != KeyTable.NOT_FOUND)
 			{
 				args[mapping[idx]] = fields[idx].read(in);
 			}
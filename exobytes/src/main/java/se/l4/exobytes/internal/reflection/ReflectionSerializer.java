@@ -1,5 +1,6 @@
 package se.l4.exobytes.internal.reflection;
 
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
 import java.util.Optional;
 
@@ -44,8 +45,21 @@ public class ReflectionSerializer<T>
 {
 	public static final ReflectionSerializer<?> INSTANCE = new ReflectionSerializer<>();
 
+	/**
+	 * Instance that generates bytecode for serializers when possible.
+	 */
+	public static final ReflectionSerializer<?> GENERATING = new ReflectionSerializer<>(true);
+
+	private final boolean generate;
+
 	public ReflectionSerializer()
 	{
+		this(false);
+	}
+
+	public ReflectionSerializer(boolean generate)
+	{
+		this.generate = generate;
 	}
 
 	@Override
@@ -58,6 +72,8 @@ public class ReflectionSerializer<T>
 		MutableMap<String, SerializableProperty> builder = Maps.mutable.empty();
 		MutableMap<String, SerializableProperty> nonRenamedFields = Maps.mutable.empty();
 
+		MethodHandles.Lookup lookup = privateLookup(type.getErasedType());
+
 		for(FieldRef field : type.getDeclaredFields())
 		{
 			if(! field.hasAnnotation(Expose.class))
@@ -91,7 +107,7 @@ public class ReflectionSerializer<T>
 
 		for(ConstructorRef constructor : type.getConstructors())
 		{
-			FactoryDefinition<T> def = FactoryDefinition.resolve(collection, type, fields, nonRenamed, constructor);
+			FactoryDefinition<T> def = FactoryDefinition.resolve(collection, type, fields, nonRenamed, constructor, lookup);
 			if(def == null) continue;
 
 			hasSerializerInFactory |= def.hasSerializedFields();
@@ -124,15 +140,68 @@ public class ReflectionSerializer<T>
 			}
 			else
 			{
+				if(factoryWithEverything.hasHandle())
+				{
+					return Optional.of(new ReflectionConstructorSerializer<>(typeInfo, factoryWithEverything));
+				}
+
 				return Optional.of(new ReflectionOnlySingleFactorySerializer<>(typeInfo, factoryWithEverything));
 			}
 		}
 		else
 		{
-			return Optional.of(new ReflectionStreamingSerializer<>(typeInfo));
+			return Optional.of(createStreamingSerializer(typeInfo));
 		}
 	}
 
+	/**
+	 * Get a lookup with private access to the given type, used to create
+	 * handles for its constructors.
+	 *
+	 * @param type
+	 * @return
+	 *   lookup, or {@code null} if the module of the type does not grant
+	 *   private access
+	 */
+	private static MethodHandles.Lookup privateLookup(Class<?> type)
+	{
+		try
+		{
+			ReflectionSerializer.class.getModule().addReads(type.getModule());
+			return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+		}
+		catch(IllegalAccessException | SecurityException e)
+		{
+			return null;
+		}
+	}
+
+	private Serializer<T> createStreamingSerializer(TypeInfo<T> typeInfo)
+	{
+		if(generate)
+		{
+			try
+			{
+				Optional<Serializer<T>> generated = SerializerGenerator.generate(typeInfo);
+				if(generated.isPresent())
+				{
+					return generated.get();
+				}
+			}
+			catch(NoClassDefFoundError e)
+			{
+				if(e.getMessage() == null || ! e.getMessage().startsWith("org/objectweb/asm/"))
+				{
+					throw e;
+				}
+
+				// ASM is not available, fall back to reflection
+			}
+		}
+
+		return new ReflectionStreamingSerializer<>(typeInfo);
+	}
+
 	private static String getName(Field field)
 	{
 		if(field.isAnnotationPresent(Expose.class))
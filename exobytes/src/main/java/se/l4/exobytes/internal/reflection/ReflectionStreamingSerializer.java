@@ -6,6 +6,7 @@ import java.util.Optional;
 import se.l4.exobytes.QualifiedName;
 import se.l4.exobytes.Serializer;
 import se.l4.exobytes.internal.reflection.properties.SerializableProperty;
+import se.l4.exobytes.streaming.KeyTable;
 import se.l4.exobytes.streaming.StreamingInput;
 import se.l4.exobytes.streaming.StreamingOutput;
 import se.l4.exobytes.streaming.Token;
@@ -37,7 +38,10 @@ public class ReflectionStreamingSerializer<T>
 	{
 		in.next(Token.OBJECT_START);
 
-		T instance = type.newInstance(null);
+		KeyTable keys = type.getKeyTable();
+		SerializableProperty[] properties = type.getProperties();
+
+		T instance = type.newInstance();
 		while(true)
 		{
 			if(in.next() == Token.OBJECT_END)
@@ -46,17 +50,16 @@ public class ReflectionStreamingSerializer<T>
 			}
 
 			in.current(Token.VALUE);
-			String key = in.readString();
+			int idx = in.readKey(keys);
 
-			SerializableProperty property = type.getProperty(key);
-			if(property == null)
+			if(idx == KeyTable.NOT_FOUND)
 			{
 				// No such field, skip the entire value
 				in.skipNext();
 			}
 			else
 			{
-				property.readAndSet(in, instance);
+				properties[idx].readAndSet(in, instance);
 			}
 		}
 
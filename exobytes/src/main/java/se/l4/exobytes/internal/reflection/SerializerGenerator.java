@@ -0,0 +1,765 @@
+package se.l4.exobytes.internal.reflection;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.internal.reflection.properties.FieldProperty;
+import se.l4.exobytes.internal.reflection.properties.ObjectFieldProperty;
+import se.l4.exobytes.internal.reflection.properties.SerializableProperty;
+import se.l4.exobytes.internal.reflection.properties.StringFieldProperty;
+
+/**
+ * Generator of bytecode for serializers of types that would otherwise use
+ * {@link ReflectionStreamingSerializer}. The generated class reads and
+ * writes every property in straight-line code, calls the serializers of
+ * properties directly and dispatches on keys using a switch.
+ *
+ * <p>
+ * Fields are accessed via method handles stored in {@code static final}
+ * fields of the generated class. These are treated as constants by the JIT
+ * and compile down to plain field access, which works for private fields
+ * without requiring the generated class to be defined next to the type.
+ *
+ * <p>
+ * On Java 15 and later the generated classes are defined as hidden classes
+ * in this package. A hidden class is not registered with the class loader
+ * of this library, so it is unloaded together with the type it was
+ * generated for. Earlier versions use
+ * {@link MethodHandles.Lookup#defineClass(byte[])} and those classes stay
+ * loaded, keeping their type and its class loader loaded, as long as this
+ * library is loaded.
+ *
+ * <p>
+ * A class is only generated once for every type and set of properties.
+ * Data that can differ between instances of
+ * {@link se.l4.exobytes.Serializers}, such as the serializers of
+ * properties, is passed to the constructor of the generated class.
+ */
+final class SerializerGenerator
+	implements Opcodes
+{
+	private static final String OBJECT = Type.getInternalName(Object.class);
+	private static final String STRING = Type.getInternalName(String.class);
+	private static final String OPTIONAL = Type.getInternalName(Optional.class);
+	private static final String METHOD_HANDLE = Type.getInternalName(MethodHandle.class);
+	private static final String SERIALIZER = Type.getInternalName(Serializer.class);
+	private static final String TYPE_INFO = Type.getInternalName(TypeInfo.class);
+	private static final String GENERATOR = Type.getInternalName(SerializerGenerator.class);
+	private static final String INPUT = "se/l4/exobytes/streaming/StreamingInput";
+	private static final String OUTPUT = "se/l4/exobytes/streaming/StreamingOutput";
+	private static final String TOKEN = "se/l4/exobytes/streaming/Token";
+	private static final String KEY_TABLE = "se/l4/exobytes/streaming/KeyTable";
+	private static final String IO_EXCEPTION = "java/io/IOException";
+
+	private static final String D_OBJECT = "L" + OBJECT + ";";
+	private static final String D_TOKEN = "L" + TOKEN + ";";
+	private static final String D_METHOD_HANDLE = "L" + METHOD_HANDLE + ";";
+	private static final String D_SERIALIZER = "L" + SERIALIZER + ";";
+
+	private static final String D_OBJECT_ARRAY = "[" + D_OBJECT;
+
+	/**
+	 * Handles for classes that are being defined, picked up by the static
+	 * initializer of the generated class.
+	 */
+	private static final ConcurrentMap<String, Object[]> PENDING = new ConcurrentHashMap<>();
+	private static final AtomicLong COUNTER = new AtomicLong();
+
+	/**
+	 * {@code Lookup.defineHiddenClass} and an empty array of its options,
+	 * looked up via reflection as the release target is 9.
+	 */
+	private static final Method DEFINE_HIDDEN_CLASS;
+	private static final Object NO_OPTIONS;
+
+	static
+	{
+		Method defineHiddenClass = null;
+		Object noOptions = null;
+
+		try
+		{
+			Class<?> optionType = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+			noOptions = Array.newInstance(optionType, 0);
+			defineHiddenClass = MethodHandles.Lookup.class.getMethod(
+				"defineHiddenClass",
+				byte[].class,
+				boolean.class,
+				noOptions.getClass()
+			);
+		}
+		catch(ReflectiveOperationException e)
+		{
+			// Hidden classes are not supported before Java 15
+			defineHiddenClass = null;
+		}
+
+		DEFINE_HIDDEN_CLASS = defineHiddenClass;
+		NO_OPTIONS = noOptions;
+	}
+
+	/**
+	 * Constructors of classes that have been generated for a type, keyed on
+	 * the {@link #describe(SerializableProperty[]) description} of the
+	 * properties they were generated for.
+	 */
+	private static final ClassValue<ConcurrentMap<String, Constructor<?>>> GENERATED = new ClassValue<>()
+	{
+		@Override
+		protected ConcurrentMap<String, Constructor<?>> computeValue(Class<?> type)
+		{
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	private SerializerGenerator()
+	{
+	}
+
+	/**
+	 * Generate a serializer for the given type.
+	 *
+	 * @param type
+	 * @return
+	 *   the generated serializer, or empty if the type has properties that
+	 *   can not be generated or if access to its fields is denied
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Optional<Serializer<T>> generate(TypeInfo<T> type)
+	{
+		SerializableProperty[] properties = type.getProperties();
+		for(SerializableProperty property : properties)
+		{
+			if(! (property instanceof FieldProperty))
+			{
+				return Optional.empty();
+			}
+		}
+
+		// Data that is specific to this instance of the serializer
+		Object[] data = new Object[3 + properties.length];
+		data[0] = type;
+		data[1] = type.getKeyTable();
+		data[2] = Optional.ofNullable(type.getName());
+
+		for(int i=0; i<properties.length; i++)
+		{
+			if(properties[i] instanceof ObjectFieldProperty)
+			{
+				data[3 + i] = ((ObjectFieldProperty) properties[i]).getSerializer();
+			}
+		}
+
+		try
+		{
+			ConcurrentMap<String, Constructor<?>> generated = GENERATED.get(type.getType());
+			String description = describe(properties);
+
+			Constructor<?> constructor = generated.get(description);
+			if(constructor == null)
+			{
+				synchronized(generated)
+				{
+					constructor = generated.get(description);
+					if(constructor == null)
+					{
+						constructor = define(type, properties);
+						generated.put(description, constructor);
+					}
+				}
+			}
+
+			return Optional.of((Serializer<T>) constructor.newInstance((Object) data));
+		}
+		catch(ReflectiveOperationException | SecurityException e)
+		{
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Define a new class for the given type and properties.
+	 *
+	 * @param type
+	 * @param properties
+	 * @return
+	 *   constructor of the generated class, taking the data of the instance
+	 * @throws ReflectiveOperationException
+	 */
+	private static Constructor<?> define(TypeInfo<?> type, SerializableProperty[] properties)
+		throws ReflectiveOperationException
+	{
+		String className = SerializerGenerator.class.getPackageName()
+			+ ".GeneratedSerializer$" + type.getType().getSimpleName()
+			+ "$" + COUNTER.incrementAndGet();
+
+		// Resolve the handles that the generated class will pick up
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+		Object[] handles = new Object[properties.length * 2];
+		for(int i=0; i<properties.length; i++)
+		{
+			FieldProperty property = (FieldProperty) properties[i];
+			Field field = property.getField();
+			Class<?> valueType = valueType(property);
+
+			handles[i * 2] = lookup.unreflectGetter(field)
+				.asType(MethodType.methodType(valueType, Object.class));
+			handles[1 + i * 2] = lookup.unreflectSetter(field)
+				.asType(MethodType.methodType(void.class, Object.class, valueType));
+		}
+
+		byte[] bytecode = emit(className.replace('.', '/'), properties);
+
+		PENDING.put(className, handles);
+		try
+		{
+			return defineAndInitialize(lookup, bytecode)
+				.getDeclaredConstructor(Object[].class);
+		}
+		finally
+		{
+			PENDING.remove(className);
+		}
+	}
+
+	/**
+	 * Define and initialize a generated class, as a hidden class if
+	 * supported. Initialization must happen while the handles of the class
+	 * are pending.
+	 *
+	 * @param lookup
+	 * @param bytecode
+	 * @return
+	 * @throws ReflectiveOperationException
+	 */
+	private static Class<?> defineAndInitialize(MethodHandles.Lookup lookup, byte[] bytecode)
+		throws ReflectiveOperationException
+	{
+		if(DEFINE_HIDDEN_CLASS != null)
+		{
+			MethodHandles.Lookup hidden = (MethodHandles.Lookup) DEFINE_HIDDEN_CLASS.invoke(lookup, bytecode, true, NO_OPTIONS);
+			return hidden.lookupClass();
+		}
+
+		Class<?> generated = lookup.defineClass(bytecode);
+		Class.forName(generated.getName(), true, generated.getClassLoader());
+		return generated;
+	}
+
+	/**
+	 * Describe everything about the properties that affects the generated
+	 * bytecode.
+	 *
+	 * @param properties
+	 * @return
+	 */
+	private static String describe(SerializableProperty[] properties)
+	{
+		StringBuilder builder = new StringBuilder();
+		for(SerializableProperty property : properties)
+		{
+			FieldProperty fieldProperty = (FieldProperty) property;
+			Field field = fieldProperty.getField();
+
+			builder.append(field.getDeclaringClass().getName())
+				.append('#').append(field.getName())
+				.append('\0').append(property.getName())
+				.append('\0').append(valueType(fieldProperty).getName())
+				.append('\0').append(property.isSkipIfDefault());
+
+			if(property instanceof ObjectFieldProperty)
+			{
+				builder.append('\0').append(((ObjectFieldProperty) property).getSerializer() instanceof Serializer.NullHandling);
+			}
+
+			builder.append('\n');
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Called by the static initializer of a generated class to get its
+	 * handles.
+	 *
+	 * @param className
+	 * @return
+	 */
+	static Object[] take(String className)
+	{
+		return PENDING.remove(className);
+	}
+
+	/**
+	 * Get the type used when passing the value of a property around. This
+	 * is the primitive type for primitive properties and {@link Object} for
+	 * everything else, including primitives that use a custom serializer.
+	 *
+	 * @param property
+	 * @return
+	 */
+	private static Class<?> valueType(FieldProperty property)
+	{
+		if(property instanceof ObjectFieldProperty || property instanceof StringFieldProperty)
+		{
+			return Object.class;
+		}
+
+		return property.getField().getType();
+	}
+
+	private static byte[] emit(String internalName, SerializableProperty[] properties)
+	{
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS)
+		{
+			@Override
+			protected String getCommonSuperClass(String type1, String type2)
+			{
+				// Only used for merging values that are stored as objects
+				return OBJECT;
+			}
+		};
+
+		cw.visit(V9, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, internalName, null, OBJECT, new String[] { SERIALIZER });
+
+		int constant = ACC_PRIVATE | ACC_STATIC | ACC_FINAL;
+		int instance = ACC_PRIVATE | ACC_FINAL;
+		cw.visitField(instance, "type", "L" + TYPE_INFO + ";", null, null).visitEnd();
+		cw.visitField(instance, "keys", "L" + KEY_TABLE + ";", null, null).visitEnd();
+		cw.visitField(instance, "name", "L" + OPTIONAL + ";", null, null).visitEnd();
+
+		for(int i=0; i<properties.length; i++)
+		{
+			cw.visitField(constant, "G" + i, D_METHOD_HANDLE, null, null).visitEnd();
+			cw.visitField(constant, "S" + i, D_METHOD_HANDLE, null, null).visitEnd();
+
+			if(properties[i] instanceof ObjectFieldProperty)
+			{
+				cw.visitField(instance, "ser" + i, D_SERIALIZER, null, null).visitEnd();
+			}
+		}
+
+		emitStaticInitializer(cw, internalName, properties);
+		emitConstructor(cw, internalName, properties);
+		emitGetName(cw, internalName);
+		emitRead(cw, internalName, properties);
+		emitWrite(cw, internalName, properties);
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private static void emitStaticInitializer(ClassWriter cw, String internalName, SerializableProperty[] properties)
+	{
+		MethodVisitor mv = cw.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+		mv.visitCode();
+
+		mv.visitLdcInsn(internalName.replace('/', '.'));
+		mv.visitMethodInsn(INVOKESTATIC, GENERATOR, "take", "(L" + STRING + ";)[" + D_OBJECT, false);
+		mv.visitVarInsn(ASTORE, 0);
+
+		for(int i=0; i<properties.length; i++)
+		{
+			loadConstant(mv, internalName, i * 2, "G" + i);
+			loadConstant(mv, internalName, 1 + i * 2, "S" + i);
+		}
+
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void loadConstant(MethodVisitor mv, String owner, int index, String name)
+	{
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitLdcInsn(index);
+		mv.visitInsn(AALOAD);
+		mv.visitTypeInsn(CHECKCAST, METHOD_HANDLE);
+		mv.visitFieldInsn(PUTSTATIC, owner, name, D_METHOD_HANDLE);
+	}
+
+	/**
+	 * Emit {@code <init>(Object[])}, storing the data of the instance in
+	 * its fields.
+	 */
+	private static void emitConstructor(ClassWriter cw, String internalName, SerializableProperty[] properties)
+	{
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "(" + D_OBJECT_ARRAY + ")V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+
+		loadInstanceField(mv, internalName, 0, "type", TYPE_INFO);
+		loadInstanceField(mv, internalName, 1, "keys", KEY_TABLE);
+		loadInstanceField(mv, internalName, 2, "name", OPTIONAL);
+
+		for(int i=0; i<properties.length; i++)
+		{
+			if(properties[i] instanceof ObjectFieldProperty)
+			{
+				loadInstanceField(mv, internalName, 3 + i, "ser" + i, SERIALIZER);
+			}
+		}
+
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void loadInstanceField(MethodVisitor mv, String owner, int index, String name, String type)
+	{
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitLdcInsn(index);
+		mv.visitInsn(AALOAD);
+		mv.visitTypeInsn(CHECKCAST, type);
+		mv.visitFieldInsn(PUTFIELD, owner, name, "L" + type + ";");
+	}
+
+	private static void getField(MethodVisitor mv, String owner, String name, String descriptor)
+	{
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, owner, name, descriptor);
+	}
+
+	private static void emitGetName(ClassWriter cw, String internalName)
+	{
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "getName", "()L" + OPTIONAL + ";", null, null);
+		mv.visitCode();
+		getField(mv, internalName, "name", "L" + OPTIONAL + ";");
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/**
+	 * Emit {@code read(StreamingInput)}, locals are {@code 1 = in} and
+	 * {@code 2 = instance}.
+	 */
+	private static void emitRead(ClassWriter cw, String internalName, SerializableProperty[] properties)
+	{
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "read", "(L" + INPUT + ";)" + D_OBJECT, null, new String[] { IO_EXCEPTION });
+		mv.visitCode();
+
+		// in.next(Token.OBJECT_START)
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitFieldInsn(GETSTATIC, TOKEN, "OBJECT_START", D_TOKEN);
+		mv.visitMethodInsn(INVOKEINTERFACE, INPUT, "next", "(" + D_TOKEN + ")" + D_TOKEN, true);
+		mv.visitInsn(POP);
+
+		// Object instance = type.newInstance()
+		getField(mv, internalName, "type", "L" + TYPE_INFO + ";");
+		mv.visitMethodInsn(INVOKEVIRTUAL, TYPE_INFO, "newInstance", "()" + D_OBJECT, false);
+		mv.visitVarInsn(ASTORE, 2);
+
+		Label loop = new Label();
+		Label end = new Label();
+		Label skip = new Label();
+
+		// while(in.next() != Token.OBJECT_END)
+		mv.visitLabel(loop);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitMethodInsn(INVOKEINTERFACE, INPUT, "next", "()" + D_TOKEN, true);
+		mv.visitFieldInsn(GETSTATIC, TOKEN, "OBJECT_END", D_TOKEN);
+		mv.visitJumpInsn(IF_ACMPEQ, end);
+
+		// in.current(Token.VALUE)
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitFieldInsn(GETSTATIC, TOKEN, "VALUE", D_TOKEN);
+		mv.visitMethodInsn(INVOKEINTERFACE, INPUT, "current", "(" + D_TOKEN + ")V", true);
+
+		// switch(in.readKey(keys))
+		mv.visitVarInsn(ALOAD, 1);
+		getField(mv, internalName, "keys", "L" + KEY_TABLE + ";");
+		mv.visitMethodInsn(INVOKEINTERFACE, INPUT, "readKey", "(L" + KEY_TABLE + ";)I", true);
+
+		if(properties.length == 0)
+		{
+			mv.visitInsn(POP);
+		}
+		else
+		{
+			Label[] cases = new Label[properties.length];
+			for(int i=0; i<cases.length; i++)
+			{
+				cases[i] = new Label();
+			}
+
+			mv.visitTableSwitchInsn(0, cases.length - 1, skip, cases);
+
+			for(int i=0; i<properties.length; i++)
+			{
+				mv.visitLabel(cases[i]);
+				emitReadProperty(mv, internalName, i, (FieldProperty) properties[i]);
+				mv.visitJumpInsn(GOTO, loop);
+			}
+		}
+
+		// Unknown key, skip the value
+		mv.visitLabel(skip);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitMethodInsn(INVOKEINTERFACE, INPUT, "skipNext", "()V", true);
+		mv.visitJumpInsn(GOTO, loop);
+
+		mv.visitLabel(end);
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitInsn(ARETURN);
+
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void emitReadProperty(MethodVisitor mv, String internalName, int index, FieldProperty property)
+	{
+		Type type = Type.getType(valueType(property));
+
+		// S<index>.invokeExact(instance, value)
+		mv.visitFieldInsn(GETSTATIC, internalName, "S" + index, D_METHOD_HANDLE);
+		mv.visitVarInsn(ALOAD, 2);
+
+		Label read = new Label();
+		Label done = new Label();
+
+		if(property instanceof ObjectFieldProperty)
+		{
+			ObjectFieldProperty objectProperty = (ObjectFieldProperty) property;
+			if(! (objectProperty.getSerializer() instanceof Serializer.NullHandling))
+			{
+				// if(in.peek() == Token.NULL) { in.next(); value = null; }
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitMethodInsn(INVOKEINTERFACE, INPUT, "peek", "()" + D_TOKEN, true);
+				mv.visitFieldInsn(GETSTATIC, TOKEN, "NULL", D_TOKEN);
+				mv.visitJumpInsn(IF_ACMPNE, read);
+
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitMethodInsn(INVOKEINTERFACE, INPUT, "next", "()" + D_TOKEN, true);
+				mv.visitInsn(POP);
+				mv.visitInsn(ACONST_NULL);
+				mv.visitJumpInsn(GOTO, done);
+			}
+
+			// value = ser<index>.read(in)
+			mv.visitLabel(read);
+			getField(mv, internalName, "ser" + index, D_SERIALIZER);
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitMethodInsn(INVOKEINTERFACE, SERIALIZER, "read", "(L" + INPUT + ";)" + D_OBJECT, true);
+		}
+		else
+		{
+			// value = in.next() == Token.NULL ? default : in.readX()
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitMethodInsn(INVOKEINTERFACE, INPUT, "next", "()" + D_TOKEN, true);
+			mv.visitFieldInsn(GETSTATIC, TOKEN, "NULL", D_TOKEN);
+			mv.visitJumpInsn(IF_ACMPNE, read);
+
+			pushDefault(mv, type);
+			mv.visitJumpInsn(GOTO, done);
+
+			mv.visitLabel(read);
+			mv.visitVarInsn(ALOAD, 1);
+			if(property instanceof StringFieldProperty)
+			{
+				mv.visitMethodInsn(INVOKEINTERFACE, INPUT, "readString", "()L" + STRING + ";", true);
+			}
+			else
+			{
+				mv.visitMethodInsn(INVOKEINTERFACE, INPUT, "read" + primitiveName(type), "()" + type.getDescriptor(), true);
+			}
+		}
+
+		mv.visitLabel(done);
+		mv.visitMethodInsn(INVOKEVIRTUAL, METHOD_HANDLE, "invokeExact", "(" + D_OBJECT + type.getDescriptor() + ")V", false);
+	}
+
+	/**
+	 * Emit {@code write(Object, StreamingOutput)}, locals are
+	 * {@code 1 = object}, {@code 2 = out} and {@code 3 = current value}.
+	 */
+	private static void emitWrite(ClassWriter cw, String internalName, SerializableProperty[] properties)
+	{
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "write", "(" + D_OBJECT + "L" + OUTPUT + ";)V", null, new String[] { IO_EXCEPTION });
+		mv.visitCode();
+
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitMethodInsn(INVOKEINTERFACE, OUTPUT, "writeObjectStart", "()V", true);
+
+		for(int i=0; i<properties.length; i++)
+		{
+			emitWriteProperty(mv, internalName, i, (FieldProperty) properties[i]);
+		}
+
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitMethodInsn(INVOKEINTERFACE, OUTPUT, "writeObjectEnd", "()V", true);
+		mv.visitInsn(RETURN);
+
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void emitWriteProperty(MethodVisitor mv, String internalName, int index, FieldProperty property)
+	{
+		Type type = Type.getType(valueType(property));
+		Label skip = new Label();
+
+		// value = G<index>.invokeExact(object)
+		mv.visitFieldInsn(GETSTATIC, internalName, "G" + index, D_METHOD_HANDLE);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitMethodInsn(INVOKEVIRTUAL, METHOD_HANDLE, "invokeExact", "(" + D_OBJECT + ")" + type.getDescriptor(), false);
+		mv.visitVarInsn(type.getOpcode(ISTORE), 3);
+
+		if(property.isSkipIfDefault())
+		{
+			mv.visitVarInsn(type.getOpcode(ILOAD), 3);
+			jumpIfDefault(mv, type, skip);
+		}
+
+		// out.writeString(name)
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitLdcInsn(property.getName());
+		mv.visitMethodInsn(INVOKEINTERFACE, OUTPUT, "writeString", "(L" + STRING + ";)V", true);
+
+		if(type.getSort() == Type.OBJECT)
+		{
+			Label nonNull = new Label();
+			mv.visitVarInsn(ALOAD, 3);
+			mv.visitJumpInsn(IFNONNULL, nonNull);
+
+			boolean nullHandling = property instanceof ObjectFieldProperty
+				&& ((ObjectFieldProperty) property).getSerializer() instanceof Serializer.NullHandling;
+
+			if(nullHandling)
+			{
+				// ser<index>.write(null, out)
+				getField(mv, internalName, "ser" + index, D_SERIALIZER);
+				mv.visitInsn(ACONST_NULL);
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitMethodInsn(INVOKEINTERFACE, SERIALIZER, "write", "(" + D_OBJECT + "L" + OUTPUT + ";)V", true);
+			}
+			else
+			{
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitMethodInsn(INVOKEINTERFACE, OUTPUT, "writeNull", "()V", true);
+			}
+
+			mv.visitJumpInsn(GOTO, skip);
+			mv.visitLabel(nonNull);
+
+			if(property instanceof StringFieldProperty)
+			{
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitVarInsn(ALOAD, 3);
+				mv.visitTypeInsn(CHECKCAST, STRING);
+				mv.visitMethodInsn(INVOKEINTERFACE, OUTPUT, "writeString", "(L" + STRING + ";)V", true);
+			}
+			else
+			{
+				getField(mv, internalName, "ser" + index, D_SERIALIZER);
+				mv.visitVarInsn(ALOAD, 3);
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitMethodInsn(INVOKEINTERFACE, SERIALIZER, "write", "(" + D_OBJECT + "L" + OUTPUT + ";)V", true);
+			}
+		}
+		else
+		{
+			mv.visitVarInsn(ALOAD, 2);
+			mv.visitVarInsn(type.getOpcode(ILOAD), 3);
+			mv.visitMethodInsn(INVOKEINTERFACE, OUTPUT, "write" + primitiveName(type), "(" + type.getDescriptor() + ")V", true);
+		}
+
+		mv.visitLabel(skip);
+	}
+
+	private static void pushDefault(MethodVisitor mv, Type type)
+	{
+		switch(type.getSort())
+		{
+			case Type.LONG:
+				mv.visitInsn(LCONST_0);
+				break;
+			case Type.FLOAT:
+				mv.visitInsn(FCONST_0);
+				break;
+			case Type.DOUBLE:
+				mv.visitInsn(DCONST_0);
+				break;
+			case Type.OBJECT:
+				mv.visitInsn(ACONST_NULL);
+				break;
+			default:
+				mv.visitInsn(ICONST_0);
+		}
+	}
+
+	private static void jumpIfDefault(MethodVisitor mv, Type type, Label target)
+	{
+		switch(type.getSort())
+		{
+			case Type.LONG:
+				mv.visitInsn(LCONST_0);
+				mv.visitInsn(LCMP);
+				mv.visitJumpInsn(IFEQ, target);
+				break;
+			case Type.FLOAT:
+				mv.visitInsn(FCONST_0);
+				mv.visitInsn(FCMPL);
+				mv.visitJumpInsn(IFEQ, target);
+				break;
+			case Type.DOUBLE:
+				mv.visitInsn(DCONST_0);
+				mv.visitInsn(DCMPL);
+				mv.visitJumpInsn(IFEQ, target);
+				break;
+			case Type.OBJECT:
+				mv.visitJumpInsn(IFNULL, target);
+				break;
+			default:
+				mv.visitJumpInsn(IFEQ, target);
+		}
+	}
+
+	/**
+	 * Get the name used for a primitive type in the methods of
+	 * {@code StreamingInput} and {@code StreamingOutput}.
+	 */
+	private static String primitiveName(Type type)
+	{
+		switch(type.getSort())
+		{
+			case Type.BOOLEAN:
+				return "Boolean";
+			case Type.BYTE:
+				return "Byte";
+			case Type.SHORT:
+				return "Short";
+			case Type.CHAR:
+				return "Char";
+			case Type.INT:
+				return "Int";
+			case Type.LONG:
+				return "Long";
+			case Type.FLOAT:
+				return "Float";
+			case Type.DOUBLE:
+				return "Double";
+			default:
+				throw new IllegalArgumentException("Not a primitive type: " + type);
+		}
+	}
+}
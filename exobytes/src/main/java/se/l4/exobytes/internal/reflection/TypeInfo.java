@@ -1,15 +1,22 @@
 package se.l4.exobytes.internal.reflection;
 
-import java.util.Map;
-
 import org.eclipse.collections.api.map.MapIterable;
 
 import se.l4.exobytes.QualifiedName;
 import se.l4.exobytes.internal.reflection.properties.SerializableProperty;
+import se.l4.exobytes.streaming.KeyTable;
+import se.l4.ylem.types.reflect.Types;
 
 /**
  * Information about a type used with {@link ReflectionSerializer}.
  *
+ * <p>
+ * Every property has a slot, which is its index in {@link #getProperties()}.
+ * Serializers that can not stream an object collect values into an array
+ * indexed by slot together with a bitmask of the slots that have been read,
+ * where the first 64 slots are kept in a {@code long} and any further slots
+ * in an overflow array. The factory to use is picked by comparing the
+ * bitmask against precomputed masks of the slots each factory takes.
  */
 public class TypeInfo<T>
 {
@@ -17,8 +24,24 @@ public class TypeInfo<T>
 	private final QualifiedName name;
 	private final SerializableProperty[] properties;
 	private final MapIterable<String, SerializableProperty> propertyMap;
+	private final KeyTable keys;
 	private final FactoryDefinition<T>[] factories;
 
+	/**
+	 * Slots used by each factory, first 64 slots and overflow.
+	 */
+	private final long[] factoryMasks;
+	private final long[][] factoryOverflowMasks;
+	/**
+	 * For each factory the slot of every argument, {@code -1} if the
+	 * argument is injected.
+	 */
+	private final int[][] factorySlots;
+	/**
+	 * For each factory the value to use for arguments that were not read.
+	 */
+	private final Object[][] factoryDefaults;
+
 	public TypeInfo(
 		Class<T> type,
 		QualifiedName qualifiedName,
@@ -32,6 +55,58 @@ public class TypeInfo<T>
 		this.factories = factories;
 		this.propertyMap = propertyMap;
 		this.properties = properties;
+
+		String[] names = new String[properties.length];
+		for(int i=0; i<properties.length; i++)
+		{
+			names[i] = properties[i].getName();
+		}
+
+		this.keys = KeyTable.of(names);
+
+		int overflow = getOverflowLength();
+		factoryMasks = new long[factories.length];
+		factoryOverflowMasks = new long[factories.length][];
+		factorySlots = new int[factories.length][];
+		factoryDefaults = new Object[factories.length][];
+
+		for(int i=0; i<factories.length; i++)
+		{
+			FactoryDefinition.Argument[] arguments = factories[i].arguments;
+			int[] slots = new int[arguments.length];
+			Object[] defaults = new Object[arguments.length];
+			long mask = 0;
+			long[] overflowMask = new long[overflow];
+
+			for(int j=0; j<arguments.length; j++)
+			{
+				if(arguments[j] instanceof FactoryDefinition.SerializedArgument)
+				{
+					FactoryDefinition.SerializedArgument arg = (FactoryDefinition.SerializedArgument) arguments[j];
+					int slot = keys.indexOf(arg.name);
+					slots[j] = slot;
+					defaults[j] = Types.defaultValue(arg.type);
+
+					if(slot < 64)
+					{
+						mask |= 1L << slot;
+					}
+					else
+					{
+						overflowMask[(slot >>> 6) - 1] |= 1L << slot;
+					}
+				}
+				else
+				{
+					slots[j] = -1;
+				}
+			}
+
+			factoryMasks[i] = mask;
+			factoryOverflowMasks[i] = overflowMask;
+			factorySlots[i] = slots;
+			factoryDefaults[i] = defaults;
+		}
 	}
 
 	public Class<T> getType()
@@ -55,29 +130,88 @@ public class TypeInfo<T>
 	}
 
 	/**
-	 * Create a new instance.
+	 * Get a table with the names of all properties. The index of a name in
+	 * the table is the index of the property in {@link #getProperties()}.
+	 *
+	 * @return
+	 */
+	public KeyTable getKeyTable()
+	{
+		return keys;
+	}
+
+	/**
+	 * Get the length of the overflow array needed to track slots past the
+	 * first 64.
+	 *
+	 * @return
+	 */
+	public int getOverflowLength()
+	{
+		return Math.max(0, (properties.length + 63) / 64 - 1);
+	}
+
+	/**
+	 * Create a new instance using the first factory, for types where no
+	 * factory takes serialized arguments.
+	 *
+	 * @return
+	 */
+	public T newInstance()
+	{
+		try
+		{
+			return factories[0].create(new Object[factories[0].arguments.length]);
+		}
+		catch(RuntimeException e)
+		{
+			throw new RuntimeException("Could not create " + type + "; " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Create a new instance using the factory that takes the most of the
+	 * values that were read.
 	 *
-	 * @param fields
+	 * @param values
+	 *   values indexed by slot
+	 * @param seen
+	 *   mask of the first 64 slots that have been read
+	 * @param overflow
+	 *   mask of any further slots that have been read
 	 * @return
 	 */
-	public T newInstance(Map<String, Object> fields)
+	public T newInstance(Object[] values, long seen, long[] overflow)
 	{
 		try
 		{
-			FactoryDefinition<T> bestDef = factories[0];
-			int bestScore = bestDef.getScore(fields);
+			int best = 0;
+			int bestScore = score(0, seen, overflow);
 
 			for(int i=1, n=factories.length; i<n; i++)
 			{
-				int score = factories[i].getScore(fields);
+				int score = score(i, seen, overflow);
 				if(score > bestScore)
 				{
-					bestDef = factories[i];
+					best = i;
 					bestScore = score;
 				}
 			}
 
-			return bestDef.create(fields);
+			int[] slots = factorySlots[best];
+			Object[] defaults = factoryDefaults[best];
+			Object[] args = new Object[slots.length];
+			for(int i=0, n=slots.length; i<n; i++)
+			{
+				int slot = slots[i];
+				if(slot >= 0)
+				{
+					Object value = values[slot];
+					args[i] = value == null ? defaults[i] : value;
+				}
+			}
+
+			return factories[best].create(args);
 		}
 		catch(RuntimeException e)
 		{
@@ -85,6 +219,24 @@ public class TypeInfo<T>
 		}
 	}
 
+	private int score(int factory, long seen, long[] overflow)
+	{
+		if(! factories[factory].hasSerializedFields())
+		{
+			return 0;
+		}
+
+		int score = Long.bitCount(seen & factoryMasks[factory]);
+
+		long[] overflowMask = factoryOverflowMasks[factory];
+		for(int i=0, n=overflowMask.length; i<n; i++)
+		{
+			score += Long.bitCount(overflow[i] & overflowMask[i]);
+		}
+
+		return score;
+	}
+
 	public FactoryDefinition<T> findSingleFactoryWithEverything()
 	{
 		int fields = this.properties.length;
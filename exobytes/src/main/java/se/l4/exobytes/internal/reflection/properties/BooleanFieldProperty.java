@@ -13,6 +13,7 @@ import se.l4.exobytes.streaming.Token;
  */
 public class BooleanFieldProperty
 	extends FieldProperty
+	implements PrimitiveProperty
 {
 	public BooleanFieldProperty(
 		String name,
@@ -35,6 +36,18 @@ public class BooleanFieldProperty
 		return in.readBoolean();
 	}
 
+	@Override
+	public long readPrimitive(StreamingInput in)
+		throws IOException
+	{
+		if(in.next() == Token.NULL)
+		{
+			return 0;
+		}
+
+		return in.readBoolean() ? 1 : 0;
+	}
+
 	@Override
 	public void readAndSet(StreamingInput in, Object obj)
 		throws IOException
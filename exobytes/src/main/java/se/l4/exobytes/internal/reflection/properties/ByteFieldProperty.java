@@ -13,6 +13,7 @@ import se.l4.exobytes.streaming.Token;
  */
 public class ByteFieldProperty
 	extends FieldProperty
+	implements PrimitiveProperty
 {
 	public ByteFieldProperty(
 		String name,
@@ -35,6 +36,18 @@ public class ByteFieldProperty
 		return in.readByte();
 	}
 
+	@Override
+	public long readPrimitive(StreamingInput in)
+		throws IOException
+	{
+		if(in.next() == Token.NULL)
+		{
+			return 0;
+		}
+
+		return in.readByte();
+	}
+
 	@Override
 	public void readAndSet(StreamingInput in, Object obj)
 		throws IOException
@@ -13,6 +13,7 @@ import se.l4.exobytes.streaming.Token;
  */
 public class CharFieldProperty
 	extends FieldProperty
+	implements PrimitiveProperty
 {
 	public CharFieldProperty(
 		String name,
@@ -35,6 +36,18 @@ public class CharFieldProperty
 		return in.readChar();
 	}
 
+	@Override
+	public long readPrimitive(StreamingInput in)
+		throws IOException
+	{
+		if(in.next() == Token.NULL)
+		{
+			return 0;
+		}
+
+		return in.readChar();
+	}
+
 	@Override
 	public void readAndSet(StreamingInput in, Object obj)
 		throws IOException
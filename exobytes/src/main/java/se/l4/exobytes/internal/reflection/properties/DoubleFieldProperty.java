@@ -13,6 +13,7 @@ import se.l4.exobytes.streaming.Token;
  */
 public class DoubleFieldProperty
 	extends FieldProperty
+	implements PrimitiveProperty
 {
 	public DoubleFieldProperty(
 		String name,
@@ -35,6 +36,18 @@ public class DoubleFieldProperty
 		return in.readDouble();
 	}
 
+	@Override
+	public long readPrimitive(StreamingInput in)
+		throws IOException
+	{
+		if(in.next() == Token.NULL)
+		{
+			return 0;
+		}
+
+		return Double.doubleToRawLongBits(in.readDouble());
+	}
+
 	@Override
 	public void readAndSet(StreamingInput in, Object obj)
 		throws IOException
@@ -25,6 +25,16 @@ public abstract class FieldProperty
 		this.field = field;
 	}
 
+	/**
+	 * Get the field this property reads and writes.
+	 *
+	 * @return
+	 */
+	public Field getField()
+	{
+		return field;
+	}
+
 	@Override
 	public void set(Object obj, Object value)
 		throws IOException
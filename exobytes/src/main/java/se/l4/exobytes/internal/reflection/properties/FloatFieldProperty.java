@@ -13,6 +13,7 @@ import se.l4.exobytes.streaming.Token;
  */
 public class FloatFieldProperty
 	extends FieldProperty
+	implements PrimitiveProperty
 {
 	public FloatFieldProperty(
 		String name,
@@ -35,6 +36,18 @@ public class FloatFieldProperty
 		return in.readFloat();
 	}
 
+	@Override
+	public long readPrimitive(StreamingInput in)
+		throws IOException
+	{
+		if(in.next() == Token.NULL)
+		{
+			return 0;
+		}
+
+		return Float.floatToRawIntBits(in.readFloat());
+	}
+
 	@Override
 	public void readAndSet(StreamingInput in, Object obj)
 		throws IOException
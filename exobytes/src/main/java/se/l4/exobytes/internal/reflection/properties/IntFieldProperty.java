@@ -13,6 +13,7 @@ import se.l4.exobytes.streaming.Token;
  */
 public class IntFieldProperty
 	extends FieldProperty
+	implements PrimitiveProperty
 {
 	public IntFieldProperty(
 		String name,
@@ -35,6 +36,18 @@ public class IntFieldProperty
 		return in.readInt();
 	}
 
+	@Override
+	public long readPrimitive(StreamingInput in)
+		throws IOException
+	{
+		if(in.next() == Token.NULL)
+		{
+			return 0;
+		}
+
+		return in.readInt();
+	}
+
 	@Override
 	public void readAndSet(StreamingInput in, Object obj)
 		throws IOException
@@ -13,6 +13,7 @@ import se.l4.exobytes.streaming.Token;
  */
 public class LongFieldProperty
 	extends FieldProperty
+	implements PrimitiveProperty
 {
 	public LongFieldProperty(
 		String name,
@@ -35,6 +36,18 @@ public class LongFieldProperty
 		return in.readLong();
 	}
 
+	@Override
+	public long readPrimitive(StreamingInput in)
+		throws IOException
+	{
+		if(in.next() == Token.NULL)
+		{
+			return 0;
+		}
+
+		return in.readLong();
+	}
+
 	@Override
 	public void readAndSet(StreamingInput in, Object obj)
 		throws IOException
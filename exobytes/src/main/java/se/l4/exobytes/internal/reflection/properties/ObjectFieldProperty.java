@@ -36,6 +36,16 @@ public class ObjectFieldProperty
 		this.nullHandling = serializer instanceof Serializer.NullHandling;
 	}
 
+	/**
+	 * Get the serializer used for the value of this property.
+	 *
+	 * @return
+	 */
+	public Serializer getSerializer()
+	{
+		return serializer;
+	}
+
 	@Override
 	public Object read(StreamingInput in)
 		throws IOException
@@ -0,0 +1,25 @@
+package se.l4.exobytes.internal.reflection.properties;
+
+import java.io.IOException;
+
+import se.l4.exobytes.streaming.StreamingInput;
+
+/**
+ * Property that holds a primitive value and can read it without boxing.
+ * The value is returned as its raw bits in a {@code long}, booleans are
+ * {@code 1} or {@code 0}, integer types are sign-extended and floating
+ * point values use their raw bits.
+ */
+public interface PrimitiveProperty
+{
+	/**
+	 * Read the value of this property as raw bits. A {@code null} value
+	 * is read as zero.
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	long readPrimitive(StreamingInput in)
+		throws IOException;
+}
@@ -13,6 +13,7 @@ import se.l4.exobytes.streaming.Token;
  */
 public class ShortFieldProperty
 	extends FieldProperty
+	implements PrimitiveProperty
 {
 	public ShortFieldProperty(
 		String name,
@@ -35,6 +36,18 @@ public class ShortFieldProperty
 		return in.readShort();
 	}
 
+	@Override
+	public long readPrimitive(StreamingInput in)
+		throws IOException
+	{
+		if(in.next() == Token.NULL)
+		{
+			return 0;
+		}
+
+		return in.readShort();
+	}
+
 	@Override
 	public void readAndSet(StreamingInput in, Object obj)
 		throws IOException
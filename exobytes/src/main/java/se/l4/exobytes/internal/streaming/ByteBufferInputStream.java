@@ -0,0 +1,69 @@
+package se.l4.exobytes.internal.streaming;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link InputStream} that reads the remaining data of a {@link ByteBuffer}.
+ * Used for buffers that are not backed by an accessible array, such as
+ * direct buffers.
+ */
+public class ByteBufferInputStream
+	extends InputStream
+{
+	private final ByteBuffer buffer;
+
+	public ByteBufferInputStream(ByteBuffer buffer)
+	{
+		this.buffer = buffer;
+	}
+
+	@Override
+	public int read()
+	{
+		if(! buffer.hasRemaining())
+		{
+			return -1;
+		}
+
+		return buffer.get() & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len)
+	{
+		if(len == 0)
+		{
+			return 0;
+		}
+
+		int remaining = buffer.remaining();
+		if(remaining == 0)
+		{
+			return -1;
+		}
+
+		int n = Math.min(len, remaining);
+		buffer.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public long skip(long n)
+	{
+		if(n <= 0)
+		{
+			return 0;
+		}
+
+		int skipped = (int) Math.min(n, buffer.remaining());
+		buffer.position(buffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int available()
+	{
+		return buffer.remaining();
+	}
+}
@@ -0,0 +1,45 @@
+package se.l4.exobytes.internal.streaming;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link OutputStream} that writes into a {@link ByteBuffer}, failing if the
+ * buffer does not have room for the written data.
+ */
+public class ByteBufferOutputStream
+	extends OutputStream
+{
+	private final ByteBuffer buffer;
+
+	public ByteBufferOutputStream(ByteBuffer buffer)
+	{
+		this.buffer = buffer;
+	}
+
+	@Override
+	public void write(int b)
+		throws IOException
+	{
+		if(! buffer.hasRemaining())
+		{
+			throw new IOException("Buffer is full, could not write 1 byte");
+		}
+
+		buffer.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len)
+		throws IOException
+	{
+		if(buffer.remaining() < len)
+		{
+			throw new IOException("Buffer is full, needed " + len
+				+ " bytes but only " + buffer.remaining() + " bytes remain");
+		}
+
+		buffer.put(b, off, len);
+	}
+}
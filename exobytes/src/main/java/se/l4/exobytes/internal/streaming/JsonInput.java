@@ -12,6 +12,7 @@ import java.util.Base64;
 import java.util.OptionalInt;
 
 import se.l4.exobytes.streaming.AbstractStreamingInput;
+import se.l4.exobytes.streaming.KeyTable;
 import se.l4.exobytes.streaming.Token;
 import se.l4.exobytes.streaming.ValueConversion;
 
@@ -24,16 +25,24 @@ public class JsonInput
 	extends AbstractStreamingInput
 {
 	private static final char NULL = 0;
-	private static final int LEVELS = 20;
 
 	private final Reader in;
 
 	private final char[] buffer;
 	private int position;
 	private int limit;
-	private int level;
+	private final NestingStack nesting;
 
-	private boolean[] lists;
+	/**
+	 * Scratch space for the ASCII bytes of the current number.
+	 */
+	private byte[] token;
+	private final JsonNumberParser numbers;
+
+	/**
+	 * Scratch space for keys read via {@link #readKey(KeyTable)}.
+	 */
+	private final StringBuilder key;
 
 	public JsonInput(InputStream in)
 		throws IOException
@@ -43,13 +52,29 @@ public class JsonInput
 
 	public JsonInput(Reader in)
 		throws IOException
+	{
+		this(in, NestingStack.DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Create an input that reads from the given reader and fails if lists
+	 * and objects are nested deeper than the given depth.
+	 *
+	 * @param in
+	 * @param maxDepth
+	 * @throws IOException
+	 */
+	public JsonInput(Reader in, int maxDepth)
+		throws IOException
 	{
 		this.in = in;
 
-		lists = new boolean[LEVELS];
+		nesting = new NestingStack(maxDepth, true, 0);
 		buffer = new char[1024];
 
-		lists[0] = true;
+		token = new byte[32];
+		numbers = new JsonNumberParser();
+		key = new StringBuilder();
 	}
 
 	@Override
@@ -99,13 +124,13 @@ public class JsonInput
 				char c = peekChar();
 				if(c == ',') read();
 
-				level--;
+				nesting.pop();
 				return token;
 			}
 			case OBJECT_START:
 			case LIST_START:
 				readNext();
-				increaseLevel(token == Token.LIST_START);
+				nesting.push(token == Token.LIST_START, 0);
 				return token;
 			case NULL:
 			{
@@ -123,18 +148,6 @@ public class JsonInput
 		}
 	}
 
-	private void increaseLevel(boolean isList)
-	{
-		level++;
-		if(lists.length == level)
-		{
-			// Grow lists when needed
-			lists = Arrays.copyOf(lists, level * 2);
-		}
-
-		lists[level] = isList;
-	}
-
 	@Override
 	public OptionalInt getLength()
 	{
@@ -211,6 +224,48 @@ public class JsonInput
 		return value.toString();
 	}
 
+	/**
+	 * Read a non-string value into {@link #token} as ASCII bytes. Chars
+	 * outside of ASCII can never be part of a number and are replaced with
+	 * {@code ?}.
+	 *
+	 * @return
+	 *   the number of bytes in the token
+	 * @throws IOException
+	 */
+	private int readToken()
+		throws IOException
+	{
+		byte[] token = this.token;
+		int n = 0;
+		_outer:
+		while(true)
+		{
+			char c = peekChar(false);
+			switch(c)
+			{
+				case NULL:
+				case '}':
+				case ']':
+				case ',':
+				case ':':
+					break _outer;
+				default:
+					if(Character.isWhitespace(c)) break _outer;
+			}
+
+			if(n == token.length)
+			{
+				token = this.token = Arrays.copyOf(token, n * 2);
+			}
+
+			token[n++] = c < 0x80 ? (byte) c : (byte) '?';
+			position++;
+		}
+
+		return n;
+	}
+
 	@Override
 	protected Object readDynamic0()
 		throws IOException
@@ -318,23 +373,26 @@ public class JsonInput
 	public long readLong()
 		throws IOException
 	{
-		String in = readNonString();
+		int length = readToken();
 		markValueRead();
 
+		if(numbers.parseLong(token, length))
+		{
+			return numbers.getLong();
+		}
+		else if(numbers.parseDouble(token, length))
+		{
+			return (long) numbers.getDouble();
+		}
+
+		String in = new String(token, 0, length, StandardCharsets.ISO_8859_1);
 		try
 		{
-			return Long.parseLong(in);
+			return (long) Double.parseDouble(in);
 		}
-		catch(NumberFormatException e)
+		catch(NumberFormatException e2)
 		{
-			try
-			{
-				return (long) Double.parseDouble(in);
-			}
-			catch(NumberFormatException e2)
-			{
-				throw raiseException("Unable to read number: " + in);
-			}
+			throw raiseException("Unable to read number: " + in);
 		}
 	}
 
@@ -349,9 +407,15 @@ public class JsonInput
 	public double readDouble()
 		throws IOException
 	{
-		String in = readNonString();
+		int length = readToken();
 		markValueRead();
 
+		if(numbers.parseDouble(token, length))
+		{
+			return numbers.getDouble();
+		}
+
+		String in = new String(token, 0, length, StandardCharsets.ISO_8859_1);
 		try
 		{
 			return Double.parseDouble(in);
@@ -392,10 +456,34 @@ public class JsonInput
 		return new ByteArrayInputStream(readByteArray());
 	}
 
+	@Override
+	public int readKey(KeyTable table)
+		throws IOException
+	{
+		StringBuilder key = this.key;
+		key.setLength(0);
+		readString(true, key);
+
+		if(peekChar() == ':')
+		{
+			readNext();
+		}
+
+		markValueRead();
+		return table.indexOf(key);
+	}
+
 	private String readString(boolean readStart)
 		throws IOException
 	{
 		StringBuilder key = new StringBuilder();
+		readString(readStart, key);
+		return key.toString();
+	}
+
+	private void readString(boolean readStart, StringBuilder key)
+		throws IOException
+	{
 		char c = read();
 		if(readStart)
 		{
@@ -416,8 +504,6 @@ public class JsonInput
 
 			c = read();
 		}
-
-		return key.toString();
 	}
 
 	private void readEscaped(StringBuilder result)
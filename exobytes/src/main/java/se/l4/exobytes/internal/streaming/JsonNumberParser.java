@@ -0,0 +1,379 @@
+package se.l4.exobytes.internal.streaming;
+
+import java.math.BigInteger;
+
+/**
+ * Parser for numbers in JSON that works on the ASCII bytes of a value
+ * without allocating. Integers are parsed with the same rules as
+ * {@link Long#parseLong(String)}. Decimal numbers use Clinger's fast path
+ * when possible and the Eisel-Lemire algorithm otherwise. Numbers that
+ * neither can handle exactly, such as those with more than 19 significant
+ * digits or subnormal results, are rejected so that the caller can fall
+ * back to {@link Double#parseDouble(String)}.
+ *
+ * <p>
+ * Results are stored in the parser, which makes it stateful. Each input
+ * should use its own instance.
+ */
+final class JsonNumberParser
+{
+	private static final int SMALLEST_POWER = -342;
+	private static final int LARGEST_POWER = 308;
+
+	/**
+	 * Exact powers of ten that can be represented as a double.
+	 */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	/**
+	 * The high and low 64 bits of a 128-bit approximation of {@code 5^q},
+	 * normalized so that the most significant bit is set.
+	 */
+	private static final long[] POWERS_OF_FIVE_HIGH;
+	private static final long[] POWERS_OF_FIVE_LOW;
+
+	static
+	{
+		int count = LARGEST_POWER - SMALLEST_POWER + 1;
+		POWERS_OF_FIVE_HIGH = new long[count];
+		POWERS_OF_FIVE_LOW = new long[count];
+
+		BigInteger five = BigInteger.valueOf(5);
+		for(int q=SMALLEST_POWER; q<=LARGEST_POWER; q++)
+		{
+			BigInteger c;
+			if(q >= 0)
+			{
+				// Truncated power of five
+				c = five.pow(q);
+				int bits = c.bitLength();
+				c = bits <= 128 ? c.shiftLeft(128 - bits) : c.shiftRight(bits - 128);
+			}
+			else
+			{
+				// Reciprocal of the power of five, rounded up
+				BigInteger power = five.pow(-q);
+				int z = power.bitLength();
+				int b = q >= -27 ? z + 127 : 2 * z + 128;
+
+				c = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+				int bits = c.bitLength();
+				if(bits > 128)
+				{
+					c = c.shiftRight(bits - 128);
+				}
+			}
+
+			POWERS_OF_FIVE_HIGH[q - SMALLEST_POWER] = c.shiftRight(64).longValue();
+			POWERS_OF_FIVE_LOW[q - SMALLEST_POWER] = c.longValue();
+		}
+	}
+
+	private long longValue;
+	private double doubleValue;
+
+	/**
+	 * Get the result of the last successful call to {@link #parseLong}.
+	 *
+	 * @return
+	 */
+	public long getLong()
+	{
+		return longValue;
+	}
+
+	/**
+	 * Get the result of the last successful call to {@link #parseDouble}.
+	 *
+	 * @return
+	 */
+	public double getDouble()
+	{
+		return doubleValue;
+	}
+
+	/**
+	 * Parse an integer.
+	 *
+	 * @param data
+	 * @param length
+	 * @return
+	 *   {@code true} if the value is an integer that fits in a long
+	 */
+	public boolean parseLong(byte[] data, int length)
+	{
+		if(length == 0) return false;
+
+		int i = 0;
+		boolean negative = false;
+		long limit = -Long.MAX_VALUE;
+
+		byte first = data[0];
+		if(first == '-')
+		{
+			negative = true;
+			limit = Long.MIN_VALUE;
+			i++;
+		}
+		else if(first == '+')
+		{
+			i++;
+		}
+
+		if(i == length) return false;
+
+		// Accumulate negatively to be able to represent Long.MIN_VALUE
+		long multmin = limit / 10;
+		long result = 0;
+		for(; i<length; i++)
+		{
+			int digit = data[i] - '0';
+			if(digit < 0 || digit > 9 || result < multmin)
+			{
+				return false;
+			}
+
+			result *= 10;
+			if(result < limit + digit)
+			{
+				return false;
+			}
+
+			result -= digit;
+		}
+
+		longValue = negative ? result : -result;
+		return true;
+	}
+
+	/**
+	 * Parse a decimal number such as {@code -12.5e3}.
+	 *
+	 * @param data
+	 * @param length
+	 * @return
+	 *   {@code true} if the value could be parsed exactly, {@code false} if
+	 *   it is invalid or needs to be handled by {@link Double#parseDouble}
+	 */
+	public boolean parseDouble(byte[] data, int length)
+	{
+		if(length == 0) return false;
+
+		int i = 0;
+		boolean negative = false;
+
+		byte first = data[0];
+		if(first == '-')
+		{
+			negative = true;
+			i++;
+		}
+		else if(first == '+')
+		{
+			i++;
+		}
+
+		long significand = 0;
+		int digits = 0;
+		int exponent = 0;
+
+		int integerStart = i;
+		for(; i<length; i++)
+		{
+			int digit = data[i] - '0';
+			if(digit < 0 || digit > 9) break;
+
+			if(significand != 0 || digit != 0)
+			{
+				if(++digits > 19) return false;
+
+				significand = significand * 10 + digit;
+			}
+		}
+
+		if(i == integerStart) return false;
+
+		if(i < length && data[i] == '.')
+		{
+			i++;
+
+			int fractionStart = i;
+			for(; i<length; i++)
+			{
+				int digit = data[i] - '0';
+				if(digit < 0 || digit > 9) break;
+
+				if(significand != 0 || digit != 0)
+				{
+					if(++digits > 19) return false;
+
+					significand = significand * 10 + digit;
+				}
+
+				exponent--;
+			}
+
+			if(i == fractionStart) return false;
+		}
+
+		if(i < length && (data[i] == 'e' || data[i] == 'E'))
+		{
+			i++;
+
+			boolean negativeExponent = false;
+			if(i < length && (data[i] == '-' || data[i] == '+'))
+			{
+				negativeExponent = data[i] == '-';
+				i++;
+			}
+
+			int exponentStart = i;
+			int value = 0;
+			for(; i<length; i++)
+			{
+				int digit = data[i] - '0';
+				if(digit < 0 || digit > 9) break;
+
+				// Anything this large is out of range anyway
+				if(value < 100_000)
+				{
+					value = value * 10 + digit;
+				}
+			}
+
+			if(i == exponentStart) return false;
+
+			exponent += negativeExponent ? -value : value;
+		}
+
+		if(i != length) return false;
+
+		if(significand == 0)
+		{
+			doubleValue = negative ? -0.0 : 0.0;
+			return true;
+		}
+
+		return toDouble(negative, significand, exponent);
+	}
+
+	/**
+	 * Convert {@code significand * 10^exponent} into a double.
+	 *
+	 * @param negative
+	 * @param significand
+	 *   unsigned significand, not zero
+	 * @param exponent
+	 * @return
+	 */
+	private boolean toDouble(boolean negative, long significand, int exponent)
+	{
+		if(exponent >= -22 && exponent <= 22 && Long.compareUnsigned(significand, 1L << 53) <= 0)
+		{
+			/*
+			 * Clinger's fast path, both the significand and the power of ten
+			 * are exact so a single operation is correctly rounded.
+			 */
+			double d = (double) significand;
+			d = exponent < 0 ? d / POWERS_OF_TEN[-exponent] : d * POWERS_OF_TEN[exponent];
+			doubleValue = negative ? -d : d;
+			return true;
+		}
+
+		return eiselLemire(negative, significand, exponent);
+	}
+
+	/**
+	 * Convert using the Eisel-Lemire algorithm, as described in "Number
+	 * Parsing at a Gigabyte per Second" by Daniel Lemire.
+	 *
+	 * @param negative
+	 * @param w
+	 * @param q
+	 * @return
+	 */
+	private boolean eiselLemire(boolean negative, long w, int q)
+	{
+		if(q < SMALLEST_POWER || q > LARGEST_POWER) return false;
+
+		int lz = Long.numberOfLeadingZeros(w);
+		w <<= lz;
+
+		int index = q - SMALLEST_POWER;
+		long factor = POWERS_OF_FIVE_HIGH[index];
+		long low = w * factor;
+		long high = unsignedMultiplyHigh(w, factor);
+
+		// Need 55 bits of precision, refine if the lower bits are all set
+		if((high & 0x1ff) == 0x1ff)
+		{
+			long secondHigh = unsignedMultiplyHigh(w, POWERS_OF_FIVE_LOW[index]);
+			long newLow = low + secondHigh;
+			if(Long.compareUnsigned(secondHigh, newLow) > 0)
+			{
+				high++;
+			}
+
+			low = newLow;
+
+			if(low == -1L && (q < -27 || q > 55))
+			{
+				// Can not decide on rounding
+				return false;
+			}
+		}
+
+		int upperBit = (int) (high >>> 63);
+		long mantissa = high >>> (upperBit + 9);
+		int power2 = (((152170 + 65536) * q) >> 16) + 63 + upperBit - lz + 1023;
+
+		if(power2 <= 0)
+		{
+			// Subnormal, leave these to the slow path
+			return false;
+		}
+
+		if(Long.compareUnsigned(low, 1) <= 0 && q >= -4 && q <= 23 && (mantissa & 3) == 1)
+		{
+			// Exactly halfway between two values, round to even
+			if((mantissa << (upperBit + 9)) == high)
+			{
+				mantissa &= ~1L;
+			}
+		}
+
+		mantissa += mantissa & 1;
+		mantissa >>>= 1;
+
+		if(mantissa >= (2L << 52))
+		{
+			mantissa = 1L << 52;
+			power2++;
+		}
+
+		mantissa &= ~(1L << 52);
+
+		if(power2 >= 0x7ff)
+		{
+			// Infinity, leave it to the slow path
+			return false;
+		}
+
+		long bits = mantissa | ((long) power2 << 52);
+		if(negative)
+		{
+			bits |= 1L << 63;
+		}
+
+		doubleValue = Double.longBitsToDouble(bits);
+		return true;
+	}
+
+	private static long unsignedMultiplyHigh(long a, long b)
+	{
+		return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+	}
+}
@@ -3,16 +3,17 @@ package se.l4.exobytes.internal.streaming;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Arrays;
+import java.util.Objects;
 
-import se.l4.exobytes.streaming.StreamingOutput;
+import se.l4.exobytes.streaming.BufferRecycler;
+import se.l4.exobytes.streaming.ReusableStreamingOutput;
 
 /**
  * Streamer that outputs JSON.
  *
  */
 public class JsonOutput
-	implements StreamingOutput
+	implements ReusableStreamingOutput
 {
 	private static final int HEX_MASK = (1 << 4) - 1;
 
@@ -29,18 +30,31 @@ public class JsonOutput
 		'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '+', '/'
 	};
 
-	private static final int LEVELS = 20;
+	/**
+	 * ASCII chars that can not be written as they are in a string.
+	 */
+	private static final boolean[] ESCAPES = new boolean[127];
+
+	static
+	{
+		for(int i=0; i<0x20; i++)
+		{
+			ESCAPES[i] = true;
+		}
+
+		ESCAPES['"'] = true;
+		ESCAPES['\\'] = true;
+	}
 
-	protected final OutputStream out1;
+	protected OutputStream out1;
 	private final boolean beautify;
+	private final BufferRecycler recycler;
 
 	private byte[] buffer;
 	private int index;
+	private boolean closed;
 
-	private boolean[] lists;
-	private boolean[] hasData;
-
-	private int level;
+	private final NestingStack nesting;
 	private boolean nextKey;
 
 	/**
@@ -61,50 +75,141 @@ public class JsonOutput
 	 * @param beautify
 	 */
 	public JsonOutput(OutputStream out, boolean beautify)
+	{
+		this(out, beautify, BufferRecycler.threadLocal());
+	}
+
+	/**
+	 * Create a JSON streamer that will write to the given output using a
+	 * buffer from the given recycler. The buffer is flushed to the output
+	 * whenever it fills up. It is given back to the recycler on close or when
+	 * flushed outside of any list or object, and acquired again on the next
+	 * write.
+	 *
+	 * @param out
+	 * @param beautify
+	 * @param recycler
+	 */
+	public JsonOutput(OutputStream out, boolean beautify, BufferRecycler recycler)
+	{
+		this(out, beautify, recycler, NestingStack.DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Create a JSON streamer that will write to the given output using a
+	 * buffer from the given recycler, failing if lists and objects are
+	 * nested deeper than the given depth.
+	 *
+	 * @param out
+	 * @param beautify
+	 * @param recycler
+	 * @param maxDepth
+	 */
+	public JsonOutput(OutputStream out, boolean beautify, BufferRecycler recycler, int maxDepth)
 	{
 		this.out1 = out;
 		this.beautify = beautify;
+		this.recycler = recycler;
+
+		this.buffer = out == null ? null : recycler.acquire();
+
+		nesting = new NestingStack(maxDepth, true, 0);
+	}
+
+	/**
+	 * Create a JSON streamer that is not connected to any output.
+	 * {@link #reset(OutputStream)} must be called before writing, which is
+	 * also when a buffer is acquired from the recycler.
+	 *
+	 * @param beautify
+	 * @param recycler
+	 * @param maxDepth
+	 */
+	public JsonOutput(boolean beautify, BufferRecycler recycler, int maxDepth)
+	{
+		this(null, beautify, recycler, maxDepth);
+	}
+
+	@Override
+	public void reset(OutputStream out)
+	{
+		this.out1 = Objects.requireNonNull(out);
 
-		this.buffer = new byte[32];
+		if(buffer == null)
+		{
+			buffer = recycler.acquire();
+		}
 
-		lists = new boolean[LEVELS];
-		hasData = new boolean[LEVELS];
+		index = 0;
+		closed = false;
+
+		nesting.reset(true, 0);
+		nextKey = false;
 	}
 
 	@Override
 	public void close()
 		throws IOException
 	{
-		flushBuffer();
-		out1.close();
+		if(closed || out1 == null) return;
+
+		closed = true;
+		try
+		{
+			if(buffer != null)
+			{
+				flushBuffer();
+			}
+
+			out1.close();
+		}
+		finally
+		{
+			releaseBuffer();
+		}
 	}
 
 	@Override
 	public void flush()
 		throws IOException
 	{
-		flushBuffer();
+		if(closed || out1 == null) return;
+
+		if(buffer != null)
+		{
+			flushBuffer();
+
+			if(nesting.getDepth() == 0)
+			{
+				// Outputs that are only flushed should not hold on to the buffer
+				releaseBuffer();
+			}
+		}
+
 		out1.flush();
 	}
 
+	/**
+	 * Give the buffer back to the recycler.
+	 */
+	private void releaseBuffer()
+	{
+		if(buffer == null) return;
+
+		recycler.release(buffer);
+		buffer = null;
+		index = 0;
+	}
+
 	/**
 	 * Increase the level by one.
 	 *
 	 * @param list
 	 */
 	private void increaseLevel(boolean list)
+		throws IOException
 	{
-		level++;
-
-		if(hasData.length == level)
-		{
-			// Grow lists when needed
-			hasData = Arrays.copyOf(hasData, hasData.length * 2);
-			lists = Arrays.copyOf(lists, hasData.length * 2);
-		}
-
-		hasData[level] = false;
-		lists[level] = list;
+		nesting.push(list, 0);
 
 		nextKey = ! list;
 	}
@@ -117,12 +222,13 @@ public class JsonOutput
 	private void decreaseLevel()
 		throws IOException
 	{
-		level--;
-		nextKey = ! lists[level];
+		nesting.pop();
+		nextKey = ! nesting.isList();
 
-		if(beautify && hasData[level])
+		int level = nesting.getDepth();
+		if(beautify && level > 0 && nesting.hasData())
 		{
-			ensure(level);
+			ensure(level + 1);
 			buffer[index++] = '\n';
 
 			for(int i=0; i<level; i++)
@@ -145,7 +251,7 @@ public class JsonOutput
 		}
 
 		// If we are reading an object make sure there is a key
-		nextKey = ! lists[level];
+		nextKey = ! nesting.isList();
 	}
 
 	/**
@@ -156,22 +262,36 @@ public class JsonOutput
 	private void startWrite()
 		throws IOException
 	{
-		if(! lists[level] && ! nextKey)
+		if(nesting.getDepth() == 0)
+		{
+			// Separate values at the root so a sequence becomes newline-delimited JSON
+			if(nesting.hasData())
+			{
+				ensure(1);
+				buffer[index++] = '\n';
+			}
+
+			nesting.markData();
+			return;
+		}
+
+		if(! nesting.isList() && ! nextKey)
 		{
 			return;
 		}
 
-		if(hasData[level])
+		if(nesting.hasData())
 		{
 			ensure(1);
 			buffer[index++] = ',';
 		}
 
-		hasData[level] = true;
+		nesting.markData();
 
+		int level = nesting.getDepth();
 		if(beautify && level > 0)
 		{
-			ensure(level);
+			ensure(level + 1);
 			buffer[index++] = '\n';
 
 			for(int i=0; i<level; i++)
@@ -241,72 +361,24 @@ public class JsonOutput
 		ensure(1);
 		buffer[index++] = '"';
 
-		for(int i=0, n=value.length(); i<n; i++)
+		int i = 0;
+		int n = value.length();
+		while(i < n)
 		{
-			char c = value.charAt(i);
-			switch(c)
+			// Copy the run of chars that can be written as they are in bulk
+			int runEnd = scanUnescaped(value, i, n);
+			while(i < runEnd)
 			{
-				case '"':
-					ensure(2);
-					buffer[index++] = '\\';
-					buffer[index++] = '"';
-					break;
-				case '\\':
-					ensure(2);
-					buffer[index++] = '\\';
-					buffer[index++] = '\\';
-					break;
-				case '\r':
-					ensure(2);
-					buffer[index++] = '\\';
-					buffer[index++] = 'r';
-					break;
-				case '\n':
-					ensure(2);
-					buffer[index++] = '\\';
-					buffer[index++] = 'n';
-					break;
-				case '\t':
-					ensure(2);
-					buffer[index++] = '\\';
-					buffer[index++] = 't';
-					break;
-				case '\b':
-					ensure(2);
-					buffer[index++] = '\\';
-					buffer[index++] = 'b';
-					break;
-				case '\f':
-					ensure(2);
-					buffer[index++] = '\\';
-					buffer[index++] = 'f';
-					break;
-				default:
-					if(c <= 0x1F)
-					{
-						ensure(6);
-						buffer[index++] = '\\';
-						buffer[index++] = 'u';
-						buffer[index++] = '0';
-						buffer[index++] = '0';
-						buffer[index++] = DIGITS[(c >> 4) & HEX_MASK];
-						buffer[index++] = DIGITS[c & HEX_MASK];
-					}
-					else if(c >= 127)
-					{
-						ensure(6);
-						buffer[index++] = '\\';
-						buffer[index++] = 'u';
-						buffer[index++] = DIGITS[(c >> 12) & HEX_MASK];
-						buffer[index++] = DIGITS[(c >> 8) & HEX_MASK];
-						buffer[index++] = DIGITS[(c >> 4) & HEX_MASK];
-						buffer[index++] = DIGITS[c & HEX_MASK];
-					}
-					else
-					{
-						ensure(1);
-						buffer[index++] = (byte) c;
-					}
+				ensure(1);
+
+				int end = Math.min(runEnd, i + (buffer.length - index));
+				copyUnescaped(value, i, end);
+				i = end;
+			}
+
+			if(i < n)
+			{
+				writeEscaped(value.charAt(i++));
 			}
 		}
 
@@ -321,20 +393,127 @@ public class JsonOutput
 		}
 		else
 		{
-			nextKey = ! lists[level];
+			nextKey = ! nesting.isList();
 		}
 	}
 
-	private void writeUnescaped(String value)
-		throws IOException
+	/**
+	 * Find the end of the run of chars starting at the given index that can
+	 * be written without escaping.
+	 *
+	 * @param value
+	 * @param start
+	 * @param end
+	 * @return
+	 *   index of the first char that needs escaping, or {@code end}
+	 */
+	private static int scanUnescaped(String value, int start, int end)
 	{
-		startWrite();
-		failKey();
+		boolean[] escapes = ESCAPES;
+		int i = start;
+		while(i < end)
+		{
+			char c = value.charAt(i);
+			if(c >= 127 || escapes[c]) break;
+
+			i++;
+		}
+
+		return i;
+	}
 
-		ensure(value.length());
-		for(int i=0, n=value.length(); i<n; i++)
+	/**
+	 * Copy a run of chars that do not need escaping into the buffer. The
+	 * caller must make sure that the buffer has room.
+	 *
+	 * @param value
+	 * @param start
+	 * @param end
+	 */
+	@SuppressWarnings("deprecation")
+	private void copyUnescaped(String value, int start, int end)
+	{
+		/*
+		 * This variant of getBytes drops the high byte of each char, which is
+		 * safe as the run only contains ASCII. For compact strings it is a
+		 * plain array copy.
+		 */
+		value.getBytes(start, end, buffer, index);
+		index += end - start;
+	}
+
+	/**
+	 * Write a single char that needs to be escaped.
+	 *
+	 * @param c
+	 * @throws IOException
+	 */
+	private void writeEscaped(char c)
+		throws IOException
+	{
+		switch(c)
 		{
-			buffer[index++] = (byte) value.charAt(i);
+			case '"':
+				ensure(2);
+				buffer[index++] = '\\';
+				buffer[index++] = '"';
+				break;
+			case '\\':
+				ensure(2);
+				buffer[index++] = '\\';
+				buffer[index++] = '\\';
+				break;
+			case '\r':
+				ensure(2);
+				buffer[index++] = '\\';
+				buffer[index++] = 'r';
+				break;
+			case '\n':
+				ensure(2);
+				buffer[index++] = '\\';
+				buffer[index++] = 'n';
+				break;
+			case '\t':
+				ensure(2);
+				buffer[index++] = '\\';
+				buffer[index++] = 't';
+				break;
+			case '\b':
+				ensure(2);
+				buffer[index++] = '\\';
+				buffer[index++] = 'b';
+				break;
+			case '\f':
+				ensure(2);
+				buffer[index++] = '\\';
+				buffer[index++] = 'f';
+				break;
+			default:
+				if(c <= 0x1F)
+				{
+					ensure(6);
+					buffer[index++] = '\\';
+					buffer[index++] = 'u';
+					buffer[index++] = '0';
+					buffer[index++] = '0';
+					buffer[index++] = DIGITS[(c >> 4) & HEX_MASK];
+					buffer[index++] = DIGITS[c & HEX_MASK];
+				}
+				else if(c >= 127)
+				{
+					ensure(6);
+					buffer[index++] = '\\';
+					buffer[index++] = 'u';
+					buffer[index++] = DIGITS[(c >> 12) & HEX_MASK];
+					buffer[index++] = DIGITS[(c >> 8) & HEX_MASK];
+					buffer[index++] = DIGITS[(c >> 4) & HEX_MASK];
+					buffer[index++] = DIGITS[c & HEX_MASK];
+				}
+				else
+				{
+					ensure(1);
+					buffer[index++] = (byte) c;
+				}
 		}
 	}
 
@@ -342,7 +521,7 @@ public class JsonOutput
 	public void writeByte(byte b)
 		throws IOException
 	{
-		writeUnescaped(Byte.toString(b));
+		writeInt(b);
 	}
 
 	@Override
@@ -356,54 +535,51 @@ public class JsonOutput
 	public void writeShort(short s)
 		throws IOException
 	{
-		writeUnescaped(Short.toString(s));
+		writeInt(s);
 	}
 
 	@Override
 	public void writeInt(int number)
 		throws IOException
 	{
-		writeUnescaped(Integer.toString(number));
-		/*
 		startWrite();
 		failKey();
 
-		int idx = numberBuf.length;
-		int v = number < 0 ? - number : number;
-		while(v > 0)
-		{
-			numberBuf[--idx] = DIGITS[v % 10];
-			v /= 10;
-		}
-
-		if(number < 0)
-		{
-			numberBuf[--idx] = '-';
-		}
-
-		out.write(numberBuf, idx, numberBuf.length - idx);
-		*/
+		ensure(NumberWriter.MAX_INT_LENGTH);
+		index = NumberWriter.writeInt(number, buffer, index);
 	}
 
 	@Override
 	public void writeLong(long number)
 		throws IOException
 	{
-		writeUnescaped(Long.toString(number));
+		startWrite();
+		failKey();
+
+		ensure(NumberWriter.MAX_LONG_LENGTH);
+		index = NumberWriter.writeLong(number, buffer, index);
 	}
 
 	@Override
 	public void writeFloat(float number)
 		throws IOException
 	{
-		writeUnescaped(Float.toString(number));
+		startWrite();
+		failKey();
+
+		ensure(NumberWriter.MAX_FLOAT_LENGTH);
+		index = NumberWriter.writeFloat(number, buffer, index);
 	}
 
 	@Override
 	public void writeDouble(double number)
 		throws IOException
 	{
-		writeUnescaped(Double.toString(number));
+		startWrite();
+		failKey();
+
+		ensure(NumberWriter.MAX_DOUBLE_LENGTH);
+		index = NumberWriter.writeDouble(number, buffer, index);
 	}
 
 	@Override
@@ -539,26 +715,41 @@ public class JsonOutput
 		buffer[index++] = 'l';
 	}
 
+	/**
+	 * Make sure that the buffer has room for the given number of bytes,
+	 * flushing it if needed. The buffer only grows beyond the size given to
+	 * it by the recycler for single writes that are larger than it.
+	 *
+	 * @param numberOfBytes
+	 * @throws IOException
+	 */
 	private void ensure(int numberOfBytes)
 		throws IOException
 	{
-		if(buffer.length > index + numberOfBytes)
+		if(buffer == null)
+		{
+			if(closed || out1 == null)
+			{
+				throw new IOException("Output has been closed");
+			}
+
+			// The buffer was given back when the output was flushed
+			buffer = recycler.acquire();
+		}
+		else if(buffer.length - index >= numberOfBytes)
 		{
 			return;
 		}
-
-		// TODO: Do we want to automatically flush?
-		if(index > 512)
+		else
 		{
 			flushBuffer();
 		}
 
-		int length = buffer.length;
-		if(length < numberOfBytes)
+		if(buffer.length < numberOfBytes)
 		{
-			length = numberOfBytes;
+			recycler.release(buffer);
+			buffer = new byte[numberOfBytes];
 		}
-		buffer = Arrays.copyOf(buffer, buffer.length + length);
 	}
 
 	private void flushBuffer()
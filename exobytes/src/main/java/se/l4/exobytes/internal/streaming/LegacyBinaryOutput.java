@@ -3,7 +3,6 @@ package se.l4.exobytes.internal.streaming;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Arrays;
 
 import se.l4.exobytes.streaming.StreamingFormat;
 import se.l4.exobytes.streaming.StreamingOutput;
@@ -17,8 +16,6 @@ import se.l4.exobytes.streaming.StreamingOutput;
 public class LegacyBinaryOutput
 	implements StreamingOutput
 {
-	private static final int LEVELS = 20;
-
 	public static final int TAG_KEY = 0;
 
 	public static final int TAG_OBJECT_START = 1;
@@ -41,16 +38,14 @@ public class LegacyBinaryOutput
 
 	private final OutputStream out;
 
-	private boolean[] lists;
+	private final NestingStack nesting;
 	private boolean nextKey;
 
-	private int level;
-
 	public LegacyBinaryOutput(OutputStream out)
 	{
 		this.out = out;
 
-		lists = new boolean[LEVELS];
+		nesting = new NestingStack(NestingStack.DEFAULT_MAX_DEPTH, false, 0);
 	}
 
 	@Override
@@ -67,15 +62,9 @@ public class LegacyBinaryOutput
 	 * @param list
 	 */
 	private void increaseLevel(boolean list)
+		throws IOException
 	{
-		level++;
-		if(lists.length == level)
-		{
-			// Grow lists when needed
-			lists = Arrays.copyOf(lists, lists.length * 2);
-		}
-
-		lists[level] = list;
+		nesting.push(list, 0);
 		nextKey = ! list;
 	}
 
@@ -87,8 +76,8 @@ public class LegacyBinaryOutput
 	private void decreaseLevel()
 		throws IOException
 	{
-		level--;
-		nextKey = ! lists[level];
+		nesting.pop();
+		nextKey = ! nesting.isList();
 	}
 
 	/**
@@ -104,7 +93,7 @@ public class LegacyBinaryOutput
 		}
 
 		// If we are reading an object make sure there is a key
-		nextKey = ! lists[level];
+		nextKey = ! nesting.isList();
 	}
 
 	@Override
@@ -167,7 +156,7 @@ public class LegacyBinaryOutput
 		{
 			out.write(TAG_STRING);
 
-			nextKey = ! lists[level];
+			nextKey = ! nesting.isList();
 		}
 
 		writeIntegerNoTag(value.length());
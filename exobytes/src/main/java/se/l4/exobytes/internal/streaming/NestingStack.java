@@ -0,0 +1,176 @@
+package se.l4.exobytes.internal.streaming;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Stack of the lists and objects currently open in an input or output. Each
+ * level is packed into a single {@code long}, with the lowest bits used as
+ * flags for if the level is a list and if data has been written to it, and
+ * the rest holding a signed count used by formats that track the number of
+ * remaining items. The stack grows as needed up to a maximum depth, so that
+ * deeply nested data is rejected with an {@link IOException} instead of
+ * exhausting memory.
+ */
+public final class NestingStack
+{
+	/**
+	 * The maximum depth used if nothing else is specified.
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 1000;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final long LIST = 1;
+	private static final long DATA = 2;
+	private static final int COUNT_SHIFT = 2;
+
+	private final int maxDepth;
+
+	private long[] levels;
+	private int depth;
+
+	/**
+	 * Create a new stack.
+	 *
+	 * @param maxDepth
+	 *   the maximum number of lists and objects that can be open at the same
+	 *   time
+	 * @param rootIsList
+	 *   if the root level should be treated as a list
+	 * @param rootCount
+	 *   the count of the root level
+	 */
+	public NestingStack(int maxDepth, boolean rootIsList, long rootCount)
+	{
+		if(maxDepth < 1)
+		{
+			throw new IllegalArgumentException("maxDepth must be at least 1, was " + maxDepth);
+		}
+
+		this.maxDepth = maxDepth;
+
+		levels = new long[Math.min(INITIAL_CAPACITY, maxDepth + 1)];
+		levels[0] = pack(rootIsList, rootCount);
+	}
+
+	/**
+	 * Clear the stack so that only the root level remains.
+	 *
+	 * @param rootIsList
+	 *   if the root level should be treated as a list
+	 * @param rootCount
+	 *   the count of the root level
+	 */
+	public void reset(boolean rootIsList, long rootCount)
+	{
+		depth = 0;
+		levels[0] = pack(rootIsList, rootCount);
+	}
+
+	private static long pack(boolean list, long count)
+	{
+		return (count << COUNT_SHIFT) | (list ? LIST : 0);
+	}
+
+	/**
+	 * Open a new list or object.
+	 *
+	 * @param list
+	 *   if the new level is a list
+	 * @param count
+	 *   initial count of the new level
+	 * @throws IOException
+	 *   if the maximum depth would be exceeded
+	 */
+	public void push(boolean list, long count)
+		throws IOException
+	{
+		if(depth == maxDepth)
+		{
+			throw new IOException("Maximum nesting depth of " + maxDepth + " exceeded");
+		}
+
+		depth++;
+		if(depth == levels.length)
+		{
+			// Grow the stack when needed
+			levels = Arrays.copyOf(levels, Math.min(levels.length * 2, maxDepth + 1));
+		}
+
+		levels[depth] = pack(list, count);
+	}
+
+	/**
+	 * Close the current list or object.
+	 *
+	 * @throws IOException
+	 *   if no list or object is open
+	 */
+	public void pop()
+		throws IOException
+	{
+		if(depth == 0)
+		{
+			throw new IOException("Tried to end a list or object, but none is open");
+		}
+
+		depth--;
+	}
+
+	/**
+	 * Get the current depth, {@code 0} when no list or object is open.
+	 *
+	 * @return
+	 */
+	public int getDepth()
+	{
+		return depth;
+	}
+
+	/**
+	 * Get if the current level is a list.
+	 *
+	 * @return
+	 */
+	public boolean isList()
+	{
+		return (levels[depth] & LIST) != 0;
+	}
+
+	/**
+	 * Get the count of the current level.
+	 *
+	 * @return
+	 */
+	public long getCount()
+	{
+		return levels[depth] >> COUNT_SHIFT;
+	}
+
+	/**
+	 * Decrease the count of the current level by one.
+	 */
+	public void decrementCount()
+	{
+		levels[depth] -= 1L << COUNT_SHIFT;
+	}
+
+	/**
+	 * Get if data has been marked as written to the current level.
+	 *
+	 * @return
+	 */
+	public boolean hasData()
+	{
+		return (levels[depth] & DATA) != 0;
+	}
+
+	/**
+	 * Mark that data has been written to the current level.
+	 */
+	public void markData()
+	{
+		levels[depth] |= DATA;
+	}
+}
@@ -0,0 +1,392 @@
+package se.l4.exobytes.internal.streaming;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import se.l4.exobytes.streaming.NonBlockingInput;
+import se.l4.exobytes.streaming.Token;
+
+/**
+ * {@link NonBlockingInput} for JSON. Data that is fed is appended to the
+ * buffer of {@link Utf8JsonInput} and tokens are only decoded once all of
+ * their bytes are available. Scans for the end of strings, numbers and
+ * complete values remember where they stopped, so data fed in small chunks
+ * is only looked at once.
+ */
+public class NonBlockingJsonInput
+	extends Utf8JsonInput
+	implements NonBlockingInput
+{
+	private static final int INITIAL_CAPACITY = 4096;
+
+	private boolean endOfInput;
+
+	/**
+	 * Position of the first byte of the token that is being scanned,
+	 * {@code -1} if no token scan is active.
+	 */
+	private int tokenStart;
+	/**
+	 * Position the token scan will continue from.
+	 */
+	private int tokenPosition;
+	private boolean tokenEscape;
+
+	/**
+	 * Position in {@link #buffer} that the current scan for a complete value
+	 * started at, {@code -1} if no scan is active.
+	 */
+	private int scanStart;
+	private int scanPosition;
+	private int scanDepth;
+	private boolean scanInString;
+	private boolean scanEscape;
+	private boolean scanInToken;
+	private boolean scanComplete;
+
+	public NonBlockingJsonInput(int maxDepth)
+	{
+		super(maxDepth);
+
+		tokenStart = -1;
+		scanStart = -1;
+	}
+
+	@Override
+	public void feed(ByteBuffer data)
+		throws IOException
+	{
+		if(endOfInput)
+		{
+			throw new IOException("Can not feed data after end of input");
+		}
+
+		int length = data.remaining();
+		if(buffer.length - limit < length)
+		{
+			makeRoom(length);
+		}
+
+		data.get(buffer, limit, length);
+		limit += length;
+	}
+
+	/**
+	 * Make room for the given number of bytes after {@link #limit}, first by
+	 * discarding consumed data and then by growing the buffer.
+	 *
+	 * @param length
+	 */
+	private void makeRoom(int length)
+	{
+		int shift = position;
+		if(shift > 0)
+		{
+			System.arraycopy(buffer, shift, buffer, 0, limit - shift);
+
+			position = 0;
+			limit -= shift;
+			tokenStart -= shift;
+			tokenPosition -= shift;
+			scanStart -= shift;
+			scanPosition -= shift;
+		}
+
+		if(buffer.length - limit < length)
+		{
+			int required = limit + length;
+			if(required < 0)
+			{
+				throw new OutOfMemoryError("Required buffer size too large");
+			}
+
+			buffer = Arrays.copyOf(buffer, Math.max(required, Math.max(INITIAL_CAPACITY, buffer.length * 2)));
+		}
+	}
+
+	@Override
+	public void endOfInput()
+	{
+		endOfInput = true;
+	}
+
+	@Override
+	protected Token peek0()
+		throws IOException
+	{
+		if(! isTokenAvailable())
+		{
+			return Token.NEED_MORE_INPUT;
+		}
+
+		return super.peek0();
+	}
+
+	@Override
+	public Token next0()
+		throws IOException
+	{
+		if(! isTokenAvailable())
+		{
+			return Token.NEED_MORE_INPUT;
+		}
+
+		return super.next0();
+	}
+
+	/**
+	 * Check if all the bytes of the next token have been fed. Strings and
+	 * other values need to be followed by something, as reading them looks
+	 * at the next byte to find a delimiter or the colon after a key.
+	 *
+	 * @return
+	 */
+	private boolean isTokenAvailable()
+	{
+		/*
+		 * Commas that arrived after the previous value was read are not
+		 * seen by the regular whitespace skipping, consume them here.
+		 */
+		int p = skipWhitespace(position);
+		position = p;
+
+		if(endOfInput)
+		{
+			return true;
+		}
+		else if(p == limit)
+		{
+			return false;
+		}
+
+		switch(buffer[p])
+		{
+			case '{':
+			case '}':
+			case '[':
+			case ']':
+				return true;
+		}
+
+		if(tokenStart != p)
+		{
+			// New token, start scanning directly after its first byte
+			tokenStart = p;
+			tokenPosition = p + 1;
+			tokenEscape = false;
+		}
+
+		if(buffer[p] == '"')
+		{
+			int end = findStringEnd();
+			if(end < 0)
+			{
+				return false;
+			}
+
+			if(nesting.getDepth() > 0 && ! nesting.isList())
+			{
+				// Within objects the next byte decides if the string is a key
+				return skipWhitespace(end) < limit;
+			}
+
+			return true;
+		}
+
+		return findDelimiter() >= 0;
+	}
+
+	/**
+	 * Skip whitespace and commas, which are treated as whitespace.
+	 *
+	 * @param p
+	 * @return
+	 *   the position of the first other byte, or {@link #limit}
+	 */
+	private int skipWhitespace(int p)
+	{
+		while(p < limit)
+		{
+			int b = buffer[p];
+			if(! isWhitespace(b) && b != ',')
+			{
+				return p;
+			}
+
+			p++;
+		}
+
+		return p;
+	}
+
+	/**
+	 * Continue looking for the closing quote of the string at
+	 * {@link #tokenStart}.
+	 *
+	 * @return
+	 *   position after the closing quote or {@code -1} if it has not been
+	 *   fed yet
+	 */
+	private int findStringEnd()
+	{
+		byte[] buffer = this.buffer;
+		for(int p=tokenPosition; p<limit; p++)
+		{
+			if(tokenEscape)
+			{
+				tokenEscape = false;
+			}
+			else if(buffer[p] == '\\')
+			{
+				tokenEscape = true;
+			}
+			else if(buffer[p] == '"')
+			{
+				tokenPosition = p;
+				return p + 1;
+			}
+		}
+
+		tokenPosition = limit;
+		return -1;
+	}
+
+	/**
+	 * Continue looking for the delimiter that ends the number, boolean or
+	 * null at {@link #tokenStart}.
+	 *
+	 * @return
+	 *   position of the delimiter or {@code -1} if it has not been fed yet
+	 */
+	private int findDelimiter()
+	{
+		for(int p=tokenPosition; p<limit; p++)
+		{
+			if(isDelimiter(buffer[p] & 0xff))
+			{
+				tokenPosition = p;
+				return p;
+			}
+		}
+
+		tokenPosition = limit;
+		return -1;
+	}
+
+	@Override
+	public boolean isValueAvailable()
+		throws IOException
+	{
+		if(scanStart != position)
+		{
+			// The input has moved since the last scan, start over
+			scanStart = position;
+			scanPosition = position;
+			scanDepth = 0;
+			scanInString = false;
+			scanEscape = false;
+			scanInToken = false;
+			scanComplete = false;
+		}
+
+		if(! scanComplete)
+		{
+			scanComplete = scan();
+		}
+
+		if(endOfInput && ! scanComplete)
+		{
+			if(scanDepth > 0 || scanInString)
+			{
+				throw new EOFException("Input ended in the middle of a value");
+			}
+
+			// Only whitespace or a value that ends with the input remains
+			return true;
+		}
+
+		return scanComplete;
+	}
+
+	/**
+	 * Continue scanning for the end of the value that starts at
+	 * {@link #scanStart}.
+	 *
+	 * @return
+	 *   if the end of the value has been reached
+	 */
+	private boolean scan()
+	{
+		byte[] buffer = this.buffer;
+		while(scanPosition < limit)
+		{
+			int b = buffer[scanPosition] & 0xff;
+
+			if(scanInString)
+			{
+				scanPosition++;
+
+				if(scanEscape)
+				{
+					scanEscape = false;
+				}
+				else if(b == '\\')
+				{
+					scanEscape = true;
+				}
+				else if(b == '"')
+				{
+					scanInString = false;
+					if(scanDepth == 0)
+					{
+						return true;
+					}
+				}
+
+				continue;
+			}
+
+			if(scanInToken)
+			{
+				// Values that are not strings end at the first delimiter
+				if(isDelimiter(b))
+				{
+					return true;
+				}
+
+				scanPosition++;
+				continue;
+			}
+
+			scanPosition++;
+			switch(b)
+			{
+				case '"':
+					scanInString = true;
+					break;
+				case '{':
+				case '[':
+					scanDepth++;
+					break;
+				case '}':
+				case ']':
+					scanDepth--;
+					if(scanDepth <= 0)
+					{
+						// End of the value or malformed data that reading will report
+						return true;
+					}
+					break;
+				default:
+					if(scanDepth == 0 && b != ',' && ! isWhitespace(b))
+					{
+						scanInToken = true;
+					}
+			}
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,726 @@
+package se.l4.exobytes.internal.streaming;
+
+import java.math.BigInteger;
+
+/**
+ * Writes numbers as ASCII text directly into a byte array. Integers are
+ * written two digits at a time using a lookup table. Floating point numbers
+ * use the Schubfach algorithm by Raffaello Giulietti to find the shortest
+ * decimal that rounds to the same value, and are formatted the same way as
+ * {@link Double#toString(double)} and {@link Float#toString(float)} from JDK
+ * 19. Earlier JDKs do not always pick the shortest decimal, so some values
+ * such as {@code 2.0E23} differ from their output.
+ */
+final class NumberWriter
+{
+	/**
+	 * Maximum number of bytes written for an int.
+	 */
+	static final int MAX_INT_LENGTH = 11;
+	/**
+	 * Maximum number of bytes written for a long.
+	 */
+	static final int MAX_LONG_LENGTH = 20;
+	/**
+	 * Maximum number of bytes written for a float.
+	 */
+	static final int MAX_FLOAT_LENGTH = 15;
+	/**
+	 * Maximum number of bytes written for a double.
+	 */
+	static final int MAX_DOUBLE_LENGTH = 24;
+
+	private static final byte[] DIGIT_PAIRS = new byte[200];
+
+	private static final long[] POWERS_OF_TEN = new long[19];
+
+	private static final byte[] MIN_LONG = { '-', '9', '2', '2', '3', '3', '7', '2', '0', '3', '6', '8', '5', '4', '7', '7', '5', '8', '0', '8' };
+	private static final byte[] MIN_INT = { '-', '2', '1', '4', '7', '4', '8', '3', '6', '4', '8' };
+
+	private static final byte[] NAN = { 'N', 'a', 'N' };
+	private static final byte[] INFINITY = { 'I', 'n', 'f', 'i', 'n', 'i', 't', 'y' };
+	private static final byte[] NEGATIVE_INFINITY = { '-', 'I', 'n', 'f', 'i', 'n', 'i', 't', 'y' };
+
+	private static final int K_MIN = -324;
+	private static final int K_MAX = 292;
+
+	/**
+	 * The higher and lower 63 bits of {@code g = floor(10^-k 2^-r) + 1},
+	 * where {@code r} is chosen so that {@code 2^125 <= g < 2^126}.
+	 */
+	private static final long[] G1;
+	private static final long[] G0;
+
+	private static final long MASK_63 = (1L << 63) - 1;
+	private static final long MASK_32 = (1L << 32) - 1;
+	private static final int MASK_28 = (1 << 28) - 1;
+
+	private static final int DOUBLE_P = 53;
+	private static final int DOUBLE_Q_MIN = -1074;
+	private static final long DOUBLE_C_MIN = 1L << 52;
+	private static final int DOUBLE_BQ_MASK = 0x7ff;
+	private static final long DOUBLE_T_MASK = (1L << 52) - 1;
+	private static final long DOUBLE_C_TINY = 3;
+	private static final int DOUBLE_H = 17;
+
+	private static final int FLOAT_P = 24;
+	private static final int FLOAT_Q_MIN = -149;
+	private static final int FLOAT_C_MIN = 1 << 23;
+	private static final int FLOAT_BQ_MASK = 0xff;
+	private static final int FLOAT_T_MASK = (1 << 23) - 1;
+	private static final int FLOAT_C_TINY = 8;
+	private static final int FLOAT_H = 9;
+
+	static
+	{
+		for(int i=0; i<100; i++)
+		{
+			DIGIT_PAIRS[i * 2] = (byte) ('0' + i / 10);
+			DIGIT_PAIRS[i * 2 + 1] = (byte) ('0' + i % 10);
+		}
+
+		long p = 1;
+		for(int i=0; i<POWERS_OF_TEN.length; i++)
+		{
+			POWERS_OF_TEN[i] = p;
+			p *= 10;
+		}
+
+		G1 = new long[K_MAX - K_MIN + 1];
+		G0 = new long[K_MAX - K_MIN + 1];
+
+		BigInteger ten = BigInteger.TEN;
+		for(int k=K_MIN; k<=K_MAX; k++)
+		{
+			BigInteger g;
+			if(k <= 0)
+			{
+				BigInteger power = ten.pow(-k);
+				int bits = power.bitLength();
+				g = bits <= 126 ? power.shiftLeft(126 - bits) : power.shiftRight(bits - 126);
+			}
+			else
+			{
+				BigInteger power = ten.pow(k);
+				g = BigInteger.ONE.shiftLeft(power.bitLength() + 125).divide(power);
+			}
+
+			g = g.add(BigInteger.ONE);
+			G1[k - K_MIN] = g.shiftRight(63).longValue();
+			G0[k - K_MIN] = g.longValue() & MASK_63;
+		}
+	}
+
+	private NumberWriter()
+	{
+	}
+
+	/**
+	 * Write an int.
+	 *
+	 * @param value
+	 * @param buffer
+	 *   buffer with room for at least {@link #MAX_INT_LENGTH} bytes
+	 * @param index
+	 * @return
+	 *   the index after the last written byte
+	 */
+	static int writeInt(int value, byte[] buffer, int index)
+	{
+		if(value < 0)
+		{
+			if(value == Integer.MIN_VALUE)
+			{
+				System.arraycopy(MIN_INT, 0, buffer, index, MIN_INT.length);
+				return index + MIN_INT.length;
+			}
+
+			buffer[index++] = '-';
+			value = -value;
+		}
+
+		int end = index + digits(value);
+		int position = end;
+		while(value >= 100)
+		{
+			int q = value / 100;
+			int r = (value - q * 100) << 1;
+			value = q;
+
+			buffer[--position] = DIGIT_PAIRS[r + 1];
+			buffer[--position] = DIGIT_PAIRS[r];
+		}
+
+		if(value >= 10)
+		{
+			int r = value << 1;
+			buffer[--position] = DIGIT_PAIRS[r + 1];
+			buffer[--position] = DIGIT_PAIRS[r];
+		}
+		else
+		{
+			buffer[--position] = (byte) ('0' + value);
+		}
+
+		return end;
+	}
+
+	/**
+	 * Write a long.
+	 *
+	 * @param value
+	 * @param buffer
+	 *   buffer with room for at least {@link #MAX_LONG_LENGTH} bytes
+	 * @param index
+	 * @return
+	 *   the index after the last written byte
+	 */
+	static int writeLong(long value, byte[] buffer, int index)
+	{
+		if(value == (int) value)
+		{
+			return writeInt((int) value, buffer, index);
+		}
+
+		if(value < 0)
+		{
+			if(value == Long.MIN_VALUE)
+			{
+				System.arraycopy(MIN_LONG, 0, buffer, index, MIN_LONG.length);
+				return index + MIN_LONG.length;
+			}
+
+			buffer[index++] = '-';
+			value = -value;
+		}
+
+		int end = index + digits(value);
+		int position = end;
+
+		// Work with longs until the rest fits in an int
+		while(value > Integer.MAX_VALUE)
+		{
+			long q = value / 100;
+			int r = (int) (value - q * 100) << 1;
+			value = q;
+
+			buffer[--position] = DIGIT_PAIRS[r + 1];
+			buffer[--position] = DIGIT_PAIRS[r];
+		}
+
+		writeInt((int) value, buffer, index);
+		return end;
+	}
+
+	private static int digits(int value)
+	{
+		int bits = 32 - Integer.numberOfLeadingZeros(value | 1);
+		int length = ((bits * 1233) >>> 12) + 1;
+		return length > 1 && value < POWERS_OF_TEN[length - 1] ? length - 1 : length;
+	}
+
+	private static int digits(long value)
+	{
+		int bits = 64 - Long.numberOfLeadingZeros(value | 1);
+		int length = ((bits * 1233) >>> 12) + 1;
+		return length > 1 && value < POWERS_OF_TEN[length - 1] ? length - 1 : length;
+	}
+
+	/**
+	 * Write a double using the shortest decimal that uniquely identifies
+	 * it.
+	 *
+	 * @param v
+	 * @param buffer
+	 *   buffer with room for at least {@link #MAX_DOUBLE_LENGTH} bytes
+	 * @param index
+	 * @return
+	 *   the index after the last written byte
+	 */
+	static int writeDouble(double v, byte[] buffer, int index)
+	{
+		long bits = Double.doubleToRawLongBits(v);
+		long t = bits & DOUBLE_T_MASK;
+		int bq = (int) (bits >>> 52) & DOUBLE_BQ_MASK;
+		if(bq < DOUBLE_BQ_MASK)
+		{
+			if(bits < 0)
+			{
+				buffer[index++] = '-';
+			}
+
+			if(bq != 0)
+			{
+				// Normal value
+				int mq = -DOUBLE_Q_MIN + 1 - bq;
+				long c = DOUBLE_C_MIN | t;
+
+				if(0 < mq & mq < DOUBLE_P)
+				{
+					// Integers are written directly
+					long f = c >> mq;
+					if(f << mq == c)
+					{
+						return toChars(f, 0, buffer, index);
+					}
+				}
+
+				return toDecimal(-mq, c, 0, buffer, index);
+			}
+
+			if(t != 0)
+			{
+				// Subnormal value
+				return t < DOUBLE_C_TINY
+					? toDecimal(DOUBLE_Q_MIN, 10 * t, -1, buffer, index)
+					: toDecimal(DOUBLE_Q_MIN, t, 0, buffer, index);
+			}
+
+			buffer[index++] = '0';
+			buffer[index++] = '.';
+			buffer[index++] = '0';
+			return index;
+		}
+
+		if(t != 0)
+		{
+			return copy(NAN, buffer, index);
+		}
+
+		return copy(bits > 0 ? INFINITY : NEGATIVE_INFINITY, buffer, index);
+	}
+
+	private static int toDecimal(int q, long c, int dk, byte[] buffer, int index)
+	{
+		int out = (int) c & 0x1;
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+
+		if(c != DOUBLE_C_MIN | q == DOUBLE_Q_MIN)
+		{
+			cbl = cb - 2;
+			k = flog10pow2(q);
+		}
+		else
+		{
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2(q);
+		}
+
+		int h = q + flog2pow10(-k) + 2;
+
+		long g1 = G1[k - K_MIN];
+		long g0 = G0[k - K_MIN];
+
+		long vb = rop(g1, g0, cb << h);
+		long vbl = rop(g1, g0, cbl << h);
+		long vbr = rop(g1, g0, cbr << h);
+
+		long s = vb >> 2;
+		if(s >= 100)
+		{
+			// s / 10 * 10
+			long sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+			long tp10 = sp10 + 10;
+			boolean upin = vbl + out <= sp10 << 2;
+			boolean wpin = (tp10 << 2) + out <= vbr;
+			if(upin != wpin)
+			{
+				return toChars(upin ? sp10 : tp10, k, buffer, index);
+			}
+		}
+
+		long t = s + 1;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = (t << 2) + out <= vbr;
+		if(uin != win)
+		{
+			return toChars(uin ? s : t, k + dk, buffer, index);
+		}
+
+		long cmp = vb - (s + t << 1);
+		return toChars(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, buffer, index);
+	}
+
+	private static long rop(long g1, long g0, long cp)
+	{
+		long x1 = Math.multiplyHigh(g0, cp);
+		long y0 = g1 * cp;
+		long y1 = Math.multiplyHigh(g1, cp);
+		long z = (y0 >>> 1) + x1;
+		long vbp = y1 + (z >>> 63);
+		return vbp | (z & MASK_63) + MASK_63 >>> 63;
+	}
+
+	/**
+	 * Format {@code f * 10^e} for a double.
+	 */
+	private static int toChars(long f, int e, byte[] buffer, int index)
+	{
+		int length = flog10pow2(64 - Long.numberOfLeadingZeros(f));
+		if(f >= POWERS_OF_TEN[length])
+		{
+			length += 1;
+		}
+
+		// Normalize so that 10^(H-1) <= f < 10^H
+		f *= POWERS_OF_TEN[DOUBLE_H - length];
+		e += length;
+
+		// Split into the first digit h, the next 8 digits m and the last 8 digits l
+		long hm = Math.multiplyHigh(f, 193_428_131_138_340_668L) >>> 20;
+		int l = (int) (f - 100_000_000L * hm);
+		int h = (int) (hm * 1_441_151_881L >>> 57);
+		int m = (int) (hm - 100_000_000 * h);
+
+		if(0 < e && e <= 7)
+		{
+			// Plain format without leading zeroes
+			buffer[index++] = (byte) ('0' + h);
+
+			int y = y(m);
+			int i = 1;
+			for(; i<e; i++)
+			{
+				int t = 10 * y;
+				buffer[index++] = (byte) ('0' + (t >>> 28));
+				y = t & MASK_28;
+			}
+
+			buffer[index++] = '.';
+
+			for(; i<=8; i++)
+			{
+				int t = 10 * y;
+				buffer[index++] = (byte) ('0' + (t >>> 28));
+				y = t & MASK_28;
+			}
+
+			return lowDigits(l, buffer, index);
+		}
+		else if(-3 < e && e <= 0)
+		{
+			// Plain format with leading zeroes
+			buffer[index++] = '0';
+			buffer[index++] = '.';
+			for(; e<0; e++)
+			{
+				buffer[index++] = '0';
+			}
+
+			buffer[index++] = (byte) ('0' + h);
+			index = append8Digits(m, buffer, index);
+			return lowDigits(l, buffer, index);
+		}
+		else
+		{
+			// Computerized scientific notation
+			buffer[index++] = (byte) ('0' + h);
+			buffer[index++] = '.';
+			index = append8Digits(m, buffer, index);
+			index = lowDigits(l, buffer, index);
+			return exponent(e - 1, buffer, index);
+		}
+	}
+
+	/**
+	 * Write a float using the shortest decimal that uniquely identifies it.
+	 *
+	 * @param v
+	 * @param buffer
+	 *   buffer with room for at least {@link #MAX_FLOAT_LENGTH} bytes
+	 * @param index
+	 * @return
+	 *   the index after the last written byte
+	 */
+	static int writeFloat(float v, byte[] buffer, int index)
+	{
+		int bits = Float.floatToRawIntBits(v);
+		int t = bits & FLOAT_T_MASK;
+		int bq = (bits >>> 23) & FLOAT_BQ_MASK;
+		if(bq < FLOAT_BQ_MASK)
+		{
+			if(bits < 0)
+			{
+				buffer[index++] = '-';
+			}
+
+			if(bq != 0)
+			{
+				// Normal value
+				int mq = -FLOAT_Q_MIN + 1 - bq;
+				int c = FLOAT_C_MIN | t;
+
+				if(0 < mq & mq < FLOAT_P)
+				{
+					// Integers are written directly
+					int f = c >> mq;
+					if(f << mq == c)
+					{
+						return toChars(f, 0, buffer, index);
+					}
+				}
+
+				return toDecimal(-mq, c, 0, buffer, index);
+			}
+
+			if(t != 0)
+			{
+				// Subnormal value
+				return t < FLOAT_C_TINY
+					? toDecimal(FLOAT_Q_MIN, 10 * t, -1, buffer, index)
+					: toDecimal(FLOAT_Q_MIN, t, 0, buffer, index);
+			}
+
+			buffer[index++] = '0';
+			buffer[index++] = '.';
+			buffer[index++] = '0';
+			return index;
+		}
+
+		if(t != 0)
+		{
+			return copy(NAN, buffer, index);
+		}
+
+		return copy(bits > 0 ? INFINITY : NEGATIVE_INFINITY, buffer, index);
+	}
+
+	private static int toDecimal(int q, int c, int dk, byte[] buffer, int index)
+	{
+		int out = c & 0x1;
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+
+		if(c != FLOAT_C_MIN | q == FLOAT_Q_MIN)
+		{
+			cbl = cb - 2;
+			k = flog10pow2(q);
+		}
+		else
+		{
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2(q);
+		}
+
+		int h = q + flog2pow10(-k) + 33;
+
+		long g = G1[k - K_MIN] + 1;
+
+		int vb = rop(g, cb << h);
+		int vbl = rop(g, cbl << h);
+		int vbr = rop(g, cbr << h);
+
+		int s = vb >> 2;
+		if(s >= 100)
+		{
+			// s / 10 * 10
+			int sp10 = 10 * (int) (s * 1_717_986_919L >>> 34);
+			int tp10 = sp10 + 10;
+			boolean upin = vbl + out <= sp10 << 2;
+			boolean wpin = (tp10 << 2) + out <= vbr;
+			if(upin != wpin)
+			{
+				return toChars(upin ? sp10 : tp10, k, buffer, index);
+			}
+		}
+
+		int t = s + 1;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = (t << 2) + out <= vbr;
+		if(uin != win)
+		{
+			return toChars(uin ? s : t, k + dk, buffer, index);
+		}
+
+		int cmp = vb - (s + t << 1);
+		return toChars(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, buffer, index);
+	}
+
+	private static int rop(long g, long cp)
+	{
+		long x1 = Math.multiplyHigh(g, cp);
+		long vbp = x1 >>> 31;
+		return (int) (vbp | (x1 & MASK_32) + MASK_32 >>> 32);
+	}
+
+	/**
+	 * Format {@code f * 10^e} for a float.
+	 */
+	private static int toChars(int f, int e, byte[] buffer, int index)
+	{
+		int length = flog10pow2(32 - Integer.numberOfLeadingZeros(f));
+		if(f >= POWERS_OF_TEN[length])
+		{
+			length += 1;
+		}
+
+		// Normalize so that 10^(H-1) <= f < 10^H
+		f *= (int) POWERS_OF_TEN[FLOAT_H - length];
+		e += length;
+
+		// Split into the first digit h and the last 8 digits l
+		int h = (int) (f * 1_441_151_881L >>> 57);
+		int l = f - 100_000_000 * h;
+
+		if(0 < e && e <= 7)
+		{
+			// Plain format without leading zeroes
+			buffer[index++] = (byte) ('0' + h);
+
+			int y = y(l);
+			int i = 1;
+			for(; i<e; i++)
+			{
+				int t = 10 * y;
+				buffer[index++] = (byte) ('0' + (t >>> 28));
+				y = t & MASK_28;
+			}
+
+			buffer[index++] = '.';
+
+			for(; i<=8; i++)
+			{
+				int t = 10 * y;
+				buffer[index++] = (byte) ('0' + (t >>> 28));
+				y = t & MASK_28;
+			}
+
+			return removeTrailingZeroes(buffer, index);
+		}
+		else if(-3 < e && e <= 0)
+		{
+			// Plain format with leading zeroes
+			buffer[index++] = '0';
+			buffer[index++] = '.';
+			for(; e<0; e++)
+			{
+				buffer[index++] = '0';
+			}
+
+			buffer[index++] = (byte) ('0' + h);
+			index = append8Digits(l, buffer, index);
+			return removeTrailingZeroes(buffer, index);
+		}
+		else
+		{
+			// Computerized scientific notation
+			buffer[index++] = (byte) ('0' + h);
+			buffer[index++] = '.';
+			index = append8Digits(l, buffer, index);
+			index = removeTrailingZeroes(buffer, index);
+			return exponent(e - 1, buffer, index);
+		}
+	}
+
+	private static int lowDigits(int l, byte[] buffer, int index)
+	{
+		if(l != 0)
+		{
+			index = append8Digits(l, buffer, index);
+		}
+
+		return removeTrailingZeroes(buffer, index);
+	}
+
+	private static int append8Digits(int m, byte[] buffer, int index)
+	{
+		int y = y(m);
+		for(int i=0; i<8; i++)
+		{
+			int t = 10 * y;
+			buffer[index++] = (byte) ('0' + (t >>> 28));
+			y = t & MASK_28;
+		}
+
+		return index;
+	}
+
+	private static int removeTrailingZeroes(byte[] buffer, int index)
+	{
+		while(buffer[index - 1] == '0')
+		{
+			index--;
+		}
+
+		// Keep a single zero directly after the dot
+		if(buffer[index - 1] == '.')
+		{
+			index++;
+		}
+
+		return index;
+	}
+
+	/**
+	 * Compute {@code floor((a + 1) 2^28 / 10^8) - 1} for left-to-right digit
+	 * extraction of an 8 digit number.
+	 */
+	private static int y(int a)
+	{
+		return (int) (Math.multiplyHigh((long) (a + 1) << 28, 193_428_131_138_340_668L) >>> 20) - 1;
+	}
+
+	private static int exponent(int e, byte[] buffer, int index)
+	{
+		buffer[index++] = 'E';
+		if(e < 0)
+		{
+			buffer[index++] = '-';
+			e = -e;
+		}
+
+		if(e < 10)
+		{
+			buffer[index++] = (byte) ('0' + e);
+			return index;
+		}
+
+		if(e >= 100)
+		{
+			// e / 100
+			int d = e * 1_311 >>> 17;
+			buffer[index++] = (byte) ('0' + d);
+			e -= 100 * d;
+		}
+
+		int r = e << 1;
+		buffer[index++] = DIGIT_PAIRS[r];
+		buffer[index++] = DIGIT_PAIRS[r + 1];
+		return index;
+	}
+
+	private static int copy(byte[] data, byte[] buffer, int index)
+	{
+		System.arraycopy(data, 0, buffer, index, data.length);
+		return index + data.length;
+	}
+
+	/**
+	 * {@code floor(log10(2^e))}
+	 */
+	private static int flog10pow2(int e)
+	{
+		return (int) (e * 661_971_961_083L >> 41);
+	}
+
+	/**
+	 * {@code floor(log10(3/4 * 2^e))}
+	 */
+	private static int flog10threeQuartersPow2(int e)
+	{
+		return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+	}
+
+	/**
+	 * {@code floor(log2(10^e))}
+	 */
+	private static int flog2pow10(int e)
+	{
+		return (int) (e * 913_124_641_741L >> 38);
+	}
+}
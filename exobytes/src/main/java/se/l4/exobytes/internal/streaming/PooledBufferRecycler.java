@@ -0,0 +1,54 @@
+package se.l4.exobytes.internal.streaming;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+import se.l4.exobytes.streaming.BufferRecycler;
+
+/**
+ * {@link BufferRecycler} that keeps a bounded number of buffers shared by
+ * all threads. If the pool is empty a new buffer is allocated and if it is
+ * full released buffers are dropped.
+ */
+public class PooledBufferRecycler
+	implements BufferRecycler
+{
+	private final int bufferSize;
+	private final ArrayBlockingQueue<byte[]> buffers;
+
+	public PooledBufferRecycler(int bufferSize, int maxPooled)
+	{
+		if(bufferSize < 16)
+		{
+			throw new IllegalArgumentException("bufferSize must be at least 16 bytes");
+		}
+
+		if(maxPooled < 1)
+		{
+			throw new IllegalArgumentException("maxPooled must be at least 1");
+		}
+
+		this.bufferSize = bufferSize;
+		this.buffers = new ArrayBlockingQueue<>(maxPooled);
+	}
+
+	@Override
+	public int getBufferSize()
+	{
+		return bufferSize;
+	}
+
+	@Override
+	public byte[] acquire()
+	{
+		byte[] buffer = buffers.poll();
+		return buffer == null ? new byte[bufferSize] : buffer;
+	}
+
+	@Override
+	public void release(byte[] buffer)
+	{
+		if(buffer.length != bufferSize) return;
+
+		buffers.offer(buffer);
+	}
+}
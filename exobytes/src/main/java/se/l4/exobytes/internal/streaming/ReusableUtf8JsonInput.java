@@ -0,0 +1,31 @@
+package se.l4.exobytes.internal.streaming;
+
+import java.io.InputStream;
+
+import se.l4.exobytes.streaming.ReusableStreamingInput;
+
+/**
+ * {@link Utf8JsonInput} that can be reset to read from a new source, created
+ * via {@link se.l4.exobytes.streaming.StreamingFormat#newReader()}.
+ */
+public class ReusableUtf8JsonInput
+	extends Utf8JsonInput
+	implements ReusableStreamingInput
+{
+	public ReusableUtf8JsonInput(int maxDepth)
+	{
+		super(maxDepth);
+	}
+
+	@Override
+	public void reset(InputStream in)
+	{
+		super.reset(in);
+	}
+
+	@Override
+	public void reset(byte[] data, int offset, int length)
+	{
+		super.reset(data, offset, length);
+	}
+}
@@ -0,0 +1,256 @@
+package se.l4.exobytes.internal.streaming;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import se.l4.exobytes.SerializationException;
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.streaming.FlowStreaming;
+import se.l4.exobytes.streaming.StreamingFormat;
+import se.l4.exobytes.streaming.StreamingInput;
+import se.l4.exobytes.streaming.Token;
+
+/**
+ * {@link Flow.Publisher} that decodes a sequence of values from a channel.
+ * Values are only read when there is outstanding demand and reading happens
+ * in a single drain loop, so requesting more values from within
+ * {@link Flow.Subscriber#onNext(Object)} does not recurse.
+ *
+ * @see FlowStreaming#decode(StreamingFormat, Serializer, ReadableByteChannel, Executor)
+ */
+public class SequencePublisher<T>
+	implements Flow.Publisher<T>
+{
+	private static final Flow.Subscription EMPTY_SUBSCRIPTION = new Flow.Subscription()
+	{
+		@Override
+		public void request(long n)
+		{
+		}
+
+		@Override
+		public void cancel()
+		{
+		}
+	};
+
+	private final StreamingFormat format;
+	private final Serializer<T> serializer;
+	private final ReadableByteChannel channel;
+	private final Executor executor;
+
+	private final AtomicBoolean subscribed;
+
+	public SequencePublisher(
+		StreamingFormat format,
+		Serializer<T> serializer,
+		ReadableByteChannel channel,
+		Executor executor
+	)
+	{
+		this.format = format;
+		this.serializer = serializer;
+		this.channel = channel;
+		this.executor = executor;
+
+		subscribed = new AtomicBoolean();
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber)
+	{
+		Objects.requireNonNull(subscriber);
+
+		if(! subscribed.compareAndSet(false, true))
+		{
+			subscriber.onSubscribe(EMPTY_SUBSCRIPTION);
+			subscriber.onError(new IllegalStateException("Sequence can only be subscribed to once"));
+			return;
+		}
+
+		subscriber.onSubscribe(new SequenceSubscription(subscriber));
+	}
+
+	private class SequenceSubscription
+		implements Flow.Subscription, Runnable
+	{
+		private final Flow.Subscriber<? super T> subscriber;
+
+		private final AtomicLong requested;
+		private final AtomicInteger pending;
+
+		private volatile boolean cancelled;
+		private volatile Throwable invalidRequest;
+
+		/*
+		 * State only touched from within the drain loop.
+		 */
+		private boolean done;
+		private StreamingInput in;
+
+		public SequenceSubscription(Flow.Subscriber<? super T> subscriber)
+		{
+			this.subscriber = subscriber;
+
+			requested = new AtomicLong();
+			pending = new AtomicInteger();
+		}
+
+		@Override
+		public void request(long n)
+		{
+			if(n <= 0)
+			{
+				invalidRequest = new IllegalArgumentException("Requested number of values must be positive, was " + n);
+			}
+			else
+			{
+				requested.accumulateAndGet(n, (current, add) -> {
+					long result = current + add;
+					return result < 0 ? Long.MAX_VALUE : result;
+				});
+			}
+
+			schedule();
+		}
+
+		@Override
+		public void cancel()
+		{
+			cancelled = true;
+			schedule();
+		}
+
+		private void schedule()
+		{
+			if(pending.getAndIncrement() == 0)
+			{
+				executor.execute(this);
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			int missed = 1;
+			do
+			{
+				if(! done)
+				{
+					drain();
+				}
+
+				missed = pending.addAndGet(-missed);
+			}
+			while(missed != 0);
+		}
+
+		/**
+		 * Emit values while there is demand.
+		 */
+		private void drain()
+		{
+			long remaining = requested.get();
+			long emitted = 0;
+
+			while(true)
+			{
+				if(cancelled)
+				{
+					done = true;
+					closeQuietly();
+					return;
+				}
+
+				if(invalidRequest != null)
+				{
+					fail(invalidRequest);
+					return;
+				}
+
+				if(emitted == remaining)
+				{
+					if(remaining == Long.MAX_VALUE)
+					{
+						// Unbounded demand is never decreased
+						emitted = 0;
+					}
+					else
+					{
+						remaining = requested.addAndGet(-emitted);
+						emitted = 0;
+
+						if(remaining == 0)
+						{
+							return;
+						}
+					}
+				}
+
+				T value;
+				try
+				{
+					if(in == null)
+					{
+						in = format.createInput(Channels.newInputStream(channel));
+					}
+
+					if(in.peek() == Token.END_OF_STREAM)
+					{
+						done = true;
+						in.close();
+						subscriber.onComplete();
+						return;
+					}
+
+					value = in.readObject(serializer);
+					if(value == null)
+					{
+						throw new SerializationException("Sequence contains a null value, which can not be published");
+					}
+				}
+				catch(IOException | RuntimeException e)
+				{
+					fail(e);
+					return;
+				}
+
+				emitted++;
+				subscriber.onNext(value);
+			}
+		}
+
+		private void fail(Throwable t)
+		{
+			done = true;
+			closeQuietly();
+			subscriber.onError(t);
+		}
+
+		private void closeQuietly()
+		{
+			try
+			{
+				if(in != null)
+				{
+					in.close();
+				}
+				else
+				{
+					channel.close();
+				}
+			}
+			catch(IOException e)
+			{
+				// Nothing to report the error to at this point
+			}
+		}
+	}
+}
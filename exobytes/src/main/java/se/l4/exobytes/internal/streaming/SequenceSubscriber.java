@@ -0,0 +1,166 @@
+package se.l4.exobytes.internal.streaming;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.streaming.EncodingSubscriber;
+import se.l4.exobytes.streaming.FlowStreaming;
+import se.l4.exobytes.streaming.StreamingFormat;
+import se.l4.exobytes.streaming.StreamingOutput;
+
+/**
+ * {@link EncodingSubscriber} that writes a sequence of values to a channel.
+ * Values are requested in batches and the output is flushed after every
+ * batch, so at most one batch of values is buffered at any time.
+ *
+ * @see FlowStreaming#encode(StreamingFormat, Serializer, WritableByteChannel, int)
+ */
+public class SequenceSubscriber<T>
+	implements EncodingSubscriber<T>
+{
+	private final StreamingFormat format;
+	private final Serializer<T> serializer;
+	private final WritableByteChannel channel;
+	private final int batchSize;
+
+	private final CompletableFuture<Void> completion;
+
+	private Flow.Subscription subscription;
+	private StreamingOutput out;
+	/**
+	 * The number of values written in the current batch.
+	 */
+	private int written;
+	private boolean done;
+
+	public SequenceSubscriber(
+		StreamingFormat format,
+		Serializer<T> serializer,
+		WritableByteChannel channel,
+		int batchSize
+	)
+	{
+		this.format = format;
+		this.serializer = serializer;
+		this.channel = channel;
+		this.batchSize = batchSize;
+
+		completion = new CompletableFuture<>();
+	}
+
+	@Override
+	public CompletionStage<Void> getCompletion()
+	{
+		return completion;
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription)
+	{
+		Objects.requireNonNull(subscription);
+
+		if(this.subscription != null)
+		{
+			// Only a single subscription is supported
+			subscription.cancel();
+			return;
+		}
+
+		this.subscription = subscription;
+
+		try
+		{
+			out = format.createOutput(channel);
+		}
+		catch(IOException | RuntimeException e)
+		{
+			subscription.cancel();
+			fail(e);
+			return;
+		}
+
+		subscription.request(batchSize);
+	}
+
+	@Override
+	public void onNext(T item)
+	{
+		Objects.requireNonNull(item);
+
+		if(done) return;
+
+		try
+		{
+			out.writeObject(serializer, item);
+
+			if(++written == batchSize)
+			{
+				written = 0;
+				out.flush();
+
+				subscription.request(batchSize);
+			}
+		}
+		catch(IOException | RuntimeException e)
+		{
+			subscription.cancel();
+			fail(e);
+		}
+	}
+
+	@Override
+	public void onError(Throwable throwable)
+	{
+		Objects.requireNonNull(throwable);
+
+		if(done) return;
+
+		fail(throwable);
+	}
+
+	@Override
+	public void onComplete()
+	{
+		if(done) return;
+
+		done = true;
+
+		try
+		{
+			out.close();
+			completion.complete(null);
+		}
+		catch(IOException e)
+		{
+			completion.completeExceptionally(e);
+		}
+	}
+
+	private void fail(Throwable t)
+	{
+		done = true;
+
+		try
+		{
+			if(out != null)
+			{
+				out.close();
+			}
+			else
+			{
+				channel.close();
+			}
+		}
+		catch(IOException e)
+		{
+			t.addSuppressed(e);
+		}
+
+		completion.completeExceptionally(t);
+	}
+}
@@ -0,0 +1,55 @@
+package se.l4.exobytes.internal.streaming;
+
+import se.l4.exobytes.streaming.BufferRecycler;
+
+/**
+ * {@link BufferRecycler} that keeps a single buffer per thread. While a
+ * buffer is in use its slot is empty, so nested outputs on the same thread
+ * will allocate their own buffers instead of sharing one.
+ */
+public class ThreadLocalBufferRecycler
+	implements BufferRecycler
+{
+	public static final BufferRecycler DEFAULT = new ThreadLocalBufferRecycler(DEFAULT_BUFFER_SIZE);
+
+	private final int bufferSize;
+	private final ThreadLocal<byte[]> buffers;
+
+	public ThreadLocalBufferRecycler(int bufferSize)
+	{
+		if(bufferSize < 16)
+		{
+			throw new IllegalArgumentException("bufferSize must be at least 16 bytes");
+		}
+
+		this.bufferSize = bufferSize;
+		this.buffers = new ThreadLocal<>();
+	}
+
+	@Override
+	public int getBufferSize()
+	{
+		return bufferSize;
+	}
+
+	@Override
+	public byte[] acquire()
+	{
+		byte[] buffer = buffers.get();
+		if(buffer == null)
+		{
+			return new byte[bufferSize];
+		}
+
+		buffers.set(null);
+		return buffer;
+	}
+
+	@Override
+	public void release(byte[] buffer)
+	{
+		if(buffer.length != bufferSize) return;
+
+		buffers.set(buffer);
+	}
+}
@@ -0,0 +1,1061 @@
+package se.l4.exobytes.internal.streaming;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.OptionalInt;
+
+import se.l4.exobytes.streaming.AbstractStreamingInput;
+import se.l4.exobytes.streaming.KeyTable;
+import se.l4.exobytes.streaming.Token;
+import se.l4.exobytes.streaming.ValueConversion;
+
+/**
+ * Input for JSON that works directly on UTF-8 encoded bytes. Strings without
+ * escapes are decoded straight from the internal buffer and numbers are
+ * parsed by {@link JsonNumberParser} without creating intermediate strings. Follows the same lenient
+ * rules as {@link JsonInput}.
+ */
+public class Utf8JsonInput
+	extends AbstractStreamingInput
+{
+	private static final int BUFFER_SIZE = 4096;
+
+	private static final byte[] NULL_VALUE = { 'n', 'u', 'l', 'l' };
+	private static final byte[] TRUE_VALUE = { 't', 'r', 'u', 'e' };
+	private static final byte[] FALSE_VALUE = { 'f', 'a', 'l', 's', 'e' };
+
+	/**
+	 * The stream to read from, {@code null} if reading directly from an
+	 * array.
+	 */
+	private InputStream in;
+
+	protected byte[] buffer;
+	/**
+	 * Buffer owned by this input, kept so that it can be used again when the
+	 * input is reset to read from a stream.
+	 */
+	private byte[] streamBuffer;
+	protected int position;
+	protected int limit;
+
+	protected final NestingStack nesting;
+
+	/**
+	 * Scratch space for the bytes of the current non-string value.
+	 */
+	private byte[] token;
+	/**
+	 * Scratch space for strings that can not be decoded directly from the
+	 * buffer.
+	 */
+	private char[] chars;
+
+	private final JsonNumberParser numbers;
+
+	public Utf8JsonInput(InputStream in)
+	{
+		this(in, NestingStack.DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Create an input that reads from the given stream and fails if lists
+	 * and objects are nested deeper than the given depth.
+	 *
+	 * @param in
+	 * @param maxDepth
+	 */
+	public Utf8JsonInput(InputStream in, int maxDepth)
+	{
+		this(Objects.requireNonNull(in), new byte[BUFFER_SIZE], 0, 0, maxDepth);
+	}
+
+	/**
+	 * Create an input that reads directly from a part of the given array.
+	 *
+	 * @param data
+	 * @param offset
+	 * @param length
+	 */
+	public Utf8JsonInput(byte[] data, int offset, int length)
+	{
+		this(data, offset, length, NestingStack.DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Create an input that reads directly from a part of the given array and
+	 * fails if lists and objects are nested deeper than the given depth.
+	 *
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @param maxDepth
+	 */
+	public Utf8JsonInput(byte[] data, int offset, int length, int maxDepth)
+	{
+		this(null, data, offset, Objects.checkFromIndexSize(offset, length, data.length) + length, maxDepth);
+	}
+
+	/**
+	 * Create an input that is not connected to any source. One of the
+	 * {@code reset} methods must be called before reading.
+	 *
+	 * @param maxDepth
+	 */
+	protected Utf8JsonInput(int maxDepth)
+	{
+		this(null, new byte[0], 0, 0, maxDepth);
+	}
+
+	private Utf8JsonInput(InputStream in, byte[] buffer, int position, int limit, int maxDepth)
+	{
+		this.in = in;
+		this.buffer = buffer;
+		this.position = position;
+		this.limit = limit;
+
+		if(in != null)
+		{
+			streamBuffer = buffer;
+		}
+
+		nesting = new NestingStack(maxDepth, true, 0);
+
+		token = new byte[32];
+		chars = new char[64];
+		numbers = new JsonNumberParser();
+	}
+
+	/**
+	 * Start reading from the given stream, see {@link ReusableUtf8JsonInput}.
+	 *
+	 * @param in
+	 */
+	protected void reset(InputStream in)
+	{
+		if(streamBuffer == null)
+		{
+			streamBuffer = new byte[BUFFER_SIZE];
+		}
+
+		reset(Objects.requireNonNull(in), streamBuffer, 0, 0);
+	}
+
+	/**
+	 * Start reading directly from a part of the given array, see
+	 * {@link ReusableUtf8JsonInput}.
+	 *
+	 * @param data
+	 * @param offset
+	 * @param length
+	 */
+	protected void reset(byte[] data, int offset, int length)
+	{
+		reset(null, data, offset, Objects.checkFromIndexSize(offset, length, data.length) + length);
+	}
+
+	private void reset(InputStream in, byte[] buffer, int position, int limit)
+	{
+		this.in = in;
+		this.buffer = buffer;
+		this.position = position;
+		this.limit = limit;
+
+		nesting.reset(true, 0);
+		resetToken();
+	}
+
+	@Override
+	public void close()
+		throws IOException
+	{
+		if(in != null)
+		{
+			in.close();
+		}
+	}
+
+	@Override
+	protected IOException raiseException(String message)
+	{
+		return new IOException(message);
+	}
+
+	@Override
+	protected Token peek0()
+		throws IOException
+	{
+		readWhitespace();
+
+		int b = peekByte();
+		if(b == -1)
+		{
+			return Token.END_OF_STREAM;
+		}
+
+		return toToken(b);
+	}
+
+	@Override
+	public Token next0()
+		throws IOException
+	{
+		Token token = peek();
+		switch(token)
+		{
+			case OBJECT_END:
+			case LIST_END:
+			{
+				readNext();
+
+				if(peekNext() == ',') read();
+
+				nesting.pop();
+				return token;
+			}
+			case OBJECT_START:
+			case LIST_START:
+				readNext();
+				nesting.push(token == Token.LIST_START, 0);
+				return token;
+			case NULL:
+			{
+				int length = readToken();
+				if(! tokenEquals(length, NULL_VALUE))
+				{
+					throw raiseException("Expected null, but encountered malformed null-value: " + tokenToString(length));
+				}
+
+				markValueRead();
+				return token;
+			}
+			default:
+				return token;
+		}
+	}
+
+	@Override
+	public OptionalInt getLength()
+	{
+		return OptionalInt.empty();
+	}
+
+	@Override
+	protected void skipValue()
+		throws IOException
+	{
+		if(peekNext() == '"')
+		{
+			skipString();
+
+			if(peekNext() == ':')
+			{
+				int next = readNext();
+				if(next != ':')
+				{
+					throw raiseException("Expected `:`, got `" + (char) next + "`");
+				}
+			}
+		}
+		else
+		{
+			while(true)
+			{
+				int b = peekByte();
+				if(isDelimiter(b)) break;
+
+				position++;
+			}
+		}
+
+		markValueRead();
+	}
+
+	@Override
+	protected Object readDynamic0()
+		throws IOException
+	{
+		if(current() == Token.NULL)
+		{
+			return null;
+		}
+		else if(peekNext() == '"')
+		{
+			return readString();
+		}
+		else
+		{
+			int length = readToken();
+			markValueRead();
+
+			if(tokenEquals(length, NULL_VALUE))
+			{
+				return null;
+			}
+			else if(tokenEquals(length, FALSE_VALUE))
+			{
+				return false;
+			}
+			else if(tokenEquals(length, TRUE_VALUE))
+			{
+				return true;
+			}
+			else if(numbers.parseLong(token, length))
+			{
+				return numbers.getLong();
+			}
+			else if(numbers.parseDouble(token, length))
+			{
+				return (long) numbers.getDouble();
+			}
+
+			try
+			{
+				return (long) Double.parseDouble(tokenToString(length));
+			}
+			catch(NumberFormatException e)
+			{
+				throw raiseException("Unable to read dynamic value, was: " + tokenToString(length));
+			}
+		}
+	}
+
+	@Override
+	public boolean readBoolean()
+		throws IOException
+	{
+		int length = readToken();
+		if(tokenEquals(length, TRUE_VALUE))
+		{
+			markValueRead();
+			return true;
+		}
+		else if(tokenEquals(length, FALSE_VALUE))
+		{
+			markValueRead();
+			return false;
+		}
+
+		throw raiseException("Expected boolean but found " + tokenToString(length));
+	}
+
+	@Override
+	public byte readByte()
+		throws IOException
+	{
+		return ValueConversion.toByte(readInt());
+	}
+
+	@Override
+	public char readChar()
+		throws IOException
+	{
+		if(peekNext() == '"')
+		{
+			String s = readString();
+			if(s.length() != 1)
+			{
+				throw raiseException("Expected single character but string value was not a single character");
+			}
+
+			return s.charAt(0);
+		}
+		else
+		{
+			return ValueConversion.toChar(readInt());
+		}
+	}
+
+	@Override
+	public short readShort()
+		throws IOException
+	{
+		return ValueConversion.toShort(readInt());
+	}
+
+	@Override
+	public int readInt()
+		throws IOException
+	{
+		return ValueConversion.toInt(readLong());
+	}
+
+	@Override
+	public long readLong()
+		throws IOException
+	{
+		int length = readToken();
+		markValueRead();
+
+		if(numbers.parseLong(token, length))
+		{
+			return numbers.getLong();
+		}
+		else if(numbers.parseDouble(token, length))
+		{
+			return (long) numbers.getDouble();
+		}
+
+		try
+		{
+			return (long) Double.parseDouble(tokenToString(length));
+		}
+		catch(NumberFormatException e)
+		{
+			throw raiseException("Unable to read number: " + tokenToString(length));
+		}
+	}
+
+	@Override
+	public float readFloat()
+		throws IOException
+	{
+		return (float) readDouble();
+	}
+
+	@Override
+	public double readDouble()
+		throws IOException
+	{
+		int length = readToken();
+		markValueRead();
+
+		if(numbers.parseDouble(token, length))
+		{
+			return numbers.getDouble();
+		}
+
+		try
+		{
+			return Double.parseDouble(tokenToString(length));
+		}
+		catch(NumberFormatException e)
+		{
+			throw raiseException("Unable to read number: " + tokenToString(length));
+		}
+	}
+
+	@Override
+	public String readString()
+		throws IOException
+	{
+		String s = readQuotedString();
+
+		if(peekNext() == ':')
+		{
+			readNext();
+		}
+
+		markValueRead();
+		return s;
+	}
+
+	@Override
+	public int readKey(KeyTable table)
+		throws IOException
+	{
+		int c = read();
+		if(c != '"') throw raiseException("Expected \", but got " + (char) c);
+
+		int result;
+		int end = findUnescapedEnd();
+		if(end >= 0)
+		{
+			// Match the raw bytes of the key against the table
+			result = table.indexOf(buffer, position, end - position);
+			position = end + 1;
+		}
+		else
+		{
+			result = table.indexOf(readStringSlow());
+		}
+
+		if(peekNext() == ':')
+		{
+			readNext();
+		}
+
+		markValueRead();
+		return result;
+	}
+
+	@Override
+	public byte[] readByteArray()
+		throws  IOException
+	{
+		String value = readString();
+		return Base64.getDecoder().decode(value);
+	}
+
+	@Override
+	public InputStream readByteStream()
+		throws IOException
+	{
+		return new ByteArrayInputStream(readByteArray());
+	}
+
+	/**
+	 * Read a string including its surrounding quotes. If the entire string
+	 * is available in the buffer and has no escapes it is decoded directly
+	 * from the buffer.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	private String readQuotedString()
+		throws IOException
+	{
+		int c = read();
+		if(c != '"') throw raiseException("Expected \", but got " + (char) c);
+
+		byte[] buffer = this.buffer;
+		int start = position;
+		int limit = this.limit;
+
+		// Combination of all bytes seen, negative if any byte is non-ASCII
+		int combined = 0;
+		for(int i=start; i<limit; i++)
+		{
+			byte b = buffer[i];
+			if(b == '"')
+			{
+				position = i + 1;
+				return new String(buffer, start, i - start, combined < 0
+					? StandardCharsets.UTF_8
+					: StandardCharsets.ISO_8859_1
+				);
+			}
+			else if(b == '\\')
+			{
+				break;
+			}
+
+			combined |= b;
+		}
+
+		return readStringSlow();
+	}
+
+	/**
+	 * Find the closing quote of the string starting at the current position,
+	 * reading more data if the string continues past the end of the buffer
+	 * but can still fit in it.
+	 *
+	 * @return
+	 *   index of the closing quote in the buffer, or {@code -1} if the
+	 *   string has escapes or does not fit in the buffer
+	 * @throws IOException
+	 */
+	private int findUnescapedEnd()
+		throws IOException
+	{
+		int i = position;
+		while(true)
+		{
+			byte[] buffer = this.buffer;
+			for(int n=limit; i<n; i++)
+			{
+				byte b = buffer[i];
+				if(b == '"')
+				{
+					return i;
+				}
+				else if(b == '\\')
+				{
+					return -1;
+				}
+			}
+
+			if(in == null || limit - position >= buffer.length)
+			{
+				return -1;
+			}
+
+			int scanned = i - position;
+			if(! fill())
+			{
+				return -1;
+			}
+
+			i = position + scanned;
+		}
+	}
+
+	/**
+	 * Read the rest of a string that has escapes or continues past the end
+	 * of the buffer. Malformed UTF-8 is replaced with {@code U+FFFD}.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	private String readStringSlow()
+		throws IOException
+	{
+		char[] chars = this.chars;
+		int n = 0;
+
+		while(true)
+		{
+			if(chars.length - n < 2)
+			{
+				chars = this.chars = Arrays.copyOf(chars, chars.length * 2);
+			}
+
+			// Copy as many plain ASCII chars as possible
+			byte[] buffer = this.buffer;
+			int i = position;
+			int end = Math.min(limit, i + (chars.length - n - 2));
+			while(i < end)
+			{
+				byte b = buffer[i];
+				if(b < 0 || b == '"' || b == '\\') break;
+
+				chars[n++] = (char) b;
+				i++;
+			}
+			position = i;
+
+			int b = read();
+			if(b == '"')
+			{
+				return new String(chars, 0, n);
+			}
+			else if(b == '\\')
+			{
+				n = readEscaped(chars, n);
+			}
+			else if(b < 0x80)
+			{
+				chars[n++] = (char) b;
+			}
+			else
+			{
+				n = readMultiByte(b, chars, n);
+			}
+		}
+	}
+
+	/**
+	 * Read an escaped char, the backslash has already been consumed.
+	 *
+	 * @param chars
+	 * @param n
+	 * @return
+	 * @throws IOException
+	 */
+	private int readEscaped(char[] chars, int n)
+		throws IOException
+	{
+		int c = read();
+		switch(c)
+		{
+			case '\'':
+				chars[n++] = '\'';
+				break;
+			case '"':
+				chars[n++] = '"';
+				break;
+			case '\\':
+				chars[n++] = '\\';
+				break;
+			case '/':
+				chars[n++] = '/';
+				break;
+			case 'r':
+				chars[n++] = '\r';
+				break;
+			case 'n':
+				chars[n++] = '\n';
+				break;
+			case 't':
+				chars[n++] = '\t';
+				break;
+			case 'b':
+				chars[n++] = '\b';
+				break;
+			case 'f':
+				chars[n++] = '\f';
+				break;
+			case 'u':
+				// Unicode, read 4 chars and treat as hex
+				int value = 0;
+				for(int i=0; i<4; i++)
+				{
+					int digit = Character.digit(read(), 16);
+					if(digit == -1)
+					{
+						throw raiseException("Invalid unicode escape in string");
+					}
+
+					value = (value << 4) | digit;
+				}
+
+				chars[n++] = (char) value;
+				break;
+		}
+
+		return n;
+	}
+
+	/**
+	 * Decode a multi-byte UTF-8 sequence, the first byte has already been
+	 * consumed.
+	 *
+	 * @param first
+	 * @param chars
+	 * @param n
+	 * @return
+	 * @throws IOException
+	 */
+	private int readMultiByte(int first, char[] chars, int n)
+		throws IOException
+	{
+		int extra;
+		int codePoint;
+		int min;
+		if(first >= 0xc2 && first <= 0xdf)
+		{
+			extra = 1;
+			codePoint = first & 0x1f;
+			min = 0x80;
+		}
+		else if(first >= 0xe0 && first <= 0xef)
+		{
+			extra = 2;
+			codePoint = first & 0x0f;
+			min = 0x800;
+		}
+		else if(first >= 0xf0 && first <= 0xf4)
+		{
+			extra = 3;
+			codePoint = first & 0x07;
+			min = 0x10000;
+		}
+		else
+		{
+			chars[n++] = '\ufffd';
+			return n;
+		}
+
+		for(int i=0; i<extra; i++)
+		{
+			int b = peekByte();
+			if((b & 0xc0) != 0x80)
+			{
+				// Truncated sequence, leave the byte for the next char
+				chars[n++] = '\ufffd';
+				return n;
+			}
+
+			position++;
+			codePoint = (codePoint << 6) | (b & 0x3f);
+		}
+
+		if(codePoint < min || codePoint > Character.MAX_CODE_POINT
+			|| (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE))
+		{
+			chars[n++] = '\ufffd';
+		}
+		else if(codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT)
+		{
+			chars[n++] = Character.highSurrogate(codePoint);
+			chars[n++] = Character.lowSurrogate(codePoint);
+		}
+		else
+		{
+			chars[n++] = (char) codePoint;
+		}
+
+		return n;
+	}
+
+	/**
+	 * Skip a string including its surrounding quotes.
+	 *
+	 * @throws IOException
+	 */
+	private void skipString()
+		throws IOException
+	{
+		int c = read();
+		if(c != '"') throw raiseException("Expected \", but got " + (char) c);
+
+		while(true)
+		{
+			c = read();
+			if(c == '"')
+			{
+				return;
+			}
+			else if(c == '\\')
+			{
+				read();
+			}
+		}
+	}
+
+	/**
+	 * Read a non-string value, such as a number, boolean or null, into
+	 * {@link #token}.
+	 *
+	 * @return
+	 *   the number of bytes in the token
+	 * @throws IOException
+	 */
+	private int readToken()
+		throws IOException
+	{
+		byte[] token = this.token;
+		int n = 0;
+		while(true)
+		{
+			int b = peekByte();
+			if(isDelimiter(b)) break;
+
+			if(n == token.length)
+			{
+				token = this.token = Arrays.copyOf(token, n * 2);
+			}
+
+			token[n++] = (byte) b;
+			position++;
+		}
+
+		return n;
+	}
+
+	private boolean tokenEquals(int length, byte[] value)
+	{
+		if(length != value.length) return false;
+
+		byte[] token = this.token;
+		for(int i=0; i<length; i++)
+		{
+			if(token[i] != value[i]) return false;
+		}
+
+		return true;
+	}
+
+	private String tokenToString(int length)
+	{
+		return new String(token, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Get if the given byte ends a non-string value.
+	 *
+	 * @param b
+	 * @return
+	 */
+	static boolean isDelimiter(int b)
+	{
+		switch(b)
+		{
+			case -1:
+			case 0:
+			case '}':
+			case ']':
+			case ',':
+			case ':':
+				return true;
+			default:
+				return isWhitespace(b);
+		}
+	}
+
+	/**
+	 * Get if the given byte is whitespace, matches the ASCII range of
+	 * {@link Character#isWhitespace(char)}.
+	 *
+	 * @param b
+	 * @return
+	 */
+	static boolean isWhitespace(int b)
+	{
+		return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1c && b <= 0x1f);
+	}
+
+	@Override
+	protected void markValueRead()
+		throws IOException
+	{
+		super.markValueRead();
+
+		// Check for trailing commas
+		if(peekNext() == ',') read();
+	}
+
+	/**
+	 * Read all of the whitespace at the current position.
+	 *
+	 * @throws IOException
+	 */
+	private void readWhitespace()
+		throws IOException
+	{
+		if(position < limit && ! isWhitespace(buffer[position])) return;
+
+		while(true)
+		{
+			if(position == limit && ! fill()) return;
+
+			int b = buffer[position];
+			if(isWhitespace(b) || b == ',')
+			{
+				position++;
+			}
+			else
+			{
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Peek at the next byte after skipping whitespace.
+	 *
+	 * @return
+	 *   the next byte, or {@code -1} if the end of the stream is reached
+	 * @throws IOException
+	 */
+	private int peekNext()
+		throws IOException
+	{
+		readWhitespace();
+		return peekByte();
+	}
+
+	/**
+	 * Read the next byte while also skipping whitespace as necessary.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	private int readNext()
+		throws IOException
+	{
+		readWhitespace();
+
+		return read();
+	}
+
+	/**
+	 * Peek at the byte at the current position.
+	 *
+	 * @return
+	 *   the byte, or {@code -1} if the end of the stream is reached
+	 * @throws IOException
+	 */
+	private int peekByte()
+		throws IOException
+	{
+		if(position == limit && ! fill())
+		{
+			return -1;
+		}
+
+		return buffer[position] & 0xff;
+	}
+
+	/**
+	 * Read the byte at the current position.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	private int read()
+		throws IOException
+	{
+		if(position == limit && ! fill())
+		{
+			throw new EOFException();
+		}
+
+		return buffer[position++] & 0xff;
+	}
+
+	/**
+	 * Read more data into the buffer, keeping any unread bytes.
+	 *
+	 * @return
+	 *   {@code true} if at least one byte was read
+	 * @throws IOException
+	 */
+	private boolean fill()
+		throws IOException
+	{
+		if(in == null)
+		{
+			return false;
+		}
+
+		int remaining = limit - position;
+		if(position > 0)
+		{
+			System.arraycopy(buffer, position, buffer, 0, remaining);
+			position = 0;
+			limit = remaining;
+		}
+
+		while(true)
+		{
+			int read = in.read(buffer, limit, buffer.length - limit);
+			if(read == -1)
+			{
+				return false;
+			}
+			else if(read > 0)
+			{
+				limit += read;
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Take the current byte and turn it into a {@link Token}.
+	 *
+	 * @param b
+	 * @return
+	 */
+	private Token toToken(int b)
+		throws IOException
+	{
+		switch(b)
+		{
+			case 0:
+				return Token.END_OF_STREAM;
+			case '{':
+				return Token.OBJECT_START;
+			case '}':
+				return Token.OBJECT_END;
+			case '[':
+				return Token.LIST_START;
+			case ']':
+				return Token.LIST_END;
+			case '"':
+				return Token.VALUE;
+			case 'n':
+				return Token.NULL;
+			case 'f':
+			case 't':
+			case '+':
+			case '-':
+				return Token.VALUE;
+			default:
+				if(b >= '0' && b <= '9')
+				{
+					return Token.VALUE;
+				}
+		}
+
+		throw raiseException("Unexpected JSON input, next character is: " + (char) b);
+	}
+}
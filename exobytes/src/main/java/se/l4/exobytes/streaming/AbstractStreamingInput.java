@@ -23,6 +23,16 @@ public abstract class AbstractStreamingInput
 		current = Token.UNKNOWN;
 	}
 
+	/**
+	 * Forget the current token, used by inputs that support being reset to
+	 * read from a new source.
+	 */
+	protected void resetToken()
+	{
+		current = Token.UNKNOWN;
+		didReadValue = false;
+	}
+
 	@Override
 	public Token peek()
 		throws IOException
@@ -0,0 +1,121 @@
+package se.l4.exobytes.streaming;
+
+import se.l4.exobytes.internal.streaming.PooledBufferRecycler;
+import se.l4.exobytes.internal.streaming.ThreadLocalBufferRecycler;
+
+/**
+ * Source of fixed-size byte buffers used by outputs while encoding. Outputs
+ * acquire a buffer when they are created and release it when they are
+ * closed, which lets repeated serialization reuse the same memory instead of
+ * allocating a new buffer for every message.
+ *
+ * <p>
+ * Recyclers only keep buffers of their own {@link #getBufferSize() size},
+ * any other buffer passed to {@link #release(byte[])} is dropped.
+ */
+public interface BufferRecycler
+{
+	/**
+	 * The default size of buffers, 8 KiB.
+	 */
+	static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/**
+	 * Get the size of the buffers this recycler hands out.
+	 *
+	 * @return
+	 */
+	int getBufferSize();
+
+	/**
+	 * Acquire a buffer. The buffer is owned by the caller until it is given
+	 * back via {@link #release(byte[])}.
+	 *
+	 * @return
+	 *   buffer of at least {@link #getBufferSize()} bytes
+	 */
+	byte[] acquire();
+
+	/**
+	 * Release a buffer previously acquired, making it available for reuse.
+	 * The buffer must not be used after it has been released.
+	 *
+	 * @param buffer
+	 */
+	void release(byte[] buffer);
+
+	/**
+	 * Get the shared recycler that keeps one buffer of
+	 * {@link #DEFAULT_BUFFER_SIZE} per thread. This is the recycler used by
+	 * the built-in formats unless another one is specified.
+	 *
+	 * @return
+	 */
+	static BufferRecycler threadLocal()
+	{
+		return ThreadLocalBufferRecycler.DEFAULT;
+	}
+
+	/**
+	 * Get a recycler that keeps one buffer of the given size per thread. This
+	 * works well when outputs are created and closed on the same thread.
+	 *
+	 * @param bufferSize
+	 * @return
+	 */
+	static BufferRecycler threadLocal(int bufferSize)
+	{
+		return new ThreadLocalBufferRecycler(bufferSize);
+	}
+
+	/**
+	 * Get a recycler that shares a bounded pool of buffers between all
+	 * threads. This is useful when outputs are handed between threads, such
+	 * as in asynchronous code.
+	 *
+	 * @param bufferSize
+	 *   the size of buffers
+	 * @param maxPooled
+	 *   the maximum number of buffers to keep around
+	 * @return
+	 */
+	static BufferRecycler pooled(int bufferSize, int maxPooled)
+	{
+		return new PooledBufferRecycler(bufferSize, maxPooled);
+	}
+
+	/**
+	 * Get a recycler that does not recycle, a new buffer is allocated every
+	 * time one is acquired.
+	 *
+	 * @param bufferSize
+	 * @return
+	 */
+	static BufferRecycler none(int bufferSize)
+	{
+		if(bufferSize < 16)
+		{
+			throw new IllegalArgumentException("bufferSize must be at least 16 bytes");
+		}
+
+		return new BufferRecycler()
+		{
+			@Override
+			public int getBufferSize()
+			{
+				return bufferSize;
+			}
+
+			@Override
+			public byte[] acquire()
+			{
+				return new byte[bufferSize];
+			}
+
+			@Override
+			public void release(byte[] buffer)
+			{
+			}
+		};
+	}
+}
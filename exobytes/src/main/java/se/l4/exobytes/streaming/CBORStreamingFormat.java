@@ -3,9 +3,14 @@ package se.l4.exobytes.streaming;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
 
 import se.l4.exobytes.internal.cbor.CBORInput;
 import se.l4.exobytes.internal.cbor.CBOROutput;
+import se.l4.exobytes.internal.cbor.NonBlockingCBORInput;
+import se.l4.exobytes.internal.cbor.ReusableCBORInput;
+import se.l4.exobytes.internal.streaming.NestingStack;
 
 /**
  * {@link StreamingFormat} for CBOR.
@@ -13,17 +18,101 @@ import se.l4.exobytes.internal.cbor.CBOROutput;
 public class CBORStreamingFormat
 	implements StreamingFormat
 {
+	private final BufferRecycler recycler;
+	private final int maxDepth;
+
+	/**
+	 * Create a new instance that uses the shared
+	 * {@link BufferRecycler#threadLocal() thread-local recycler} for output
+	 * buffers.
+	 */
+	public CBORStreamingFormat()
+	{
+		this(BufferRecycler.threadLocal());
+	}
+
+	/**
+	 * Create a new instance that acquires output buffers from the given
+	 * recycler.
+	 *
+	 * @param recycler
+	 */
+	public CBORStreamingFormat(BufferRecycler recycler)
+	{
+		this(recycler, NestingStack.DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Create a new instance that acquires output buffers from the given
+	 * recycler and limits how deeply lists and maps can be nested. Inputs and
+	 * outputs fail with an {@link IOException} if the limit is exceeded.
+	 * The default limit is {@code 1000}.
+	 *
+	 * @param recycler
+	 * @param maxDepth
+	 *   maximum number of lists and maps that can be open at the same time
+	 */
+	public CBORStreamingFormat(BufferRecycler recycler, int maxDepth)
+	{
+		if(maxDepth < 1)
+		{
+			throw new IllegalArgumentException("maxDepth must be at least 1, was " + maxDepth);
+		}
+
+		this.recycler = Objects.requireNonNull(recycler);
+		this.maxDepth = maxDepth;
+	}
+
 	@Override
 	public StreamingInput createInput(InputStream in)
 		throws IOException
 	{
-		return new CBORInput(in);
+		return new CBORInput(in, maxDepth);
+	}
+
+	@Override
+	public StreamingInput createInput(byte[] data, int offset, int length)
+		throws IOException
+	{
+		return new CBORInput(data, offset, length, maxDepth);
 	}
 
 	@Override
 	public StreamingOutput createOutput(OutputStream out)
 		throws IOException
 	{
-		return new CBOROutput(out);
+		return new CBOROutput(out, recycler, maxDepth);
+	}
+
+	@Override
+	public StreamingOutput createOutput(ByteBuffer buffer)
+		throws IOException
+	{
+		if(buffer.hasArray())
+		{
+			// Heap buffers can be encoded into directly
+			return new CBOROutput(buffer, maxDepth);
+		}
+
+		// Direct buffers receive a bulk copy of the output buffer
+		return StreamingFormat.super.createOutput(buffer);
+	}
+
+	@Override
+	public NonBlockingInput createNonBlockingInput()
+	{
+		return new NonBlockingCBORInput(maxDepth);
+	}
+
+	@Override
+	public ReusableStreamingInput newReader()
+	{
+		return new ReusableCBORInput(maxDepth);
+	}
+
+	@Override
+	public ReusableStreamingOutput newWriter()
+	{
+		return new CBOROutput(recycler, maxDepth);
 	}
 }
@@ -0,0 +1,21 @@
+package se.l4.exobytes.streaming;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * {@link Flow.Subscriber} that encodes the items it receives. Created via
+ * {@link FlowStreaming#encode(StreamingFormat, se.l4.exobytes.Serializer, java.nio.channels.WritableByteChannel)}.
+ */
+public interface EncodingSubscriber<T>
+	extends Flow.Subscriber<T>
+{
+	/**
+	 * Get a stage that completes when all items have been encoded and the
+	 * output has been closed, or completes exceptionally if the publisher
+	 * or the encoding fails.
+	 *
+	 * @return
+	 */
+	CompletionStage<Void> getCompletion();
+}
@@ -0,0 +1,145 @@
+package se.l4.exobytes.streaming;
+
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.internal.streaming.SequencePublisher;
+import se.l4.exobytes.internal.streaming.SequenceSubscriber;
+
+/**
+ * Decoding and encoding of sequences of values using
+ * {@link java.util.concurrent.Flow}. A sequence is a number of values written
+ * after each other, such as a CBOR sequence as defined in RFC 8742 or
+ * newline-delimited JSON.
+ *
+ * <p>
+ * Values are only decoded when they are requested and encoded values are
+ * flushed in batches, so large sequences can be streamed in constant memory.
+ */
+public class FlowStreaming
+{
+	/**
+	 * The number of items requested and written between flushes if nothing
+	 * else is specified.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	private FlowStreaming()
+	{
+	}
+
+	/**
+	 * Create a publisher that decodes a sequence of values from the given
+	 * channel. Values are read when requested, on the thread that calls
+	 * {@link Flow.Subscription#request(long)}. The publisher supports a
+	 * single subscriber and closes the channel when the sequence ends, fails
+	 * or the subscription is cancelled.
+	 *
+	 * @param format
+	 *   the format to read
+	 * @param serializer
+	 *   serializer used to read every value
+	 * @param channel
+	 *   channel to read from, must be in blocking mode
+	 * @return
+	 */
+	public static <T> Flow.Publisher<T> decode(
+		StreamingFormat format,
+		Serializer<T> serializer,
+		ReadableByteChannel channel
+	)
+	{
+		return decode(format, serializer, channel, Runnable::run);
+	}
+
+	/**
+	 * Create a publisher that decodes a sequence of values from the given
+	 * channel, reading values on the given executor when they are requested.
+	 *
+	 * @param format
+	 *   the format to read
+	 * @param serializer
+	 *   serializer used to read every value
+	 * @param channel
+	 *   channel to read from, must be in blocking mode
+	 * @param executor
+	 *   executor used to read values
+	 * @return
+	 * @see #decode(StreamingFormat, Serializer, ReadableByteChannel)
+	 */
+	public static <T> Flow.Publisher<T> decode(
+		StreamingFormat format,
+		Serializer<T> serializer,
+		ReadableByteChannel channel,
+		Executor executor
+	)
+	{
+		Objects.requireNonNull(format);
+		Objects.requireNonNull(serializer);
+		Objects.requireNonNull(channel);
+		Objects.requireNonNull(executor);
+
+		return new SequencePublisher<>(format, serializer, channel, executor);
+	}
+
+	/**
+	 * Create a subscriber that encodes the values it receives as a sequence
+	 * into the given channel. Values are requested and flushed in batches of
+	 * {@link #DEFAULT_BATCH_SIZE}.
+	 *
+	 * @param format
+	 *   the format to write
+	 * @param serializer
+	 *   serializer used to write every value
+	 * @param channel
+	 *   channel to write to, must be in blocking mode
+	 * @return
+	 */
+	public static <T> EncodingSubscriber<T> encode(
+		StreamingFormat format,
+		Serializer<T> serializer,
+		WritableByteChannel channel
+	)
+	{
+		return encode(format, serializer, channel, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Create a subscriber that encodes the values it receives as a sequence
+	 * into the given channel. The subscriber requests {@code batchSize}
+	 * values at a time and flushes the output after every batch. The channel
+	 * is closed when the publisher completes or fails.
+	 *
+	 * @param format
+	 *   the format to write
+	 * @param serializer
+	 *   serializer used to write every value
+	 * @param channel
+	 *   channel to write to, must be in blocking mode
+	 * @param batchSize
+	 *   the number of values to request and write between every flush
+	 * @return
+	 */
+	public static <T> EncodingSubscriber<T> encode(
+		StreamingFormat format,
+		Serializer<T> serializer,
+		WritableByteChannel channel,
+		int batchSize
+	)
+	{
+		Objects.requireNonNull(format);
+		Objects.requireNonNull(serializer);
+		Objects.requireNonNull(channel);
+
+		if(batchSize < 1)
+		{
+			throw new IllegalArgumentException("batchSize must be at least 1, was " + batchSize);
+		}
+
+		return new SequenceSubscriber<>(format, serializer, channel, batchSize);
+	}
+}
@@ -3,9 +3,13 @@ package se.l4.exobytes.streaming;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Objects;
 
-import se.l4.exobytes.internal.streaming.JsonInput;
 import se.l4.exobytes.internal.streaming.JsonOutput;
+import se.l4.exobytes.internal.streaming.NestingStack;
+import se.l4.exobytes.internal.streaming.NonBlockingJsonInput;
+import se.l4.exobytes.internal.streaming.ReusableUtf8JsonInput;
+import se.l4.exobytes.internal.streaming.Utf8JsonInput;
 
 /**
  * {@link StreamingFormat} for JSON.
@@ -13,17 +17,87 @@ import se.l4.exobytes.internal.streaming.JsonOutput;
 public class JSONStreamingFormat
 	implements StreamingFormat
 {
+	private final BufferRecycler recycler;
+	private final int maxDepth;
+
+	/**
+	 * Create a new instance that uses the shared
+	 * {@link BufferRecycler#threadLocal() thread-local recycler} for output
+	 * buffers.
+	 */
+	public JSONStreamingFormat()
+	{
+		this(BufferRecycler.threadLocal());
+	}
+
+	/**
+	 * Create a new instance that acquires output buffers from the given
+	 * recycler.
+	 *
+	 * @param recycler
+	 */
+	public JSONStreamingFormat(BufferRecycler recycler)
+	{
+		this(recycler, NestingStack.DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Create a new instance that acquires output buffers from the given
+	 * recycler and limits how deeply lists and objects can be nested. Inputs and
+	 * outputs fail with an {@link IOException} if the limit is exceeded.
+	 * The default limit is {@code 1000}.
+	 *
+	 * @param recycler
+	 * @param maxDepth
+	 *   maximum number of lists and objects that can be open at the same time
+	 */
+	public JSONStreamingFormat(BufferRecycler recycler, int maxDepth)
+	{
+		if(maxDepth < 1)
+		{
+			throw new IllegalArgumentException("maxDepth must be at least 1, was " + maxDepth);
+		}
+
+		this.recycler = Objects.requireNonNull(recycler);
+		this.maxDepth = maxDepth;
+	}
+
 	@Override
 	public StreamingInput createInput(InputStream in)
 		throws IOException
 	{
-		return new JsonInput(in);
+		return new Utf8JsonInput(in, maxDepth);
+	}
+
+	@Override
+	public StreamingInput createInput(byte[] data, int offset, int length)
+		throws IOException
+	{
+		return new Utf8JsonInput(data, offset, length, maxDepth);
 	}
 
 	@Override
 	public StreamingOutput createOutput(OutputStream out)
 		throws IOException
 	{
-		return new JsonOutput(out);
+		return new JsonOutput(out, false, recycler, maxDepth);
+	}
+
+	@Override
+	public NonBlockingInput createNonBlockingInput()
+	{
+		return new NonBlockingJsonInput(maxDepth);
+	}
+
+	@Override
+	public ReusableStreamingInput newReader()
+	{
+		return new ReusableUtf8JsonInput(maxDepth);
+	}
+
+	@Override
+	public ReusableStreamingOutput newWriter()
+	{
+		return new JsonOutput(false, recycler, maxDepth);
 	}
 }
@@ -0,0 +1,218 @@
+package se.l4.exobytes.streaming;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * Table of known keys used with {@link StreamingInput#readKey(KeyTable)}.
+ * The names are encoded as UTF-8 when the table is created so that inputs
+ * can match a key against the table directly from their raw data without
+ * creating a string for it.
+ *
+ * <p>
+ * Tables are immutable and should be created once and reused, such as
+ * when a serializer is created.
+ */
+public final class KeyTable
+{
+	/**
+	 * Index returned when a key is not in the table.
+	 */
+	public static final int NOT_FOUND = -1;
+
+	private final String[] names;
+	private final byte[][] encoded;
+
+	/**
+	 * Open addressing tables with the index of the name plus one, zero
+	 * marks an empty slot. One table is indexed using the hash of the chars
+	 * and one using the hash of the UTF-8 bytes.
+	 */
+	private final int[] charSlots;
+	private final int[] byteSlots;
+	private final int mask;
+
+	private KeyTable(String[] names)
+	{
+		this.names = names;
+
+		int size = 2;
+		while(size < names.length * 2)
+		{
+			size <<= 1;
+		}
+
+		mask = size - 1;
+		encoded = new byte[names.length][];
+		charSlots = new int[size];
+		byteSlots = new int[size];
+
+		for(int i=0; i<names.length; i++)
+		{
+			String name = Objects.requireNonNull(names[i], "names can not contain null");
+			if(indexOf(name) != NOT_FOUND)
+			{
+				throw new IllegalArgumentException("Duplicate key: " + name);
+			}
+
+			byte[] data = name.getBytes(StandardCharsets.UTF_8);
+			encoded[i] = data;
+
+			int slot = spread(name.hashCode()) & mask;
+			while(charSlots[slot] != 0)
+			{
+				slot = (slot + 1) & mask;
+			}
+			charSlots[slot] = i + 1;
+
+			slot = spread(hash(data, 0, data.length)) & mask;
+			while(byteSlots[slot] != 0)
+			{
+				slot = (slot + 1) & mask;
+			}
+			byteSlots[slot] = i + 1;
+		}
+	}
+
+	/**
+	 * Create a table for the given names. The index of a name in the table
+	 * is the same as its index in the array.
+	 *
+	 * @param names
+	 * @return
+	 */
+	@NonNull
+	public static KeyTable of(@NonNull String... names)
+	{
+		return new KeyTable(names.clone());
+	}
+
+	/**
+	 * Create a table for the given names. The index of a name in the table
+	 * is the order of the collection.
+	 *
+	 * @param names
+	 * @return
+	 */
+	@NonNull
+	public static KeyTable of(@NonNull Collection<String> names)
+	{
+		return new KeyTable(names.toArray(new String[names.size()]));
+	}
+
+	/**
+	 * Get the number of keys in this table.
+	 *
+	 * @return
+	 */
+	public int size()
+	{
+		return names.length;
+	}
+
+	/**
+	 * Get the name at the given index.
+	 *
+	 * @param index
+	 * @return
+	 */
+	@NonNull
+	public String getName(int index)
+	{
+		return names[index];
+	}
+
+	/**
+	 * Find the index of a name.
+	 *
+	 * @param name
+	 * @return
+	 *   index of the name, or {@link #NOT_FOUND}
+	 */
+	public int indexOf(@NonNull CharSequence name)
+	{
+		int length = name.length();
+		int hash;
+		if(name instanceof String)
+		{
+			hash = name.hashCode();
+		}
+		else
+		{
+			// Same hash as String#hashCode
+			hash = 0;
+			for(int i=0; i<length; i++)
+			{
+				hash = 31 * hash + name.charAt(i);
+			}
+		}
+
+		int slot = spread(hash) & mask;
+		int value;
+		while((value = charSlots[slot]) != 0)
+		{
+			String candidate = names[value - 1];
+			if(candidate.length() == length && candidate.contentEquals(name))
+			{
+				return value - 1;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Find the index of a name that is encoded as UTF-8.
+	 *
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @return
+	 *   index of the name, or {@link #NOT_FOUND}
+	 */
+	public int indexOf(@NonNull byte[] data, int offset, int length)
+	{
+		int slot = spread(hash(data, offset, length)) & mask;
+		int value;
+		while((value = byteSlots[slot]) != 0)
+		{
+			byte[] candidate = encoded[value - 1];
+			if(candidate.length == length
+				&& Arrays.equals(candidate, 0, length, data, offset, offset + length))
+			{
+				return value - 1;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		return NOT_FOUND;
+	}
+
+	private static int hash(byte[] data, int offset, int length)
+	{
+		int hash = 0;
+		for(int i=offset, n=offset + length; i<n; i++)
+		{
+			hash = 31 * hash + data[i];
+		}
+		return hash;
+	}
+
+	private static int spread(int hash)
+	{
+		return hash ^ (hash >>> 16);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "KeyTable" + Arrays.toString(names);
+	}
+}
@@ -0,0 +1,114 @@
+package se.l4.exobytes.streaming;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import se.l4.exobytes.Serializer;
+
+/**
+ * Decoder that reads values using a {@link Serializer} from data that is fed
+ * as it arrives, such as on an event loop that can not block. Data is
+ * accumulated in a {@link NonBlockingInput} and every time a top-level value
+ * has been completely fed it is read and passed to a consumer.
+ *
+ * <pre>
+ * NonBlockingDecoder&lt;Message&gt; decoder = new NonBlockingDecoder&lt;&gt;(
+ *   StreamingFormat.CBOR.createNonBlockingInput(),
+ *   serializer,
+ *   message -&gt; handle(message)
+ * );
+ *
+ * // For every chunk of data received
+ * decoder.feed(buffer);
+ *
+ * // When the connection is closed
+ * decoder.endOfInput();
+ * </pre>
+ */
+public class NonBlockingDecoder<T>
+{
+	private final NonBlockingInput input;
+	private final Serializer<T> serializer;
+	private final Consumer<? super T> consumer;
+
+	public NonBlockingDecoder(
+		NonBlockingInput input,
+		Serializer<T> serializer,
+		Consumer<? super T> consumer
+	)
+	{
+		this.input = Objects.requireNonNull(input);
+		this.serializer = Objects.requireNonNull(serializer);
+		this.consumer = Objects.requireNonNull(consumer);
+	}
+
+	/**
+	 * Feed the remaining data of the given buffer and pass all values that
+	 * have been completed to the consumer.
+	 *
+	 * @param data
+	 * @return
+	 *   the number of values that were read
+	 * @throws IOException
+	 */
+	public int feed(ByteBuffer data)
+		throws IOException
+	{
+		input.feed(data);
+		return readAvailable();
+	}
+
+	/**
+	 * Feed a part of the given array and pass all values that have been
+	 * completed to the consumer.
+	 *
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @return
+	 *   the number of values that were read
+	 * @throws IOException
+	 */
+	public int feed(byte[] data, int offset, int length)
+		throws IOException
+	{
+		input.feed(data, offset, length);
+		return readAvailable();
+	}
+
+	/**
+	 * Indicate that no more data will be fed, reading any remaining values.
+	 *
+	 * @return
+	 *   the number of values that were read
+	 * @throws IOException
+	 *   if the data ends in the middle of a value, as an
+	 *   {@link java.io.EOFException}
+	 */
+	public int endOfInput()
+		throws IOException
+	{
+		input.endOfInput();
+		return readAvailable();
+	}
+
+	private int readAvailable()
+		throws IOException
+	{
+		int count = 0;
+		while(input.isValueAvailable())
+		{
+			if(input.peek() == Token.END_OF_STREAM)
+			{
+				break;
+			}
+
+			consumer.accept(input.readObject(serializer));
+			count++;
+		}
+
+		return count;
+	}
+}
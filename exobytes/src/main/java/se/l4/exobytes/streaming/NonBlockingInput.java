@@ -0,0 +1,85 @@
+package se.l4.exobytes.streaming;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link StreamingInput} that is fed data as it arrives instead of reading
+ * from a blocking stream. When a token has not been completely fed
+ * {@link #next()} and {@link #peek()} return {@link Token#NEED_MORE_INPUT}
+ * and can be called again after more data has been fed. Values are only
+ * returned once all of their data is available, so reading the value of a
+ * {@link Token#VALUE} never blocks.
+ *
+ * <p>
+ * Serializers expect all of their data to be available, use
+ * {@link #isValueAvailable()} before reading an object or use a
+ * {@link NonBlockingDecoder} which takes care of this.
+ *
+ * <pre>
+ * NonBlockingInput in = StreamingFormat.CBOR.createNonBlockingInput();
+ * in.feed(buffer);
+ *
+ * Token token;
+ * while((token = in.next()) != Token.NEED_MORE_INPUT)
+ * {
+ *   ...
+ * }
+ * </pre>
+ */
+public interface NonBlockingInput
+	extends StreamingInput
+{
+	/**
+	 * Feed the remaining data of the given buffer to this input. The data is
+	 * copied and the position of the buffer is moved to its limit.
+	 *
+	 * @param data
+	 * @throws IOException
+	 *   if data can not be fed, such as after {@link #endOfInput()} has been
+	 *   called
+	 */
+	void feed(ByteBuffer data)
+		throws IOException;
+
+	/**
+	 * Feed a part of the given array to this input. The data is copied so
+	 * the array can be reused directly after this call.
+	 *
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @throws IOException
+	 *   if data can not be fed, such as after {@link #endOfInput()} has been
+	 *   called
+	 */
+	default void feed(byte[] data, int offset, int length)
+		throws IOException
+	{
+		feed(ByteBuffer.wrap(data, offset, length));
+	}
+
+	/**
+	 * Indicate that no more data will be fed. After this the input behaves
+	 * like a blocking input that has reached the end of its stream, any
+	 * partial data causes an {@link IOException} when read.
+	 */
+	void endOfInput();
+
+	/**
+	 * Get if the next value, including everything nested in it, has been
+	 * completely fed. When this returns {@code true} the value can be read
+	 * via {@link #readObject(se.l4.exobytes.Serializer)} or by calling
+	 * {@link #next()} without {@link Token#NEED_MORE_INPUT} being returned.
+	 * Should only be called when the current value, if any, has been read.
+	 * Always returns {@code true} after {@link #endOfInput()} has been
+	 * called, unless the data ends in the middle of a value.
+	 *
+	 * @return
+	 * @throws IOException
+	 *   if {@link #endOfInput()} has been called and the data ends in the
+	 *   middle of a value, as an {@link java.io.EOFException}
+	 */
+	boolean isValueAvailable()
+		throws IOException;
+}
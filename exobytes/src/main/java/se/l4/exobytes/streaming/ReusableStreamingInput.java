@@ -0,0 +1,52 @@
+package se.l4.exobytes.streaming;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link StreamingInput} that can be pointed at a new source once it is done
+ * with the current one. Reusing an input keeps its internal buffers, so
+ * reading many small messages does not allocate anything but the values
+ * being read. Instances are not thread-safe, keep one per thread or per
+ * connection.
+ *
+ * <pre>
+ * ReusableStreamingInput reader = StreamingFormat.CBOR.newReader();
+ *
+ * reader.reset(data, 0, data.length);
+ * Message message = reader.readObject(serializer);
+ * </pre>
+ *
+ * @see StreamingFormat#newReader()
+ */
+public interface ReusableStreamingInput
+	extends StreamingInput
+{
+	/**
+	 * Start reading from the given stream. Any state from the previous source
+	 * is discarded, the previous source is not closed.
+	 *
+	 * @param in
+	 * @throws IOException
+	 */
+	void reset(InputStream in)
+		throws IOException;
+
+	/**
+	 * Start reading from a part of the given array. Formats may read
+	 * directly from the array, so it must not be modified while the input is
+	 * in use. Any state from the previous source is discarded, the previous
+	 * source is not closed.
+	 *
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @throws IOException
+	 */
+	default void reset(byte[] data, int offset, int length)
+		throws IOException
+	{
+		reset(new ByteArrayInputStream(data, offset, length));
+	}
+}
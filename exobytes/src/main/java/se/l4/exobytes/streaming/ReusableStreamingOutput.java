@@ -0,0 +1,36 @@
+package se.l4.exobytes.streaming;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@link StreamingOutput} that can be pointed at a new stream once it is done
+ * with the current one. A reused output acquires its buffer from its
+ * {@link BufferRecycler} again, which means that with the default thread
+ * local recycler writing many small messages does not allocate. Instances
+ * are not thread-safe, keep one per thread or per connection.
+ *
+ * <pre>
+ * ReusableStreamingOutput writer = StreamingFormat.CBOR.newWriter();
+ *
+ * writer.reset(out);
+ * writer.writeObject(serializer, message);
+ * writer.close();
+ * </pre>
+ *
+ * @see StreamingFormat#newWriter()
+ */
+public interface ReusableStreamingOutput
+	extends StreamingOutput
+{
+	/**
+	 * Start writing to the given stream. Any data that has not been flushed
+	 * to the previous stream is discarded, so {@link #flush()} or
+	 * {@link #close()} the output before resetting it.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	void reset(OutputStream out)
+		throws IOException;
+}
@@ -1,9 +1,15 @@
 package se.l4.exobytes.streaming;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 
+import se.l4.exobytes.internal.streaming.ByteBufferInputStream;
+import se.l4.exobytes.internal.streaming.ByteBufferOutputStream;
 import se.l4.exobytes.internal.streaming.LegacyBinaryStreamingFormat;
 
 /**
@@ -21,6 +27,48 @@ public interface StreamingFormat
 	StreamingInput createInput(InputStream in)
 		throws IOException;
 
+	/**
+	 * Create a {@link StreamingInput} that reads from a part of the given
+	 * array. Formats may read directly from the array, so it must not be
+	 * modified while the input is in use.
+	 *
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @return
+	 * @throws IOException
+	 */
+	default StreamingInput createInput(byte[] data, int offset, int length)
+		throws IOException
+	{
+		return createInput(new ByteArrayInputStream(data, offset, length));
+	}
+
+	/**
+	 * Create a {@link StreamingInput} that reads the remaining data of the
+	 * given buffer. The position of the buffer is not modified. Formats may
+	 * read directly from the buffer, so it must not be modified while the
+	 * input is in use.
+	 *
+	 * @param buffer
+	 * @return
+	 * @throws IOException
+	 */
+	default StreamingInput createInput(ByteBuffer buffer)
+		throws IOException
+	{
+		if(buffer.hasArray())
+		{
+			return createInput(
+				buffer.array(),
+				buffer.arrayOffset() + buffer.position(),
+				buffer.remaining()
+			);
+		}
+
+		return createInput(new ByteBufferInputStream(buffer.duplicate()));
+	}
+
 	/**
 	 * Create a {@link StreamingOutput} for the given stream.
 	 *
@@ -31,6 +79,92 @@ public interface StreamingFormat
 	StreamingOutput createOutput(OutputStream out)
 		throws IOException;
 
+	/**
+	 * Create a {@link StreamingOutput} that writes into the given buffer,
+	 * starting at its current position. The position of the buffer is moved
+	 * forward when the output is flushed or closed. Writing more data than
+	 * the buffer has room for will fail with an {@link IOException}.
+	 *
+	 * <p>
+	 * Formats may encode directly into buffers backed by an accessible
+	 * array. Other buffers, such as direct buffers, are written by encoding
+	 * into the buffer of the output and copying it into the target in bulk
+	 * when the output is flushed or its buffer fills up.
+	 *
+	 * @param buffer
+	 * @return
+	 * @throws IOException
+	 */
+	default StreamingOutput createOutput(ByteBuffer buffer)
+		throws IOException
+	{
+		return createOutput(new ByteBufferOutputStream(buffer));
+	}
+
+	/**
+	 * Create a {@link StreamingOutput} that writes to the given channel. Data
+	 * is encoded into the buffer of the output, which is written to the
+	 * channel as it fills up and when the output is flushed. Closing the
+	 * output will close the channel.
+	 *
+	 * <p>
+	 * The buffer of the output is a heap array, so channels that need direct
+	 * memory, such as socket and file channels, copy every write once into
+	 * a temporary direct buffer.
+	 *
+	 * @param channel
+	 *   channel to write to, must be in blocking mode
+	 * @return
+	 * @throws IOException
+	 */
+	default StreamingOutput createOutput(WritableByteChannel channel)
+		throws IOException
+	{
+		return createOutput(Channels.newOutputStream(channel));
+	}
+
+	/**
+	 * Create a {@link NonBlockingInput} for this format. The input starts out
+	 * empty and is given data via {@link NonBlockingInput#feed(ByteBuffer)}.
+	 *
+	 * @return
+	 * @throws UnsupportedOperationException
+	 *   if this format does not support non-blocking parsing
+	 */
+	default NonBlockingInput createNonBlockingInput()
+	{
+		throw new UnsupportedOperationException("Format does not support non-blocking inputs");
+	}
+
+	/**
+	 * Create a {@link ReusableStreamingInput} for this format. The reader is
+	 * not connected to any source until one of its {@code reset} methods is
+	 * called, after which it can be reset again for every message it should
+	 * read.
+	 *
+	 * @return
+	 * @throws UnsupportedOperationException
+	 *   if this format does not support reuse of inputs
+	 */
+	default ReusableStreamingInput newReader()
+	{
+		throw new UnsupportedOperationException("Format does not support reusable inputs");
+	}
+
+	/**
+	 * Create a {@link ReusableStreamingOutput} for this format. The writer is
+	 * not connected to any stream until
+	 * {@link ReusableStreamingOutput#reset(OutputStream)} is called, after
+	 * which it can be reset again for every message it should write.
+	 *
+	 * @return
+	 * @throws UnsupportedOperationException
+	 *   if this format does not support reuse of outputs
+	 */
+	default ReusableStreamingOutput newWriter()
+	{
+		throw new UnsupportedOperationException("Format does not support reusable outputs");
+	}
 
 	/**
 	 * Format for JSON.
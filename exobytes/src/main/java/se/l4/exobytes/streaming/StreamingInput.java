@@ -128,6 +128,24 @@ public interface StreamingInput
 	String readString()
 		throws IOException;
 
+	/**
+	 * Read the current value as a key and look it up in the given table.
+	 * This consumes the value in the same way as {@link #readString()}, but
+	 * inputs may compare the raw data against the table without creating a
+	 * string for the key.
+	 *
+	 * @param table
+	 * @return
+	 *   index of the key in the table, or {@link KeyTable#NOT_FOUND} if the
+	 *   key is not in the table
+	 * @throws IOException
+	 */
+	default int readKey(@NonNull KeyTable table)
+		throws IOException
+	{
+		return table.indexOf(readString());
+	}
+
 	/**
 	 * Get the value as a boolean.
 	 *
@@ -36,5 +36,10 @@ public enum Token
 	/**
 	 * Special token returned when end of stream has been reached.
 	 */
-	END_OF_STREAM
+	END_OF_STREAM,
+	/**
+	 * Special token returned by a {@link NonBlockingInput} when the next
+	 * token has not been completely fed yet.
+	 */
+	NEED_MORE_INPUT
 }
@@ -0,0 +1,317 @@
+package se.l4.exobytes;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import se.l4.exobytes.streaming.StreamingFormat;
+import se.l4.exobytes.streaming.StreamingInput;
+import se.l4.exobytes.streaming.StreamingOutput;
+import se.l4.ylem.types.reflect.TypeRef;
+import se.l4.ylem.types.reflect.Types;
+
+/**
+ * Stress tests for resolving serializers from many threads at once.
+ */
+public class ConcurrentResolutionTest
+{
+	private static final int THREADS = 64;
+
+	@Test
+	public void testManyTypesFromManyThreads()
+		throws Exception
+	{
+		Serializers serializers = Serializers.create()
+			.withUnboundedCache()
+			.build();
+
+		List<TypeRef> types = createTypes();
+		List<List<Serializer<?>>> results = resolveConcurrently(serializers, types);
+
+		for(int i=0, n=types.size(); i<n; i++)
+		{
+			Serializer<?> first = results.get(0).get(i);
+			for(List<Serializer<?>> result : results)
+			{
+				assertThat(result.get(i), sameInstance(first));
+			}
+		}
+	}
+
+	@Test
+	public void testEachTypeResolvedOnce()
+		throws Exception
+	{
+		CountingResolver resolver = new CountingResolver();
+		Serializers serializers = Serializers.create()
+			.withUnboundedCache()
+			.build()
+			.register(Counted.class, resolver);
+
+		List<TypeRef> types = new ArrayList<>();
+		for(Class<?> type : new Class<?>[] { String.class, Integer.class, Long.class, Double.class })
+		{
+			types.add(Types.reference(Counted.class, type));
+		}
+
+		CountDownLatch arrived = new CountDownLatch(THREADS);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try
+		{
+			List<Future<?>> futures = new ArrayList<>();
+			for(int t=0; t<THREADS; t++)
+			{
+				TypeRef type = types.get(t % types.size());
+				futures.add(executor.submit(() -> {
+					arrived.countDown();
+					return serializers.get(type);
+				}));
+			}
+
+			/*
+			 * Keep the resolutions blocked until every thread has asked for
+			 * its type, without single-flight resolution the waiting threads
+			 * would all call the resolver.
+			 */
+			arrived.await(1, TimeUnit.MINUTES);
+			Thread.sleep(200);
+			resolver.release.countDown();
+
+			for(Future<?> future : futures)
+			{
+				future.get(1, TimeUnit.MINUTES);
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		for(TypeRef type : types)
+		{
+			assertThat(type.toTypeDescription(), resolver.counts.get(type).get(), is(1));
+		}
+	}
+
+	@Test
+	public void testCircularTypesFromManyThreads()
+		throws Exception
+	{
+		for(int round=0; round<20; round++)
+		{
+			Serializers serializers = Serializers.create()
+				.withUnboundedCache()
+				.build();
+
+			List<TypeRef> types = List.of(
+				Types.reference(Node.class),
+				Types.reference(Parent.class),
+				Types.reference(Child.class),
+				Types.reference(List.class, Parent.class),
+				Types.reference(List.class, Child.class)
+			);
+
+			resolveConcurrently(serializers, types);
+
+			Parent parent = new Parent();
+			parent.child = new Child();
+			parent.child.parent = new Parent();
+			parent.child.parent.name = "inner";
+
+			Parent read = writeAndRead(serializers.get(Parent.class), parent);
+			assertThat(read.child.parent.name, is("inner"));
+
+			Node node = new Node();
+			node.children = List.of(new Node());
+			Node readNode = writeAndRead(serializers.get(Node.class), node);
+			assertThat(readNode.children.size(), is(1));
+		}
+	}
+
+	private static List<List<Serializer<?>>> resolveConcurrently(Serializers serializers, List<TypeRef> types)
+		throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try
+		{
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<List<Serializer<?>>>> futures = new ArrayList<>();
+			for(int t=0; t<THREADS; t++)
+			{
+				Random random = new Random(t);
+				futures.add(executor.submit(() -> {
+					List<Integer> order = new ArrayList<>();
+					for(int i=0, n=types.size(); i<n; i++)
+					{
+						order.add(i);
+					}
+					Collections.shuffle(order, random);
+
+					start.await();
+
+					Serializer<?>[] result = new Serializer<?>[types.size()];
+					for(int i : order)
+					{
+						result[i] = serializers.get(types.get(i));
+					}
+
+					return List.of(result);
+				}));
+			}
+
+			start.countDown();
+
+			List<List<Serializer<?>>> results = new ArrayList<>();
+			for(Future<List<Serializer<?>>> future : futures)
+			{
+				results.add(future.get(1, TimeUnit.MINUTES));
+			}
+
+			return results;
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Create several hundred types by wrapping simple types in lists, sets
+	 * and maps.
+	 */
+	private static List<TypeRef> createTypes()
+	{
+		List<TypeRef> wrapped = new ArrayList<>();
+		for(Class<?> type : new Class<?>[] {
+			String.class, Integer.class, Long.class, Short.class, Byte.class,
+			Double.class, Float.class, Boolean.class, Node.class, Parent.class
+		})
+		{
+			wrapped.add(Types.reference(type));
+		}
+
+		List<TypeRef> result = new ArrayList<>(wrapped);
+		for(int depth=0; depth<3; depth++)
+		{
+			List<TypeRef> next = new ArrayList<>();
+			for(TypeRef type : wrapped)
+			{
+				next.add(Types.reference(List.class).withTypeParameter(0, type).get());
+				next.add(Types.reference(Set.class).withTypeParameter(0, type).get());
+				next.add(Types.reference(Map.class, String.class, Object.class).withTypeParameter(1, type).get());
+			}
+
+			result.addAll(next);
+			wrapped = next;
+		}
+
+		return result;
+	}
+
+	private static <T> T writeAndRead(Serializer<T> serializer, T object)
+		throws IOException
+	{
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try(StreamingOutput out = StreamingFormat.CBOR.createOutput(baos))
+		{
+			out.writeObject(serializer, object);
+		}
+
+		try(StreamingInput in = StreamingFormat.CBOR.createInput(new ByteArrayInputStream(baos.toByteArray())))
+		{
+			return in.readObject(serializer);
+		}
+	}
+
+	public static class Counted<T>
+	{
+	}
+
+	/**
+	 * Resolver that counts how many times every type is resolved and blocks
+	 * until released.
+	 */
+	private static class CountingResolver
+		implements SerializerResolver<Counted<?>>
+	{
+		private final Map<TypeRef, AtomicInteger> counts = new ConcurrentHashMap<>();
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public Optional<? extends SerializerOrResolver<Counted<?>>> find(TypeEncounter encounter)
+		{
+			counts.computeIfAbsent(encounter.getType(), k -> new AtomicInteger()).incrementAndGet();
+
+			try
+			{
+				release.await(1, TimeUnit.MINUTES);
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+
+			return Optional.of(new Serializer<Counted<?>>()
+			{
+				@Override
+				public Counted<?> read(StreamingInput in)
+					throws IOException
+				{
+					in.skipNext();
+					return new Counted<>();
+				}
+
+				@Override
+				public void write(Counted<?> object, StreamingOutput out)
+					throws IOException
+				{
+					out.writeNull();
+				}
+			});
+		}
+	}
+
+	@AnnotationSerialization
+	public static class Node
+	{
+		@Expose
+		List<Node> children;
+	}
+
+	@AnnotationSerialization
+	public static class Parent
+	{
+		@Expose
+		String name;
+
+		@Expose
+		Child child;
+	}
+
+	@AnnotationSerialization
+	public static class Child
+	{
+		@Expose
+		Parent parent;
+	}
+}
@@ -1,12 +1,19 @@
 package se.l4.exobytes;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
 import java.io.IOException;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import se.l4.exobytes.streaming.StreamingInput;
 import se.l4.exobytes.streaming.StreamingOutput;
+import se.l4.ylem.types.reflect.TypeRef;
+import se.l4.ylem.types.reflect.Types;
 
 public class DefaultSerializersTest
 {
@@ -40,12 +47,183 @@ public class DefaultSerializersTest
 		throw new AssertionError("Should not be able to resolve sub-class serializer without @Use");
 	}
 
+	@Test
+	public void testRegisteredOverridesUseAnnotation()
+	{
+		Serializer<ClassWithUse> registered = new OtherSerializer();
+		serializers.register(ClassWithUse.class, registered);
+
+		assertThat(serializers.get(ClassWithUse.class), is(registered));
+	}
+
 	@Test
 	public void testString()
 	{
 		Serializer<String> string = serializers.get(String.class);
 	}
 
+	@Test
+	public void testCacheHitsAndMisses()
+	{
+		CacheStats before = serializers.getCacheStats();
+
+		serializers.get(Types.reference(String.class));
+		serializers.get(Types.reference(String.class));
+
+		CacheStats after = serializers.getCacheStats();
+		assertThat(after.getMissCount() - before.getMissCount(), is(1l));
+		assertThat(after.getHitCount() - before.getHitCount(), is(1l));
+	}
+
+	@Test
+	public void testCacheEviction()
+	{
+		serializers = Serializers.create()
+			.withCacheSize(1)
+			.build();
+
+		serializers.get(String.class);
+		serializers.get(Integer.class);
+
+		CacheStats stats = serializers.getCacheStats();
+		assertThat(stats.getEvictionCount() > 0, is(true));
+		assertThat(stats.getSize(), is(1l));
+	}
+
+	@Test
+	public void testUnboundedCache()
+	{
+		serializers = Serializers.create()
+			.withUnboundedCache()
+			.build();
+
+		Serializer<?> string = serializers.get(Types.reference(String.class));
+		assertThat(serializers.get(Types.reference(String.class)), is(string));
+
+		CacheStats stats = serializers.getCacheStats();
+		assertThat(stats.getHitCount(), is(1l));
+		assertThat(stats.getMissCount(), is(1l));
+		assertThat(stats.getEvictionCount(), is(0l));
+	}
+
+	@Test
+	public void testClassLookupIsCached()
+	{
+		Serializer<String> string = serializers.get(String.class);
+		CacheStats before = serializers.getCacheStats();
+
+		assertThat(serializers.get(String.class), is(string));
+
+		CacheStats after = serializers.getCacheStats();
+		assertThat(after.getMissCount(), is(before.getMissCount()));
+		assertThat(after.getHitCount(), is(before.getHitCount() + 1));
+	}
+
+	@Test
+	public void testFindMissing()
+	{
+		serializers = Serializers.create()
+			.empty()
+			.build();
+
+		assertThat(serializers.find(String.class).isPresent(), is(false));
+		assertThat(serializers.find(Types.reference(String.class)).isPresent(), is(false));
+		assertThat(serializers.isSupported(String.class), is(false));
+	}
+
+	@Test
+	public void testFindNegativeResultIsCached()
+	{
+		serializers = Serializers.create()
+			.empty()
+			.build();
+
+		serializers.find(Types.reference(String.class));
+		serializers.find(Types.reference(String.class));
+
+		CacheStats stats = serializers.getCacheStats();
+		assertThat(stats.getMissCount(), is(1l));
+		assertThat(stats.getHitCount(), is(1l));
+	}
+
+	@Test
+	public void testWrappedFallsBackToOther()
+	{
+		Serializers wrapped = Serializers.create()
+			.empty()
+			.wrap(serializers)
+			.build();
+
+		Serializer<String> string = serializers.get(String.class);
+		assertThat(wrapped.get(String.class), is(string));
+		assertThat(wrapped.find(String.class).get(), is(string));
+		assertThat(wrapped.isSupported(String.class), is(true));
+		assertThat(wrapped.isSupported(Object.class), is(false));
+	}
+
+	@Test
+	public void testWrappedPrefersOwnSerializers()
+	{
+		Serializer<ClassWithUse> registered = new OtherSerializer();
+		Serializers wrapped = Serializers.create()
+			.empty()
+			.wrap(serializers)
+			.addModule(s -> s.register(ClassWithUse.class, registered))
+			.build();
+
+		assertThat(wrapped.get(ClassWithUse.class), is(registered));
+		assertThat(serializers.get(ClassWithUse.class) instanceof OtherSerializer, is(false));
+	}
+
+	@Test
+	public void testWarmUpResolvesNestedTypes()
+	{
+		WarmUpResult result = serializers.warmUp(List.of(Types.reference(Outer.class)), 2);
+
+		Set<TypeRef> types = result.getResolutionTimes().keySet();
+		assertThat(types.stream().anyMatch(t -> t.isErasedType(Outer.class)), is(true));
+		assertThat(types.stream().anyMatch(t -> t.isErasedType(Inner.class)), is(true));
+		assertThat(types.stream().anyMatch(t -> t.isErasedType(String.class)), is(true));
+		assertThat(result.getUnsupported().isEmpty(), is(true));
+	}
+
+	@Test
+	public void testWarmUpReportsUnsupported()
+	{
+		serializers = Serializers.create()
+			.empty()
+			.build();
+
+		WarmUpResult result = serializers.warmUp(List.of(Types.reference(String.class)));
+		assertThat(result.getUnsupported(), is(Set.of(Types.reference(String.class))));
+	}
+
+	@Test
+	public void testPreload()
+	{
+		serializers = Serializers.create()
+			.preload(Outer.class)
+			.build();
+
+		long misses = serializers.getCacheStats().getMissCount();
+		serializers.get(Types.reference(Inner.class));
+		assertThat(serializers.getCacheStats().getMissCount(), is(misses));
+	}
+
+	@AnnotationSerialization
+	public static class Outer
+	{
+		@Expose
+		List<Inner> inner;
+	}
+
+	@AnnotationSerialization
+	public static class Inner
+	{
+		@Expose
+		String value;
+	}
+
 	@Use(FakeSerializer.class)
 	public static class ClassWithUse
 	{
@@ -73,4 +251,9 @@ public class DefaultSerializersTest
 		{
 		}
 	}
+
+	public static class OtherSerializer
+		extends FakeSerializer
+	{
+	}
 }
@@ -0,0 +1,302 @@
+package se.l4.exobytes.reflection;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.junit.jupiter.api.Test;
+
+import se.l4.exobytes.AnnotationSerialization;
+import se.l4.exobytes.Expose;
+import se.l4.exobytes.Named;
+import se.l4.exobytes.QualifiedName;
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.Serializers;
+import se.l4.exobytes.SkipDefaultValue;
+import se.l4.exobytes.internal.reflection.ReflectionSerializer;
+import se.l4.exobytes.internal.reflection.ReflectionStreamingSerializer;
+import se.l4.exobytes.streaming.StreamingFormat;
+import se.l4.exobytes.streaming.StreamingInput;
+import se.l4.exobytes.streaming.StreamingOutput;
+
+/**
+ * Tests for serializers generated via {@link ReflectionSerializer#GENERATING}.
+ */
+public class GeneratedSerializerTest
+	extends ReflectionTest
+{
+	@Override
+	protected <T> ReflectionSerializer<T> createResolver()
+	{
+		return new ReflectionSerializer<>(true);
+	}
+
+	@Test
+	public void testIsGenerated()
+	{
+		Serializer<AllTypes> serializer = resolve(AllTypes.class);
+		assertThat(serializer, not(instanceOf(ReflectionStreamingSerializer.class)));
+	}
+
+	@Test
+	public void testAllTypes()
+	{
+		Serializer<AllTypes> serializer = resolve(AllTypes.class);
+
+		AllTypes instance = new AllTypes();
+		instance.f1 = true;
+		instance.f2 = (byte) -12;
+		instance.f3 = (short) 1234;
+		instance.f4 = 'å';
+		instance.f5 = Integer.MIN_VALUE;
+		instance.f6 = Long.MAX_VALUE;
+		instance.f7 = 3.25f;
+		instance.f8 = -0.1;
+		instance.f9 = "string value";
+		instance.f10 = 42;
+		instance.f11 = new ArrayList<>(Arrays.asList("a", "b"));
+		testSymmetry(serializer, instance);
+	}
+
+	@Test
+	public void testNullsAndDefaults()
+	{
+		Serializer<AllTypes> serializer = resolve(AllTypes.class);
+		testSymmetry(serializer, new AllTypes());
+	}
+
+	@Test
+	public void testFinalField()
+	{
+		Serializer<WithFinalField> serializer = resolve(WithFinalField.class);
+
+		WithFinalField instance = new WithFinalField("value");
+		testSymmetry(serializer, instance);
+	}
+
+	@Test
+	public void testSkipDefaultValues()
+		throws IOException
+	{
+		Serializer<SkipDefaults> serializer = resolve(SkipDefaults.class);
+
+		SkipDefaults instance = new SkipDefaults();
+		assertThat(writeJson(serializer, instance), is("{}"));
+
+		instance.f1 = 10;
+		instance.f2 = "v";
+		assertThat(writeJson(serializer, instance), is("{\"f1\":10,\"f2\":\"v\"}"));
+	}
+
+	@Test
+	public void testRenamedAndUnknownKeys()
+		throws IOException
+	{
+		Serializer<Renamed> serializer = resolve(Renamed.class);
+
+		byte[] data = "{ \"unknown\": { \"a\": [1, 2] }, \"other\": 12, \"value\": null }".getBytes(StandardCharsets.UTF_8);
+		try(StreamingInput in = StreamingFormat.JSON.createInput(data, 0, data.length))
+		{
+			Renamed instance = serializer.read(in);
+			assertThat(instance.field, is(12));
+			assertThat(instance.value, nullValue());
+		}
+	}
+
+	@Test
+	public void testName()
+	{
+		Serializer<Renamed> serializer = resolve(Renamed.class);
+		assertThat(serializer.getName().get(), is(new QualifiedName("test", "renamed")));
+	}
+
+	@Test
+	public void testViaBuilder()
+	{
+		Serializers serializers = Serializers.create()
+			.withGeneratedSerializers()
+			.build();
+
+		Serializer<Renamed> serializer = serializers.get(Renamed.class);
+		assertThat(serializer, not(instanceOf(ReflectionStreamingSerializer.class)));
+
+		Renamed instance = new Renamed();
+		instance.field = 1;
+		instance.value = "value";
+		testSymmetry(serializer, instance);
+	}
+
+	@Test
+	public void testClassSharedBetweenInstances()
+	{
+		Serializer<Renamed> first = Serializers.create()
+			.withGeneratedSerializers()
+			.build()
+			.get(Renamed.class);
+
+		Serializer<Renamed> second = Serializers.create()
+			.withGeneratedSerializers()
+			.build()
+			.get(Renamed.class);
+
+		assertThat(first, not(is(second)));
+		assertThat(second.getClass(), is(first.getClass()));
+
+		Renamed instance = new Renamed();
+		instance.field = 2;
+		instance.value = "value";
+		testSymmetry(second, instance);
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testHiddenClassWhenSupported()
+		throws Exception
+	{
+		assumeTrue(Runtime.version().major() >= 15, "Hidden classes require JDK 15");
+
+		Serializer<Renamed> serializer = resolve(Renamed.class);
+		Method isHidden = Class.class.getMethod("isHidden");
+		assertThat(isHidden.invoke(serializer.getClass()), is(true));
+	}
+
+	@Test
+	public void testDefaultUsesReflection()
+	{
+		Serializer<Renamed> serializer = Serializers.create()
+			.build()
+			.get(Renamed.class);
+
+		assertThat(serializer, instanceOf(ReflectionStreamingSerializer.class));
+	}
+
+	private <T> String writeJson(Serializer<T> serializer, T instance)
+		throws IOException
+	{
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try(StreamingOutput out = StreamingFormat.JSON.createOutput(stream))
+		{
+			serializer.write(instance, out);
+		}
+
+		return new String(stream.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	public static class AllTypes
+	{
+		@Expose
+		private boolean f1;
+		@Expose
+		private byte f2;
+		@Expose
+		private short f3;
+		@Expose
+		private char f4;
+		@Expose
+		private int f5;
+		@Expose
+		private long f6;
+		@Expose
+		private float f7;
+		@Expose
+		private double f8;
+		@Expose
+		private String f9;
+		@Expose
+		private Integer f10;
+		@Expose
+		private List<String> f11;
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(this == obj)
+				return true;
+			if(obj == null || getClass() != obj.getClass())
+				return false;
+			AllTypes other = (AllTypes) obj;
+			return f1 == other.f1
+				&& f2 == other.f2
+				&& f3 == other.f3
+				&& f4 == other.f4
+				&& f5 == other.f5
+				&& f6 == other.f6
+				&& Float.compare(f7, other.f7) == 0
+				&& Double.compare(f8, other.f8) == 0
+				&& Objects.equals(f9, other.f9)
+				&& Objects.equals(f10, other.f10)
+				&& Objects.equals(f11, other.f11);
+		}
+	}
+
+	public static class WithFinalField
+	{
+		@Expose
+		private final String value;
+
+		public WithFinalField()
+		{
+			this(null);
+		}
+
+		public WithFinalField(String value)
+		{
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(this == obj)
+				return true;
+			if(obj == null || getClass() != obj.getClass())
+				return false;
+			WithFinalField other = (WithFinalField) obj;
+			return Objects.equals(value, other.value);
+		}
+	}
+
+	public static class SkipDefaults
+	{
+		@Expose
+		@SkipDefaultValue
+		private int f1;
+		@Expose
+		@SkipDefaultValue
+		private String f2;
+	}
+
+	@AnnotationSerialization
+	@Named(namespace="test", name="renamed")
+	public static class Renamed
+	{
+		@Expose("other")
+		private int field;
+		@Expose
+		private String value;
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(this == obj)
+				return true;
+			if(obj == null || getClass() != obj.getClass())
+				return false;
+			Renamed other = (Renamed) obj;
+			return field == other.field
+				&& Objects.equals(value, other.value);
+		}
+	}
+}
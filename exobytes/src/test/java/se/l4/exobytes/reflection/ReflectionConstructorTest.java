@@ -1,9 +1,20 @@
 package se.l4.exobytes.reflection;
 
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
 import org.junit.jupiter.api.Test;
 
 import se.l4.exobytes.Expose;
 import se.l4.exobytes.Serializer;
+import se.l4.exobytes.internal.reflection.ReflectionConstructorSerializer;
+import se.l4.exobytes.streaming.StreamingFormat;
+import se.l4.exobytes.streaming.StreamingInput;
 
 public class ReflectionConstructorTest
 	extends ReflectionTest
@@ -45,6 +56,136 @@ public class ReflectionConstructorTest
 		testSymmetry(serializer, instance);
 	}
 
+	@Test
+	public void testMultipleConstructorsPicksBest()
+		throws IOException
+	{
+		Serializer<B> serializer =  resolve(B.class);
+
+		assertThat(readJson(serializer, "{\"field\":\"test\"}"), is(new B("test")));
+		assertThat(readJson(serializer, "{\"field2\":\"value\"}"), is(new B(null, "value")));
+		assertThat(readJson(serializer, "{\"other\":1,\"field2\":\"value\",\"field\":\"test\"}"), is(new B("test", "value")));
+	}
+
+	@Test
+	public void testSingleConstructorMissingPrimitive()
+		throws IOException
+	{
+		Serializer<D> serializer =  resolve(D.class);
+
+		assertThat(readJson(serializer, "{\"field\":\"test value\"}"), is(new D(0, "test value")));
+	}
+
+	@Test
+	public void testManyProperties()
+	{
+		Serializer<E> serializer = resolve(E.class);
+
+		E instance = new E(-1);
+		instance.f1 = 32;
+		instance.f2 = 63;
+		instance.f3 = 94;
+		instance.f4 = 125;
+		instance.f5 = 156;
+		instance.f6 = 187;
+		instance.f7 = 218;
+		instance.f8 = 249;
+		instance.f9 = 280;
+		instance.f10 = 311;
+		instance.f11 = 342;
+		instance.f12 = 373;
+		instance.f13 = 404;
+		instance.f14 = 435;
+		instance.f15 = 466;
+		instance.f16 = 497;
+		instance.f17 = 528;
+		instance.f18 = 559;
+		instance.f19 = 590;
+		instance.f20 = 621;
+		instance.f21 = 652;
+		instance.f22 = 683;
+		instance.f23 = 714;
+		instance.f24 = 745;
+		instance.f25 = 776;
+		instance.f26 = 807;
+		instance.f27 = 838;
+		instance.f28 = 869;
+		instance.f29 = 900;
+		instance.f30 = 931;
+		instance.f31 = 962;
+		instance.f32 = 993;
+		instance.f33 = 1024;
+		instance.f34 = 1055;
+		instance.f35 = 1086;
+		instance.f36 = 1117;
+		instance.f37 = 1148;
+		instance.f38 = 1179;
+		instance.f39 = 1210;
+		instance.f40 = 1241;
+		instance.f41 = 1272;
+		instance.f42 = 1303;
+		instance.f43 = 1334;
+		instance.f44 = 1365;
+		instance.f45 = 1396;
+		instance.f46 = 1427;
+		instance.f47 = 1458;
+		instance.f48 = 1489;
+		instance.f49 = 1520;
+		instance.f50 = 1551;
+		instance.f51 = 1582;
+		instance.f52 = 1613;
+		instance.f53 = 1644;
+		instance.f54 = 1675;
+		instance.f55 = 1706;
+		instance.f56 = 1737;
+		instance.f57 = 1768;
+		instance.f58 = 1799;
+		instance.f59 = 1830;
+		instance.f60 = 1861;
+		instance.f61 = 1892;
+		instance.f62 = 1923;
+		instance.f63 = 1954;
+		instance.f64 = 1985;
+		instance.f65 = 2016;
+		instance.f66 = 2047;
+		instance.f67 = 2078;
+		instance.f68 = 2109;
+		instance.f69 = 2140;
+		testSymmetry(serializer, instance);
+	}
+
+	@Test
+	public void testAllArgsConstructor()
+	{
+		Serializer<F> serializer = resolve(F.class);
+		assertThat(serializer, instanceOf(ReflectionConstructorSerializer.class));
+
+		F instance = new F(true, (byte) -2, (short) 300, 'x', -70000, Long.MIN_VALUE, 1.5f, -2.25, "test value");
+		testSymmetry(serializer, instance);
+	}
+
+	@Test
+	public void testAllArgsConstructorDefaults()
+		throws IOException
+	{
+		Serializer<F> serializer = resolve(F.class);
+
+		assertThat(readJson(serializer, "{}"), is(new F(false, (byte) 0, (short) 0, '\0', 0, 0, 0, 0, null)));
+		assertThat(
+			readJson(serializer, "{\"f1\":null,\"f5\":null,\"f8\":null,\"f9\":null}"),
+			is(new F(false, (byte) 0, (short) 0, '\0', 0, 0, 0, 0, null))
+		);
+	}
+
+	private <T> T readJson(Serializer<T> serializer, String json)
+		throws IOException
+	{
+		byte[] data = json.getBytes(StandardCharsets.UTF_8);
+		try(StreamingInput in = StreamingFormat.JSON.createInput(data, 0, data.length))
+		{
+			return serializer.read(in);
+		}
+	}
 
 	public static class A
 	{
@@ -237,4 +378,302 @@ public class ReflectionConstructorTest
 			return true;
 		}
 	}
+
+	public static class E
+	{
+		@Expose
+		private final int f0;
+		@Expose
+		private int f1;
+		@Expose
+		private int f2;
+		@Expose
+		private int f3;
+		@Expose
+		private int f4;
+		@Expose
+		private int f5;
+		@Expose
+		private int f6;
+		@Expose
+		private int f7;
+		@Expose
+		private int f8;
+		@Expose
+		private int f9;
+		@Expose
+		private int f10;
+		@Expose
+		private int f11;
+		@Expose
+		private int f12;
+		@Expose
+		private int f13;
+		@Expose
+		private int f14;
+		@Expose
+		private int f15;
+		@Expose
+		private int f16;
+		@Expose
+		private int f17;
+		@Expose
+		private int f18;
+		@Expose
+		private int f19;
+		@Expose
+		private int f20;
+		@Expose
+		private int f21;
+		@Expose
+		private int f22;
+		@Expose
+		private int f23;
+		@Expose
+		private int f24;
+		@Expose
+		private int f25;
+		@Expose
+		private int f26;
+		@Expose
+		private int f27;
+		@Expose
+		private int f28;
+		@Expose
+		private int f29;
+		@Expose
+		private int f30;
+		@Expose
+		private int f31;
+		@Expose
+		private int f32;
+		@Expose
+		private int f33;
+		@Expose
+		private int f34;
+		@Expose
+		private int f35;
+		@Expose
+		private int f36;
+		@Expose
+		private int f37;
+		@Expose
+		private int f38;
+		@Expose
+		private int f39;
+		@Expose
+		private int f40;
+		@Expose
+		private int f41;
+		@Expose
+		private int f42;
+		@Expose
+		private int f43;
+		@Expose
+		private int f44;
+		@Expose
+		private int f45;
+		@Expose
+		private int f46;
+		@Expose
+		private int f47;
+		@Expose
+		private int f48;
+		@Expose
+		private int f49;
+		@Expose
+		private int f50;
+		@Expose
+		private int f51;
+		@Expose
+		private int f52;
+		@Expose
+		private int f53;
+		@Expose
+		private int f54;
+		@Expose
+		private int f55;
+		@Expose
+		private int f56;
+		@Expose
+		private int f57;
+		@Expose
+		private int f58;
+		@Expose
+		private int f59;
+		@Expose
+		private int f60;
+		@Expose
+		private int f61;
+		@Expose
+		private int f62;
+		@Expose
+		private int f63;
+		@Expose
+		private int f64;
+		@Expose
+		private int f65;
+		@Expose
+		private int f66;
+		@Expose
+		private int f67;
+		@Expose
+		private int f68;
+		@Expose
+		private int f69;
+
+		public E(@Expose("f0") int f0)
+		{
+			this.f0 = f0;
+		}
+
+		public E()
+		{
+			this(0);
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(this == obj)
+				return true;
+			if(obj == null || getClass() != obj.getClass())
+				return false;
+			E other = (E) obj;
+			return f0 == other.f0
+				&& f1 == other.f1
+				&& f2 == other.f2
+				&& f3 == other.f3
+				&& f4 == other.f4
+				&& f5 == other.f5
+				&& f6 == other.f6
+				&& f7 == other.f7
+				&& f8 == other.f8
+				&& f9 == other.f9
+				&& f10 == other.f10
+				&& f11 == other.f11
+				&& f12 == other.f12
+				&& f13 == other.f13
+				&& f14 == other.f14
+				&& f15 == other.f15
+				&& f16 == other.f16
+				&& f17 == other.f17
+				&& f18 == other.f18
+				&& f19 == other.f19
+				&& f20 == other.f20
+				&& f21 == other.f21
+				&& f22 == other.f22
+				&& f23 == other.f23
+				&& f24 == other.f24
+				&& f25 == other.f25
+				&& f26 == other.f26
+				&& f27 == other.f27
+				&& f28 == other.f28
+				&& f29 == other.f29
+				&& f30 == other.f30
+				&& f31 == other.f31
+				&& f32 == other.f32
+				&& f33 == other.f33
+				&& f34 == other.f34
+				&& f35 == other.f35
+				&& f36 == other.f36
+				&& f37 == other.f37
+				&& f38 == other.f38
+				&& f39 == other.f39
+				&& f40 == other.f40
+				&& f41 == other.f41
+				&& f42 == other.f42
+				&& f43 == other.f43
+				&& f44 == other.f44
+				&& f45 == other.f45
+				&& f46 == other.f46
+				&& f47 == other.f47
+				&& f48 == other.f48
+				&& f49 == other.f49
+				&& f50 == other.f50
+				&& f51 == other.f51
+				&& f52 == other.f52
+				&& f53 == other.f53
+				&& f54 == other.f54
+				&& f55 == other.f55
+				&& f56 == other.f56
+				&& f57 == other.f57
+				&& f58 == other.f58
+				&& f59 == other.f59
+				&& f60 == other.f60
+				&& f61 == other.f61
+				&& f62 == other.f62
+				&& f63 == other.f63
+				&& f64 == other.f64
+				&& f65 == other.f65
+				&& f66 == other.f66
+				&& f67 == other.f67
+				&& f68 == other.f68
+				&& f69 == other.f69;
+		}
+	}
+
+	public static class F
+	{
+		@Expose
+		private final boolean f1;
+		@Expose
+		private final byte f2;
+		@Expose
+		private final short f3;
+		@Expose
+		private final char f4;
+		@Expose
+		private final int f5;
+		@Expose
+		private final long f6;
+		@Expose
+		private final float f7;
+		@Expose
+		private final double f8;
+		@Expose
+		private final String f9;
+
+		public F(
+			@Expose("f1") boolean f1,
+			@Expose("f2") byte f2,
+			@Expose("f3") short f3,
+			@Expose("f4") char f4,
+			@Expose("f5") int f5,
+			@Expose("f6") long f6,
+			@Expose("f7") float f7,
+			@Expose("f8") double f8,
+			@Expose("f9") String f9
+		)
+		{
+			this.f1 = f1;
+			this.f2 = f2;
+			this.f3 = f3;
+			this.f4 = f4;
+			this.f5 = f5;
+			this.f6 = f6;
+			this.f7 = f7;
+			this.f8 = f8;
+			this.f9 = f9;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(this == obj)
+				return true;
+			if(obj == null || getClass() != obj.getClass())
+				return false;
+			F other = (F) obj;
+			return f1 == other.f1
+				&& f2 == other.f2
+				&& f3 == other.f3
+				&& f4 == other.f4
+				&& f5 == other.f5
+				&& f6 == other.f6
+				&& Float.compare(f7, other.f7) == 0
+				&& Double.compare(f8, other.f8) == 0
+				&& Objects.equals(f9, other.f9);
+		}
+	}
 }
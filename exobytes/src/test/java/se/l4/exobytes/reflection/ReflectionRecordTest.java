@@ -0,0 +1,119 @@
+package se.l4.exobytes.reflection;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.spi.ToolProvider;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import se.l4.exobytes.Expose;
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.internal.reflection.ReflectionConstructorSerializer;
+import se.l4.exobytes.streaming.StreamingFormat;
+import se.l4.exobytes.streaming.StreamingInput;
+
+/**
+ * Tests for records. The tests are compiled with release 9, so the record
+ * is compiled when the tests run and they are skipped before JDK 16.
+ */
+public class ReflectionRecordTest
+	extends ReflectionTest
+{
+	private static final String SOURCE = "package records;\n"
+		+ "import se.l4.exobytes.Expose;\n"
+		+ "public record Point(\n"
+		+ "  @Expose boolean active,\n"
+		+ "  @Expose int x,\n"
+		+ "  @Expose long y,\n"
+		+ "  @Expose double weight,\n"
+		+ "  @Expose(\"title\") String label\n"
+		+ ") {}\n";
+
+	private Path dir;
+
+	@BeforeEach
+	public void createDirectory()
+		throws IOException
+	{
+		dir = Files.createTempDirectory("exobytes-records");
+	}
+
+	@AfterEach
+	public void deleteDirectory()
+		throws IOException
+	{
+		try(Stream<Path> paths = Files.walk(dir))
+		{
+			paths.sorted(Comparator.reverseOrder())
+				.forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testRecordViaConstructorHandle()
+		throws Exception
+	{
+		assumeTrue(Runtime.version().major() >= 16, "Records require JDK 16");
+
+		Class<Object> type = compile();
+		Serializer<Object> serializer = resolve(type);
+		assertThat(serializer, instanceOf(ReflectionConstructorSerializer.class));
+
+		Constructor<Object> constructor = type.getConstructor(boolean.class, int.class, long.class, double.class, String.class);
+		testSymmetry(serializer, constructor.newInstance(true, -12, Long.MAX_VALUE, 2.5, "point"));
+
+		assertThat(
+			readJson(serializer, "{\"x\":4,\"title\":\"named\"}"),
+			is(constructor.newInstance(false, 4, 0l, 0.0, "named"))
+		);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Class<Object> compile()
+		throws Exception
+	{
+		Optional<ToolProvider> compiler = ToolProvider.findFirst("javac");
+		assumeTrue(compiler.isPresent(), "A compiler is needed to create the record");
+
+		Path source = dir.resolve("Point.java");
+		Files.write(source, SOURCE.getBytes(StandardCharsets.UTF_8));
+
+		String classPath = Paths.get(Expose.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+		int result = compiler.get().run(System.out, System.err,
+			"-classpath", classPath,
+			"-d", dir.toString(),
+			source.toString()
+		);
+		assertThat(result, is(0));
+
+		ClassLoader loader = new URLClassLoader(new URL[] { dir.toUri().toURL() }, getClass().getClassLoader());
+		return (Class<Object>) loader.loadClass("records.Point");
+	}
+
+	private <T> T readJson(Serializer<T> serializer, String json)
+		throws IOException
+	{
+		byte[] data = json.getBytes(StandardCharsets.UTF_8);
+		try(StreamingInput in = StreamingFormat.JSON.createInput(data, 0, data.length))
+		{
+			return serializer.read(in);
+		}
+	}
+}
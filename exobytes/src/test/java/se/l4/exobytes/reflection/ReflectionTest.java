@@ -23,11 +23,21 @@ public class ReflectionTest
 
 	public <T> Serializer<T> resolve(Class<T> type)
 	{
-		return new ReflectionSerializer<T>()
+		return this.<T>createResolver()
 			.find(new TypeEncounterImpl(collection, OutputDeduplicator.none(), Types.reference(type)))
 			.get();
 	}
 
+	/**
+	 * Create the resolver used by {@link #resolve(Class)}.
+	 *
+	 * @return
+	 */
+	protected <T> ReflectionSerializer<T> createResolver()
+	{
+		return new ReflectionSerializer<T>();
+	}
+
 	protected <T> void testSymmetry(Serializer<T> serializer, T instance)
 	{
 		SerializationTestHelper.testWriteAndRead(serializer, instance);
@@ -0,0 +1,55 @@
+package se.l4.exobytes.streaming;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class BufferRecyclerTest
+{
+	@Test
+	public void testThreadLocalReusesReleasedBuffer()
+	{
+		BufferRecycler recycler = BufferRecycler.threadLocal(64);
+
+		byte[] buffer = recycler.acquire();
+		assertThat(buffer.length, is(64));
+
+		recycler.release(buffer);
+		assertThat(recycler.acquire(), sameInstance(buffer));
+	}
+
+	@Test
+	public void testThreadLocalDoesNotShareBufferInUse()
+	{
+		BufferRecycler recycler = BufferRecycler.threadLocal(64);
+
+		recycler.release(new byte[64]);
+
+		byte[] first = recycler.acquire();
+		byte[] second = recycler.acquire();
+		assertThat(second, not(sameInstance(first)));
+	}
+
+	@Test
+	public void testPooledReusesReleasedBuffer()
+	{
+		BufferRecycler recycler = BufferRecycler.pooled(64, 2);
+
+		byte[] buffer = recycler.acquire();
+		recycler.release(buffer);
+		assertThat(recycler.acquire(), sameInstance(buffer));
+	}
+
+	@Test
+	public void testBuffersOfOtherSizesAreDropped()
+	{
+		BufferRecycler recycler = BufferRecycler.pooled(64, 2);
+
+		byte[] buffer = new byte[128];
+		recycler.release(buffer);
+		assertThat(recycler.acquire(), not(sameInstance(buffer)));
+	}
+}
@@ -1,14 +1,25 @@
 package se.l4.exobytes.streaming;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
 import org.junit.jupiter.api.Test;
 
 import se.l4.exobytes.internal.cbor.CBOROutput;
+import se.l4.ylem.io.IOConsumer;
 
 public class CBORTest
 	extends StreamingFormatTest
@@ -19,6 +30,81 @@ public class CBORTest
 		return StreamingFormat.CBOR;
 	}
 
+	@Test
+	public void testReuseWriterAndReader()
+		throws IOException
+	{
+		ReusableStreamingOutput writer = format().newWriter();
+		ReusableStreamingInput reader = format().newReader();
+
+		for(int i=0; i<3; i++)
+		{
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			writer.reset(baos);
+			writer.writeListStart(2);
+			writer.writeString("value" + i);
+			writer.writeInt(i);
+			writer.writeListEnd();
+			writer.close();
+
+			byte[] data = baos.toByteArray();
+			if(i % 2 == 0)
+			{
+				reader.reset(data, 0, data.length);
+			}
+			else
+			{
+				reader.reset(new TrickleInputStream(data));
+			}
+
+			reader.next(Token.LIST_START);
+			reader.next(Token.VALUE);
+			assertThat(reader.readString(), is("value" + i));
+			reader.next(Token.VALUE);
+			assertThat(reader.readInt(), is(i));
+			reader.next(Token.LIST_END);
+			reader.next(Token.END_OF_STREAM);
+		}
+	}
+
+	@Test
+	public void testResetReaderMidValue()
+		throws IOException
+	{
+		ReusableStreamingInput reader = format().newReader();
+
+		byte[] partial = toBytes("82818101");
+		reader.reset(partial, 0, partial.length);
+		reader.next(Token.LIST_START);
+		reader.next(Token.LIST_START);
+
+		byte[] data = toBytes("8101");
+		reader.reset(data, 0, data.length);
+		reader.next(Token.LIST_START);
+		reader.next(Token.VALUE);
+		assertThat(reader.readInt(), is(1));
+		reader.next(Token.LIST_END);
+		reader.next(Token.END_OF_STREAM);
+	}
+
+	@Test
+	public void testReadDeeperThanConfiguredDepthFails()
+		throws IOException
+	{
+		StreamingFormat format = new CBORStreamingFormat(BufferRecycler.threadLocal(), 10);
+		byte[] data = toBytes("8181818181818181818181" + "00");
+
+		try(StreamingInput in = format.createInput(data, 0, data.length))
+		{
+			for(int i=0; i<10; i++)
+			{
+				in.next(Token.LIST_START);
+			}
+
+			assertThrows(IOException.class, () -> in.next());
+		}
+	}
+
 	@Test
 	public void testWriteInt0()
 		throws IOException
@@ -1905,4 +1991,388 @@ public class CBORTest
 
 		assertThat(in.peek(), is(Token.END_OF_STREAM));
 	}
+
+	@Test
+	public void testReadLongStringAcrossBuffer()
+		throws IOException
+	{
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i<3000; i++)
+		{
+			builder.append("a\u00fc\u6c34\ud800\udd51");
+		}
+		String value = builder.toString();
+
+		byte[] data = writeToBytes(out -> {
+			out.writeListStart(2);
+			out.writeString(value);
+			out.writeLong(Long.MAX_VALUE);
+			out.writeListEnd();
+		});
+
+		try(StreamingInput in = format().createInput(new TrickleInputStream(data)))
+		{
+			in.next(Token.LIST_START);
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is(value));
+			in.next(Token.VALUE);
+			assertThat(in.readLong(), is(Long.MAX_VALUE));
+			in.next(Token.LIST_END);
+			assertThat(in.peek(), is(Token.END_OF_STREAM));
+		}
+	}
+
+	@Test
+	public void testReadMultiByteSequenceAtBufferBoundary()
+		throws IOException
+	{
+		for(String sequence : new String[] { "\u00fc", "\u20ac", "\ud83d\ude00" })
+		{
+			for(int prefix=4080; prefix<=4100; prefix++)
+			{
+				StringBuilder builder = new StringBuilder();
+				for(int i=0; i<prefix; i++)
+				{
+					builder.append('a');
+				}
+				builder.append(sequence).append("end");
+				String value = builder.toString();
+
+				byte[] data = writeToBytes(out -> {
+					out.writeString(value);
+					out.writeInt(1);
+				});
+
+				for(InputStream stream : new InputStream[] { new ByteArrayInputStream(data), new TrickleInputStream(data, 7) })
+				{
+					try(StreamingInput in = format().createInput(stream))
+					{
+						in.next(Token.VALUE);
+						assertThat(in.readString(), is(value));
+						in.next(Token.VALUE);
+						assertThat(in.readInt(), is(1));
+						assertThat(in.peek(), is(Token.END_OF_STREAM));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSkipAndReadBytesAcrossBuffer()
+		throws IOException
+	{
+		byte[] large = new byte[10000];
+		for(int i=0; i<large.length; i++)
+		{
+			large[i] = (byte) i;
+		}
+
+		byte[] data = writeToBytes(out -> {
+			out.writeListStart(4);
+			out.writeByteArray(large);
+			out.writeByteArray(large);
+			out.writeDouble(1.5);
+			out.writeString("end");
+			out.writeListEnd();
+		});
+
+		try(StreamingInput in = format().createInput(new TrickleInputStream(data)))
+		{
+			in.next(Token.LIST_START);
+			in.next(Token.VALUE);
+			in.skip();
+			in.next(Token.VALUE);
+			assertThat(in.readByteArray(), is(large));
+			in.next(Token.VALUE);
+			assertThat(in.readDouble(), is(1.5));
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is("end"));
+			in.next(Token.LIST_END);
+		}
+	}
+
+	@Test
+	public void testReadByteStreamFromArray()
+		throws IOException
+	{
+		byte[] data = toBytes("824401020304f6");
+
+		try(StreamingInput in = format().createInput(data, 0, data.length))
+		{
+			in.next(Token.LIST_START);
+			in.next(Token.VALUE);
+			try(InputStream stream = in.readByteStream())
+			{
+				assertThat(stream.readAllBytes(), is(new byte[] { 1, 2, 3, 4 }));
+			}
+			in.next(Token.NULL);
+			in.next(Token.LIST_END);
+			assertThat(in.peek(), is(Token.END_OF_STREAM));
+		}
+	}
+
+	@Test
+	public void testReadTruncatedArrayFails()
+		throws IOException
+	{
+		byte[] data = toBytes("6568656c");
+
+		try(StreamingInput in = format().createInput(data, 0, data.length))
+		{
+			in.next(Token.VALUE);
+			assertThrows(EOFException.class, in::readString);
+		}
+	}
+
+	@Test
+	public void testWriteToFullBufferFails()
+		throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(4);
+		StreamingOutput out = format().createOutput(buffer);
+		out.writeInt(1);
+		assertThrows(IOException.class, () -> out.writeString("longer than the buffer"));
+	}
+
+	@Test
+	public void testWriteMultiByteStringToExactlyFullBuffer()
+		throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(11);
+		try(StreamingOutput out = format().createOutput(buffer))
+		{
+			out.writeString("\u00e9\u00e9\u00e9\u00e9\u00e9");
+		}
+
+		assertThat(buffer.position(), is(11));
+		assertThat(buffer.array(), is(toBytes("6a" + "c3a9c3a9c3a9c3a9c3a9")));
+	}
+
+	@Test
+	public void testWriteStringToTooSmallBufferWritesNothing()
+		throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(10);
+		StreamingOutput out = format().createOutput(buffer);
+		assertThrows(IOException.class, () -> out.writeString("\u00e9\u00e9\u00e9\u00e9\u00e9"));
+
+		out.flush();
+		assertThat(buffer.position(), is(0));
+	}
+
+	@Test
+	public void testWriteChunkedStringToExactlyFullBuffer()
+		throws IOException
+	{
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i<3000; i++)
+		{
+			builder.append("\u00e5\ud83d\ude00");
+		}
+
+		String value = builder.toString();
+
+		// Indefinite length header, one chunk with a two byte length and a break
+		int size = 1 + 3 + 3000 * 6 + 1;
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		try(StreamingOutput out = format().createOutput(buffer))
+		{
+			out.writeString(value);
+		}
+
+		assertThat(buffer.position(), is(size));
+
+		try(StreamingInput in = format().createInput(buffer.array(), 0, size))
+		{
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is(value));
+		}
+	}
+
+	@Test
+	public void testFlushGivesBufferBack()
+		throws IOException
+	{
+		BufferRecycler recycler = BufferRecycler.threadLocal(64);
+		byte[] buffer = recycler.acquire();
+		recycler.release(buffer);
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		StreamingOutput out = new CBOROutput(stream, recycler);
+		out.writeListStart();
+		out.writeInt(1);
+		out.flush();
+
+		// Still inside the list, so the buffer is kept
+		assertThat(recycler.acquire(), not(sameInstance(buffer)));
+
+		out.writeListEnd();
+		out.flush();
+
+		assertThat(recycler.acquire(), sameInstance(buffer));
+		recycler.release(buffer);
+
+		out.writeString("a");
+		out.close();
+
+		assertThat(stream.toByteArray(), is(toBytes("9f01ff" + "6161")));
+		assertThat(recycler.acquire(), sameInstance(buffer));
+	}
+
+	@Test
+	public void testWriteWithSmallBuffer()
+		throws IOException
+	{
+		IOConsumer<StreamingOutput> writer = out -> {
+			out.writeObjectStart();
+			out.writeString("key");
+			out.writeString("\u00e5\ud83d\ude00 some ascii text \u2603\ud83d\ude00\ud83d\ude00");
+			out.writeString("bytes");
+			out.writeByteArray(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18 });
+			out.writeString("double");
+			out.writeDouble(12.5);
+			out.writeObjectEnd();
+		};
+
+		byte[] expected = writeToBytes(writer);
+
+		StreamingFormat small = new CBORStreamingFormat(BufferRecycler.none(16));
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try(StreamingOutput out = small.createOutput(stream))
+		{
+			writer.accept(out);
+		}
+
+		assertThat(stream.toByteArray(), is(expected));
+	}
+
+	@Test
+	public void testWriteHugeStringAsChunks()
+		throws IOException
+	{
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i<3000; i++)
+		{
+			builder.append("abc\u00e5\ud83d\ude00");
+		}
+		String value = builder.toString();
+
+		byte[] data = writeToBytes(out -> out.writeString(value));
+		assertThat(data[0] & 0xff, is(0x7f));
+		assertThat(data[data.length - 1] & 0xff, is(0xff));
+
+		try(StreamingInput in = format().createInput(data, 0, data.length))
+		{
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is(value));
+			in.next(Token.END_OF_STREAM);
+		}
+	}
+
+	@Test
+	public void testWriteHugeStringWithSmallBuffer()
+		throws IOException
+	{
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i<5000; i++)
+		{
+			builder.append("\u2603\ud83d\ude00a");
+		}
+		String value = builder.toString();
+
+		StreamingFormat small = new CBORStreamingFormat(BufferRecycler.none(16));
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try(StreamingOutput out = small.createOutput(stream))
+		{
+			out.writeString(value);
+		}
+
+		byte[] data = stream.toByteArray();
+		try(StreamingInput in = format().createInput(data, 0, data.length))
+		{
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is(value));
+			in.next(Token.END_OF_STREAM);
+		}
+	}
+
+	@Test
+	public void testWriteHugeStringWithInvalidSurrogateFails()
+		throws IOException
+	{
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i<10000; i++)
+		{
+			builder.append('a');
+		}
+		builder.append('\ud83d');
+		String value = builder.toString();
+
+		StreamingOutput out = format().createOutput(new ByteArrayOutputStream());
+		assertThrows(IOException.class, () -> out.writeString(value));
+	}
+
+	@Test
+	public void testWriteAfterCloseFails()
+		throws IOException
+	{
+		StreamingOutput out = format().createOutput(new ByteArrayOutputStream());
+		out.close();
+
+		assertThrows(IOException.class, () -> out.writeString("value"));
+	}
+
+	private static byte[] toBytes(String hex)
+	{
+		try
+		{
+			return Hex.decodeHex(hex);
+		}
+		catch(DecoderException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Stream that returns between one and a few bytes per read, used to
+	 * verify that inputs handle refilling their buffers.
+	 */
+	private static class TrickleInputStream
+		extends InputStream
+	{
+		private final byte[] data;
+		private final int maxRead;
+		private int index;
+		private int reads;
+
+		public TrickleInputStream(byte[] data)
+		{
+			this(data, 3);
+		}
+
+		public TrickleInputStream(byte[] data, int maxRead)
+		{
+			this.data = data;
+			this.maxRead = maxRead;
+		}
+
+		@Override
+		public int read()
+		{
+			return index < data.length ? data[index++] & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len)
+		{
+			if(index >= data.length) return -1;
+
+			int n = Math.min(Math.min(len, 1 + reads++ % maxRead), data.length - index);
+			System.arraycopy(data, index, b, off, n);
+			index += n;
+			return n;
+		}
+	}
 }
@@ -0,0 +1,307 @@
+package se.l4.exobytes.streaming;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import se.l4.exobytes.SerializationException;
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.Serializers;
+import se.l4.ylem.io.IOConsumer;
+
+/**
+ * Tests for {@link FlowStreaming}.
+ */
+public class FlowStreamingTest
+{
+	private final Serializers serializers = Serializers.create().build();
+
+	private Serializer<String> strings()
+	{
+		return serializers.get(String.class);
+	}
+
+	private byte[] write(StreamingFormat format, IOConsumer<StreamingOutput> consumer)
+		throws IOException
+	{
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try(StreamingOutput out = format.createOutput(stream))
+		{
+			consumer.accept(out);
+		}
+
+		return stream.toByteArray();
+	}
+
+	private static ReadableByteChannel channel(byte[] data)
+	{
+		return Channels.newChannel(new ByteArrayInputStream(data));
+	}
+
+	/**
+	 * Subscriber that records what it receives and only requests values when
+	 * asked to.
+	 */
+	private static class RecordingSubscriber<T>
+		implements Flow.Subscriber<T>
+	{
+		private final List<T> items = new ArrayList<>();
+		private Flow.Subscription subscription;
+		private Throwable error;
+		private boolean completed;
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription)
+		{
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(T item)
+		{
+			items.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable)
+		{
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete()
+		{
+			completed = true;
+		}
+	}
+
+	@Test
+	public void testDecodeRespectsDemand()
+		throws IOException
+	{
+		byte[] data = write(StreamingFormat.CBOR, out -> {
+			for(int i=0; i<5; i++)
+			{
+				out.writeString("v" + i);
+			}
+		});
+
+		RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+		FlowStreaming.decode(StreamingFormat.CBOR, strings(), channel(data))
+			.subscribe(subscriber);
+
+		assertThat(subscriber.items.size(), is(0));
+
+		subscriber.subscription.request(2);
+		assertThat(subscriber.items, is(List.of("v0", "v1")));
+		assertThat(subscriber.completed, is(false));
+
+		subscriber.subscription.request(2);
+		assertThat(subscriber.items, is(List.of("v0", "v1", "v2", "v3")));
+		assertThat(subscriber.completed, is(false));
+
+		subscriber.subscription.request(10);
+		assertThat(subscriber.items, is(List.of("v0", "v1", "v2", "v3", "v4")));
+		assertThat(subscriber.completed, is(true));
+		assertThat(subscriber.error, nullValue());
+	}
+
+	@Test
+	public void testDecodeRequestFromOnNext()
+		throws IOException
+	{
+		byte[] data = write(StreamingFormat.CBOR, out -> {
+			for(int i=0; i<10000; i++)
+			{
+				out.writeString("v" + i);
+			}
+		});
+
+		RecordingSubscriber<String> subscriber = new RecordingSubscriber<>()
+		{
+			@Override
+			public void onNext(String item)
+			{
+				super.onNext(item);
+				super.subscription.request(1);
+			}
+		};
+
+		FlowStreaming.decode(StreamingFormat.CBOR, strings(), channel(data))
+			.subscribe(subscriber);
+
+		subscriber.subscription.request(1);
+
+		assertThat(subscriber.items.size(), is(10000));
+		assertThat(subscriber.completed, is(true));
+	}
+
+	@Test
+	public void testDecodeCancelClosesChannel()
+		throws IOException
+	{
+		byte[] data = write(StreamingFormat.CBOR, out -> {
+			out.writeString("a");
+			out.writeString("b");
+		});
+
+		ReadableByteChannel channel = channel(data);
+		RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+		FlowStreaming.decode(StreamingFormat.CBOR, strings(), channel)
+			.subscribe(subscriber);
+
+		subscriber.subscription.request(1);
+		subscriber.subscription.cancel();
+		subscriber.subscription.request(1);
+
+		assertThat(subscriber.items, is(List.of("a")));
+		assertThat(subscriber.completed, is(false));
+		assertThat(channel.isOpen(), is(false));
+	}
+
+	@Test
+	public void testDecodeInvalidRequestFails()
+	{
+		RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+		FlowStreaming.decode(StreamingFormat.CBOR, strings(), channel(new byte[0]))
+			.subscribe(subscriber);
+
+		subscriber.subscription.request(0);
+		assertThat(subscriber.error, instanceOf(IllegalArgumentException.class));
+	}
+
+	@Test
+	public void testDecodeNullFails()
+		throws IOException
+	{
+		byte[] data = write(StreamingFormat.CBOR, out -> {
+			out.writeString("a");
+			out.writeNull();
+		});
+
+		RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+		FlowStreaming.decode(StreamingFormat.CBOR, strings(), channel(data))
+			.subscribe(subscriber);
+
+		subscriber.subscription.request(5);
+		assertThat(subscriber.items, is(List.of("a")));
+		assertThat(subscriber.error, instanceOf(SerializationException.class));
+	}
+
+	@Test
+	public void testSubscribeTwiceFails()
+	{
+		Flow.Publisher<String> publisher = FlowStreaming.decode(StreamingFormat.CBOR, strings(), channel(new byte[0]));
+
+		publisher.subscribe(new RecordingSubscriber<>());
+
+		RecordingSubscriber<String> second = new RecordingSubscriber<>();
+		publisher.subscribe(second);
+		assertThat(second.error, instanceOf(IllegalStateException.class));
+	}
+
+	@Test
+	public void testEncodeJsonAsNewlineDelimited()
+		throws Exception
+	{
+		byte[] data = write(StreamingFormat.JSON, out -> {
+			out.writeString("a");
+			out.writeString("b");
+			out.writeString("c");
+		});
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		EncodingSubscriber<String> subscriber = FlowStreaming.encode(
+			StreamingFormat.JSON,
+			strings(),
+			Channels.newChannel(stream),
+			2
+		);
+
+		FlowStreaming.decode(StreamingFormat.JSON, strings(), channel(data))
+			.subscribe(subscriber);
+
+		subscriber.getCompletion().toCompletableFuture().get(5, TimeUnit.SECONDS);
+		assertThat(new String(stream.toByteArray(), StandardCharsets.UTF_8), is("\"a\"\n\"b\"\n\"c\""));
+	}
+
+	@Test
+	public void testEncodeAndDecodeCBORSequence()
+		throws Exception
+	{
+		byte[] data = write(StreamingFormat.CBOR, out -> {
+			for(int i=0; i<1000; i++)
+			{
+				out.writeString("v" + i);
+			}
+		});
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		EncodingSubscriber<String> subscriber = FlowStreaming.encode(
+			StreamingFormat.CBOR,
+			strings(),
+			Channels.newChannel(stream)
+		);
+
+		FlowStreaming.decode(StreamingFormat.CBOR, strings(), channel(data))
+			.subscribe(subscriber);
+
+		subscriber.getCompletion().toCompletableFuture().get(5, TimeUnit.SECONDS);
+		assertThat(stream.toByteArray(), is(data));
+	}
+
+	@Test
+	public void testEncodeCompletesExceptionallyOnError()
+		throws InterruptedException, TimeoutException
+	{
+		EncodingSubscriber<String> subscriber = FlowStreaming.encode(
+			StreamingFormat.CBOR,
+			strings(),
+			Channels.newChannel(new ByteArrayOutputStream())
+		);
+
+		subscriber.onSubscribe(new Flow.Subscription()
+		{
+			@Override
+			public void request(long n)
+			{
+			}
+
+			@Override
+			public void cancel()
+			{
+			}
+		});
+
+		IOException error = new IOException("Failed");
+		subscriber.onError(error);
+
+		try
+		{
+			subscriber.getCompletion().toCompletableFuture().get(5, TimeUnit.SECONDS);
+		}
+		catch(ExecutionException e)
+		{
+			assertThat(e.getCause(), is(error));
+			return;
+		}
+
+		throw new AssertionError("Completion should have failed");
+	}
+}
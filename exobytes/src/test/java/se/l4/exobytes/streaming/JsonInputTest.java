@@ -3,6 +3,7 @@ package se.l4.exobytes.streaming;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.IOException;
@@ -32,6 +33,38 @@ public class JsonInputTest
 		return new JsonInput(new StringReader(in));
 	}
 
+	@Test
+	public void testReadDeeperThanMaxDepthFails()
+		throws IOException
+	{
+		StringBuilder v = new StringBuilder();
+		for(int i=0; i<1001; i++) v.append('[');
+		for(int i=0; i<1001; i++) v.append(']');
+
+		try(StreamingInput in = createInput(v.toString()))
+		{
+			for(int i=0; i<1000; i++)
+			{
+				in.next(Token.LIST_START);
+			}
+
+			assertThrows(IOException.class, () -> in.next());
+		}
+	}
+
+	@Test
+	public void testReadUnbalancedEndFails()
+		throws IOException
+	{
+		try(StreamingInput in = createInput("[]]"))
+		{
+			in.next(Token.LIST_START);
+			in.next(Token.LIST_END);
+
+			assertThrows(IOException.class, () -> in.next());
+		}
+	}
+
 	@Test
 	public void testReadString()
 		throws IOException
@@ -45,6 +78,36 @@ public class JsonInputTest
 		}
 	}
 
+	@Test
+	public void testReadKeyWithEscapes()
+		throws IOException
+	{
+		KeyTable keys = KeyTable.of("a\"b", "\u00e5");
+
+		try(StreamingInput in = createInput("{ \"a\\\"b\": 1, \"\\u00e5\": 2, \"c\": 3 }"))
+		{
+			in.next(Token.OBJECT_START);
+
+			in.next(Token.VALUE);
+			assertThat(in.readKey(keys), is(0));
+			in.next(Token.VALUE);
+			assertThat(in.readInt(), is(1));
+
+			in.next(Token.VALUE);
+			assertThat(in.readKey(keys), is(1));
+			in.next(Token.VALUE);
+			assertThat(in.readInt(), is(2));
+
+			in.next(Token.VALUE);
+			assertThat(in.readKey(keys), is(KeyTable.NOT_FOUND));
+			in.next(Token.VALUE);
+			assertThat(in.readInt(), is(3));
+
+			in.next(Token.OBJECT_END);
+			in.next(Token.END_OF_STREAM);
+		}
+	}
+
 	@Test
 	public void testReadNull()
 		throws IOException
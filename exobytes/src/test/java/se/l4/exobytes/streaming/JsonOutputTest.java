@@ -0,0 +1,244 @@
+package se.l4.exobytes.streaming;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import se.l4.exobytes.internal.streaming.JsonOutput;
+import se.l4.ylem.io.IOConsumer;
+
+/**
+ * Test for {@link JsonOutput}, verifies the exact JSON that is generated.
+ */
+public class JsonOutputTest
+{
+	private String write(BufferRecycler recycler, IOConsumer<StreamingOutput> writer)
+		throws IOException
+	{
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try(StreamingOutput out = new JsonOutput(stream, false, recycler))
+		{
+			writer.accept(out);
+		}
+
+		return new String(stream.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private String write(IOConsumer<StreamingOutput> writer)
+		throws IOException
+	{
+		return write(BufferRecycler.threadLocal(), writer);
+	}
+
+	@Test
+	public void testReuseWriter()
+		throws IOException
+	{
+		ReusableStreamingOutput writer = StreamingFormat.JSON.newWriter();
+
+		ByteArrayOutputStream abandoned = new ByteArrayOutputStream();
+		writer.reset(abandoned);
+		writer.writeObjectStart();
+		writer.writeString("key");
+
+		for(int i=0; i<3; i++)
+		{
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			writer.reset(stream);
+			writer.writeListStart();
+			writer.writeInt(i);
+			writer.writeString("v");
+			writer.writeListEnd();
+			writer.close();
+
+			String json = new String(stream.toByteArray(), StandardCharsets.UTF_8);
+			assertThat(json, is("[" + i + ",\"v\"]"));
+		}
+	}
+
+	@Test
+	public void testFlushGivesBufferBack()
+		throws IOException
+	{
+		BufferRecycler recycler = BufferRecycler.threadLocal(64);
+		byte[] buffer = recycler.acquire();
+		recycler.release(buffer);
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		StreamingOutput out = new JsonOutput(stream, false, recycler);
+		out.writeListStart();
+		out.writeInt(1);
+		out.flush();
+
+		// Still inside the list, so the buffer is kept
+		assertThat(recycler.acquire(), not(sameInstance(buffer)));
+
+		out.writeListEnd();
+		out.flush();
+
+		assertThat(recycler.acquire(), sameInstance(buffer));
+		recycler.release(buffer);
+
+		out.writeString("next");
+		out.close();
+
+		String json = new String(stream.toByteArray(), StandardCharsets.UTF_8);
+		assertThat(json, is("[1]\n\"next\""));
+		assertThat(recycler.acquire(), sameInstance(buffer));
+	}
+
+	@Test
+	public void testWriteString()
+		throws IOException
+	{
+		String json = write(out -> out.writeString("plain value"));
+		assertThat(json, is("\"plain value\""));
+	}
+
+	@Test
+	public void testWriteStringEscapes()
+		throws IOException
+	{
+		String json = write(out -> out.writeString("a\"b\\c\nd\te\u0001f\u007fg"));
+		assertThat(json, is("\"a\\\"b\\\\c\\nd\\te\\u0001f\\u007Fg\""));
+	}
+
+	@Test
+	public void testWriteStringNonASCII()
+		throws IOException
+	{
+		String json = write(out -> out.writeString("abcå☃def"));
+		assertThat(json, is("\"abc\\u00E5\\u2603def\""));
+	}
+
+	@Test
+	public void testWriteObjectWithSmallBuffer()
+		throws IOException
+	{
+		IOConsumer<StreamingOutput> writer = out -> {
+			out.writeObjectStart();
+			out.writeString("a fairly long key for a small buffer");
+			out.writeString("value with \"quotes\" and åäö in it");
+			out.writeString("number");
+			out.writeLong(1234567890123l);
+			out.writeObjectEnd();
+		};
+
+		String expected = write(writer);
+		assertThat(write(BufferRecycler.none(16), writer), is(expected));
+		assertThat(expected, is(
+			"{\"a fairly long key for a small buffer\":"
+			+ "\"value with \\\"quotes\\\" and \\u00E5\\u00E4\\u00F6 in it\","
+			+ "\"number\":1234567890123}"
+		));
+	}
+
+	@Test
+	public void testWriteIntegers()
+		throws IOException
+	{
+		String json = write(out -> {
+			out.writeListStart();
+			out.writeByte((byte) -128);
+			out.writeShort((short) 32767);
+			out.writeInt(0);
+			out.writeInt(-7);
+			out.writeInt(Integer.MIN_VALUE);
+			out.writeInt(Integer.MAX_VALUE);
+			out.writeLong(10000000000l);
+			out.writeLong(Long.MIN_VALUE);
+			out.writeLong(Long.MAX_VALUE);
+			out.writeListEnd();
+		});
+
+		assertThat(json, is("[-128,32767,0,-7,-2147483648,2147483647,"
+			+ "10000000000,-9223372036854775808,9223372036854775807]"));
+	}
+
+	@Test
+	public void testWriteDoubles()
+		throws IOException
+	{
+		double[] values = {
+			0.0, -0.0, 1.0, 0.1, -12.25, 3.14, 1.0E7, 9999999.0, 0.001, 1.0E-4,
+			2e-323, Double.MIN_VALUE, Double.MAX_VALUE, 9007199254740992.0,
+			0.30000000000000004, Double.NaN, Double.POSITIVE_INFINITY,
+			Double.NEGATIVE_INFINITY
+		};
+
+		String[] expected = {
+			"0.0", "-0.0", "1.0", "0.1", "-12.25", "3.14", "1.0E7", "9999999.0",
+			"0.001", "1.0E-4", "2.0E-323", "4.9E-324", "1.7976931348623157E308",
+			"9.007199254740992E15", "0.30000000000000004", "NaN", "Infinity",
+			"-Infinity"
+		};
+
+		for(int i=0; i<values.length; i++)
+		{
+			double value = values[i];
+			assertThat(write(out -> out.writeDouble(value)), is(expected[i]));
+		}
+	}
+
+	@Test
+	public void testWriteDoublesShortestForm()
+		throws IOException
+	{
+		/*
+		 * Double.toString before JDK 19 does not always give the shortest
+		 * representation, these values pin the output to the shortest one.
+		 */
+		double[] values = { 2.0E23, 8.41E21 };
+		String[] expected = { "2.0E23", "8.41E21" };
+
+		for(int i=0; i<values.length; i++)
+		{
+			double value = values[i];
+			assertThat(write(out -> out.writeDouble(value)), is(expected[i]));
+		}
+	}
+
+	@Test
+	public void testWriteFloats()
+		throws IOException
+	{
+		float[] values = {
+			0.0f, -0.0f, 1.0f, 0.1f, 3.14f, 1.0E7f, 1.0E-4f, Float.MIN_VALUE,
+			Float.MAX_VALUE, 16777216f, 0.3f
+		};
+
+		String[] expected = {
+			"0.0", "-0.0", "1.0", "0.1", "3.14", "1.0E7", "1.0E-4", "1.4E-45",
+			"3.4028235E38", "1.6777216E7", "0.3"
+		};
+
+		for(int i=0; i<values.length; i++)
+		{
+			float value = values[i];
+			assertThat(write(out -> out.writeFloat(value)), is(expected[i]));
+		}
+	}
+
+	@Test
+	public void testWriteDoublesRoundTrip()
+		throws IOException
+	{
+		Random random = new Random(42);
+		for(int i=0; i<10000; i++)
+		{
+			double value = Double.longBitsToDouble(random.nextLong());
+			if(Double.isNaN(value)) continue;
+
+			String json = write(out -> out.writeDouble(value));
+			assertThat(json, Double.parseDouble(json), is(value));
+		}
+	}
+}
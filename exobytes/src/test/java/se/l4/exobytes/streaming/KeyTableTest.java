@@ -0,0 +1,72 @@
+package se.l4.exobytes.streaming;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class KeyTableTest
+{
+	@Test
+	public void testIndexOfString()
+	{
+		KeyTable table = KeyTable.of("id", "name", "åäö");
+
+		assertThat(table.size(), is(3));
+		assertThat(table.indexOf("id"), is(0));
+		assertThat(table.indexOf("name"), is(1));
+		assertThat(table.indexOf("åäö"), is(2));
+		assertThat(table.indexOf(new StringBuilder("name")), is(1));
+		assertThat(table.indexOf("nam"), is(KeyTable.NOT_FOUND));
+		assertThat(table.indexOf(""), is(KeyTable.NOT_FOUND));
+	}
+
+	@Test
+	public void testIndexOfBytes()
+	{
+		KeyTable table = KeyTable.of("id", "name", "åäö");
+
+		byte[] data = "xxnameåäöid".getBytes(StandardCharsets.UTF_8);
+		assertThat(table.indexOf(data, 2, 4), is(1));
+		assertThat(table.indexOf(data, 6, 6), is(2));
+		assertThat(table.indexOf(data, 12, 2), is(0));
+		assertThat(table.indexOf(data, 2, 3), is(KeyTable.NOT_FOUND));
+		assertThat(table.indexOf(data, 0, 0), is(KeyTable.NOT_FOUND));
+	}
+
+	@Test
+	public void testManyKeys()
+	{
+		List<String> names = new ArrayList<>();
+		for(int i=0; i<1000; i++)
+		{
+			names.add("key" + i);
+		}
+
+		KeyTable table = KeyTable.of(names);
+		for(int i=0; i<1000; i++)
+		{
+			byte[] data = names.get(i).getBytes(StandardCharsets.UTF_8);
+			assertThat(table.indexOf(names.get(i)), is(i));
+			assertThat(table.indexOf(data, 0, data.length), is(i));
+		}
+	}
+
+	@Test
+	public void testEmpty()
+	{
+		KeyTable table = KeyTable.of();
+		assertThat(table.indexOf("id"), is(KeyTable.NOT_FOUND));
+	}
+
+	@Test
+	public void testDuplicateFails()
+	{
+		assertThrows(IllegalArgumentException.class, () -> KeyTable.of("id", "name", "id"));
+	}
+}
@@ -0,0 +1,296 @@
+package se.l4.exobytes.streaming;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.jupiter.api.Test;
+
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.internal.cbor.NonBlockingCBORInput;
+import se.l4.ylem.io.IOConsumer;
+
+/**
+ * Tests for {@link NonBlockingCBORInput} and {@link NonBlockingDecoder}.
+ */
+public class NonBlockingCBORInputTest
+{
+	private static final Serializer<Object> DYNAMIC = new Serializer<>()
+	{
+		@Override
+		public Object read(StreamingInput in)
+			throws IOException
+		{
+			in.next();
+			return in.readDynamic();
+		}
+
+		@Override
+		public void write(Object object, StreamingOutput out)
+			throws IOException
+		{
+			out.writeDynamic(object);
+		}
+	};
+
+	private byte[] write(IOConsumer<StreamingOutput> writer)
+		throws IOException
+	{
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try(StreamingOutput out = StreamingFormat.CBOR.createOutput(stream))
+		{
+			writer.accept(out);
+		}
+
+		return stream.toByteArray();
+	}
+
+	private static byte[] toBytes(String hex)
+	{
+		try
+		{
+			return Hex.decodeHex(hex);
+		}
+		catch(DecoderException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Test
+	public void testIsNotReusable()
+	{
+		NonBlockingInput in = StreamingFormat.CBOR.createNonBlockingInput();
+		assertThat(in, not(instanceOf(ReusableStreamingInput.class)));
+	}
+
+	@Test
+	public void testTokensFedByteByByte()
+		throws IOException
+	{
+		byte[] data = write(out -> {
+			out.writeObjectStart();
+			out.writeString("key");
+			out.writeListStart(2);
+			out.writeInt(1000000);
+			out.writeString("value");
+			out.writeListEnd();
+			out.writeObjectEnd();
+		});
+
+		NonBlockingInput in = StreamingFormat.CBOR.createNonBlockingInput();
+		assertThat(in.next(), is(Token.NEED_MORE_INPUT));
+
+		List<Token> tokens = new ArrayList<>();
+		List<Object> values = new ArrayList<>();
+		for(byte b : data)
+		{
+			in.feed(new byte[] { b }, 0, 1);
+
+			Token token;
+			while((token = in.next()) != Token.NEED_MORE_INPUT)
+			{
+				tokens.add(token);
+				if(token == Token.VALUE)
+				{
+					values.add(in.readDynamic());
+				}
+			}
+		}
+
+		in.endOfInput();
+		tokens.add(in.next());
+
+		assertThat(tokens, is(Arrays.asList(
+			Token.OBJECT_START,
+			Token.VALUE,
+			Token.LIST_START,
+			Token.VALUE,
+			Token.VALUE,
+			Token.LIST_END,
+			Token.OBJECT_END,
+			Token.END_OF_STREAM
+		)));
+
+		assertThat(values, is(Arrays.asList("key", 1000000L, "value")));
+	}
+
+	@Test
+	public void testPeekNeedsMoreInput()
+		throws IOException
+	{
+		NonBlockingInput in = StreamingFormat.CBOR.createNonBlockingInput();
+
+		// Text string of length 5 with only three bytes fed
+		in.feed(toBytes("65616263"), 0, 4);
+		assertThat(in.peek(), is(Token.NEED_MORE_INPUT));
+		assertThat(in.isValueAvailable(), is(false));
+
+		in.feed(toBytes("6465"), 0, 2);
+		assertThat(in.isValueAvailable(), is(true));
+		assertThat(in.next(), is(Token.VALUE));
+		assertThat(in.readString(), is("abcde"));
+	}
+
+	@Test
+	public void testIndefiniteStringNeedsBreak()
+		throws IOException
+	{
+		NonBlockingInput in = StreamingFormat.CBOR.createNonBlockingInput();
+
+		in.feed(toBytes("7f6161626262"), 0, 6);
+		assertThat(in.next(), is(Token.NEED_MORE_INPUT));
+
+		in.feed(toBytes("ff"), 0, 1);
+		assertThat(in.next(), is(Token.VALUE));
+		assertThat(in.readString(), is("abb"));
+	}
+
+	@Test
+	public void testEndOfInputInMiddleOfValueFails()
+		throws IOException
+	{
+		NonBlockingInput in = StreamingFormat.CBOR.createNonBlockingInput();
+
+		in.feed(toBytes("656162"), 0, 3);
+		assertThat(in.next(), is(Token.NEED_MORE_INPUT));
+
+		in.endOfInput();
+		assertThrows(IOException.class, () -> {
+			in.next();
+			in.readString();
+		});
+	}
+
+	@Test
+	public void testFeedAfterEndOfInputFails()
+	{
+		NonBlockingInput in = StreamingFormat.CBOR.createNonBlockingInput();
+		in.endOfInput();
+
+		assertThrows(IOException.class, () -> in.feed(new byte[1], 0, 1));
+	}
+
+	@Test
+	public void testDecoderWithSequenceInChunks()
+		throws IOException
+	{
+		Map<String, Object> map = new HashMap<>();
+		map.put("list", Arrays.asList(1L, 2L, "three"));
+		map.put("nested", Collections.singletonMap("key", true));
+
+		StringBuilder huge = new StringBuilder();
+		for(int i=0; i<20000; i++)
+		{
+			huge.append((char) ('a' + i % 26));
+		}
+
+		List<Object> expected = Arrays.asList(map, "value", 12L, null, huge.toString());
+
+		byte[] data = write(out -> {
+			for(Object o : expected)
+			{
+				if(o == null)
+				{
+					out.writeNull();
+				}
+				else
+				{
+					out.writeDynamic(o);
+				}
+			}
+		});
+
+		for(int chunkSize : new int[] { 1, 3, 7, 4096 })
+		{
+			List<Object> result = new ArrayList<>();
+			NonBlockingDecoder<Object> decoder = new NonBlockingDecoder<>(
+				StreamingFormat.CBOR.createNonBlockingInput(),
+				DYNAMIC,
+				result::add
+			);
+
+			int count = 0;
+			for(int i=0; i<data.length; i+=chunkSize)
+			{
+				count += decoder.feed(data, i, Math.min(chunkSize, data.length - i));
+			}
+
+			count += decoder.endOfInput();
+
+			assertThat(count, is(expected.size()));
+			assertThat(result, is(expected));
+		}
+	}
+
+	@Test
+	public void testDecoderIndefiniteLists()
+		throws IOException
+	{
+		byte[] data = write(out -> {
+			out.writeListStart();
+			out.writeListStart();
+			out.writeInt(1);
+			out.writeListEnd();
+			out.writeListStart(0);
+			out.writeListEnd();
+			out.writeListEnd();
+		});
+
+		List<Object> result = new ArrayList<>();
+		NonBlockingDecoder<Object> decoder = new NonBlockingDecoder<>(
+			StreamingFormat.CBOR.createNonBlockingInput(),
+			DYNAMIC,
+			result::add
+		);
+
+		for(int i=0; i<data.length - 1; i++)
+		{
+			assertThat(decoder.feed(data, i, 1), is(0));
+		}
+
+		assertThat(decoder.feed(data, data.length - 1, 1), is(1));
+		assertThat(result, is(Arrays.asList(
+			Arrays.asList(Arrays.asList(1L), Collections.emptyList())
+		)));
+	}
+
+	@Test
+	public void testDecoderTruncatedInputFails()
+		throws IOException
+	{
+		byte[] data = write(out -> {
+			out.writeListStart(2);
+			out.writeInt(1000);
+			out.writeString("value");
+			out.writeListEnd();
+		});
+
+		for(int length=1; length<data.length; length++)
+		{
+			List<Object> result = new ArrayList<>();
+			NonBlockingDecoder<Object> decoder = new NonBlockingDecoder<>(
+				StreamingFormat.CBOR.createNonBlockingInput(),
+				DYNAMIC,
+				result::add
+			);
+
+			decoder.feed(data, 0, length);
+			assertThrows(EOFException.class, () -> decoder.endOfInput());
+		}
+	}
+}
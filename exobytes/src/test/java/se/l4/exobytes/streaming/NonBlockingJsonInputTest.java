@@ -0,0 +1,258 @@
+package se.l4.exobytes.streaming;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import se.l4.exobytes.Serializer;
+import se.l4.exobytes.internal.streaming.NonBlockingJsonInput;
+
+/**
+ * Tests for {@link NonBlockingJsonInput} and {@link NonBlockingDecoder}.
+ */
+public class NonBlockingJsonInputTest
+{
+	private static final Serializer<Object> DYNAMIC = new Serializer<>()
+	{
+		@Override
+		public Object read(StreamingInput in)
+			throws IOException
+		{
+			in.next();
+			return in.readDynamic();
+		}
+
+		@Override
+		public void write(Object object, StreamingOutput out)
+			throws IOException
+		{
+			out.writeDynamic(object);
+		}
+	};
+
+	private static void feed(NonBlockingInput in, String data)
+		throws IOException
+	{
+		in.feed(ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void testIsNotReusable()
+	{
+		NonBlockingInput in = StreamingFormat.JSON.createNonBlockingInput();
+		assertThat(in, not(instanceOf(ReusableStreamingInput.class)));
+	}
+
+	@Test
+	public void testTokensFedByteByByte()
+		throws IOException
+	{
+		byte[] data = "{ \"key\" : [ 1000000, \"va\\\"lue\", true ], \"åäö\": null }"
+			.getBytes(StandardCharsets.UTF_8);
+
+		NonBlockingInput in = StreamingFormat.JSON.createNonBlockingInput();
+		assertThat(in.next(), is(Token.NEED_MORE_INPUT));
+
+		List<Token> tokens = new ArrayList<>();
+		List<Object> values = new ArrayList<>();
+		for(byte b : data)
+		{
+			in.feed(new byte[] { b }, 0, 1);
+
+			Token token;
+			while((token = in.next()) != Token.NEED_MORE_INPUT)
+			{
+				tokens.add(token);
+				if(token == Token.VALUE)
+				{
+					values.add(in.readDynamic());
+				}
+			}
+		}
+
+		in.endOfInput();
+		tokens.add(in.next());
+
+		assertThat(tokens, is(Arrays.asList(
+			Token.OBJECT_START,
+			Token.VALUE,
+			Token.LIST_START,
+			Token.VALUE,
+			Token.VALUE,
+			Token.VALUE,
+			Token.LIST_END,
+			Token.VALUE,
+			Token.NULL,
+			Token.OBJECT_END,
+			Token.END_OF_STREAM
+		)));
+
+		assertThat(values, is(Arrays.asList("key", 1000000L, "va\"lue", true, "åäö")));
+	}
+
+	@Test
+	public void testNumberNeedsDelimiter()
+		throws IOException
+	{
+		NonBlockingInput in = StreamingFormat.JSON.createNonBlockingInput();
+
+		feed(in, "12");
+		assertThat(in.peek(), is(Token.NEED_MORE_INPUT));
+		assertThat(in.isValueAvailable(), is(false));
+
+		feed(in, "34\n");
+		assertThat(in.isValueAvailable(), is(true));
+		assertThat(in.next(), is(Token.VALUE));
+		assertThat(in.readInt(), is(1234));
+	}
+
+	@Test
+	public void testNumberCompletedByEndOfInput()
+		throws IOException
+	{
+		NonBlockingInput in = StreamingFormat.JSON.createNonBlockingInput();
+
+		feed(in, "12.5");
+		assertThat(in.next(), is(Token.NEED_MORE_INPUT));
+
+		in.endOfInput();
+		assertThat(in.next(), is(Token.VALUE));
+		assertThat(in.readDouble(), is(12.5));
+		assertThat(in.next(), is(Token.END_OF_STREAM));
+	}
+
+	@Test
+	public void testKeyWaitsForColon()
+		throws IOException
+	{
+		NonBlockingInput in = StreamingFormat.JSON.createNonBlockingInput();
+
+		feed(in, "{\"key\"  ");
+		assertThat(in.next(), is(Token.OBJECT_START));
+		assertThat(in.next(), is(Token.NEED_MORE_INPUT));
+
+		feed(in, ": \"value\"}");
+		assertThat(in.next(), is(Token.VALUE));
+		assertThat(in.readString(), is("key"));
+		assertThat(in.next(), is(Token.VALUE));
+		assertThat(in.readString(), is("value"));
+		assertThat(in.next(), is(Token.OBJECT_END));
+	}
+
+	@Test
+	public void testCommaFedAfterValue()
+		throws IOException
+	{
+		NonBlockingInput in = StreamingFormat.JSON.createNonBlockingInput();
+
+		feed(in, "[1 ");
+		assertThat(in.next(), is(Token.LIST_START));
+		assertThat(in.next(), is(Token.VALUE));
+		assertThat(in.readInt(), is(1));
+		assertThat(in.next(), is(Token.NEED_MORE_INPUT));
+
+		feed(in, ", 2]");
+		in.endOfInput();
+		assertThat(in.next(), is(Token.VALUE));
+		assertThat(in.readInt(), is(2));
+		assertThat(in.next(), is(Token.LIST_END));
+		assertThat(in.next(), is(Token.END_OF_STREAM));
+	}
+
+	@Test
+	public void testEndOfInputInMiddleOfStringFails()
+		throws IOException
+	{
+		NonBlockingInput in = StreamingFormat.JSON.createNonBlockingInput();
+
+		feed(in, "\"abc");
+		assertThat(in.next(), is(Token.NEED_MORE_INPUT));
+
+		in.endOfInput();
+		assertThrows(IOException.class, () -> {
+			in.next();
+			in.readString();
+		});
+	}
+
+	@Test
+	public void testDecoderWithNewlineDelimitedValuesInChunks()
+		throws IOException
+	{
+		Map<String, Object> map = new HashMap<>();
+		map.put("list", Arrays.asList(1L, 2L, "th}r]e\\\"e"));
+		map.put("nested", Collections.singletonMap("key", true));
+
+		StringBuilder huge = new StringBuilder();
+		for(int i=0; i<20000; i++)
+		{
+			huge.append((char) ('a' + i % 26));
+		}
+
+		String data = "{\"list\":[1,2,\"th}r]e\\\\\\\"e\"],\"nested\":{\"key\":true}}\n"
+			+ "\"value\"\n"
+			+ "12\n"
+			+ "null\n"
+			+ "[]\n"
+			+ "\"" + huge + "\"\n";
+
+		List<Object> expected = Arrays.asList(map, "value", 12L, null, Collections.emptyList(), huge.toString());
+
+		byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+		for(int chunkSize : new int[] { 1, 3, 7, 4096 })
+		{
+			List<Object> result = new ArrayList<>();
+			NonBlockingDecoder<Object> decoder = new NonBlockingDecoder<>(
+				StreamingFormat.JSON.createNonBlockingInput(),
+				DYNAMIC,
+				result::add
+			);
+
+			int count = 0;
+			for(int i=0; i<bytes.length; i+=chunkSize)
+			{
+				count += decoder.feed(bytes, i, Math.min(chunkSize, bytes.length - i));
+			}
+
+			count += decoder.endOfInput();
+
+			assertThat(count, is(expected.size()));
+			assertThat(result, is(expected));
+		}
+	}
+
+	@Test
+	public void testDecoderTruncatedInputFails()
+		throws IOException
+	{
+		byte[] data = "{\"list\":[1,\"value\"],\"key\":true}".getBytes(StandardCharsets.UTF_8);
+
+		for(int length=1; length<data.length; length++)
+		{
+			List<Object> result = new ArrayList<>();
+			NonBlockingDecoder<Object> decoder = new NonBlockingDecoder<>(
+				StreamingFormat.JSON.createNonBlockingInput(),
+				DYNAMIC,
+				result::add
+			);
+
+			decoder.feed(data, 0, length);
+			assertThrows(EOFException.class, () -> decoder.endOfInput());
+		}
+	}
+}
@@ -11,6 +11,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.util.Map;
 
 import org.apache.commons.codec.DecoderException;
@@ -307,6 +309,298 @@ public abstract class StreamingFormatTest
 		}
 	}
 
+	@Test
+	public void testSymmetryStringLargerThanBuffer()
+		throws IOException
+	{
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i<4000; i++)
+		{
+			builder.append("ab\u00e5\u2603\ud83d\ude00");
+		}
+		String value = builder.toString();
+
+		IOSupplier<StreamingInput> in0 = write(out -> {
+			out.writeString(value);
+		});
+
+		try(StreamingInput in = in0.get())
+		{
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is(value));
+			in.next(Token.END_OF_STREAM);
+		}
+	}
+
+	@Test
+	public void testReadKey()
+		throws IOException
+	{
+		KeyTable keys = KeyTable.of("id", "name", "\u00e5\u2603");
+
+		IOSupplier<StreamingInput> in0 = write(out -> {
+			out.writeObjectStart();
+			out.writeString("name");
+			out.writeString("value");
+			out.writeString("unknown");
+			out.writeInt(1);
+			out.writeString("\u00e5\u2603");
+			out.writeInt(2);
+			out.writeString("id");
+			out.writeInt(3);
+			out.writeObjectEnd();
+		});
+
+		try(StreamingInput in = in0.get())
+		{
+			in.next(Token.OBJECT_START);
+
+			in.next(Token.VALUE);
+			assertThat(in.readKey(keys), is(1));
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is("value"));
+
+			in.next(Token.VALUE);
+			assertThat(in.readKey(keys), is(KeyTable.NOT_FOUND));
+			in.skipNext();
+
+			in.next(Token.VALUE);
+			assertThat(in.readKey(keys), is(2));
+			in.next(Token.VALUE);
+			assertThat(in.readInt(), is(2));
+
+			in.next(Token.VALUE);
+			assertThat(in.readKey(keys), is(0));
+			in.next(Token.VALUE);
+			assertThat(in.readInt(), is(3));
+
+			in.next(Token.OBJECT_END);
+			in.next(Token.END_OF_STREAM);
+		}
+	}
+
+	@Test
+	public void testReadKeyLargerThanBuffer()
+		throws IOException
+	{
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i<2000; i++)
+		{
+			builder.append("key\u00e5");
+		}
+		String key = builder.toString();
+
+		KeyTable keys = KeyTable.of("short", key);
+
+		IOSupplier<StreamingInput> in0 = write(out -> {
+			out.writeObjectStart();
+			out.writeString(key);
+			out.writeInt(1);
+			out.writeString("short");
+			out.writeInt(2);
+			out.writeObjectEnd();
+		});
+
+		try(StreamingInput in = in0.get())
+		{
+			in.next(Token.OBJECT_START);
+
+			in.next(Token.VALUE);
+			assertThat(in.readKey(keys), is(1));
+			in.next(Token.VALUE);
+			assertThat(in.readInt(), is(1));
+
+			in.next(Token.VALUE);
+			assertThat(in.readKey(keys), is(0));
+			in.next(Token.VALUE);
+			assertThat(in.readInt(), is(2));
+
+			in.next(Token.OBJECT_END);
+		}
+	}
+
+	@Test
+	public void testDeepNesting()
+		throws IOException
+	{
+		int depth = 200;
+		IOSupplier<StreamingInput> in0 = write(out -> {
+			for(int i=0; i<depth; i++)
+			{
+				if(i % 2 == 0)
+				{
+					out.writeListStart();
+				}
+				else
+				{
+					out.writeObjectStart();
+					out.writeString("key");
+				}
+			}
+
+			out.writeInt(42);
+
+			for(int i=depth-1; i>=0; i--)
+			{
+				if(i % 2 == 0)
+				{
+					out.writeListEnd();
+				}
+				else
+				{
+					out.writeObjectEnd();
+				}
+			}
+		});
+
+		try(StreamingInput in = in0.get())
+		{
+			for(int i=0; i<depth; i++)
+			{
+				if(i % 2 == 0)
+				{
+					in.next(Token.LIST_START);
+				}
+				else
+				{
+					in.next(Token.OBJECT_START);
+					in.next(Token.VALUE);
+					assertThat(in.readString(), is("key"));
+				}
+			}
+
+			in.next(Token.VALUE);
+			assertThat(in.readInt(), is(42));
+
+			for(int i=depth-1; i>=0; i--)
+			{
+				in.next(i % 2 == 0 ? Token.LIST_END : Token.OBJECT_END);
+			}
+
+			in.next(Token.END_OF_STREAM);
+		}
+	}
+
+	@Test
+	public void testWriteDeeperThanMaxDepthFails()
+	{
+		assertThrows(IOException.class, () -> writeToBytes(out -> {
+			for(int i=0; i<=1000; i++)
+			{
+				out.writeListStart();
+			}
+		}));
+	}
+
+	@Test
+	public void testReadFromArrayWithOffset()
+		throws IOException
+	{
+		byte[] written = writeToBytes(out -> {
+			out.writeListStart();
+			out.writeString("string value");
+			out.writeInt(42);
+			out.writeListEnd();
+		});
+
+		byte[] data = new byte[written.length + 6];
+		System.arraycopy(written, 0, data, 3, written.length);
+
+		try(StreamingInput in = format().createInput(data, 3, written.length))
+		{
+			in.next(Token.LIST_START);
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is("string value"));
+			in.next(Token.VALUE);
+			assertThat(in.readInt(), is(42));
+			in.next(Token.LIST_END);
+			in.next(Token.END_OF_STREAM);
+		}
+	}
+
+	@Test
+	public void testReadFromByteBuffer()
+		throws IOException
+	{
+		byte[] written = writeToBytes(out -> {
+			out.writeString("string value");
+		});
+
+		ByteBuffer heap = ByteBuffer.wrap(written);
+		ByteBuffer direct = ByteBuffer.allocateDirect(written.length);
+		direct.put(written);
+		direct.flip();
+
+		for(ByteBuffer buffer : new ByteBuffer[] { heap, direct })
+		{
+			try(StreamingInput in = format().createInput(buffer))
+			{
+				in.next(Token.VALUE);
+				assertThat(in.readString(), is("string value"));
+				in.next(Token.END_OF_STREAM);
+			}
+
+			assertThat(buffer.position(), is(0));
+		}
+	}
+
+	@Test
+	public void testWriteToByteBuffer()
+		throws IOException
+	{
+		IOConsumer<StreamingOutput> writer = out -> {
+			out.writeListStart();
+			out.writeString("string value");
+			out.writeInt(42);
+			out.writeListEnd();
+		};
+
+		byte[] expected = writeToBytes(writer);
+
+		ByteBuffer heap = ByteBuffer.allocate(expected.length + 10);
+		heap.position(4);
+		ByteBuffer direct = ByteBuffer.allocateDirect(expected.length + 10);
+		direct.position(4);
+
+		for(ByteBuffer buffer : new ByteBuffer[] { heap, direct })
+		{
+			try(StreamingOutput out = format().createOutput(buffer))
+			{
+				writer.accept(out);
+			}
+
+			assertThat(buffer.position(), is(4 + expected.length));
+
+			buffer.flip();
+			buffer.position(4);
+			byte[] written = new byte[buffer.remaining()];
+			buffer.get(written);
+			assertThat(written, is(expected));
+		}
+	}
+
+	@Test
+	public void testWriteToChannel()
+		throws IOException
+	{
+		IOConsumer<StreamingOutput> writer = out -> {
+			out.writeListStart();
+			out.writeString("string value");
+			out.writeInt(42);
+			out.writeListEnd();
+		};
+
+		byte[] expected = writeToBytes(writer);
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try(StreamingOutput out = format().createOutput(Channels.newChannel(stream)))
+		{
+			writer.accept(out);
+		}
+
+		assertThat(stream.toByteArray(), is(expected));
+	}
+
 	@Test
 	public void testSymmetryByteArray()
 		throws IOException
@@ -324,6 +618,28 @@ public abstract class StreamingFormatTest
 		}
 	}
 
+	@Test
+	public void testSymmetryByteArrayLargerThanBuffer()
+		throws IOException
+	{
+		byte[] data = new byte[50000];
+		for(int i=0; i<data.length; i++)
+		{
+			data[i] = (byte) i;
+		}
+
+		IOSupplier<StreamingInput> in0 = write(out -> {
+			out.writeByteArray(data);
+		});
+
+		try(StreamingInput in = in0.get())
+		{
+			in.next(Token.VALUE);
+			assertThat(in.readByteArray(), is(data));
+			in.next(Token.END_OF_STREAM);
+		}
+	}
+
 	@Test
 	public void testSymmetryObjectEmpty()
 		throws IOException
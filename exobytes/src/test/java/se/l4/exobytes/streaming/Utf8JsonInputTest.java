@@ -0,0 +1,215 @@
+package se.l4.exobytes.streaming;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import se.l4.exobytes.internal.streaming.Utf8JsonInput;
+
+/**
+ * Test for {@link Utf8JsonInput}. Runs the same documents as
+ * {@link JsonInputTest} and adds tests for values that cross buffer
+ * boundaries.
+ */
+public class Utf8JsonInputTest
+	extends JsonInputTest
+{
+	@Override
+	protected StreamingInput createInput(String in)
+		throws IOException
+	{
+		byte[] data = in.getBytes(StandardCharsets.UTF_8);
+		return new Utf8JsonInput(data, 0, data.length);
+	}
+
+	private StreamingInput createTrickleInput(String in)
+	{
+		return new Utf8JsonInput(new TrickleInputStream(in.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void testReuseReader()
+		throws IOException
+	{
+		ReusableStreamingInput reader = StreamingFormat.JSON.newReader();
+
+		byte[] partial = "[[\"abc".getBytes(StandardCharsets.UTF_8);
+		reader.reset(partial, 0, partial.length);
+		reader.next(Token.LIST_START);
+		reader.next(Token.LIST_START);
+
+		for(int i=0; i<3; i++)
+		{
+			byte[] data = ("{ \"key\": " + i + " }").getBytes(StandardCharsets.UTF_8);
+			if(i % 2 == 0)
+			{
+				reader.reset(data, 0, data.length);
+			}
+			else
+			{
+				reader.reset(new TrickleInputStream(data));
+			}
+
+			reader.next(Token.OBJECT_START);
+			reader.next(Token.VALUE);
+			assertThat(reader.readString(), is("key"));
+			reader.next(Token.VALUE);
+			assertThat(reader.readInt(), is(i));
+			reader.next(Token.OBJECT_END);
+			reader.next(Token.END_OF_STREAM);
+		}
+	}
+
+	@Test
+	public void testReadStringNonASCII()
+		throws IOException
+	{
+		try(StreamingInput in = createInput("\"åäö ☃ 😀\""))
+		{
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is("åäö ☃ 😀"));
+			in.next(Token.END_OF_STREAM);
+		}
+	}
+
+	@Test
+	public void testReadStringEscapedUnicode()
+		throws IOException
+	{
+		try(StreamingInput in = createInput("\"a\\u00e5b\\u2603\""))
+		{
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is("aåb☃"));
+			in.next(Token.END_OF_STREAM);
+		}
+	}
+
+	@Test
+	public void testReadMalformedUTF8()
+		throws IOException
+	{
+		byte[] data = new byte[] { '"', 'a', (byte) 0xc3, 'b', (byte) 0xff, '"' };
+		try(StreamingInput in = new Utf8JsonInput(data, 0, data.length))
+		{
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is("a�b�"));
+			in.next(Token.END_OF_STREAM);
+		}
+	}
+
+	@Test
+	public void testReadAcrossBuffer()
+		throws IOException
+	{
+		String json = "{ \"key\": \"value with åäö and \\\"escapes\\\" 😀\", "
+			+ "\"number\": -1234567890123, \"double\": 12.25e2, \"flag\": true }";
+
+		try(StreamingInput in = createTrickleInput(json))
+		{
+			in.next(Token.OBJECT_START);
+
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is("key"));
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is("value with åäö and \"escapes\" 😀"));
+
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is("number"));
+			in.next(Token.VALUE);
+			assertThat(in.readLong(), is(-1234567890123l));
+
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is("double"));
+			in.next(Token.VALUE);
+			assertThat(in.readDouble(), is(1225.0));
+
+			in.next(Token.VALUE);
+			assertThat(in.readString(), is("flag"));
+			in.next(Token.VALUE);
+			assertThat(in.readBoolean(), is(true));
+
+			in.next(Token.OBJECT_END);
+			in.next(Token.END_OF_STREAM);
+		}
+	}
+
+	@Test
+	public void testReadLongOverflowFallsBackToDouble()
+		throws IOException
+	{
+		try(StreamingInput in = createInput("[9223372036854775807, -9223372036854775808, 1e3, -0]"))
+		{
+			in.next(Token.LIST_START);
+			in.next(Token.VALUE);
+			assertThat(in.readLong(), is(Long.MAX_VALUE));
+			in.next(Token.VALUE);
+			assertThat(in.readLong(), is(Long.MIN_VALUE));
+			in.next(Token.VALUE);
+			assertThat(in.readLong(), is(1000l));
+			in.next(Token.VALUE);
+			assertThat(in.readDouble(), is(-0.0));
+			in.next(Token.LIST_END);
+		}
+	}
+
+	@Test
+	public void testReadDoublesMatchParseDouble()
+		throws IOException
+	{
+		String[] values = {
+			"0", "-0", "0.1", "1.5", "-12.25e2", "1E-7", "3.141592653589793",
+			"9007199254740993", "1e23", "8.589973e9", "2.2250738585072014e-308",
+			"1.7976931348623157e308", "4.9e-324", "1e400", "123456789012345678901234567890",
+			"7.3177701707893310e15", "0.30000000000000004", "1.", "+5", "1d"
+		};
+
+		try(StreamingInput in = createInput("[" + String.join(",", values) + "]"))
+		{
+			in.next(Token.LIST_START);
+			for(String value : values)
+			{
+				in.next(Token.VALUE);
+				assertThat(value, in.readDouble(), is(Double.parseDouble(value)));
+			}
+			in.next(Token.LIST_END);
+		}
+	}
+
+	/**
+	 * Stream that returns at most a few bytes per read, used to verify that
+	 * values crossing the end of the buffer are read correctly.
+	 */
+	private static class TrickleInputStream
+		extends InputStream
+	{
+		private final byte[] data;
+		private int index;
+
+		public TrickleInputStream(byte[] data)
+		{
+			this.data = data;
+		}
+
+		@Override
+		public int read()
+		{
+			return index < data.length ? data[index++] & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len)
+		{
+			if(index >= data.length) return -1;
+
+			int n = Math.min(Math.min(len, 3), data.length - index);
+			System.arraycopy(data, index, b, off, n);
+			index += n;
+			return n;
+		}
+	}
+}